@@ -2,8 +2,10 @@ package com.dge.rag_chat_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class RagChatServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,61 @@
+package com.dge.rag_chat_service.bulkload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of a bulk load, persisted between runs.
+ *
+ * @param files byte offset up to which each input file has been committed, and whether it is finished
+ * @param droppedIndexes definitions of indexes dropped for the load that still have to be rebuilt
+ */
+public record BulkLoadCheckpoint(Map<String, FileProgress> files, List<String> droppedIndexes) {
+
+    public record FileProgress(long offset, boolean done) {}
+
+    static BulkLoadCheckpoint empty() {
+        return new BulkLoadCheckpoint(Map.of(), List.of());
+    }
+
+    static BulkLoadCheckpoint read(Path path, ObjectMapper objectMapper) throws IOException {
+        if (!Files.exists(path)) {
+            return empty();
+        }
+        BulkLoadCheckpoint checkpoint = objectMapper.readValue(path.toFile(), BulkLoadCheckpoint.class);
+        return new BulkLoadCheckpoint(
+                checkpoint.files() == null ? Map.of() : checkpoint.files(),
+                checkpoint.droppedIndexes() == null ? List.of() : checkpoint.droppedIndexes());
+    }
+
+    /**
+     * Writes the checkpoint atomically, so a crash leaves either the old or the new version.
+     */
+    void write(Path path, ObjectMapper objectMapper) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, "bulk-load", ".tmp");
+        objectMapper.writeValue(tmp.toFile(), this);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    FileProgress progress(String file) {
+        return files.getOrDefault(file, new FileProgress(0, false));
+    }
+
+    BulkLoadCheckpoint withProgress(String file, FileProgress progress) {
+        Map<String, FileProgress> updated = new LinkedHashMap<>(files);
+        updated.put(file, progress);
+        return new BulkLoadCheckpoint(updated, droppedIndexes);
+    }
+
+    BulkLoadCheckpoint withDroppedIndexes(List<String> definitions) {
+        return new BulkLoadCheckpoint(files, List.copyOf(definitions));
+    }
+}
@@ -0,0 +1,41 @@
+package com.dge.rag_chat_service.bulkload;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the bulk loader when the application is started with the {@code bulk-load} profile and exits afterwards.
+ * The exit code is 0 when the load finished and 1 when it has to be resumed.
+ */
+@Component
+@Profile("bulk-load")
+@RequiredArgsConstructor
+@Slf4j
+public class BulkLoadRunner implements ApplicationRunner {
+
+    private final BulkLoader bulkLoader;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            bulkLoader.run();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.error("Bulk load interrupted", ex);
+            exitCode = 1;
+        } catch (Exception ex) {
+            log.error("Bulk load failed, run again to resume from the last checkpoint", ex);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
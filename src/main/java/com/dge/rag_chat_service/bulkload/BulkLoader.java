@@ -0,0 +1,384 @@
+package com.dge.rag_chat_service.bulkload;
+
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.config.BulkLoadProperties;
+import com.dge.rag_chat_service.entity.UuidV7Generator;
+import com.dge.rag_chat_service.repository.BulkLoadRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads historical chat logs from JSONL files straight into the database.
+ *
+ * Files are read line by line in name order. Records are routed to a fixed writer by session id, so all
+ * messages of a session go through the same connection, and each writer loads its batches with COPY.
+ * Every {@code checkpointEvery} records, and at the end of each file, the reader waits for all writers and
+ * stores the byte offset reached; a restarted load continues from there. Records loaded twice are skipped by
+ * the database, so the work repeated after a crash is harmless.
+ *
+ * A batch that inserts anything also bumps the session list version of its users in the same transaction; once it
+ * has committed, the new versions are published so cached listings of those users stop matching.
+ */
+@Component
+@Profile("bulk-load")
+@Slf4j
+public class BulkLoader {
+
+    /**
+     * Outcome of a load.
+     */
+    public record Report(long read, long inserted, long invalid, Duration elapsed) {
+
+        public double rowsPerSecond() {
+            return elapsed.isZero() ? 0 : read * 1000.0 / elapsed.toMillis();
+        }
+    }
+
+    private static final Object STOP = new Object();
+
+    private final BulkLoadRepository repository;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final BulkLoadProperties properties;
+    private final SessionListVersionCache listVersions;
+    private final Path checkpointPath;
+
+    private final LongAdder read = new LongAdder();
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private volatile String currentFile = "";
+
+    private BulkLoadCheckpoint checkpoint;
+
+    public BulkLoader(BulkLoadRepository repository, DataSource dataSource, ObjectMapper objectMapper,
+                      BulkLoadProperties properties, SessionListVersionCache listVersions) {
+        this.repository = repository;
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.listVersions = listVersions;
+        this.checkpointPath = Path.of(properties.checkpointFile());
+    }
+
+    /**
+     * Runs the load to completion.
+     *
+     * @throws IOException if an input file cannot be read or a writer failed; progress up to the last
+     *                     checkpoint is kept
+     */
+    public Report run() throws IOException, SQLException, InterruptedException {
+        long started = System.nanoTime();
+        checkpoint = BulkLoadCheckpoint.read(checkpointPath, objectMapper);
+        List<Path> files = inputFiles();
+        log.info("Bulk load of {} files from {} with {} writers", files.size(), properties.input(), properties.workers());
+
+        if (properties.dropIndexes() && checkpoint.droppedIndexes().isEmpty()) {
+            checkpoint = checkpoint.withDroppedIndexes(repository.dropSecondaryIndexes());
+            checkpoint.write(checkpointPath, objectMapper);
+            log.info("Dropped indexes {}", checkpoint.droppedIndexes());
+        }
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("bulk-load-report").daemon().factory());
+        long reportMillis = properties.reportInterval().toMillis();
+        reporter.scheduleAtFixedRate(new ProgressReporter(started), reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+
+        List<Writer> writers = new ArrayList<>();
+        try {
+            for (int i = 0; i < properties.workers(); i++) {
+                Writer writer = new Writer(dataSource.getConnection());
+                writers.add(writer);
+                Thread.ofPlatform().name("bulk-load-writer-" + i).start(writer);
+            }
+            for (Path file : files) {
+                loadFile(file, writers);
+            }
+        } finally {
+            reporter.shutdownNow();
+            for (Writer writer : writers) {
+                writer.stop();
+            }
+        }
+
+        if (!checkpoint.droppedIndexes().isEmpty()) {
+            long indexStart = System.nanoTime();
+            repository.createIndexes(checkpoint.droppedIndexes());
+            checkpoint = checkpoint.withDroppedIndexes(List.of());
+            checkpoint.write(checkpointPath, objectMapper);
+            log.info("Rebuilt indexes in {}", Duration.ofNanos(System.nanoTime() - indexStart));
+        }
+
+        Report report = new Report(read.sum(), inserted.sum(), invalid.sum(), Duration.ofNanos(System.nanoTime() - started));
+        log.info("Bulk load finished: read={}, inserted={}, invalid={}, elapsed={}, {} rows/s",
+                report.read(), report.inserted(), report.invalid(), report.elapsed(), Math.round(report.rowsPerSecond()));
+        return report;
+    }
+
+    private void loadFile(Path file, List<Writer> writers) throws IOException, InterruptedException {
+        String name = file.getFileName().toString();
+        BulkLoadCheckpoint.FileProgress progress = checkpoint.progress(name);
+        if (progress.done()) {
+            log.info("Skipping {}, already loaded", name);
+            return;
+        }
+        currentFile = name;
+        log.info("Loading {} from offset {}", name, progress.offset());
+
+        List<List<LegacyChatRecord>> buffers = new ArrayList<>();
+        writers.forEach(w -> buffers.add(new ArrayList<>(properties.batchSize())));
+
+        try (InputStream in = open(file)) {
+            skipFully(in, progress.offset());
+            long offset = progress.offset();
+            long sinceCheckpoint = 0;
+            ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+            int length;
+            while ((length = readLine(in, line)) >= 0) {
+                long lineOffset = offset;
+                offset += length;
+                LegacyChatRecord record = parse(line, name, lineOffset);
+                if (record == null) {
+                    continue;
+                }
+                read.increment();
+                int target = Math.floorMod(record.sessionId().hashCode(), writers.size());
+                List<LegacyChatRecord> buffer = buffers.get(target);
+                buffer.add(record);
+                if (buffer.size() >= properties.batchSize()) {
+                    writers.get(target).submit(List.copyOf(buffer));
+                    buffer.clear();
+                }
+                if (++sinceCheckpoint >= properties.checkpointEvery()) {
+                    commit(writers, buffers, name, new BulkLoadCheckpoint.FileProgress(offset, false));
+                    sinceCheckpoint = 0;
+                }
+            }
+            commit(writers, buffers, name, new BulkLoadCheckpoint.FileProgress(offset, true));
+        }
+    }
+
+    private LegacyChatRecord parse(ByteArrayOutputStream line, String file, long offset) {
+        byte[] bytes = line.toByteArray();
+        if (isBlank(bytes)) {
+            return null;
+        }
+        try {
+            LegacyChatRecord record = objectMapper.readValue(bytes, LegacyChatRecord.class);
+            if (!record.isValid()) {
+                invalid.increment();
+                log.debug("Skipping incomplete record in {} at offset {}", file, offset);
+                return null;
+            }
+            if (record.id() == null) {
+                byte[] key = (file + ':' + offset).getBytes(StandardCharsets.UTF_8);
+                record = record.withId(UuidV7Generator.fromName(record.createdAt().toEpochMilli(), key));
+            }
+            return record;
+        } catch (IOException ex) {
+            invalid.increment();
+            log.debug("Skipping malformed record in {} at offset {}", file, offset);
+            return null;
+        }
+    }
+
+    /**
+     * Flushes all buffers, waits until every writer has committed them and then stores the checkpoint.
+     */
+    private void commit(List<Writer> writers, List<List<LegacyChatRecord>> buffers, String file,
+                        BulkLoadCheckpoint.FileProgress progress) throws IOException, InterruptedException {
+        for (int i = 0; i < writers.size(); i++) {
+            if (!buffers.get(i).isEmpty()) {
+                writers.get(i).submit(List.copyOf(buffers.get(i)));
+                buffers.get(i).clear();
+            }
+        }
+        CountDownLatch barrier = new CountDownLatch(writers.size());
+        for (Writer writer : writers) {
+            writer.submit(barrier);
+        }
+        barrier.await();
+        Exception ex = failure.get();
+        if (ex != null) {
+            throw new IOException("Bulk load writer failed, resume from the last checkpoint", ex);
+        }
+        checkpoint = checkpoint.withProgress(file, progress);
+        checkpoint.write(checkpointPath, objectMapper);
+    }
+
+    private List<Path> inputFiles() throws IOException {
+        if (properties.input() == null) {
+            throw new IllegalArgumentException("bulk-load.input must be set");
+        }
+        Path input = Path.of(properties.input());
+        if (!Files.isDirectory(input)) {
+            return List.of(input);
+        }
+        try (Stream<Path> files = Files.list(input)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.endsWith(".jsonl") || name.endsWith(".jsonl.gz");
+            }).sorted().toList();
+        }
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        return file.getFileName().toString().endsWith(".gz") ? new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16) : in;
+    }
+
+    private static void skipFully(InputStream in, long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Input is shorter than the checkpoint offset");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Reads one line without its terminator into {@code line}.
+     *
+     * @return bytes consumed including the terminator, or -1 at end of input
+     */
+    private static int readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+        line.reset();
+        int consumed = 0;
+        int b;
+        while ((b = in.read()) >= 0) {
+            consumed++;
+            if (b == '\n') {
+                return consumed;
+            }
+            line.write(b);
+        }
+        return consumed == 0 ? -1 : consumed;
+    }
+
+    private static boolean isBlank(byte[] bytes) {
+        for (byte b : bytes) {
+            if (!Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A COPY writer with its own connection. The queue is short so a slow database holds back the reader.
+     */
+    private final class Writer implements Runnable {
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(2);
+        private final Connection connection;
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        Writer(Connection connection) throws SQLException {
+            this.connection = connection;
+            connection.setAutoCommit(false);
+        }
+
+        void submit(Object item) throws InterruptedException {
+            queue.put(item);
+        }
+
+        void stop() throws InterruptedException {
+            queue.put(STOP);
+            stopped.await();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            try {
+                while (true) {
+                    Object item = queue.take();
+                    if (item == STOP) {
+                        return;
+                    }
+                    if (item instanceof CountDownLatch barrier) {
+                        barrier.countDown();
+                    } else if (failure.get() == null) {
+                        try {
+                            List<LegacyChatRecord> batch = (List<LegacyChatRecord>) item;
+                            long added = repository.load(connection, batch);
+                            inserted.add(added);
+                            if (added > 0) {
+                                // The batch committed with a bump of each of its users' versions
+                                batch.stream().map(LegacyChatRecord::userId).distinct().forEach(listVersions::refresh);
+                            }
+                        } catch (SQLException | IOException | RuntimeException ex) {
+                            failure.compareAndSet(null, ex);
+                            log.error("Bulk load batch failed", ex);
+                        }
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException ex) {
+                    log.warn("Cannot close bulk load connection", ex);
+                }
+                stopped.countDown();
+            }
+        }
+    }
+
+    private final class ProgressReporter implements Runnable {
+
+        private final long started;
+        private long lastRead;
+        private long lastTime;
+
+        ProgressReporter(long started) {
+            this.started = started;
+            this.lastTime = started;
+        }
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            long total = read.sum();
+            double recent = (total - lastRead) * 1e9 / Math.max(1, now - lastTime);
+            double overall = total * 1e9 / Math.max(1, now - started);
+            log.info("Bulk load progress: file={}, read={}, inserted={}, invalid={}, {} rows/s (overall {} rows/s)",
+                    currentFile, total, inserted.sum(), invalid.sum(), Math.round(recent), Math.round(overall));
+            lastRead = total;
+            lastTime = now;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.dge.rag_chat_service.bulkload;
+
+import com.dge.rag_chat_service.dto.SenderType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One line of a historical chat log. Sessions are created from the first record seen for them.
+ * The id is optional; without one a deterministic id is derived so reloading a file does not duplicate rows.
+ */
+public record LegacyChatRecord(
+        UUID id,
+        UUID sessionId,
+        String userId,
+        String sessionName,
+        SenderType sender,
+        String message,
+        JsonNode context,
+        Instant createdAt
+) {
+
+    boolean isValid() {
+        return sessionId != null && userId != null && sender != null && message != null && createdAt != null;
+    }
+
+    LegacyChatRecord withId(UUID newId) {
+        return new LegacyChatRecord(newId, sessionId, userId, sessionName, sender, message, context, createdAt);
+    }
+}
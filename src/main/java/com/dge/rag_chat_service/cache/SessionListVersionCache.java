@@ -0,0 +1,192 @@
+package com.dge.rag_chat_service.cache;
+
+import com.dge.rag_chat_service.repository.ListVersionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session list versions of users, served from an in-process near cache backed by Redis.
+ *
+ * The version in chat_user_versions stays the source of truth and is bumped in the transaction that changes the
+ * sessions. Once it commits, the new version is written to Redis and broadcast to every node. Versions only
+ * move forward: Redis and the near cache keep the larger of the stored and the incoming value, so late or
+ * reordered updates cannot bring back an old version. Postgres is read only when Redis has no entry or is
+ * unreachable.
+ *
+ * A version that reaches neither Redis nor the other nodes would let them answer 304 for data that changed, so
+ * both paths are bounded. Near cache entries live for {@code near-ttl}, seconds, and are all dropped whenever the
+ * channel is subscribed again, since broadcasts sent while the subscription was down are lost. A version that
+ * could not be written to Redis is kept and written again every {@code retry-interval} until Redis takes it.
+ */
+@Component
+@Slf4j
+public class SessionListVersionCache implements MessageListener, SubscriptionListener {
+
+    public static final String INVALIDATION_CHANNEL = "chat:session-list-invalidation";
+
+    private static final String KEY_PREFIX = "chat:session-list-version:";
+
+    private static final String SET_MAX = """
+            local current = tonumber(redis.call('GET', KEYS[1]))
+            local version = tonumber(ARGV[1])
+            if current ~= nil and current >= version then
+              return current
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            return version
+            """;
+
+    private static final RedisScript<Long> SET_MAX_SCRIPT = new DefaultRedisScript<>(SET_MAX, Long.class);
+
+    private final ListVersionRepository repository;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<String, Long> cache;
+    private final String ttlMillis;
+    private final Map<String, Long> unpublished = new ConcurrentHashMap<>();
+
+    public SessionListVersionCache(ListVersionRepository repository,
+                                   StringRedisTemplate redisTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${session-list-version.max-size:100000}") long maxSize,
+                                   @Value("${session-list-version.ttl:PT10M}") Duration ttl,
+                                   @Value("${session-list-version.near-ttl:PT5S}") Duration nearTtl) {
+        this.repository = repository;
+        this.redisTemplate = redisTemplate;
+        this.ttlMillis = String.valueOf(ttl.toMillis());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(nearTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "sessionListVersions");
+    }
+
+    /**
+     * Current session list version of a user. A near cache hit costs no round trip.
+     */
+    public long get(String userId) {
+        Long version = cache.getIfPresent(userId);
+        if (version != null) {
+            return version;
+        }
+        try {
+            String shared = redisTemplate.opsForValue().get(KEY_PREFIX + userId);
+            version = shared != null ? Long.parseLong(shared) : setMax(userId, repository.userVersion(userId));
+        } catch (RuntimeException ex) {
+            // Not cached: without Redis this node would miss the updates of the others
+            log.warn("Session list version unavailable from Redis for userId={}", userId, ex);
+            return repository.userVersion(userId);
+        }
+        return cache.asMap().merge(userId, version, Math::max);
+    }
+
+    /**
+     * Bumps the session list version of a user. Must run in the transaction that changes the sessions; the new
+     * version is published when it commits, or at once outside a transaction.
+     */
+    public void bump(String userId) {
+        long version = repository.bumpUser(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(userId, version);
+                }
+            });
+        } else {
+            publish(userId, version);
+        }
+    }
+
+    /**
+     * Publishes the committed version of a user, for writers that bump it on their own connection.
+     */
+    public void refresh(String userId) {
+        publish(userId, repository.userVersion(userId));
+    }
+
+    private void publish(String userId, long version) {
+        cache.asMap().merge(userId, version, Math::max);
+        try {
+            setMax(userId, version);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, userId + ":" + version);
+        } catch (RuntimeException ex) {
+            // Redis still holds the previous version for the other nodes; keep trying until it takes this one
+            unpublished.merge(userId, version, Math::max);
+            log.warn("Failed to publish session list version for userId={}, will retry", userId, ex);
+        }
+    }
+
+    /**
+     * Writes the versions that could not be published to Redis. Stops at the first failure and waits for the
+     * next run.
+     */
+    @Scheduled(fixedDelayString = "${session-list-version.retry-interval:PT1S}")
+    public void retryUnpublished() {
+        for (Map.Entry<String, Long> entry : unpublished.entrySet()) {
+            String userId = entry.getKey();
+            long version = entry.getValue();
+            try {
+                setMax(userId, version);
+                redisTemplate.convertAndSend(INVALIDATION_CHANNEL, userId + ":" + version);
+            } catch (RuntimeException ex) {
+                log.debug("Session list versions still unpublished, pending={}", unpublished.size(), ex);
+                return;
+            }
+            // A newer version failing meanwhile replaced the entry and stays for the next run
+            unpublished.remove(userId, version);
+        }
+    }
+
+    private long setMax(String userId, long version) {
+        Long stored = redisTemplate.execute(SET_MAX_SCRIPT, List.of(KEY_PREFIX + userId),
+                String.valueOf(version), ttlMillis);
+        return stored != null ? stored : version;
+    }
+
+    /**
+     * Handles a version broadcast by any node, including this one. The version is recorded even when the user
+     * is not cached here, so a load that read the previous version and completes later cannot overwrite it.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        try {
+            long version = Long.parseLong(body.substring(separator + 1));
+            cache.asMap().merge(body.substring(0, separator), version, Math::max);
+        } catch (IndexOutOfBoundsException | NumberFormatException ex) {
+            log.warn("Ignoring malformed session list version message={}", body);
+        }
+    }
+
+    /**
+     * Drops the near cache when the channel is subscribed, which the listener container also does after a lost
+     * connection: broadcasts sent in between never arrive.
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        cache.invalidateAll();
+        log.info("Subscribed to {}, cleared cached session list versions", new String(channel, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,110 @@
+package com.dge.rag_chat_service.cache;
+
+import com.dge.rag_chat_service.exception.ResourceNotFoundException;
+import com.dge.rag_chat_service.repository.ChatSessionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * In-process, size-bounded cache of session id to (owner, deleted flag).
+ *
+ * Lets message and session operations check that a session exists, is live and belongs to the caller
+ * without a database round trip. Deletes are broadcast on a Redis channel so every node evicts its copy;
+ * entries also expire after a TTL in case an invalidation message is lost.
+ */
+@Component
+@Slf4j
+public class SessionOwnershipCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "chat:session-invalidation";
+
+    /**
+     * Cached ownership of a session.
+     */
+    public record Ownership(String userId, boolean deleted) {}
+
+    private final ChatSessionRepository repository;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<UUID, Ownership> cache;
+
+    public SessionOwnershipCache(ChatSessionRepository repository,
+                                 StringRedisTemplate redisTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${session-cache.max-size:100000}") long maxSize,
+                                 @Value("${session-cache.ttl:PT10M}") Duration ttl) {
+        this.repository = repository;
+        this.redisTemplate = redisTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "sessionOwnership");
+    }
+
+    /**
+     * Ensures the session exists, is not deleted and is owned by {@code userId}.
+     * Sessions owned by someone else are reported as not found so their existence is not leaked.
+     *
+     * @throws ResourceNotFoundException otherwise
+     */
+    public void requireOwned(UUID sessionId, String userId) {
+        Ownership ownership = cache.get(sessionId, id -> repository.findOwnerById(id)
+                .map(view -> new Ownership(view.getUserId(), view.isDeleted()))
+                .orElse(null));
+        if (ownership == null || ownership.deleted() || !ownership.userId().equals(userId)) {
+            log.error("Session not found for sessionId={} and userId={}", sessionId, userId);
+            throw new ResourceNotFoundException("Session not found with id: " + sessionId);
+        }
+    }
+
+    /**
+     * Records a newly created session.
+     */
+    public void put(UUID sessionId, String userId) {
+        cache.put(sessionId, new Ownership(userId, false));
+    }
+
+    /**
+     * Marks a session as deleted locally and tells the other nodes to drop their copy.
+     */
+    public void markDeleted(UUID sessionId, String userId) {
+        cache.put(sessionId, new Ownership(userId, true));
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, sessionId.toString());
+        } catch (RuntimeException ex) {
+            // Other nodes fall back to the TTL
+            log.warn("Failed to publish session invalidation for sessionId={}", sessionId, ex);
+        }
+    }
+
+    /**
+     * Handles an invalidation broadcast by any node, including this one.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            UUID sessionId = UUID.fromString(body);
+            Ownership current = cache.getIfPresent(sessionId);
+            // Keep a locally written tombstone; drop anything else so it is reloaded
+            if (current == null || !current.deleted()) {
+                cache.invalidate(sessionId);
+            }
+        } catch (IllegalArgumentException ex) {
+            log.warn("Ignoring malformed session invalidation message={}", body);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.dge.rag_chat_service.chunk;
+
+import com.dge.rag_chat_service.config.ChunkStoreProperties;
+import com.dge.rag_chat_service.repository.ContextChunkRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content-addressed storage of the retrieved chunks in message contexts.
+ *
+ * On write, chunk text found in the configured fields is stored once in context_chunks under its SHA-256 and
+ * replaced in the context by {@code {"$chunk": "<sha256>"}}. On read, references are resolved through a
+ * size-bounded LRU cache, loading all misses of a page with one query. Contexts without references are
+ * returned as is, so rows written before the store existed, or by the archive import and bulk loader, read
+ * the same way.
+ */
+@Component
+@Slf4j
+public class ChunkStore {
+
+    public static final String REF_KEY = "$chunk";
+
+    private static final String REF_MARKER = "\"" + REF_KEY + "\"";
+
+    // Size of {"$chunk":"<64 hex>"} replacing the text in the context
+    private static final int REF_BYTES = 77;
+    private static final TypeReference<Map<String, Object>> CONTEXT_TYPE = new TypeReference<>() {};
+
+    private final ContextChunkRepository repository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Set<String> fields;
+    private final int minLength;
+    private final Cache<String, String> cache;
+
+    private final Counter references;
+    private final Counter referencedBytes;
+    private final Counter stored;
+    private final Counter storedBytes;
+
+    public ChunkStore(ContextChunkRepository repository,
+                      ObjectMapper objectMapper,
+                      ChunkStoreProperties properties,
+                      MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.enabled = properties.enabled();
+        this.fields = Set.copyOf(properties.fields());
+        this.minLength = properties.minLength();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.cacheSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "contextChunks");
+
+        this.references = Counter.builder("chat.chunks.references")
+                .description("Chunks written in message contexts, duplicates included")
+                .register(meterRegistry);
+        this.referencedBytes = Counter.builder("chat.chunks.references.bytes")
+                .description("Bytes of chunk text written in message contexts, duplicates included")
+                .register(meterRegistry);
+        this.stored = Counter.builder("chat.chunks.stored")
+                .description("Distinct chunks stored for the first time")
+                .register(meterRegistry);
+        this.storedBytes = Counter.builder("chat.chunks.stored.bytes")
+                .description("Bytes of chunk text stored for the first time")
+                .register(meterRegistry);
+        Gauge.builder("chat.chunks.dedup.ratio", this, ChunkStore::dedupRatio)
+                .description("Chunks written per chunk stored since startup")
+                .register(meterRegistry);
+        Gauge.builder("chat.chunks.saved.bytes", this, ChunkStore::savedBytes)
+                .description("Approximate bytes not stored thanks to deduplication since startup")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Moves the chunks of the given contexts to the chunk store, in one statement for all of them.
+     * Must run in the transaction that writes the messages.
+     *
+     * @return the contexts with chunk text replaced by references, in the same order; contexts without chunks
+     * are returned unchanged
+     */
+    public List<Map<String, Object>> dehydrateAll(List<Map<String, Object>> contexts) {
+        if (!enabled) {
+            return contexts;
+        }
+        Map<String, String> chunks = new LinkedHashMap<>();
+        List<Map<String, Object>> result = new ArrayList<>(contexts.size());
+        for (Map<String, Object> context : contexts) {
+            result.add(context == null ? null : dehydrateMap(context, chunks));
+        }
+        if (chunks.isEmpty()) {
+            return contexts;
+        }
+        long insertedBytes = 0;
+        for (String hash : repository.insertAll(chunks)) {
+            insertedBytes += utf8Length(chunks.get(hash));
+            stored.increment();
+        }
+        storedBytes.increment(insertedBytes);
+        cache.putAll(chunks);
+        return result;
+    }
+
+    /**
+     * Single context variant of {@link #dehydrateAll}.
+     */
+    public Map<String, Object> dehydrate(Map<String, Object> context) {
+        List<Map<String, Object>> contexts = new ArrayList<>(1);
+        contexts.add(context);
+        return dehydrateAll(contexts).get(0);
+    }
+
+    /**
+     * Resolves the chunk references of the given contexts, loading every chunk missing from the cache
+     * with one query. A reference to an unknown chunk is left in place.
+     *
+     * @return the full contexts, in the same order
+     */
+    public List<Map<String, Object>> hydrateAll(List<Map<String, Object>> contexts) {
+        Set<String> hashes = new HashSet<>();
+        for (Map<String, Object> context : contexts) {
+            collectRefs(context, hashes);
+        }
+        if (hashes.isEmpty()) {
+            return contexts;
+        }
+        Map<String, String> chunks = cache.getAll(hashes, repository::findByHashes);
+        if (chunks.size() < hashes.size()) {
+            log.warn("{} of {} referenced chunks not found", hashes.size() - chunks.size(), hashes.size());
+        }
+        List<Map<String, Object>> result = new ArrayList<>(contexts.size());
+        for (Map<String, Object> context : contexts) {
+            result.add(context == null ? null : castMap(hydrateValue(context, chunks)));
+        }
+        return result;
+    }
+
+    /**
+     * Single context variant of {@link #hydrateAll}.
+     */
+    public Map<String, Object> hydrate(Map<String, Object> context) {
+        List<Map<String, Object>> contexts = new ArrayList<>(1);
+        contexts.add(context);
+        return hydrateAll(contexts).get(0);
+    }
+
+    /**
+     * Resolves the chunk references of contexts read as JSON text, like {@link #hydrateAll}. Only contexts that
+     * contain a reference are parsed; the others are returned as is.
+     */
+    public List<String> hydrateJsonAll(List<String> jsons) {
+        List<Integer> referencing = new ArrayList<>();
+        List<Map<String, Object>> contexts = new ArrayList<>();
+        for (int i = 0; i < jsons.size(); i++) {
+            String json = jsons.get(i);
+            if (json != null && json.contains(REF_MARKER)) {
+                referencing.add(i);
+                contexts.add(readContext(json));
+            }
+        }
+        if (referencing.isEmpty()) {
+            return jsons;
+        }
+        List<Map<String, Object>> hydrated = hydrateAll(contexts);
+        List<String> result = new ArrayList<>(jsons);
+        for (int i = 0; i < referencing.size(); i++) {
+            result.set(referencing.get(i), writeContext(hydrated.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Single context variant of {@link #hydrateJsonAll}.
+     */
+    public String hydrateJson(String json) {
+        if (json == null || !json.contains(REF_MARKER)) {
+            return json;
+        }
+        return writeContext(hydrate(readContext(json)));
+    }
+
+    private Map<String, Object> readContext(String json) {
+        try {
+            return objectMapper.readValue(json, CONTEXT_TYPE);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Stored context is not valid JSON", ex);
+        }
+    }
+
+    private String writeContext(Map<String, Object> context) {
+        try {
+            return objectMapper.writeValueAsString(context);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Context is not serializable", ex);
+        }
+    }
+
+    private Map<String, Object> dehydrateMap(Map<String, Object> map, Map<String, String> chunks) {
+        Map<String, Object> copy = new LinkedHashMap<>(map.size());
+        map.forEach((key, value) -> {
+            if (fields.contains(key) && value instanceof String text && text.length() >= minLength) {
+                String hash = sha256(text);
+                chunks.putIfAbsent(hash, text);
+                references.increment();
+                referencedBytes.increment(utf8Length(text));
+                copy.put(key, Map.of(REF_KEY, hash));
+            } else {
+                copy.put(key, dehydrateValue(value, chunks));
+            }
+        });
+        return copy;
+    }
+
+    private Object dehydrateValue(Object value, Map<String, String> chunks) {
+        if (value instanceof Map<?, ?> map) {
+            return dehydrateMap(castMap(map), chunks);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(dehydrateValue(item, chunks));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private static void collectRefs(Object value, Set<String> hashes) {
+        if (value instanceof Map<?, ?> map) {
+            String ref = refOf(map);
+            if (ref != null) {
+                hashes.add(ref);
+            } else {
+                map.values().forEach(v -> collectRefs(v, hashes));
+            }
+        } else if (value instanceof List<?> list) {
+            list.forEach(v -> collectRefs(v, hashes));
+        }
+    }
+
+    private static Object hydrateValue(Object value, Map<String, String> chunks) {
+        if (value instanceof Map<?, ?> map) {
+            String ref = refOf(map);
+            if (ref != null) {
+                String chunk = chunks.get(ref);
+                return chunk != null ? chunk : value;
+            }
+            Map<String, Object> copy = new LinkedHashMap<>(map.size());
+            map.forEach((k, v) -> copy.put((String) k, hydrateValue(v, chunks)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(hydrateValue(item, chunks));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private static String refOf(Map<?, ?> map) {
+        return map.size() == 1 && map.get(REF_KEY) instanceof String hash ? hash : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object map) {
+        return (Map<String, Object>) map;
+    }
+
+    private double dedupRatio() {
+        double distinct = stored.count();
+        return distinct == 0 ? 0 : references.count() / distinct;
+    }
+
+    private double savedBytes() {
+        return referencedBytes.count() - storedBytes.count() - references.count() * REF_BYTES;
+    }
+
+    private static long utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    public static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.dge.rag_chat_service.citation;
+
+import com.dge.rag_chat_service.config.CitationProperties;
+import com.dge.rag_chat_service.entity.MessageCitation;
+import com.dge.rag_chat_service.entity.MessageCitationId;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts cited documents and chunks from a message context using the configured paths.
+ *
+ * All write paths and the backfill use this one implementation, so a message is indexed the same way
+ * however it was stored.
+ */
+@Component
+public class CitationExtractor {
+
+    private static final Pattern PATH = Pattern.compile("\\$(?:\\.[A-Za-z_][A-Za-z0-9_]*|\\[\\*])*");
+    private static final Pattern STEP = Pattern.compile("\\.([A-Za-z_][A-Za-z0-9_]*)|\\[\\*]");
+
+    private final List<String> itemPath;
+    private final List<String> docIdPath;
+    private final List<String> chunkIdPath;
+    private final List<String> scorePath;
+    private final int maxPerMessage;
+
+    public CitationExtractor(CitationProperties properties) {
+        this.itemPath = parse("citation.item-path", properties.itemPath());
+        this.docIdPath = parse("citation.doc-id-path", properties.docIdPath());
+        this.chunkIdPath = parse("citation.chunk-id-path", properties.chunkIdPath());
+        this.scorePath = parse("citation.score-path", properties.scorePath());
+        this.maxPerMessage = properties.maxPerMessage();
+    }
+
+    /**
+     * Citations of one message; empty if the context cites nothing.
+     */
+    public List<MessageCitation> extract(UUID messageId, UUID sessionId, Instant createdAt, Map<String, Object> context) {
+        if (context == null || context.isEmpty()) {
+            return List.of();
+        }
+        Set<MessageCitationId> ids = new LinkedHashSet<>();
+        for (Object item : select(context, itemPath)) {
+            String docId = firstScalar(item, docIdPath);
+            if (docId == null || docId.isEmpty()) {
+                continue;
+            }
+            String chunkId = firstScalar(item, chunkIdPath);
+            ids.add(new MessageCitationId(messageId, docId, chunkId != null ? chunkId : ""));
+            if (ids.size() == maxPerMessage) {
+                break;
+            }
+        }
+        List<MessageCitation> citations = new ArrayList<>(ids.size());
+        for (MessageCitationId id : ids) {
+            citations.add(new MessageCitation(id, sessionId, createdAt));
+        }
+        return citations;
+    }
+
+    /**
+     * Cited documents of a context as {@code {"id": ..., "score": ...}} objects in context order, one per document
+     * with its best score; the score is left out if no item of the document has one. This is the summary kept when
+     * a context is stripped.
+     */
+    public List<Map<String, Object>> documents(Map<String, Object> context) {
+        if (context == null) {
+            return List.of();
+        }
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        for (Object item : select(context, itemPath)) {
+            String docId = firstScalar(item, docIdPath);
+            if (docId == null || docId.isEmpty()) {
+                continue;
+            }
+            Map<String, Object> document = documents.get(docId);
+            if (document == null) {
+                if (documents.size() == maxPerMessage) {
+                    continue;
+                }
+                document = new LinkedHashMap<>();
+                document.put("id", docId);
+                documents.put(docId, document);
+            }
+            Number score = firstNumber(item, scorePath);
+            if (score != null && (!(document.get("score") instanceof Number best)
+                    || score.doubleValue() > best.doubleValue())) {
+                document.put("score", score);
+            }
+        }
+        return new ArrayList<>(documents.values());
+    }
+
+    private static Number firstNumber(Object item, List<String> path) {
+        for (Object value : select(item, path)) {
+            if (value instanceof Number number) {
+                return number;
+            }
+        }
+        return null;
+    }
+
+    private static String firstScalar(Object item, List<String> path) {
+        for (Object value : select(item, path)) {
+            if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates a parsed path in lax mode. A {@code null} step is {@code [*]}.
+     */
+    private static List<Object> select(Object root, List<String> path) {
+        List<Object> current = List.of(root);
+        for (String step : path) {
+            List<Object> next = new ArrayList<>();
+            for (Object node : current) {
+                if (step == null) {
+                    if (node instanceof List<?> list) {
+                        next.addAll(list);
+                    } else {
+                        next.add(node);
+                    }
+                } else if (node instanceof Map<?, ?> map) {
+                    addIfPresent(next, map.get(step));
+                } else if (node instanceof List<?> list) {
+                    for (Object element : list) {
+                        if (element instanceof Map<?, ?> map) {
+                            addIfPresent(next, map.get(step));
+                        }
+                    }
+                }
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static void addIfPresent(List<Object> out, Object value) {
+        if (value != null) {
+            out.add(value);
+        }
+    }
+
+    private static List<String> parse(String property, String path) {
+        if (path == null || !PATH.matcher(path).matches()) {
+            throw new IllegalArgumentException(property + " must be a path like $.documents[*], got " + path);
+        }
+        List<String> steps = new ArrayList<>();
+        Matcher m = STEP.matcher(path);
+        while (m.find()) {
+            steps.add(m.group(1));
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,25 @@
+package com.dge.rag_chat_service.codec;
+
+/**
+ * Compression algorithm for stored message bodies.
+ *
+ * Implementations are Spring beans. New bodies use the codec named by {@code message-compression.codec};
+ * stored bodies are decoded by the codec whose {@link #id()} they carry, so an id must never change once
+ * bodies were stored with it.
+ */
+public interface BodyCodec {
+
+    /**
+     * Name used in configuration.
+     */
+    String name();
+
+    /**
+     * Single character naming the codec in stored bodies.
+     */
+    char id();
+
+    byte[] compress(byte[] data);
+
+    byte[] decompress(byte[] data);
+}
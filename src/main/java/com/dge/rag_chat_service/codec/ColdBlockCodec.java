@@ -0,0 +1,164 @@
+package com.dge.rag_chat_service.codec;
+
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.entity.ChatMessage;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encodes the messages of a cold session into one zlib-deflated block and back.
+ *
+ * The block is a JSON array of the messages, oldest first, with plain bodies: a body that was compressed on its
+ * own is compressed again together with the rest of the session, where repeats across messages are found. The
+ * context is kept as its stored JSON text, in a string, so it reads back exactly as stored.
+ */
+@Component
+public class ColdBlockCodec {
+
+    private final JsonFactory jsonFactory;
+    private final int level;
+
+    public ColdBlockCodec(ObjectMapper objectMapper, @Value("${cold-archive.deflate-level:6}") int level) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.level = level;
+    }
+
+    /**
+     * Starts a block; messages are deflated as they are written.
+     */
+    public BlockWriter writer() {
+        try {
+            return new BlockWriter();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Messages of a block, oldest first.
+     */
+    public List<ChatMessage> decode(byte[] block) {
+        List<ChatMessage> messages = new ArrayList<>();
+        try (JsonParser parser = jsonFactory.createParser(new InflaterInputStream(new ByteArrayInputStream(block)))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Corrupt cold block");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                ChatMessage.ChatMessageBuilder message = ChatMessage.builder();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "id" -> message.id(UUID.fromString(parser.getText()));
+                        case "sender" -> message.sender(SenderType.valueOf(parser.getText()));
+                        case "message" -> message.message(parser.getText());
+                        case "context" -> message.context(parser.getValueAsString());
+                        case "createdAt" -> message.createdAt(Instant.parse(parser.getText()));
+                        default -> parser.skipChildren();
+                    }
+                }
+                messages.add(message.build());
+            }
+            return messages;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Corrupt cold block", ex);
+        }
+    }
+
+    /**
+     * Writes one block. {@link #rawBytes()} tells how large the JSON has grown, so a caller can give up on a
+     * session before it is read in full.
+     */
+    public final class BlockWriter implements Closeable {
+
+        private final Deflater deflater = new Deflater(level);
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+        private final CountingOutputStream raw = new CountingOutputStream(new DeflaterOutputStream(block, deflater, 8192));
+        private final JsonGenerator generator;
+        private int messages;
+
+        private BlockWriter() throws IOException {
+            this.generator = jsonFactory.createGenerator(raw);
+            generator.writeStartArray();
+        }
+
+        public void write(UUID id, String sender, String body, String context, Instant createdAt) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("id", id.toString());
+            generator.writeStringField("sender", sender);
+            generator.writeStringField("message", body);
+            generator.writeStringField("context", context);
+            generator.writeStringField("createdAt", createdAt.toString());
+            generator.writeEndObject();
+            messages++;
+        }
+
+        public int messages() {
+            return messages;
+        }
+
+        /**
+         * Bytes of JSON written so far, before compression.
+         */
+        public long rawBytes() {
+            return raw.count + generator.getOutputBuffered();
+        }
+
+        /**
+         * Ends the block.
+         *
+         * @return the deflated block
+         */
+        public byte[] finish() throws IOException {
+            generator.writeEndArray();
+            generator.close();
+            return block.toByteArray();
+        }
+
+        @Override
+        public void close() {
+            deflater.end();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.dge.rag_chat_service.codec;
+
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates request contexts and turns them into the JSON text stored in chat_messages.context.
+ *
+ * A context is checked once when a message is accepted, against a nesting depth and an approximate
+ * serialized size, and serialized once when it is written. From then on it stays text: the entity maps the
+ * jsonb column as a string and responses write it out as is.
+ *
+ * Contexts of aged messages may have been stripped by the tiering job to {@code {"$stripped": "<mode>", ...}};
+ * the top-level key is reserved for it. Objects of the single key {@code $chunk} are reserved at any depth: the
+ * chunk store reads them as references to stored chunk text.
+ */
+@Component
+public class ContextJson {
+
+    public static final String STRIPPED_KEY = "$stripped";
+
+    // jsonb orders keys by length, then bytewise, so the marker comes first in the stored summaries
+    private static final String STRIPPED_PREFIX = "{\"" + STRIPPED_KEY + "\"";
+
+    private final ObjectMapper objectMapper;
+    private final int maxBytes;
+    private final int maxDepth;
+
+    public ContextJson(ObjectMapper objectMapper,
+                       @Value("${message-context.max-bytes:262144}") int maxBytes,
+                       @Value("${message-context.max-depth:32}") int maxDepth) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Rejects contexts nested deeper than {@code message-context.max-depth} or larger than
+     * {@code message-context.max-bytes}. The size is estimated from the parsed values without serializing.
+     *
+     * @throws BadRequestException if a limit is exceeded or the context uses a reserved key
+     */
+    public void validate(Map<String, Object> context) {
+        if (context != null && context.containsKey(STRIPPED_KEY)) {
+            throw new BadRequestException("context must not contain the reserved key " + STRIPPED_KEY);
+        }
+        if (context != null && size(context, 1) > maxBytes) {
+            throw new BadRequestException("context must be at most " + maxBytes + " bytes");
+        }
+    }
+
+    /**
+     * JSON text of a context, or null.
+     */
+    public String write(Map<String, Object> context) {
+        if (context == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(context);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Context is not serializable", ex);
+        }
+    }
+
+    /**
+     * Whether a stored context was stripped by the tiering job.
+     */
+    public static boolean isStripped(String json) {
+        return json != null && json.startsWith(STRIPPED_PREFIX);
+    }
+
+    private long size(Object value, int depth) {
+        if (value instanceof Map<?, ?> map) {
+            checkDepth(depth);
+            if (map.size() == 1 && map.containsKey(ChunkStore.REF_KEY)) {
+                throw chunkRefRejected();
+            }
+            long size = 2;
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                size += String.valueOf(e.getKey()).length() + 4 + size(e.getValue(), depth + 1);
+            }
+            return size;
+        }
+        if (value instanceof List<?> list) {
+            checkDepth(depth);
+            long size = 2;
+            for (Object item : list) {
+                size += 1 + size(item, depth + 1);
+            }
+            return size;
+        }
+        if (value instanceof String s) {
+            return s.length() + 2L;
+        }
+        // Numbers, booleans and null
+        return 8;
+    }
+
+    /**
+     * Rejects chunk references in a context read as a JSON tree, for writes that bypass {@link #validate}.
+     *
+     * @throws BadRequestException if the context contains an object of the single key {@code $chunk}
+     */
+    public static void rejectChunkRefs(JsonNode context) {
+        if (context == null) {
+            return;
+        }
+        if (context.isObject() && context.size() == 1 && context.has(ChunkStore.REF_KEY)) {
+            throw chunkRefRejected();
+        }
+        for (JsonNode child : context) {
+            rejectChunkRefs(child);
+        }
+    }
+
+    private static BadRequestException chunkRefRejected() {
+        return new BadRequestException("context must not contain objects of the single reserved key " + ChunkStore.REF_KEY);
+    }
+
+    private void checkDepth(int depth) {
+        if (depth > maxDepth) {
+            throw new BadRequestException("context must be nested at most " + maxDepth + " levels deep");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.dge.rag_chat_service.codec;
+
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes message bodies for storage in the TEXT column and decodes them on read.
+ *
+ * A compressed body is stored as {@code \u0001}, the codec id and the base64 of the compressed bytes.
+ * Other bodies are stored as is, except those that happen to start with the marker, which are always
+ * compressed so they cannot be mistaken for an encoded body. Only bodies that shrink are kept compressed.
+ */
+@Component
+public class MessageBodyCodec {
+
+    static final char MARKER = '\u0001';
+
+    private final boolean enabled;
+    private final int threshold;
+    private final BodyCodec writeCodec;
+    private final Map<Character, BodyCodec> codecs;
+
+    private final DistributionSummary bodySize;
+    private final DistributionSummary storedSize;
+    private final Counter savedBytes;
+
+    public MessageBodyCodec(List<BodyCodec> codecs,
+                            MessageCompressionProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.codecs = codecs.stream().collect(Collectors.toMap(BodyCodec::id, Function.identity()));
+        this.enabled = properties.enabled();
+        this.threshold = properties.threshold();
+        this.writeCodec = codecs.stream()
+                .filter(c -> c.name().equals(properties.codec()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown message-compression.codec: " + properties.codec()));
+
+        this.bodySize = DistributionSummary.builder("chat.messages.body.size")
+                .description("UTF-8 size of message bodies written")
+                .baseUnit("bytes")
+                .serviceLevelObjectives(1024, 4096, 16384, 65536, 262144, 1048576)
+                .register(meterRegistry);
+        this.storedSize = DistributionSummary.builder("chat.messages.body.stored.size")
+                .description("Size of message bodies as stored, after compression")
+                .baseUnit("bytes")
+                .serviceLevelObjectives(1024, 4096, 16384, 65536, 262144, 1048576)
+                .register(meterRegistry);
+        this.savedBytes = Counter.builder("chat.messages.body.saved.bytes")
+                .description("Bytes saved by compressing message bodies")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stored form of a body.
+     */
+    public String encode(String body) {
+        if (body == null) {
+            return null;
+        }
+        boolean marked = !body.isEmpty() && body.charAt(0) == MARKER;
+        byte[] raw = body.getBytes(StandardCharsets.UTF_8);
+        bodySize.record(raw.length);
+        if (!marked && (!enabled || raw.length < threshold)) {
+            storedSize.record(raw.length);
+            return body;
+        }
+        String encoded = MARKER + String.valueOf(writeCodec.id())
+                + Base64.getEncoder().encodeToString(writeCodec.compress(raw));
+        if (!marked && encoded.length() >= raw.length) {
+            storedSize.record(raw.length);
+            return body;
+        }
+        storedSize.record(encoded.length());
+        savedBytes.increment(Math.max(0, raw.length - encoded.length()));
+        return encoded;
+    }
+
+    /**
+     * Body of a stored value; values without the marker are returned as is.
+     */
+    public String decode(String stored) {
+        if (stored == null || stored.length() < 2 || stored.charAt(0) != MARKER) {
+            return stored;
+        }
+        BodyCodec codec = codecs.get(stored.charAt(1));
+        if (codec == null) {
+            throw new IllegalStateException("Message body compressed with unknown codec '" + stored.charAt(1) + "'");
+        }
+        byte[] compressed = Base64.getDecoder().decode(stored.substring(2));
+        return new String(codec.decompress(compressed), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,26 @@
+package com.dge.rag_chat_service.codec;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Applies {@link MessageBodyCodec} to {@code ChatMessage.message}. Instantiated by Spring through
+ * Hibernate's bean container, so the codec is injected.
+ */
+@Converter
+@RequiredArgsConstructor
+public class MessageBodyConverter implements AttributeConverter<String, String> {
+
+    private final MessageBodyCodec codec;
+
+    @Override
+    public String convertToDatabaseColumn(String body) {
+        return codec.encode(body);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String stored) {
+        return codec.decode(stored);
+    }
+}
@@ -0,0 +1,63 @@
+package com.dge.rag_chat_service.cold;
+
+import com.dge.rag_chat_service.entity.ChatMessage;
+import com.dge.rag_chat_service.repository.ColdSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-path access to the cold archive.
+ *
+ * Readers only look for a cold block once the hot table had nothing to show for a session, not even the row a
+ * cursor points at, so hot sessions pay nothing for it. Writers thaw the sessions they write to; that is one
+ * primary key lookup when the session is hot. {@code chat.cold.rehydrate} times reads of a block and moves back to
+ * the hot table, for cold sessions only.
+ */
+@Component
+public class ColdSessionStore {
+
+    private final ColdSessionRepository repository;
+    private final Timer readTimer;
+    private final Timer thawTimer;
+
+    public ColdSessionStore(ColdSessionRepository repository, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.readTimer = Timer.builder("chat.cold.rehydrate")
+                .description("Time to read the messages of a cold session, or to move them back to the hot table")
+                .tag("op", "read")
+                .register(meterRegistry);
+        this.thawTimer = Timer.builder("chat.cold.rehydrate")
+                .description("Time to read the messages of a cold session, or to move them back to the hot table")
+                .tag("op", "thaw")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Messages of a cold session, oldest first; empty if the session is not cold.
+     */
+    public List<ChatMessage> read(UUID sessionId) {
+        long start = System.nanoTime();
+        List<ChatMessage> messages = repository.findMessages(sessionId);
+        if (!messages.isEmpty()) {
+            readTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return messages;
+    }
+
+    /**
+     * Moves the messages of the given sessions that are cold back to the hot table. Must run in the transaction
+     * that writes to the sessions, after their message versions were bumped.
+     */
+    public void thaw(Collection<UUID> sessionIds) {
+        long start = System.nanoTime();
+        if (repository.thaw(sessionIds) > 0) {
+            thawTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
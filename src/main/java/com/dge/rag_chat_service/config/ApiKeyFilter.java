@@ -20,7 +20,7 @@ import java.util.Map;
 
 /**
  * Filter to check for a valid API key in the request header.
- * Excludes Swagger UI and API docs endpoints from authentication.
+ * Excludes Swagger UI, API docs and the health endpoint from authentication; metrics require a key.
  */
 @Component
 @Slf4j
@@ -35,7 +35,7 @@ public class ApiKeyFilter extends OncePerRequestFilter {
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
         String path = request.getRequestURI();
-        return path.contains("/actuator") || path.contains("/swagger-ui") || path.contains("/v3/api-docs");
+        return path.endsWith("/actuator/health") || path.contains("/swagger-ui") || path.contains("/v3/api-docs");
     }
 
     @Override
@@ -0,0 +1,28 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Offline bulk loader configuration, used with the {@code bulk-load} profile.
+ *
+ * @param input a JSONL file or a directory of {@code .jsonl} / {@code .jsonl.gz} files, loaded in name order
+ * @param workers parallel COPY writers, each with its own connection; records are routed by session
+ * @param batchSize records per COPY transaction
+ * @param checkpointEvery records between checkpoints; at most this many are read again after a restart
+ * @param checkpointFile where progress is stored between runs
+ * @param dropIndexes drop secondary indexes of chat_messages before loading and rebuild them afterwards
+ * @param reportInterval how often progress and throughput are logged
+ */
+@ConfigurationProperties(prefix = "bulk-load")
+public record BulkLoadProperties(
+        String input,
+        @DefaultValue("4") int workers,
+        @DefaultValue("20000") int batchSize,
+        @DefaultValue("1000000") long checkpointEvery,
+        @DefaultValue("./data/bulk-load-checkpoint.json") String checkpointFile,
+        @DefaultValue("false") boolean dropIndexes,
+        @DefaultValue("PT10S") Duration reportInterval
+) {}
@@ -0,0 +1,25 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Content-addressed chunk store configuration.
+ *
+ * String values of the listed fields, at any depth of a message context, are stored once in context_chunks
+ * keyed by their SHA-256 and replaced in the context by {@code {"$chunk": "<sha256>"}}.
+ *
+ * @param enabled move chunks out of new contexts; reads resolve references either way
+ * @param fields names of the context fields that hold chunk text
+ * @param minLength shorter values stay inline, where a reference would not be smaller
+ * @param cacheSize chunks kept in the in-memory LRU cache
+ */
+@ConfigurationProperties(prefix = "chunk-store")
+public record ChunkStoreProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue({"content", "text"}) List<String> fields,
+        @DefaultValue("256") int minLength,
+        @DefaultValue("10000") long cacheSize
+) {}
@@ -0,0 +1,134 @@
+package com.dge.rag_chat_service.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker in front of the Redis backed rate limiter.
+ *
+ * A Redis check that throws or exceeds the latency budget counts as a failure. After
+ * {@code failureThreshold} consecutive failures the breaker opens and requests are decided by the
+ * in-memory fallback without touching Redis. Once {@code openDuration} has passed a single trial call
+ * is let through; if it succeeds the breaker closes again, otherwise it stays open for another period.
+ */
+@Slf4j
+public class CircuitBreakerRateLimiter implements RateLimiter {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final RateLimiter primary;
+    private final RateLimiter fallback;
+    private final long latencyBudgetNanos;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    private final Counter failures;
+    private final Counter fallbackAllowed;
+    private final Counter fallbackRejected;
+
+    public CircuitBreakerRateLimiter(RateLimiter primary, RateLimiter fallback,
+                                     RateLimitProperties.Breaker config, MeterRegistry meterRegistry,
+                                     LongSupplier nanoClock) {
+        this.primary = primary;
+        this.fallback = fallback;
+        this.latencyBudgetNanos = config.latencyBudget().toNanos();
+        this.failureThreshold = config.failureThreshold();
+        this.openDurationNanos = config.openDuration().toNanos();
+        this.nanoClock = nanoClock;
+
+        Gauge.builder("chat.ratelimit.breaker.state", state, s -> s.get().ordinal())
+                .description("Redis rate limit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        this.failures = Counter.builder("chat.ratelimit.breaker.failures")
+                .description("Redis rate limit checks that failed or exceeded the latency budget")
+                .register(meterRegistry);
+        this.fallbackAllowed = Counter.builder("chat.ratelimit.fallback.decisions")
+                .tag("outcome", "allowed")
+                .description("Requests decided by the in-memory fallback limiter")
+                .register(meterRegistry);
+        this.fallbackRejected = Counter.builder("chat.ratelimit.fallback.decisions")
+                .tag("outcome", "rejected")
+                .description("Requests decided by the in-memory fallback limiter")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, RateLimitProperties.Tier tier) {
+        boolean trial = false;
+        State current = state.get();
+        if (current == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openDurationNanos
+                    || !state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                return useFallback(key, tier);
+            }
+            trial = true;
+        } else if (current == State.HALF_OPEN) {
+            // Another request is probing Redis
+            return useFallback(key, tier);
+        }
+
+        long start = nanoClock.getAsLong();
+        RateLimitResult result;
+        try {
+            result = primary.tryAcquire(key, tier);
+        } catch (RuntimeException ex) {
+            log.warn("Redis rate limit check failed for key={}: {}", key, ex.getMessage());
+            onFailure(trial);
+            return useFallback(key, tier);
+        }
+
+        if (nanoClock.getAsLong() - start > latencyBudgetNanos) {
+            // The answer is still valid, but a slow Redis counts towards opening the breaker
+            onFailure(trial);
+        } else {
+            onSuccess(trial);
+        }
+        return result;
+    }
+
+    State state() {
+        return state.get();
+    }
+
+    private void onSuccess(boolean trial) {
+        consecutiveFailures.set(0);
+        if (trial) {
+            state.set(State.CLOSED);
+            log.info("Redis rate limiting recovered, circuit breaker closed");
+        }
+    }
+
+    private void onFailure(boolean trial) {
+        failures.increment();
+        if (trial) {
+            open();
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold
+                && state.get() == State.CLOSED) {
+            open();
+        }
+    }
+
+    private void open() {
+        openedAt = nanoClock.getAsLong();
+        consecutiveFailures.set(0);
+        state.set(State.OPEN);
+        log.warn("Redis rate limiting degraded, circuit breaker opened; using in-memory fallback");
+    }
+
+    private RateLimitResult useFallback(String key, RateLimitProperties.Tier tier) {
+        RateLimitResult result = fallback.tryAcquire(key, tier);
+        (result.allowed() ? fallbackAllowed : fallbackRejected).increment();
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Citation index configuration.
+ *
+ * Paths use the JSONPath subset {@code $}, {@code .member} and {@code [*]}, evaluated like PostgreSQL's lax mode:
+ * a member step applied to an array applies to each element. With the defaults a context of
+ * {@code {"documents": [{"id": "doc-1", "chunkId": "c-7"}]}} yields one citation of chunk c-7 of doc-1.
+ *
+ * @param itemPath selects the cited items in a message context
+ * @param docIdPath selects the document id within an item; items without one are ignored
+ * @param chunkIdPath selects the chunk id within an item; optional
+ * @param scorePath selects the retrieval score within an item; optional, kept when a context is summarized
+ * @param maxPerMessage citations kept per message; the rest are dropped
+ */
+@ConfigurationProperties(prefix = "citation")
+public record CitationProperties(
+        @DefaultValue("$.documents[*]") String itemPath,
+        @DefaultValue("$.id") String docIdPath,
+        @DefaultValue("$.chunkId") String chunkIdPath,
+        @DefaultValue("$.score") String scorePath,
+        @DefaultValue("100") int maxPerMessage,
+        @DefaultValue Backfill backfill
+) {
+
+    /**
+     * Backfill of messages written before the citation index existed, or loaded in bulk.
+     *
+     * @param enabled run the backfill on this node; enable it on a single node only
+     * @param batchSize messages read per transaction
+     * @param interval pause between batches
+     */
+    public record Backfill(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("1000") int batchSize,
+            @DefaultValue("PT1S") Duration interval
+    ) {}
+}
@@ -0,0 +1,30 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Cold archive of long-idle sessions.
+ *
+ * The messages of a session that has had no write for {@code idleAfter} are moved out of chat_messages into one
+ * compressed block in chat_cold_sessions. Listings and exports read the block; a new message moves them back.
+ *
+ * @param enabled run the archiver on this node
+ * @param idleAfter sessions without a new message, rename or favorite change for this long are archived
+ * @param batchSize sessions examined per run
+ * @param batchInterval pause between runs
+ * @param passInterval pause between the end of a walk over all sessions and the start of the next
+ * @param maxSessionBytes sessions whose messages take more than this as uncompressed JSON are left hot
+ */
+@ConfigurationProperties(prefix = "cold-archive")
+public record ColdArchiveProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("7d") Duration idleAfter,
+        @DefaultValue("200") int batchSize,
+        @DefaultValue("PT1S") Duration batchInterval,
+        @DefaultValue("PT1H") Duration passInterval,
+        @DefaultValue("64MB") DataSize maxSessionBytes
+) {}
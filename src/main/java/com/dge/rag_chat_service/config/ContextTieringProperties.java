@@ -0,0 +1,28 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Tiering of message contexts.
+ *
+ * Contexts of messages older than {@code age} are replaced by {@code {"$stripped": "summarized", "documents": [...]}},
+ * keeping the id and best score of each cited document as found by the {@code citation.*} paths, or by
+ * {@code {"$stripped": "dropped"}}. Message text and timestamps are left alone.
+ *
+ * @param enabled run the tiering job on this node
+ * @param mode {@code summarize} or {@code drop}
+ * @param age contexts of messages older than this are stripped
+ * @param batchSize messages stripped per transaction
+ * @param interval pause between batches
+ */
+@ConfigurationProperties(prefix = "context-tiering")
+public record ContextTieringProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("summarize") String mode,
+        @DefaultValue("30d") Duration age,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("PT1S") Duration interval
+) {}
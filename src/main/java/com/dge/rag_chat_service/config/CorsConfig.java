@@ -1,6 +1,7 @@
 package com.dge.rag_chat_service.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -16,6 +17,8 @@ public class CorsConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:3000")
                 .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE")
                 .allowedHeaders("*")
+                // Lets the frontend read list ETags to send back in If-None-Match
+                .exposedHeaders(HttpHeaders.ETAG)
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -0,0 +1,200 @@
+package com.dge.rag_chat_service.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter that leases batches of tokens from the shared Redis bucket and spends them locally.
+ *
+ * Hot keys are served from a lock-free in-process counter and only touch Redis when a lease runs low,
+ * in which case it is topped up asynchronously. The lease size follows the observed request rate of each
+ * key, capped at {@link RateLimitProperties.Leasing#maxLease}. Leased tokens are already taken from the
+ * shared bucket, so nodes never admit more than the bucket hands out. The only error is timing: a node holds
+ * at most one and a half leases and may spend them within {@code leaseTtl}, after which unspent tokens are dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.mode", havingValue = "leasing")
+@Slf4j
+public class LeasingRateLimiter implements RateLimiter {
+
+    private final RedisTokenBucket redisBucket;
+    private final RateLimitProperties.Leasing config;
+    private final Executor refillExecutor;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    private final Counter localDecisions;
+    private final Counter remoteDecisions;
+
+    @Autowired
+    public LeasingRateLimiter(RedisTokenBucket redisBucket, RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(redisBucket, properties.leasing(), meterRegistry,
+                Executors.newVirtualThreadPerTaskExecutor(), System::nanoTime);
+    }
+
+    LeasingRateLimiter(RedisTokenBucket redisBucket, RateLimitProperties.Leasing config, MeterRegistry meterRegistry,
+                       Executor refillExecutor, LongSupplier nanoClock) {
+        this.redisBucket = redisBucket;
+        this.config = config;
+        this.refillExecutor = refillExecutor;
+        this.nanoClock = nanoClock;
+        this.localDecisions = Counter.builder("chat.ratelimit.decisions")
+                .tag("path", "local")
+                .description("Rate limit decisions served from a local lease")
+                .register(meterRegistry);
+        this.remoteDecisions = Counter.builder("chat.ratelimit.decisions")
+                .tag("path", "remote")
+                .description("Rate limit decisions that had to wait for Redis")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, RateLimitProperties.Tier tier) {
+        long now = nanoClock.getAsLong();
+        Lease lease = leases.computeIfAbsent(key, k -> new Lease(now));
+        lease.hits.increment();
+        lease.lastAccess = now;
+
+        if (lease.tryTake(now)) {
+            localDecisions.increment();
+            if (lease.isLow() && lease.refilling.compareAndSet(false, true)) {
+                refillExecutor.execute(() -> {
+                    try {
+                        refill(key, tier, lease);
+                    } catch (RuntimeException ex) {
+                        log.warn("Asynchronous lease refill failed for key={}", key, ex);
+                    } finally {
+                        lease.refilling.set(false);
+                    }
+                });
+            }
+            return lease.result(tier, true, 0);
+        }
+
+        // Lease exhausted or expired: fetch a new one on the request thread
+        remoteDecisions.increment();
+        RedisTokenBucket.Grant grant = refill(key, tier, lease);
+        if (grant.granted() > 0 && lease.tryTake(nanoClock.getAsLong())) {
+            return lease.result(tier, true, 0);
+        }
+        return lease.result(tier, false, Math.max(grant.retryAfterMillis(), 1));
+    }
+
+    private RedisTokenBucket.Grant refill(String key, RateLimitProperties.Tier tier, Lease lease) {
+        long size = lease.nextLeaseSize(nanoClock.getAsLong(), config.leaseHorizon().toNanos(), config.maxLease(tier));
+        RedisTokenBucket.Grant grant = redisBucket.acquire(key, tier, size);
+        lease.deposit(grant, nanoClock.getAsLong(), config.leaseTtl().toNanos());
+        return grant;
+    }
+
+    /**
+     * Drops leases that have not been used for a while so idle keys do not accumulate.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.leasing.lease-ttl:PT1S}")
+    public void evictIdle() {
+        long cutoff = nanoClock.getAsLong() - config.leaseTtl().toNanos() * 10;
+        leases.entrySet().removeIf(e -> e.getValue().lastAccess - cutoff < 0);
+    }
+
+    int leaseCount() {
+        return leases.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (refillExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+            executorService.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Per-key lease. Tokens are spent with a CAS loop; request counting uses a striped adder so hot
+     * keys do not contend on a single cache line.
+     */
+    static final class Lease {
+
+        final AtomicLong tokens = new AtomicLong();
+        final LongAdder hits = new LongAdder();
+        final AtomicBoolean refilling = new AtomicBoolean();
+
+        volatile long expiresAt;
+        volatile long lastAccess;
+        volatile long leaseSize = 1;
+        volatile long remoteRemaining;
+        volatile long resetMillis;
+
+        // Guarded by nextLeaseSize
+        private long rateWindowStart;
+        private double ratePerNano;
+
+        Lease(long now) {
+            this.expiresAt = now;
+            this.lastAccess = now;
+            this.rateWindowStart = now;
+        }
+
+        boolean tryTake(long now) {
+            if (now - expiresAt >= 0) {
+                return false;
+            }
+            long current;
+            do {
+                current = tokens.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        boolean isLow() {
+            return tokens.get() <= leaseSize / 2;
+        }
+
+        synchronized long nextLeaseSize(long now, long horizonNanos, long maxLease) {
+            long elapsed = now - rateWindowStart;
+            if (elapsed > 0) {
+                double observed = (double) hits.sumThenReset() / elapsed;
+                // Exponentially weighted so one quiet or busy window does not swing the lease size
+                ratePerNano = ratePerNano == 0 ? observed : 0.5 * ratePerNano + 0.5 * observed;
+                rateWindowStart = now;
+            }
+            leaseSize = Math.max(1, Math.min(maxLease, (long) Math.ceil(ratePerNano * horizonNanos)));
+            return leaseSize;
+        }
+
+        void deposit(RedisTokenBucket.Grant grant, long now, long ttlNanos) {
+            boolean expired = now - expiresAt >= 0;
+            tokens.getAndUpdate(current -> (expired ? 0 : Math.max(current, 0)) + grant.granted());
+            if (grant.granted() > 0) {
+                expiresAt = now + ttlNanos;
+            }
+            remoteRemaining = grant.remaining();
+            resetMillis = grant.resetMillis();
+        }
+
+        RateLimitResult result(RateLimitProperties.Tier tier, boolean allowed, long retryAfterMillis) {
+            long remaining = Math.min(tier.capacity(), remoteRemaining + Math.max(tokens.get(), 0));
+            return new RateLimitResult(allowed, tier.capacity(), remaining, retryAfterMillis,
+                    Math.max(resetMillis, 0));
+        }
+    }
+}
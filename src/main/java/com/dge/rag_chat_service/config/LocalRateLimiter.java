@@ -0,0 +1,67 @@
+package com.dge.rag_chat_service.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-node, in-memory rate limiter backed by bucket4j.
+ *
+ * Used as a fallback while Redis is unavailable. Each bucket holds the tier capacity divided by the
+ * configured node count, so the cluster as a whole stays close to the shared limit.
+ */
+@Component
+public class LocalRateLimiter implements RateLimiter {
+
+    private final int nodeCount;
+
+    private final ConcurrentHashMap<String, LocalBucket> buckets = new ConcurrentHashMap<>();
+
+    public LocalRateLimiter(RateLimitProperties properties) {
+        this.nodeCount = Math.max(1, properties.fallback().nodeCount());
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, RateLimitProperties.Tier tier) {
+        long capacity = Math.max(1, tier.capacity() / nodeCount);
+        LocalBucket bucket = buckets.compute(key, (k, existing) ->
+                existing != null && existing.capacity == capacity ? existing : LocalBucket.of(capacity, tier));
+
+        ConsumptionProbe probe = bucket.bucket.tryConsumeAndReturnRemaining(1);
+        long perTokenMillis = Math.max(1, tier.period().toMillis() / capacity);
+        long resetMillis = (capacity - probe.getRemainingTokens()) * perTokenMillis;
+        return new RateLimitResult(
+                probe.isConsumed(),
+                capacity,
+                probe.getRemainingTokens(),
+                probe.isConsumed() ? 0 : TimeUnit.NANOSECONDS.toMillis(probe.getNanosToWaitForRefill()),
+                resetMillis);
+    }
+
+    /**
+     * Drops buckets that have refilled completely; they carry no state worth keeping.
+     */
+    @Scheduled(fixedDelayString = "PT1M")
+    public void evictFull() {
+        buckets.values().removeIf(b -> b.bucket.getAvailableTokens() >= b.capacity);
+    }
+
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    private record LocalBucket(long capacity, Bucket bucket) {
+
+        static LocalBucket of(long capacity, RateLimitProperties.Tier tier) {
+            return new LocalBucket(capacity, Bucket.builder()
+                    .addLimit(Bandwidth.classic(capacity, Refill.greedy(capacity, tier.period())))
+                    .build());
+        }
+    }
+}
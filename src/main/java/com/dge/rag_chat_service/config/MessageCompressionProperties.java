@@ -0,0 +1,22 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Compression of large message bodies.
+ *
+ * Bodies of at least {@code threshold} UTF-8 bytes are compressed by the configured codec and stored as
+ * base64 text with a marker prefix. Reads decode any stored body, so the mode can be turned off again
+ * without rewriting rows.
+ *
+ * @param enabled compress new bodies above the threshold
+ * @param threshold smallest body, in bytes, that is compressed
+ * @param codec id of the {@code BodyCodec} used for new bodies
+ */
+@ConfigurationProperties(prefix = "message-compression")
+public record MessageCompressionProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("16384") int threshold,
+        @DefaultValue("deflate") String codec
+) {}
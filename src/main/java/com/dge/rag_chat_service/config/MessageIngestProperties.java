@@ -0,0 +1,35 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Message ingestion configuration.
+ *
+ * {@code mode} selects how single messages are stored: {@code direct} inserts each message in its own
+ * transaction, {@code write-behind} journals it locally, answers 202 and group-commits it later.
+ *
+ * @param capacity most messages accepted but not yet committed; further requests wait up to
+ *                 {@code enqueueTimeout} and are then rejected
+ * @param batchSize most messages per database transaction
+ * @param flushInterval longest time a message waits for its batch to fill
+ * @param journalDir directory holding the append-only journal
+ * @param segmentSize journal segments are rolled at this size and deleted once committed
+ * @param fsync whether an append is forced to disk before the request is answered
+ * @param retryBackoff pause before retrying a batch after a database error
+ */
+@ConfigurationProperties(prefix = "message-ingest")
+public record MessageIngestProperties(
+        @DefaultValue("direct") String mode,
+        @DefaultValue("10000") int capacity,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("PT0.01S") Duration flushInterval,
+        @DefaultValue("PT0.1S") Duration enqueueTimeout,
+        @DefaultValue("./data/journal") String journalDir,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("true") boolean fsync,
+        @DefaultValue("PT1S") Duration retryBackoff
+) {}
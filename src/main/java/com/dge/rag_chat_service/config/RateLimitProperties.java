@@ -0,0 +1,99 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Rate limit configuration.
+ *
+ * Each tier is a token bucket holding {@code capacity} tokens that refills continuously at
+ * {@code capacity} tokens per {@code period}. Users are mapped to tiers by user id; anyone
+ * not listed, including anonymous callers, gets the default tier.
+ *
+ * {@code mode} selects how buckets are consulted: {@code redis} checks Redis on every request,
+ * {@code leasing} leases batches of tokens per node and spends them locally.
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("redis") String mode,
+        @DefaultValue("standard") String defaultTier,
+        Map<String, Tier> tiers,
+        Map<String, String> userTiers,
+        @DefaultValue Leasing leasing,
+        @DefaultValue Breaker breaker,
+        @DefaultValue Fallback fallback
+) {
+
+    private static final Tier FALLBACK = new Tier(100, Duration.ofMinutes(1));
+
+    public record Tier(long capacity, Duration period) {
+
+        /**
+         * Refill rate in tokens per millisecond.
+         */
+        public double refillPerMillis() {
+            return (double) capacity / period.toMillis();
+        }
+    }
+
+    /**
+     * Token leasing settings.
+     *
+     * @param maxLeaseFraction largest lease as a fraction of the tier capacity; bounds the tokens a node
+     *                         can hold, and therefore the burst it can admit, at any time
+     * @param leaseTtl leased tokens not spent within this time are dropped
+     * @param leaseHorizon a lease is sized to cover this much traffic at the observed request rate
+     */
+    public record Leasing(
+            @DefaultValue("0.05") double maxLeaseFraction,
+            @DefaultValue("PT1S") Duration leaseTtl,
+            @DefaultValue("PT0.2S") Duration leaseHorizon
+    ) {
+
+        public long maxLease(Tier tier) {
+            return Math.max(1, (long) (tier.capacity() * maxLeaseFraction));
+        }
+    }
+
+    /**
+     * Circuit breaker guarding Redis.
+     *
+     * @param latencyBudget a Redis check slower than this counts as a failure
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param openDuration time the breaker stays open before a single trial call is let through
+     * @param commandTimeout Redis commands of the limiter are abandoned after this; only the limiter's own
+     *                       connection has it, other Redis users keep the default
+     */
+    public record Breaker(
+            @DefaultValue("PT0.05S") Duration latencyBudget,
+            @DefaultValue("5") int failureThreshold,
+            @DefaultValue("PT5S") Duration openDuration,
+            @DefaultValue("PT0.05S") Duration commandTimeout
+    ) {}
+
+    /**
+     * In-memory limiter used while the breaker is open.
+     *
+     * @param nodeCount number of application nodes; each node allows capacity / nodeCount per bucket
+     */
+    public record Fallback(
+            @DefaultValue("1") int nodeCount
+    ) {}
+
+    /**
+     * Resolves the tier for a user, falling back to the default tier.
+     */
+    public Tier tierFor(String userId) {
+        String name = userId != null && userTiers != null
+                ? userTiers.getOrDefault(userId, defaultTier)
+                : defaultTier;
+        Tier tier = tiers != null ? tiers.get(name) : null;
+        if (tier == null && tiers != null) {
+            tier = tiers.get(defaultTier);
+        }
+        return tier != null ? tier : FALLBACK;
+    }
+}
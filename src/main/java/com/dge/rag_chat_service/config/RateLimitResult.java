@@ -0,0 +1,18 @@
+package com.dge.rag_chat_service.config;
+
+/**
+ * Outcome of a rate limit check.
+ *
+ * @param allowed whether the request may proceed
+ * @param limit bucket capacity
+ * @param remaining whole tokens left after this request
+ * @param retryAfterMillis time until a token is available, 0 when allowed
+ * @param resetMillis time until the bucket is full again
+ */
+public record RateLimitResult(
+        boolean allowed,
+        long limit,
+        long remaining,
+        long retryAfterMillis,
+        long resetMillis
+) {}
@@ -0,0 +1,12 @@
+package com.dge.rag_chat_service.config;
+
+/**
+ * Decides whether a request identified by a bucket key may proceed.
+ */
+public interface RateLimiter {
+
+    /**
+     * Takes one token from the bucket for {@code key}, sized by {@code tier}.
+     */
+    RateLimitResult tryAcquire(String key, RateLimitProperties.Tier tier);
+}
@@ -0,0 +1,91 @@
+package com.dge.rag_chat_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration.LettuceClientConfigurationBuilder;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration.LettuceSslClientConfigurationBuilder;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * Assembles the rate limiter used by {@link RedisRateLimiterFilter}.
+ *
+ * The Redis backed limiter (leasing or per request, depending on {@code rate-limit.mode}) is wrapped in a
+ * circuit breaker that falls back to per-node in-memory buckets while Redis is slow or down.
+ *
+ * The limiter talks to Redis over a connection factory of its own, with {@code rate-limit.breaker.command-timeout}
+ * as command timeout, so a stalled Redis cannot hold a request for longer. It copies the auto-configured factory,
+ * used by the caches and pub/sub: the same standalone, sentinel or cluster servers, SSL, credentials, client name
+ * and client options, with only the timeout replaced. It is not a default candidate, so the auto-configured
+ * factory is still created and keeps the default timeout.
+ */
+@Configuration
+public class RateLimiterConfig {
+
+    public static final String REDIS = "rateLimitRedis";
+
+    @Bean(defaultCandidate = false)
+    @Qualifier(REDIS)
+    public LettuceConnectionFactory rateLimitRedisConnectionFactory(LettuceConnectionFactory redisConnectionFactory,
+                                                                    RateLimitProperties properties) {
+        LettuceClientConfiguration client = withCommandTimeout(redisConnectionFactory.getClientConfiguration(),
+                properties.breaker().commandTimeout());
+        if (redisConnectionFactory.isClusterAware()) {
+            return new LettuceConnectionFactory(redisConnectionFactory.getClusterConfiguration(), client);
+        }
+        if (redisConnectionFactory.isRedisSentinelAware()) {
+            return new LettuceConnectionFactory(redisConnectionFactory.getSentinelConfiguration(), client);
+        }
+        return new LettuceConnectionFactory(redisConnectionFactory.getStandaloneConfiguration(), client);
+    }
+
+    /**
+     * Copy of a client configuration with another command timeout. Client resources are shared, and stay owned
+     * by the factory that created them.
+     */
+    static LettuceClientConfiguration withCommandTimeout(LettuceClientConfiguration shared, Duration commandTimeout) {
+        LettuceClientConfigurationBuilder builder = LettuceClientConfiguration.builder();
+        if (shared.isUseSsl()) {
+            LettuceSslClientConfigurationBuilder ssl = builder.useSsl().verifyPeer(shared.getVerifyMode());
+            if (shared.isStartTls()) {
+                ssl.startTls();
+            }
+        }
+        shared.getClientResources().ifPresent(builder::clientResources);
+        shared.getClientOptions().ifPresent(builder::clientOptions);
+        shared.getClientName().ifPresent(builder::clientName);
+        shared.getReadFrom().ifPresent(builder::readFrom);
+        shared.getRedisCredentialsProviderFactory().ifPresent(builder::redisCredentialsProviderFactory);
+        return builder
+                .shutdownTimeout(shared.getShutdownTimeout())
+                .shutdownQuietPeriod(shared.getShutdownQuietPeriod())
+                .commandTimeout(commandTimeout)
+                .build();
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier(REDIS)
+    public StringRedisTemplate rateLimitRedisTemplate(@Qualifier(REDIS) LettuceConnectionFactory connectionFactory) {
+        return new StringRedisTemplate(connectionFactory);
+    }
+
+    @Bean
+    @Primary
+    public RateLimiter rateLimiter(RedisTokenBucket redisTokenBucket,
+                                   ObjectProvider<LeasingRateLimiter> leasingRateLimiter,
+                                   LocalRateLimiter localRateLimiter,
+                                   RateLimitProperties properties,
+                                   MeterRegistry meterRegistry) {
+        LeasingRateLimiter leasing = leasingRateLimiter.getIfAvailable();
+        RateLimiter redis = leasing != null ? leasing : redisTokenBucket;
+        return new CircuitBreakerRateLimiter(redis, localRateLimiter, properties.breaker(),
+                meterRegistry, System::nanoTime);
+    }
+}
@@ -0,0 +1,29 @@
+package com.dge.rag_chat_service.config;
+
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis pub/sub wiring for cross-node cache invalidation.
+ */
+@Configuration
+public class RedisPubSubConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       SessionOwnershipCache sessionOwnershipCache,
+                                                                       SessionListVersionCache sessionListVersionCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(sessionOwnershipCache,
+                new ChannelTopic(SessionOwnershipCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(sessionListVersionCache,
+                new ChannelTopic(SessionListVersionCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
@@ -5,24 +5,27 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
+import java.util.Optional;
+
 /**
  * Filter to implement rate limiting using Redis.
- * Limits each IP address to a certain number of requests within a time window.
+ * Each API key (or client IP for unauthenticated callers) gets a token bucket sized by its user's tier.
+ * The bucket is checked and updated atomically in Redis, either per request or, in leasing mode,
+ * in batches spent locally (see {@link LeasingRateLimiter}).
  */
 @Component
 @RequiredArgsConstructor
 public class RedisRateLimiterFilter extends OncePerRequestFilter {
 
-    private final StringRedisTemplate redisTemplate;
+    private final RateLimiter rateLimiter;
+
+    private final ApiKeyStore apiKeyStore;
 
-    private static final int LIMIT = 100;
-    private static final Duration WINDOW = Duration.ofMinutes(1);
+    private final RateLimitProperties properties;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -31,32 +34,36 @@ public class RedisRateLimiterFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         String apiKey = request.getHeader("X-API-KEY");
-        String clientIp = request.getRemoteAddr();
-        String key = (apiKey != null && !apiKey.isBlank()) ? "api:" + apiKey : "ip:" + clientIp;
-        String count = redisTemplate.opsForValue().get(key);
-
-        if (count == null) {
-            redisTemplate.opsForValue().set(key, "1", WINDOW);
-        } else {
-            String rateLimit = String.valueOf(LIMIT - Integer.parseInt(count));
-            if (Integer.parseInt(count) >= LIMIT) {
-                response.setHeader("X-RateLimit-Limit", rateLimit);
-                response.setHeader("X-RateLimit-Remaining", "0");
-                response.setStatus(429);
-                response.setContentType("application/json");
-                response.getWriter().write("""
-                    {
-                      "status":429,
-                      "error":"Too Many Requests"
-                    }
-                """);
-                return;
-            } else {
-                response.setHeader("X-RateLimit-Limit", rateLimit);
-                redisTemplate.opsForValue().increment(key);
-            }
+        Optional<String> userId = apiKey != null && !apiKey.isBlank()
+                ? apiKeyStore.getUserIdByApiKey(apiKey)
+                : Optional.empty();
+        // Unknown keys are limited per IP so rotating fake keys cannot bypass the limit
+        String key = userId.isPresent() ? "rate:api:" + apiKey : "rate:ip:" + request.getRemoteAddr();
+        RateLimitProperties.Tier tier = properties.tierFor(userId.orElse(null));
+
+        RateLimitResult result = rateLimiter.tryAcquire(key, tier);
+
+        response.setHeader("X-RateLimit-Limit", String.valueOf(result.limit()));
+        response.setHeader("X-RateLimit-Remaining", String.valueOf(result.remaining()));
+        response.setHeader("X-RateLimit-Reset", String.valueOf(toSeconds(result.resetMillis())));
+
+        if (!result.allowed()) {
+            response.setHeader("Retry-After", String.valueOf(toSeconds(result.retryAfterMillis())));
+            response.setStatus(429);
+            response.setContentType("application/json");
+            response.getWriter().write("""
+                {
+                  "status":429,
+                  "error":"Too Many Requests"
+                }
+            """);
+            return;
         }
 
         chain.doFilter(request, response);
     }
+
+    private static long toSeconds(long millis) {
+        return (millis + 999) / 1000;
+    }
 }
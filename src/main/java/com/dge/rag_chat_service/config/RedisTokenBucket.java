@@ -0,0 +1,100 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Token bucket evaluated atomically inside Redis.
+ *
+ * Refill, check and consume happen in one Lua script, so each check is a single round trip
+ * (EVALSHA) and concurrent requests cannot race past the limit. Redis server time is used so
+ * clock skew between application nodes does not matter.
+ *
+ * The script grants up to the requested number of tokens, which lets callers lease batches.
+ * Commands go over the limiter's own connection (see {@link RateLimiterConfig}), whose short timeout keeps a
+ * stalled Redis within the breaker's latency budget.
+ */
+@Component
+public class RedisTokenBucket implements RateLimiter {
+
+    private static final String SCRIPT = """
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1])
+            local ts = tonumber(state[2])
+            if tokens == nil or ts == nil then
+              tokens = capacity
+              ts = now
+            end
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local granted = math.min(requested, math.floor(tokens))
+            local retry = 0
+            if granted > 0 then
+              tokens = tokens - granted
+            else
+              granted = 0
+              retry = math.ceil((1 - tokens) / rate)
+            end
+            local reset = math.ceil((capacity - tokens) / rate)
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], reset + 1000)
+            return {granted, math.floor(tokens), retry, reset}
+            """;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TOKEN_BUCKET = new DefaultRedisScript<>(SCRIPT, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisTokenBucket(@Qualifier(RateLimiterConfig.REDIS) StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Result of a token request.
+     *
+     * @param granted tokens handed out, between 0 and the requested count
+     * @param remaining whole tokens left in the shared bucket
+     * @param retryAfterMillis time until a token is available, 0 when something was granted
+     * @param resetMillis time until the bucket is full again
+     */
+    public record Grant(long granted, long remaining, long retryAfterMillis, long resetMillis) {}
+
+    /**
+     * Tries to take one token from the bucket stored under {@code key}.
+     */
+    @Override
+    public RateLimitResult tryAcquire(String key, RateLimitProperties.Tier tier) {
+        Grant grant = acquire(key, tier, 1);
+        return new RateLimitResult(grant.granted() > 0, tier.capacity(), grant.remaining(),
+                grant.retryAfterMillis(), grant.resetMillis());
+    }
+
+    /**
+     * Takes up to {@code requested} tokens from the bucket stored under {@code key} in one round trip.
+     */
+    public Grant acquire(String key, RateLimitProperties.Tier tier, long requested) {
+        List<?> reply = redisTemplate.execute(TOKEN_BUCKET, List.of(key),
+                String.valueOf(tier.capacity()),
+                String.valueOf(tier.refillPerMillis()),
+                String.valueOf(requested));
+        return new Grant(
+                toLong(reply.get(0)),
+                toLong(reply.get(1)),
+                toLong(reply.get(2)),
+                toLong(reply.get(3)));
+    }
+
+    private static long toLong(Object value) {
+        return ((Number) value).longValue();
+    }
+}
@@ -0,0 +1,57 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Retention policy for chat sessions.
+ *
+ * A session is purged once it has been idle for {@code idleAfter}, i.e. neither it nor any of its messages was
+ * written since, or when it is still empty {@code emptyAfter} after its creation. Users listed in {@code users}
+ * get their own limits; a limit they leave out falls back to the default, and a very long one such as
+ * {@code 36500d} exempts them.
+ *
+ * @param enabled run the purger on this node; a single node is enough, more only repeat the scan
+ * @param dryRun report what would be purged without purging it
+ * @param batchSize sessions examined per batch
+ * @param batchInterval pause between batches, which bounds the rate of the purger
+ * @param passInterval pause between the end of a pass over all sessions and the start of the next
+ * @param maxPoolUsage fraction of the connection pool in use above which a batch is skipped
+ */
+@ConfigurationProperties(prefix = "retention")
+public record RetentionProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("true") boolean dryRun,
+        @DefaultValue("365d") Duration idleAfter,
+        @DefaultValue("24h") Duration emptyAfter,
+        Map<String, UserPolicy> users,
+        @DefaultValue("200") int batchSize,
+        @DefaultValue("PT1S") Duration batchInterval,
+        @DefaultValue("PT6H") Duration passInterval,
+        @DefaultValue("0.5") double maxPoolUsage
+) {
+
+    /**
+     * Limits of a single user; either may be left out.
+     */
+    public record UserPolicy(Duration idleAfter, Duration emptyAfter) {}
+
+    /**
+     * Idle time after which the sessions of a user are purged.
+     */
+    public Duration idleAfter(String userId) {
+        UserPolicy policy = users != null ? users.get(userId) : null;
+        return policy != null && policy.idleAfter() != null ? policy.idleAfter() : idleAfter;
+    }
+
+    /**
+     * Age after which the empty sessions of a user are purged.
+     */
+    public Duration emptyAfter(String userId) {
+        UserPolicy policy = users != null ? users.get(userId) : null;
+        return policy != null && policy.emptyAfter() != null ? policy.emptyAfter() : emptyAfter;
+    }
+}
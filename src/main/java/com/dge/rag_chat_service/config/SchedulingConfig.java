@@ -0,0 +1,12 @@
+package com.dge.rag_chat_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled background jobs such as the session reaper.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,63 @@
+package com.dge.rag_chat_service.controller;
+
+import com.dge.rag_chat_service.dto.ArchiveImportResponse;
+import com.dge.rag_chat_service.service.ArchiveService;
+import com.dge.rag_chat_service.service.MessageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * REST controller for user archives.
+ * Exposes APIs to export all sessions and messages of the caller as a ZIP archive and to import such an archive.
+ */
+@RestController
+@RequestMapping("/v1/api/archive")
+@RequiredArgsConstructor
+public class ArchiveController {
+
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+
+    private final ArchiveService service;
+
+    /**
+     * Export all sessions and messages of the caller.
+     * The archive holds one NDJSON entry per session and is streamed while it is read from the database.
+     *
+     * @param authentication contains user details from security context
+     * @return ZIP archive
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(Authentication authentication) {
+
+        MessageService.ExportWriter writer = service.export(authentication.getName());
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_ZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"chat-archive.zip\"")
+                .body(writer::writeTo);
+    }
+
+    /**
+     * Import an archive produced by the export into the caller's account, keeping ids and timestamps.
+     * Sessions that already exist are skipped, so a failed import can be repeated.
+     *
+     * @param archive ZIP archive as the raw request body
+     * @param authentication contains user details from security context
+     * @return counts of imported, skipped and failed sessions
+     */
+    @PostMapping(consumes = {"application/zip", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ArchiveImportResponse importArchive(InputStream archive, Authentication authentication) throws IOException {
+
+        return service.importArchive(archive, authentication.getName());
+    }
+}
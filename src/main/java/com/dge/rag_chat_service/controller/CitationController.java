@@ -0,0 +1,59 @@
+package com.dge.rag_chat_service.controller;
+
+import com.dge.rag_chat_service.dto.CitedMessageResponse;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.DocumentCitationCount;
+import com.dge.rag_chat_service.service.CitationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * REST controller for document citations.
+ * Exposes APIs to find the caller's messages citing a document and the caller's most cited documents.
+ */
+@RestController
+@RequestMapping("/v1/api/citations")
+@RequiredArgsConstructor
+public class CitationController {
+
+    private final CitationService service;
+
+    /**
+     * Retrieves messages of the authenticated user citing a document, newest first, using cursor (keyset) pagination.
+     *
+     * @param docId cited document
+     * @param after opaque cursor taken from the previous page's nextCursor
+     * @param size page size
+     * @param authentication contains user details from security context
+     * @return page of citing messages with a cursor to the next page
+     */
+    @GetMapping("/messages")
+    public CursorPage<CitedMessageResponse> findMessagesByDocument(@RequestParam(required = false) String docId,
+                                                                   @RequestParam(required = false) String after,
+                                                                   @RequestParam(defaultValue = "20") int size,
+                                                                   Authentication authentication) {
+        return service.findMessagesByDocument(authentication.getName(), docId, after, size);
+    }
+
+    /**
+     * Retrieves the documents cited most often in the authenticated user's messages.
+     *
+     * @param since only count citations from this time on; all time if omitted
+     * @param limit number of documents
+     * @param authentication contains user details from security context
+     * @return documents with citation counts, most cited first
+     */
+    @GetMapping("/top-documents")
+    public List<DocumentCitationCount> findTopDocuments(@RequestParam(required = false) Instant since,
+                                                        @RequestParam(defaultValue = "10") int limit,
+                                                        Authentication authentication) {
+        return service.findTopDocuments(authentication.getName(), since, limit);
+    }
+}
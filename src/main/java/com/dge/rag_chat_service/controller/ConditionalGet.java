@@ -0,0 +1,88 @@
+package com.dge.rag_chat_service.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Strong ETags for the list endpoints, derived from a version counter instead of the response body.
+ *
+ * The tag combines the version of the listed data with a SHA-256 digest of the resource, the id of the listed
+ * owner and the request parameters, each written with its length so that no two requests share an encoding. It is
+ * checked against
+ * {@code If-None-Match} before the page is queried. Versions are bumped in the transaction of every write and
+ * read before the page, so a tag can only lag behind the content it was sent with, and a stale tag costs a full
+ * response. A 304 can be wrong only while a committed bump has not reached the version read here: session list
+ * versions are cached per node, and a node that lost a broadcast or missed a Redis write serves the previous
+ * version until its near cache expires or the write is retried, see {@code SessionListVersionCache}.
+ *
+ * Outcomes are counted in {@code chat.http.conditional}, tagged by resource and by result: {@code hit} for a
+ * 304, {@code miss} for a tag that no longer matches and {@code none} for requests without one.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGet {
+
+    private static final int TAG_BYTES = 16;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Sets the ETag of the response and checks the request's {@code If-None-Match} against it.
+     *
+     * @param resource name used in the metric tags
+     * @param owner id of what the list belongs to, the session or the user
+     * @param version version of the listed data
+     * @param params request parameters that select the page
+     * @return true if the response has been set to 304 and the handler must return without a body
+     */
+    public boolean notModified(WebRequest request, String resource, Object owner, long version, Object... params) {
+        String etag = version + "-" + digest(resource, owner, params);
+        String result;
+        if (request.checkNotModified(etag)) {
+            result = "hit";
+        } else {
+            result = request.getHeader(HttpHeaders.IF_NONE_MATCH) != null ? "miss" : "none";
+        }
+        Counter.builder("chat.http.conditional")
+                .description("Conditional list requests by outcome")
+                .tag("resource", resource)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+        return "hit".equals(result);
+    }
+
+    private static String digest(String resource, Object owner, Object... params) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        update(digest, resource);
+        update(digest, owner);
+        for (Object param : params) {
+            update(digest, param);
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, TAG_BYTES);
+    }
+
+    private static void update(MessageDigest digest, Object value) {
+        if (value == null) {
+            digest.update((byte) '-');
+            return;
+        }
+        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        digest.update((bytes.length + ":").getBytes(StandardCharsets.US_ASCII));
+        digest.update(bytes);
+    }
+}
@@ -1,60 +1,210 @@
 package com.dge.rag_chat_service.controller;
 
 import com.dge.rag_chat_service.dto.CreateMessageRequest;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.dto.MessageResponse;
+import com.dge.rag_chat_service.ingest.WriteBehindMessageIngestor;
 import com.dge.rag_chat_service.service.MessageService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST controller for managing chat messages.
  * Exposes APIs to Store chat messages and get chat messages with pagination.
  */
 @RestController
-@RequestMapping("/v1/api/sessions/{sessionId}/messages")
+@RequestMapping("/v1/api/sessions/{sessionId}")
 @RequiredArgsConstructor
 public class MessageController {
 
+    static final int MAX_BATCH_SIZE = 500;
+
     private final MessageService service;
+
+    // Present only when message-ingest.mode=write-behind
+    private final ObjectProvider<WriteBehindMessageIngestor> ingestor;
+
+    private final ConditionalGet conditionalGet;
     /**
-     * Store chat messages with optional retrieved context
+     * Store chat messages with optional retrieved context.
+     * In write-behind mode the message is journaled and queued, and 202 is returned with its id and sequence.
      *
      * @param sessionId session identifier
      * @param req contains message content, sender type and optional context
-     * @return created chat message
+     * @param authentication contains user details from security context
+     * @return created chat message, or the accepted message id in write-behind mode
      */
-    @PostMapping
-    public ResponseEntity<MessageResponse> add(@PathVariable UUID sessionId,
-                                               @Valid @RequestBody CreateMessageRequest req) {
+    @PostMapping("/messages")
+    public ResponseEntity<?> add(@PathVariable UUID sessionId,
+                                 @Valid @RequestBody CreateMessageRequest req,
+                                 Authentication authentication) {
 
+        WriteBehindMessageIngestor writeBehind = ingestor.getIfAvailable();
+        if (writeBehind != null) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(writeBehind.enqueue(sessionId, req, authentication.getName()));
+        }
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(service.add(sessionId, req));
+                .body(service.add(sessionId, req, authentication.getName()));
+    }
+
+    /**
+     * Store several chat messages in one call, e.g. the USER, AI and tool messages of a RAG turn.
+     * The session is validated once and all rows are inserted in one transaction using JDBC batching.
+     *
+     * @param sessionId session identifier
+     * @param req messages to store, in order
+     * @param authentication contains user details from security context
+     * @return created chat messages in request order
+     */
+    @PostMapping("/messages:batch")
+    public ResponseEntity<List<MessageResponse>> addAll(@PathVariable UUID sessionId,
+                                                        @RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE)
+                                                        List<@Valid CreateMessageRequest> req,
+                                                        Authentication authentication) {
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(service.addAll(sessionId, req, authentication.getName()));
     }
 
     /**
      * Get chat messages for a session with pagination support.
+     * Returns 304 without querying the messages when {@code If-None-Match} holds the current ETag.
      *
      * @param sessionId session identifier
      * @param page page number (0-based)
      * @param size page size
+     * @param authentication contains user details from security context
      * @return paginated list of chat messages for the session
      */
-    @GetMapping
+    @GetMapping("/messages")
     public Page<MessageResponse> list(@PathVariable UUID sessionId,
                                   @RequestParam(defaultValue = "0") int page,
-                                  @RequestParam(defaultValue = "20") int size) {
-        return service.list(sessionId, page,size);
+                                  @RequestParam(defaultValue = "20") int size,
+                                  Authentication authentication,
+                                  WebRequest request) {
+        long version = service.messagesVersion(sessionId, authentication.getName());
+        if (conditionalGet.notModified(request, "messages", sessionId, version, page, size)) {
+            return null;
+        }
+        return service.list(sessionId, page,size, authentication.getName());
+    }
+
+    /**
+     * Get chat messages for a session using cursor (keyset) pagination.
+     * Every page costs the same regardless of depth and no total count is computed.
+     * Returns 304 without querying the messages when {@code If-None-Match} holds the current ETag.
+     *
+     * @param sessionId session identifier
+     * @param after opaque cursor; returns messages after this position
+     * @param before opaque cursor; returns messages before this position
+     * @param size page size
+     * @param authentication contains user details from security context
+     * @return page of chat messages with cursors to the neighbouring pages
+     */
+    @GetMapping("/messages/cursor")
+    public CursorPage<MessageResponse> listByCursor(@PathVariable UUID sessionId,
+                                                    @RequestParam(required = false) String after,
+                                                    @RequestParam(required = false) String before,
+                                                    @RequestParam(defaultValue = "20") int size,
+                                                    Authentication authentication,
+                                                    WebRequest request) {
+        long version = service.messagesVersion(sessionId, authentication.getName());
+        if (conditionalGet.notModified(request, "messages", sessionId, version, after, before, size)) {
+            return null;
+        }
+        return service.listByCursor(sessionId, after, before, size, authentication.getName());
+    }
+
+    /**
+     * Export the full history of a session as newline-delimited JSON, oldest first.
+     * Messages are streamed from the database as they are read, so memory use does not grow with the session.
+     * The body is gzip compressed when the client's {@code Accept-Encoding} allows gzip.
+     *
+     * @param sessionId session identifier
+     * @param acceptEncoding encodings accepted by the client
+     * @param authentication contains user details from security context
+     * @return one JSON message per line
+     */
+    @GetMapping("/messages/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable UUID sessionId,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                                        String acceptEncoding,
+                                                        Authentication authentication) {
+
+        MessageService.ExportWriter writer = service.export(sessionId, authentication.getName());
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"session-" + sessionId + ".ndjson\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(writer::writeTo);
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(out -> {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                    writer.writeTo(compressed);
+                    compressed.finish();
+                });
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip: listed with a q-value above 0, or, if not listed,
+     * matched by {@code *} with a q-value above 0 (RFC 9110, section 12.5.3).
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.length() > 2 && Character.toLowerCase(param.charAt(0)) == 'q' && param.charAt(1) == '=') {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = q;
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        Double q = gzip != null ? gzip : any;
+        return q != null && q > 0;
     }
 }
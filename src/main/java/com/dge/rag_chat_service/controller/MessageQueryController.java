@@ -0,0 +1,37 @@
+package com.dge.rag_chat_service.controller;
+
+import com.dge.rag_chat_service.dto.ContextQueryRequest;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.MessageResponse;
+import com.dge.rag_chat_service.service.ContextQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for queries over messages across sessions.
+ * Exposes an API to find messages of the caller by their RAG context.
+ */
+@RestController
+@RequestMapping("/v1/api")
+@RequiredArgsConstructor
+public class MessageQueryController {
+
+    private final ContextQueryService service;
+
+    /**
+     * Find messages whose RAG context matches a containment value and/or a JSONPath predicate,
+     * newest first, using cursor (keyset) pagination.
+     *
+     * @param req filter, optional session scope and paging
+     * @param authentication contains user details from security context
+     * @return page of matching messages with a cursor to the next page
+     */
+    @PostMapping("/messages:query")
+    public CursorPage<MessageResponse> query(@RequestBody ContextQueryRequest req, Authentication authentication) {
+        return service.query(authentication.getName(), req);
+    }
+}
@@ -0,0 +1,40 @@
+package com.dge.rag_chat_service.controller;
+
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.SearchHitResponse;
+import com.dge.rag_chat_service.service.SearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for message search.
+ * Exposes an API to search the messages of all sessions of the caller.
+ */
+@RestController
+@RequestMapping("/v1/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final SearchService service;
+
+    /**
+     * Full-text search over the caller's messages, best matches first, using cursor (keyset) pagination.
+     *
+     * @param q search terms; supports quoted phrases, {@code or} and {@code -} to exclude a term
+     * @param after opaque cursor taken from the previous page's nextCursor
+     * @param size page size
+     * @param authentication contains user details from security context
+     * @return page of matching messages with snippets and a cursor to the next page
+     */
+    @GetMapping
+    public CursorPage<SearchHitResponse> search(@RequestParam(required = false) String q,
+                                                @RequestParam(required = false) String after,
+                                                @RequestParam(defaultValue = "20") int size,
+                                                Authentication authentication) {
+        return service.search(authentication.getName(), q, after, size);
+    }
+}
@@ -1,6 +1,7 @@
 package com.dge.rag_chat_service.controller;
 
 import com.dge.rag_chat_service.dto.CreateSessionRequest;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.dto.FavoriteSessionRequest;
 import com.dge.rag_chat_service.dto.RenameSessionRequest;
 import com.dge.rag_chat_service.dto.SessionResponse;
@@ -21,6 +22,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.UUID;
 
@@ -35,6 +37,8 @@ import java.util.UUID;
 public class SessionController {
 
     private final SessionService service;
+
+    private final ConditionalGet conditionalGet;
     /**
      * Creates a new chat session.
      *
@@ -52,6 +56,7 @@ public class SessionController {
 
     /**
      * Retrieves all chat sessions for a specific user with pagination support.
+     * Returns 304 without querying the sessions when {@code If-None-Match} holds the current ETag.
      *
      * @param page page number (0-based)
      * @param size page size
@@ -61,23 +66,51 @@ public class SessionController {
     @GetMapping
     public Page<SessionResponse> findAllByUserId(@RequestParam(defaultValue = "0") int page,
                                                  @RequestParam(defaultValue = "20") int size,
-                                                 Authentication authentication) {
+                                                 Authentication authentication,
+                                                 WebRequest request) {
         String userId = authentication.getName();
+        if (conditionalGet.notModified(request, "sessions", userId, service.sessionsVersion(userId), page, size)) {
+            return null;
+        }
         return service.findAllByUserId(userId, page, size);
     }
 
+    /**
+     * Retrieves chat sessions for the authenticated user, newest first, using cursor (keyset) pagination.
+     * Every page costs the same regardless of depth and no total count is computed.
+     * Returns 304 without querying the sessions when {@code If-None-Match} holds the current ETag.
+     *
+     * @param after opaque cursor taken from the previous page's nextCursor
+     * @param size page size
+     * @param authentication contains user details from security context
+     * @return page of chat sessions with a cursor to the next page
+     */
+    @GetMapping("/cursor")
+    public CursorPage<SessionResponse> findAllByUserIdByCursor(@RequestParam(required = false) String after,
+                                                               @RequestParam(defaultValue = "20") int size,
+                                                               Authentication authentication,
+                                                               WebRequest request) {
+        String userId = authentication.getName();
+        if (conditionalGet.notModified(request, "sessions", userId, service.sessionsVersion(userId), after, size)) {
+            return null;
+        }
+        return service.findAllByUserIdByCursor(userId, after, size);
+    }
+
     /**
      * Rename the chat session.
      *
      * @param id session identifier
      * @param req contains session name
+     * @param authentication contains user details from security context
      * @return updated session with new favorite status
      *
      */
     @PutMapping("/{id}/rename")
-    public ResponseEntity<SessionResponse> rename(@PathVariable UUID id, @Valid @RequestBody RenameSessionRequest req) {
+    public ResponseEntity<SessionResponse> rename(@PathVariable UUID id, @Valid @RequestBody RenameSessionRequest req,
+                                                  Authentication authentication) {
         return ResponseEntity.status(HttpStatus.OK)
-                .body(service.rename(id, req));
+                .body(service.rename(id, req, authentication.getName()));
     }
 
     /**
@@ -85,23 +118,26 @@ public class SessionController {
      *
      * @param id session identifier
      * @param value true to mark as favorite, false to unmark
+     * @param authentication contains user details from security context
      * @return updated session with new favorite status
      *
      */
     @PatchMapping("/{id}/favorite")
-    public ResponseEntity<SessionResponse> favorite(@PathVariable UUID id, @Valid @RequestBody FavoriteSessionRequest req) {
+    public ResponseEntity<SessionResponse> favorite(@PathVariable UUID id, @Valid @RequestBody FavoriteSessionRequest req,
+                                                    Authentication authentication) {
         return ResponseEntity.status(HttpStatus.OK)
-                .body(service.favorite(id, req));
+                .body(service.favorite(id, req, authentication.getName()));
     }
 
     /**
      * Deletes a chat session by id.
      *
      * @param id session identifier
+     * @param authentication contains user details from security context
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void>  delete(@PathVariable UUID id) {
-        service.delete(id);
+    public ResponseEntity<Void>  delete(@PathVariable UUID id, Authentication authentication) {
+        service.delete(id, authentication.getName());
 
         return ResponseEntity.noContent().build();
     }
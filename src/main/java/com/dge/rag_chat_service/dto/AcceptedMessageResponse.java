@@ -0,0 +1,16 @@
+package com.dge.rag_chat_service.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Response model for a message accepted for asynchronous storage.
+ * The sequence orders accepted messages on the node that received them.
+ */
+public record AcceptedMessageResponse(
+
+        UUID id,
+        long sequence,
+        Instant createdAt
+
+) {}
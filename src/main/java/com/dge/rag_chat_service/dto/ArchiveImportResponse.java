@@ -0,0 +1,16 @@
+package com.dge.rag_chat_service.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Response model for a user archive import.
+ *
+ * Sessions whose id already exists are skipped, so an interrupted import can simply be repeated.
+ */
+public record ArchiveImportResponse(
+        int importedSessions,
+        long importedMessages,
+        List<UUID> skippedSessions,
+        List<UUID> failedSessions
+) {}
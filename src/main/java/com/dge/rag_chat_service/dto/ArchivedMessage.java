@@ -0,0 +1,18 @@
+package com.dge.rag_chat_service.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A message line of a user archive. Same shape as {@link MessageResponse}; the context is kept as a
+ * JSON tree so it can be written back to the database without mapping it to Java types.
+ */
+public record ArchivedMessage(
+        UUID id,
+        SenderType sender,
+        String message,
+        JsonNode context,
+        Instant createdAt
+) {}
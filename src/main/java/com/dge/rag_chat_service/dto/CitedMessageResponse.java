@@ -0,0 +1,19 @@
+package com.dge.rag_chat_service.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Response model for a message citing a document.
+ *
+ * @param chunkIds cited chunks of the document; empty if the document was cited as a whole
+ */
+public record CitedMessageResponse(
+
+        UUID messageId,
+        UUID sessionId,
+        List<String> chunkIds,
+        Instant createdAt
+
+) {}
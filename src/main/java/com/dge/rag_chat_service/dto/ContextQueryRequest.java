@@ -0,0 +1,23 @@
+package com.dge.rag_chat_service.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.UUID;
+
+/**
+ * Request model for querying messages by their RAG context.
+ *
+ * @param sessionId restricts the query to one session; without it all live sessions of the caller are searched
+ * @param contains JSON the context must contain, e.g. {@code {"documents": [{"id": "doc-42"}]}}
+ * @param path JSONPath predicate on the context, e.g. {@code $.documents[*].score < 0.3}; comparisons
+ *             may be joined with {@code &&}
+ * @param after opaque cursor taken from the previous page's nextCursor
+ * @param size page size, 20 if omitted
+ */
+public record ContextQueryRequest(
+        UUID sessionId,
+        JsonNode contains,
+        String path,
+        String after,
+        Integer size
+) {}
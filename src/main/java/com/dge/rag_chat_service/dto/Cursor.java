@@ -0,0 +1,47 @@
+package com.dge.rag_chat_service.dto;
+
+import com.dge.rag_chat_service.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position used for cursor based pagination.
+ *
+ * A cursor is the (createdAt, id) pair of the last row a client has seen, encoded as an
+ * opaque URL-safe token so clients never depend on its internal layout.
+ */
+public record Cursor(Instant createdAt, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Encodes this position as an opaque token.
+     */
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @throws BadRequestException if the token is not a valid cursor
+     */
+    public static Cursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = raw.indexOf(SEPARATOR);
+            if (idx < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new Cursor(Instant.parse(raw.substring(0, idx)), UUID.fromString(raw.substring(idx + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.dge.rag_chat_service.dto;
+
+import java.util.List;
+
+/**
+ * Response model for a cursor based page.
+ *
+ * Unlike {@link org.springframework.data.domain.Page} it carries no total count, so
+ * producing it never requires a COUNT query.
+ *
+ * @param content items on this page
+ * @param size requested page size
+ * @param nextCursor cursor to fetch the following page, or null if this is the last page
+ * @param previousCursor cursor to fetch the preceding page, or null if this is the first page
+ *                       or the listing only pages forward
+ */
+public record CursorPage<T>(
+        List<T> content,
+        int size,
+        String nextCursor,
+        String previousCursor
+) {}
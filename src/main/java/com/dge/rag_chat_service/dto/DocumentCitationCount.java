@@ -0,0 +1,18 @@
+package com.dge.rag_chat_service.dto;
+
+import java.time.Instant;
+
+/**
+ * Response model for how often a document was cited.
+ *
+ * @param citations messages citing the document
+ * @param sessions sessions containing such messages
+ */
+public record DocumentCitationCount(
+
+        String docId,
+        long citations,
+        long sessions,
+        Instant lastCitedAt
+
+) {}
@@ -1,18 +1,20 @@
 package com.dge.rag_chat_service.dto;
 
 import java.time.Instant;
-import java.util.Map;
 import java.util.UUID;
 
 /**
  * Response model for a message in a chat session.
+ * The context is passed through as stored, without being parsed. {@code contextStripped} marks contexts that were
+ * reduced to a summary of their documents, or dropped, once the message aged.
  */
 public record MessageResponse(
 
         UUID id,
         SenderType sender,
         String message,
-        Map<String, Object> context,
+        RawJson context,
+        boolean contextStripped,
         Instant createdAt
 
 ) {}
@@ -0,0 +1,49 @@
+package com.dge.rag_chat_service.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+
+/**
+ * A JSON value carried as text and written to responses as is.
+ *
+ * Used for contexts read from the jsonb column, which PostgreSQL has already validated, so a response
+ * does not parse the stored JSON into objects only to serialize it again.
+ */
+@JsonSerialize(using = RawJson.Serializer.class)
+@JsonDeserialize(using = RawJson.Deserializer.class)
+public record RawJson(String json) {
+
+    /**
+     * Wraps {@code json}, or returns null for a null value.
+     */
+    public static RawJson of(String json) {
+        return json == null ? null : new RawJson(json);
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+
+    static class Serializer extends JsonSerializer<RawJson> {
+        @Override
+        public void serialize(RawJson value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeRawValue(value.json());
+        }
+    }
+
+    static class Deserializer extends JsonDeserializer<RawJson> {
+        @Override
+        public RawJson deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return new RawJson(p.readValueAsTree().toString());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.dge.rag_chat_service.dto;
+
+import com.dge.rag_chat_service.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in search results, which are ordered by rank and then id, both descending.
+ * Encoded like {@link Cursor} as an opaque URL-safe token.
+ */
+public record SearchCursor(float rank, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Encodes this position as an opaque token.
+     */
+    public String encode() {
+        String raw = Float.toString(rank) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @throws BadRequestException if the token is not a valid search cursor
+     */
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = raw.indexOf(SEPARATOR);
+            if (idx < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            float rank = Float.parseFloat(raw.substring(0, idx));
+            if (!Float.isFinite(rank)) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new SearchCursor(rank, UUID.fromString(raw.substring(idx + 1)));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.dge.rag_chat_service.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Response model for a message matching a search query.
+ *
+ * @param messageId matching message
+ * @param sessionId session the message belongs to
+ * @param snippet fragments of the message around the matched terms, which are wrapped in {@code **}
+ * @param rank relevance of the match; higher is better
+ */
+public record SearchHitResponse(
+
+        UUID messageId,
+        UUID sessionId,
+        SenderType sender,
+        String snippet,
+        float rank,
+        Instant createdAt
+
+) {}
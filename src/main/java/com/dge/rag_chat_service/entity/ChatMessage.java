@@ -1,8 +1,10 @@
 package com.dge.rag_chat_service.entity;
 
+import com.dge.rag_chat_service.codec.MessageBodyConverter;
 import com.dge.rag_chat_service.dto.SenderType;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
@@ -24,20 +26,24 @@ import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
-import java.util.Map;
 import java.util.UUID;
 
 /**
  * Entity representing an individual message within a chat session.
  *
  * Stores sender type, message content,
- * and optional RAG retrieval context stored as JSONB.
+ * and optional RAG retrieval context stored as JSONB. The context is mapped as JSON text, so Hibernate
+ * neither parses it on read nor serializes it on write.
+ * Large message bodies may be stored compressed; see {@link MessageBodyConverter}.
+ *
+ * The table is range-partitioned by month of {@code createdAt} and its primary key is (id, created_at);
+ * the schema is managed by the Flyway migrations in {@code db/migration}.
  */
 
 @Entity
 @Table(name = "chat_messages",
         indexes = {
-                @Index(name = "idx_session_id", columnList = "session_id")
+                @Index(name = "idx_session_created_id", columnList = "session_id, createdAt, id")
         })
 @Getter
 @Setter
@@ -48,7 +54,7 @@ public class ChatMessage {
 
     @Id
     @GeneratedValue
-    @UuidGenerator
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
 
@@ -62,18 +68,22 @@ public class ChatMessage {
     private SenderType sender;
 
     @Column(name = "message", nullable = false, columnDefinition = "TEXT")
+    @Convert(converter = MessageBodyConverter.class)
     private String message;
 
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "jsonb")
-    private Map<String, Object> context;
+    private String context;
 
     @Column(name = "createdAt", nullable = false)
     private Instant createdAt;
 
     @PrePersist
     void onCreate() {
-        createdAt = Instant.now();
+        // Callers may assign the timestamp themselves, e.g. to keep the order of a batch
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
     }
 
 
@@ -15,6 +15,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.annotations.UuidGenerator;
 
 import java.time.Instant;
@@ -25,16 +26,25 @@ import java.util.UUID;
  * Entity representing a chat session created by a user.
  *
  * Each session can contain multiple chat messages.
- * Messages are cascade-deleted when the session is removed.
+ * Deleting a session only sets {@code deletedAt}; the tombstoned row is hidden from every
+ * entity query by the SQL restriction and its messages are removed in the background by the session reaper.
  *
- * Indexed on userId for efficient session retrieval.
+ * {@code messageVersion} changes with every write to the session's messages and backs the ETags of the
+ * message list endpoints.
+ *
+ * {@code messagesFrom} is a lower bound of the creation times of the session's messages; message queries
+ * compare against it so PostgreSQL skips the chat_messages partitions of earlier months.
+ *
+ * Indexed on (userId, createdAt DESC, id DESC) for efficient, newest-first session retrieval.
  */
 
 @Entity
 @Table(name = "chat_sessions",
         indexes = {
-                @Index(name = "idx_user_id", columnList = "userId")
+                @Index(name = "idx_user_created_id", columnList = "userId, created_at DESC, id DESC"),
+                @Index(name = "idx_deleted_at", columnList = "deleted_at")
         })
+@SQLRestriction("deleted_at IS NULL")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -44,7 +54,7 @@ public class ChatSession {
 
     @Id
     @GeneratedValue
-    @UuidGenerator
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
 
@@ -63,6 +73,18 @@ public class ChatSession {
     @Column(name = "updated_at")
     private Instant updatedAt;
 
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
+    // Bumped with plain SQL in the transaction of every message write, never written through the entity
+    @Column(name = "message_version", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private long messageVersion;
+
+    // Defaults to the creation time in the database; only archive import and bulk load lower it
+    @Column(name = "messages_from", nullable = false, insertable = false, updatable = false)
+    private Instant messagesFrom;
+
     @PrePersist
     void onCreate() {
         createdAt = Instant.now();
@@ -0,0 +1,30 @@
+package com.dge.rag_chat_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity representing the version of a user's session list.
+ *
+ * The version is bumped in the transaction of every change to the user's sessions and backs the ETags of the
+ * session list endpoints. Rows are written with plain JDBC; the entity defines the table.
+ */
+@Entity
+@Table(name = "chat_user_versions")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatUserVersion {
+
+    @Id
+    @Column(name = "user_id", updatable = false, nullable = false)
+    private String userId;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+}
@@ -0,0 +1,35 @@
+package com.dge.rag_chat_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Entity representing a retrieved chunk shared by message contexts.
+ *
+ * Chunks are content-addressed: the key is the SHA-256 of the text, so a chunk retrieved for many messages
+ * is stored once and contexts keep only the hash. Rows are written with plain JDBC; the entity defines the table.
+ */
+@Entity
+@Table(name = "context_chunks")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContextChunk {
+
+    @Id
+    @Column(name = "hash", length = 64, updatable = false, nullable = false)
+    private String hash;
+
+    @Column(name = "content", nullable = false, updatable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+}
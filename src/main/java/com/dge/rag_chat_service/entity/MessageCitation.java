@@ -0,0 +1,45 @@
+package com.dge.rag_chat_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entity representing a document (and optionally a chunk) cited in the RAG context of a message.
+ *
+ * Rows are extracted from the message context when the message is written, so "which messages cited
+ * document D" is an index lookup instead of a scan over jsonb.
+ *
+ * Indexed on (doc_id, created_at DESC, message_id DESC) for newest-first lookups by document, and on
+ * (session_id, doc_id) for per-user rollups and for removing the citations of a reaped session.
+ */
+@Entity
+@Table(name = "message_citations",
+        indexes = {
+                @Index(name = "idx_citation_doc_created", columnList = "doc_id, created_at DESC, message_id DESC"),
+                @Index(name = "idx_citation_session_doc", columnList = "session_id, doc_id")
+        })
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageCitation {
+
+    @EmbeddedId
+    private MessageCitationId id;
+
+    @Column(name = "session_id", nullable = false)
+    private UUID sessionId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
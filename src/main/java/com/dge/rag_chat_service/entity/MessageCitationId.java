@@ -0,0 +1,31 @@
+package com.dge.rag_chat_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Primary key of a citation. A document cited without a chunk has an empty chunk id.
+ */
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class MessageCitationId implements Serializable {
+
+    @Column(name = "message_id", nullable = false)
+    private UUID messageId;
+
+    @Column(name = "doc_id", nullable = false)
+    private String docId;
+
+    @Column(name = "chunk_id", nullable = false)
+    private String chunkId;
+}
@@ -0,0 +1,65 @@
+package com.dge.rag_chat_service.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered version 7 UUIDs (RFC 9562).
+ *
+ * The first 48 bits hold the Unix time in milliseconds and the next 12 bits a counter, so ids created later
+ * sort after earlier ones, both as UUIDs in PostgreSQL and within one millisecond on this node. New rows are
+ * appended to the right edge of primary key indexes instead of landing on random pages. The remaining 62 bits
+ * are random. The column type is unchanged, so existing version 4 ids stay valid.
+ */
+public class UuidV7Generator implements UuidValueGenerator {
+
+    // Unix millis << 12 | counter of the last id handed out
+    private static final AtomicLong LAST = new AtomicLong();
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return next();
+    }
+
+    /**
+     * Returns a new id, strictly greater than any previously returned by this JVM.
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        // When more than 4096 ids are needed in one millisecond the counter carries into the timestamp,
+        // running slightly ahead of the clock until it catches up
+        long stamp = LAST.updateAndGet(last -> Math.max(last + 1, now));
+
+        long msb = (stamp >>> 12) << 16   // 48-bit unix_ts_ms
+                | 0x7000L                  // version 7
+                | (stamp & 0xFFFL);        // 12-bit rand_a, used as counter
+        long lsb = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL
+                | 0x8000000000000000L;     // IETF variant
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Returns a version 7 id for {@code millis} whose other bits are derived from {@code name}, so the same
+     * input always yields the same id. Used when loading historical data that has no ids of its own.
+     */
+    public static UUID fromName(long millis, byte[] name) {
+        UUID hash = UUID.nameUUIDFromBytes(name);
+        long msb = millis << 16
+                | 0x7000L
+                | (hash.getMostSignificantBits() & 0xFFFL);
+        long lsb = hash.getLeastSignificantBits() & 0x3FFFFFFFFFFFFFFFL
+                | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Unix time in milliseconds encoded in a version 7 id.
+     */
+    public static long timestampMillis(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+}
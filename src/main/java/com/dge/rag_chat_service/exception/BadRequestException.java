@@ -0,0 +1,12 @@
+package com.dge.rag_chat_service.exception;
+
+/**
+ * Custom exception thrown when a request is syntactically valid but cannot be served as sent,
+ * for example a malformed pagination cursor.
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.dge.rag_chat_service.exception;
+
+/**
+ * Custom exception thrown when the service is temporarily unable to accept a request,
+ * for example because the write-behind ingestion queue is full.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.dge.rag_chat_service.ingest;
+
+import com.dge.rag_chat_service.dto.SenderType;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A message accepted by the write-behind ingestor, as written to the journal and later to the database.
+ */
+public record JournalEntry(
+        long sequence,
+        UUID id,
+        UUID sessionId,
+        SenderType sender,
+        String message,
+        Map<String, Object> context,
+        Instant createdAt
+) {}
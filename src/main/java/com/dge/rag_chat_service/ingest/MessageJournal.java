@@ -0,0 +1,224 @@
+package com.dge.rag_chat_service.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Local append-only journal of accepted messages, one JSON document per line.
+ *
+ * The journal is split into segments. A segment is rolled once it reaches the configured size and deleted
+ * when every entry in it has been committed to the database; the active segment is truncated instead.
+ * Forcing to disk is grouped: a caller whose entry was already covered by another caller's force returns
+ * immediately, so concurrent requests share one fsync.
+ */
+@Slf4j
+public class MessageJournal implements Closeable {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final ObjectMapper objectMapper;
+
+    // Sealed segments keyed by the last sequence they contain
+    private final TreeMap<Long, Path> sealed = new TreeMap<>();
+
+    private FileChannel active;
+    private Path activePath;
+    private long activeLastSequence;
+    private long lastWritten;
+
+    private final Object syncLock = new Object();
+    private volatile long lastSynced;
+
+    public MessageJournal(Path dir, long segmentBytes, ObjectMapper objectMapper) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create journal directory " + dir, ex);
+        }
+    }
+
+    /**
+     * Reads every entry left by a previous run, in sequence order. A torn last line is skipped.
+     * Must be called before the first {@link #append}.
+     */
+    public synchronized List<JournalEntry> replay() {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (Path segment : segments()) {
+            long last = -1;
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        JournalEntry entry = objectMapper.readValue(line, JournalEntry.class);
+                        entries.add(entry);
+                        last = Math.max(last, entry.sequence());
+                    } catch (IOException ex) {
+                        log.warn("Skipping unreadable journal record in {}", segment);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot read journal segment " + segment, ex);
+            }
+            if (last < 0) {
+                delete(segment);
+            } else {
+                sealed.put(last, segment);
+                lastWritten = Math.max(lastWritten, last);
+            }
+        }
+        lastSynced = lastWritten;
+        entries.sort((a, b) -> Long.compare(a.sequence(), b.sequence()));
+        return entries;
+    }
+
+    /**
+     * Appends an entry. Sequences must be strictly increasing. The entry is not durable until {@link #sync}.
+     */
+    public synchronized void append(JournalEntry entry) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(entry);
+            ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+            if (active == null || active.size() + buffer.remaining() > segmentBytes && active.size() > 0) {
+                roll(entry.sequence());
+            }
+            while (buffer.hasRemaining()) {
+                active.write(buffer);
+            }
+            activeLastSequence = entry.sequence();
+            lastWritten = entry.sequence();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot append to message journal", ex);
+        }
+    }
+
+    /**
+     * Forces the journal to disk up to at least {@code sequence}.
+     */
+    public void sync(long sequence) {
+        if (lastSynced >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (lastSynced >= sequence) {
+                return;
+            }
+            FileChannel channel;
+            long target;
+            synchronized (this) {
+                channel = active;
+                target = lastWritten;
+            }
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                }
+            } catch (ClosedChannelException ex) {
+                // Rolled meanwhile; roll() forces a segment before closing it
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot sync message journal", ex);
+            }
+            lastSynced = target;
+        }
+    }
+
+    /**
+     * Releases journal space for entries committed to the database up to and including {@code sequence}.
+     */
+    public synchronized void markCommitted(long sequence) {
+        Map<Long, Path> done = sealed.headMap(sequence, true);
+        done.values().forEach(this::delete);
+        done.clear();
+        try {
+            if (active != null && activeLastSequence <= sequence && active.size() > 0) {
+                active.truncate(0);
+            }
+        } catch (IOException ex) {
+            log.warn("Cannot truncate message journal", ex);
+        }
+    }
+
+    /**
+     * Number of journal bytes on disk.
+     */
+    public synchronized long sizeBytes() {
+        long size = 0;
+        for (Path segment : segments()) {
+            try {
+                size += Files.size(segment);
+            } catch (IOException ex) {
+                // deleted concurrently
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (active == null) {
+            return;
+        }
+        try {
+            active.force(false);
+            active.close();
+        } catch (IOException ex) {
+            log.warn("Cannot close message journal", ex);
+        }
+        active = null;
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        if (active != null) {
+            active.force(false);
+            active.close();
+            sealed.put(activeLastSequence, activePath);
+        }
+        activePath = dir.resolve(PREFIX + String.format("%020d", firstSequence) + SUFFIX);
+        active = FileChannel.open(activePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot list journal directory " + dir, ex);
+        }
+    }
+
+    private void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException ex) {
+            log.warn("Cannot delete journal segment {}", segment, ex);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.dge.rag_chat_service.ingest;
+
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.config.MessageIngestProperties;
+import com.dge.rag_chat_service.dto.AcceptedMessageResponse;
+import com.dge.rag_chat_service.dto.CreateMessageRequest;
+import com.dge.rag_chat_service.entity.UuidV7Generator;
+import com.dge.rag_chat_service.exception.ServiceUnavailableException;
+import com.dge.rag_chat_service.repository.ChatMessageBatchWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind ingestion of single messages.
+ *
+ * A request is checked for session ownership, appended to a local journal and queued; the caller gets
+ * 202 with the message id and sequence as soon as the journal append is on disk. A single flusher thread
+ * drains the queue and inserts up to {@code batchSize} messages per transaction, so many small requests share
+ * one database commit. A batch is flushed when it is full or {@code flushInterval} after its first message.
+ *
+ * Accepted but uncommitted messages are bounded by {@code capacity}; when it is reached, requests wait up to
+ * {@code enqueueTimeout} and are then rejected with 503. Whatever is left in the journal at startup, e.g. after
+ * a crash, is inserted again before new messages; inserts skip ids that already exist.
+ */
+@Component
+@ConditionalOnProperty(name = "message-ingest.mode", havingValue = "write-behind")
+@Slf4j
+public class WriteBehindMessageIngestor {
+
+    private final SessionOwnershipCache ownershipCache;
+    private final ChatMessageBatchWriter writer;
+    private final ContextJson contextJson;
+    private final MessageJournal journal;
+    private final MessageIngestProperties properties;
+
+    private final LinkedBlockingQueue<JournalEntry> queue = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long sequence;
+
+    private final Thread flusher;
+    private volatile boolean running;
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter rejected;
+    private final Counter dropped;
+    private final Counter flushFailures;
+
+    @Autowired
+    public WriteBehindMessageIngestor(SessionOwnershipCache ownershipCache,
+                                      ChatMessageBatchWriter writer,
+                                      ContextJson contextJson,
+                                      ObjectMapper objectMapper,
+                                      MessageIngestProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this(ownershipCache, writer, contextJson, new MessageJournal(Path.of(properties.journalDir()),
+                properties.segmentSize().toBytes(), objectMapper), properties, meterRegistry);
+    }
+
+    WriteBehindMessageIngestor(SessionOwnershipCache ownershipCache,
+                               ChatMessageBatchWriter writer,
+                               ContextJson contextJson,
+                               MessageJournal journal,
+                               MessageIngestProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.ownershipCache = ownershipCache;
+        this.writer = writer;
+        this.contextJson = contextJson;
+        this.journal = journal;
+        this.properties = properties;
+        this.permits = new Semaphore(properties.capacity());
+        this.flusher = Thread.ofPlatform().name("message-ingest-flusher").daemon().unstarted(this::flushLoop);
+
+        Gauge.builder("chat.ingest.queue.depth", permits, p -> properties.capacity() - p.availablePermits())
+                .description("Messages accepted but not yet committed")
+                .register(meterRegistry);
+        Gauge.builder("chat.ingest.journal.bytes", journal, MessageJournal::sizeBytes)
+                .description("Size of the local ingestion journal")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("chat.ingest.flush")
+                .description("Time to commit one batch of messages")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("chat.ingest.batch.size")
+                .description("Messages per committed batch")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("chat.ingest.rejected")
+                .description("Messages rejected because the ingestion queue was full")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("chat.ingest.dropped")
+                .description("Accepted messages that could not be stored, e.g. because the session was purged")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("chat.ingest.flush.failures")
+                .description("Batch commits that failed and were retried")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replays the journal left by a previous run and starts the flusher.
+     */
+    @PostConstruct
+    public void start() {
+        List<JournalEntry> pending = journal.replay();
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} journaled messages", pending.size());
+            sequence = pending.getLast().sequence();
+        }
+        // Keep sequences increasing across restarts even when the journal was empty
+        sequence = Math.max(sequence, ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now()));
+        running = true;
+        flusher.start();
+        for (JournalEntry entry : pending) {
+            permits.acquireUninterruptibly();
+            queue.add(entry);
+        }
+    }
+
+    /**
+     * Accepts a message for asynchronous storage.
+     *
+     * @throws com.dge.rag_chat_service.exception.BadRequestException if the context exceeds the size or depth limit
+     * @throws com.dge.rag_chat_service.exception.ResourceNotFoundException if the session is not owned by the user
+     * @throws ServiceUnavailableException if the queue stays full for longer than {@code enqueueTimeout}
+     */
+    public AcceptedMessageResponse enqueue(UUID sessionId, CreateMessageRequest req, String userId) {
+        contextJson.validate(req.context());
+        ownershipCache.requireOwned(sessionId, userId);
+
+        if (!tryAcquirePermit()) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Message ingestion queue is full, retry later");
+        }
+
+        JournalEntry entry;
+        appendLock.lock();
+        try {
+            entry = new JournalEntry(++sequence, UuidV7Generator.next(), sessionId, req.sender(), req.message(),
+                    req.context(), Instant.now().truncatedTo(ChronoUnit.MICROS));
+            journal.append(entry);
+            queue.add(entry);
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (properties.fsync()) {
+            journal.sync(entry.sequence());
+        }
+        return new AcceptedMessageResponse(entry.id(), entry.sequence(), entry.createdAt());
+    }
+
+    /**
+     * Stops accepting work and flushes what is queued. Anything not committed stays in the journal.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(properties.flushInterval().toMillis() + properties.retryBackoff().toMillis() + 5_000);
+        journal.close();
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    private boolean tryAcquirePermit() {
+        try {
+            return permits.tryAcquire(properties.enqueueTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void flushLoop() {
+        List<JournalEntry> batch = new ArrayList<>(properties.batchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                nextBatch(batch);
+            } catch (InterruptedException ex) {
+                // Shutting down: drain whatever is already queued without waiting for more
+                queue.drainTo(batch, properties.batchSize() - batch.size());
+            }
+            if (!batch.isEmpty() && flush(List.copyOf(batch))) {
+                batch.clear();
+            } else if (!batch.isEmpty() && !running) {
+                return;
+            }
+        }
+    }
+
+    private void nextBatch(List<JournalEntry> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            JournalEntry first = queue.poll(properties.flushInterval().toNanos(), TimeUnit.NANOSECONDS);
+            if (first == null) {
+                return;
+            }
+            batch.add(first);
+        }
+        long deadline = System.nanoTime() + properties.flushInterval().toNanos();
+        while (batch.size() < properties.batchSize()) {
+            if (queue.drainTo(batch, properties.batchSize() - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            JournalEntry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Commits a batch, retrying on database errors.
+     *
+     * @return false if shutting down before the batch could be committed
+     */
+    private boolean flush(List<JournalEntry> batch) {
+        while (true) {
+            try {
+                flushTimer.record(() -> write(batch));
+                batchSizes.record(batch.size());
+                journal.markCommitted(batch.getLast().sequence());
+                permits.release(batch.size());
+                return true;
+            } catch (RuntimeException ex) {
+                flushFailures.increment();
+                log.warn("Failed to commit {} messages, retrying in {}", batch.size(), properties.retryBackoff(), ex);
+                if (!running) {
+                    return false;
+                }
+                try {
+                    Thread.sleep(properties.retryBackoff());
+                } catch (InterruptedException ie) {
+                    // Shutting down: one last attempt happens on the next loop iteration
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private void write(List<JournalEntry> batch) {
+        try {
+            writer.insert(batch);
+        } catch (DataIntegrityViolationException ex) {
+            // Typically a session purged after the message was accepted; isolate the offending rows
+            for (JournalEntry entry : batch) {
+                try {
+                    writer.insert(List.of(entry));
+                } catch (DataIntegrityViolationException rowEx) {
+                    dropped.increment();
+                    log.error("Dropping message id={} for sessionId={}: {}", entry.id(), entry.sessionId(),
+                            rowEx.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+}
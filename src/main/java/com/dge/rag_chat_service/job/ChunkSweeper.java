@@ -0,0 +1,100 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.repository.ContextChunkRepository;
+import com.dge.rag_chat_service.repository.ContextChunkRepository.Swept;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Background job that deletes context chunks no message refers to anymore.
+ *
+ * Chunks outlive the contexts that referenced them when sessions are reaped or purged, partitions dropped or
+ * contexts stripped. Every {@code chunk-store.sweep.interval}, one node collects the references of all hot and
+ * cold contexts, {@code chunk-store.sweep.batch-size} sessions per transaction, and deletes the chunks outside
+ * them that were not written for {@code chunk-store.sweep.grace}, which must exceed the time a chunk can be
+ * written before the message referring to it commits.
+ */
+@Component
+@ConditionalOnProperty(name = "chunk-store.sweep.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class ChunkSweeper {
+
+    private final ContextChunkRepository repository;
+    private final Duration grace;
+    private final int batchSize;
+    private final Clock clock;
+
+    private final Counter chunks;
+    private final Counter bytes;
+    private final Counter failures;
+    private final Timer sweepTimer;
+
+    @Autowired
+    public ChunkSweeper(ContextChunkRepository repository,
+                        MeterRegistry meterRegistry,
+                        @Value("${chunk-store.sweep.grace:P1D}") Duration grace,
+                        @Value("${chunk-store.sweep.batch-size:1000}") int batchSize) {
+        this(repository, meterRegistry, grace, batchSize, Clock.systemUTC());
+    }
+
+    ChunkSweeper(ContextChunkRepository repository, MeterRegistry meterRegistry, Duration grace, int batchSize,
+                 Clock clock) {
+        if (grace.compareTo(ContextChunkRepository.TOUCH_INTERVAL.multipliedBy(2)) < 0) {
+            throw new IllegalArgumentException("chunk-store.sweep.grace must be at least "
+                    + ContextChunkRepository.TOUCH_INTERVAL.multipliedBy(2));
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("chunk-store.sweep.batch-size must be at least 1");
+        }
+        this.repository = repository;
+        this.grace = grace;
+        this.batchSize = batchSize;
+        this.clock = clock;
+
+        this.chunks = Counter.builder("chat.chunks.swept")
+                .description("Unreferenced chunks deleted")
+                .register(meterRegistry);
+        this.bytes = Counter.builder("chat.chunks.swept.bytes")
+                .description("Bytes of chunk text deleted")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.failures = Counter.builder("chat.chunks.sweep.failures")
+                .description("Sweeps that failed and will be retried")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("chat.chunks.sweep")
+                .description("Duration of a sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${chunk-store.sweep.initial-delay:PT15M}",
+            fixedDelayString = "${chunk-store.sweep.interval:PT24H}")
+    public void run() {
+        try {
+            sweepTimer.record(this::sweep);
+        } catch (RuntimeException ex) {
+            failures.increment();
+            log.warn("Chunk sweep failed", ex);
+        }
+    }
+
+    void sweep() {
+        Swept swept = repository.sweep(clock.instant().minus(grace), batchSize);
+        if (swept == null) {
+            log.debug("Chunk sweep skipped; another node is sweeping");
+            return;
+        }
+        chunks.increment(swept.chunks());
+        bytes.increment(swept.bytes());
+        log.info("Swept {} unreferenced chunks, {} bytes", swept.chunks(), swept.bytes());
+    }
+}
@@ -0,0 +1,127 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.config.CitationProperties;
+import com.dge.rag_chat_service.entity.MessageCitation;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Background job that indexes the citations of messages written before the citation index existed,
+ * or stored by paths that bypass it (archive import, bulk load).
+ *
+ * Messages are walked in id order in batches of {@code citation.backfill.batch-size}; inserts skip citations that
+ * already exist, so the job can run while new messages are indexed at write time. Progress is kept in memory:
+ * after a restart the walk starts over, which repeats work but changes nothing. Once it reaches the end the job
+ * stops until the next restart.
+ */
+@Component
+@ConditionalOnProperty(name = "citation.backfill.enabled", havingValue = "true")
+@Slf4j
+public class CitationBackfillJob {
+
+    private static final UUID START = new UUID(0, 0);
+    private static final TypeReference<Map<String, Object>> CONTEXT_TYPE = new TypeReference<>() {};
+
+    private final MessageCitationRepository citationRepository;
+    private final CitationExtractor citationExtractor;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    private final Counter messagesScanned;
+    private final Counter citationsIndexed;
+
+    private UUID watermark = START;
+    private volatile boolean finished;
+
+    public CitationBackfillJob(MessageCitationRepository citationRepository,
+                               CitationExtractor citationExtractor,
+                               ObjectMapper objectMapper,
+                               CitationProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.citationRepository = citationRepository;
+        this.citationExtractor = citationExtractor;
+        this.objectMapper = objectMapper;
+        this.batchSize = properties.backfill().batchSize();
+
+        this.messagesScanned = Counter.builder("chat.citations.backfill.messages")
+                .description("Messages scanned by the citation backfill")
+                .register(meterRegistry);
+        this.citationsIndexed = Counter.builder("chat.citations.backfill.citations")
+                .description("Citations found by the citation backfill")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${citation.backfill.interval:PT1S}")
+    public void run() {
+        if (finished) {
+            return;
+        }
+        try {
+            backfillBatch();
+        } catch (RuntimeException ex) {
+            // Retried from the same watermark on the next run
+            log.warn("Citation backfill failed after id={}", watermark, ex);
+        }
+    }
+
+    /**
+     * Indexes the next batch of messages.
+     *
+     * @return number of messages scanned; 0 once the backfill is complete
+     */
+    int backfillBatch() {
+        List<MessageCitation> citations = new ArrayList<>();
+        UUID[] last = {null};
+        int[] scanned = {0};
+        citationRepository.forEachMessageAfter(watermark, batchSize, rs -> {
+            UUID id = rs.getObject("id", UUID.class);
+            citations.addAll(citationExtractor.extract(id,
+                    rs.getObject("session_id", UUID.class),
+                    rs.getObject("created_at", OffsetDateTime.class).toInstant(),
+                    readContext(id, rs.getString("context"))));
+            last[0] = id;
+            scanned[0]++;
+        });
+
+        citationRepository.insertAll(citations);
+        messagesScanned.increment(scanned[0]);
+        citationsIndexed.increment(citations.size());
+        if (last[0] != null) {
+            watermark = last[0];
+        }
+        if (scanned[0] < batchSize) {
+            finished = true;
+            log.info("Citation backfill complete, {} messages scanned", (long) messagesScanned.count());
+        }
+        return scanned[0];
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+
+    private Map<String, Object> readContext(UUID id, String json) {
+        try {
+            return objectMapper.readValue(json, CONTEXT_TYPE);
+        } catch (JsonProcessingException ex) {
+            // Only objects are indexed; a context stored as an array or scalar has no citations
+            log.debug("Skipping context of message id={} that is not a JSON object", id);
+            return null;
+        }
+    }
+}
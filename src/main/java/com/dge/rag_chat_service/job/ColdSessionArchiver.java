@@ -0,0 +1,189 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.config.ColdArchiveProperties;
+import com.dge.rag_chat_service.repository.ColdSessionRepository;
+import com.dge.rag_chat_service.repository.ColdSessionRepository.Candidate;
+import com.dge.rag_chat_service.repository.ColdSessionRepository.Frozen;
+import com.dge.rag_chat_service.repository.ColdSessionRepository.StorageBytes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that moves the messages of long-idle sessions to the cold archive.
+ *
+ * Sessions are walked in id order, {@code cold-archive.batch-size} per run, one run every
+ * {@code cold-archive.batch-interval}. Those with messages and no write for {@code cold-archive.idle-after} have
+ * their messages moved into one compressed block per session, in one short transaction per session that skips
+ * sessions being written to. A session that fails, or whose messages exceed {@code cold-archive.max-session-bytes},
+ * is counted and stays hot until the next pass; the walk moves on. Message versions are not bumped: listings
+ * return the same messages either way. Once the walk reaches the end, the next one starts after
+ * {@code cold-archive.pass-interval}; progress is kept in memory, so a restart starts over. The on-disk size of
+ * both tables is read at the start of every pass.
+ */
+@Component
+@ConditionalOnProperty(name = "cold-archive.enabled", havingValue = "true")
+@Slf4j
+public class ColdSessionArchiver {
+
+    private static final UUID START = new UUID(0, 0);
+
+    private final ColdSessionRepository repository;
+    private final TransactionOperations transactions;
+    private final ColdArchiveProperties properties;
+    private final Clock clock;
+
+    private final AtomicLong hotBytes = new AtomicLong();
+    private final AtomicLong coldBytes = new AtomicLong();
+    private final Counter sessions;
+    private final Counter messages;
+    private final Counter skipped;
+    private final Counter oversized;
+    private final Counter failures;
+    private final Counter rawBytes;
+    private final Counter blockBytes;
+    private final Timer batchTimer;
+
+    private UUID watermark = START;
+    private Instant nextPass = Instant.MIN;
+
+    @Autowired
+    public ColdSessionArchiver(ColdSessionRepository repository,
+                               TransactionOperations transactions,
+                               ColdArchiveProperties properties,
+                               MeterRegistry meterRegistry) {
+        this(repository, transactions, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    ColdSessionArchiver(ColdSessionRepository repository, TransactionOperations transactions,
+                        ColdArchiveProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.repository = repository;
+        this.transactions = transactions;
+        this.properties = properties;
+        this.clock = clock;
+
+        Gauge.builder("chat.cold.storage.bytes", hotBytes, AtomicLong::get)
+                .description("On-disk size of chat_messages with its indexes, as of the start of the last pass")
+                .baseUnit("bytes")
+                .tag("tier", "hot")
+                .register(meterRegistry);
+        Gauge.builder("chat.cold.storage.bytes", coldBytes, AtomicLong::get)
+                .description("On-disk size of chat_cold_sessions, as of the start of the last pass")
+                .baseUnit("bytes")
+                .tag("tier", "cold")
+                .register(meterRegistry);
+        this.sessions = Counter.builder("chat.cold.sessions")
+                .description("Sessions moved to the cold archive")
+                .register(meterRegistry);
+        this.messages = Counter.builder("chat.cold.messages")
+                .description("Messages moved to the cold archive")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("chat.cold.skipped")
+                .description("Idle sessions left hot because they were locked or written meanwhile")
+                .register(meterRegistry);
+        this.oversized = Counter.builder("chat.cold.oversized")
+                .description("Idle sessions left hot because their messages exceed the block size cap")
+                .register(meterRegistry);
+        this.failures = Counter.builder("chat.cold.failures")
+                .description("Sessions, or whole batches, whose archiving failed and will be retried next pass")
+                .register(meterRegistry);
+        this.rawBytes = Counter.builder("chat.cold.block.bytes")
+                .description("Size of the blocks written, as JSON before and after compression")
+                .baseUnit("bytes")
+                .tag("form", "raw")
+                .register(meterRegistry);
+        this.blockBytes = Counter.builder("chat.cold.block.bytes")
+                .description("Size of the blocks written, as JSON before and after compression")
+                .baseUnit("bytes")
+                .tag("form", "compressed")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("chat.cold.batch")
+                .description("Duration of an archiving batch")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cold-archive.batch-interval:PT1S}")
+    public void run() {
+        try {
+            batchTimer.record(this::archiveBatch);
+        } catch (RuntimeException ex) {
+            // Retried from the same watermark on the next run
+            failures.increment();
+            log.warn("Cold archive batch failed after id={}", watermark, ex);
+        }
+    }
+
+    /**
+     * Examines the next batch of sessions and archives the idle ones.
+     *
+     * @return number of sessions examined; 0 between passes
+     */
+    synchronized int archiveBatch() {
+        Instant now = clock.instant();
+        if (now.isBefore(nextPass)) {
+            return 0;
+        }
+        if (START.equals(watermark)) {
+            StorageBytes bytes = repository.storageBytes();
+            hotBytes.set(bytes.hot());
+            coldBytes.set(bytes.cold());
+        }
+
+        List<UUID> ids = repository.sessionIdsAfter(watermark, properties.batchSize());
+        List<Candidate> candidates = repository.findIdle(ids, now.minus(properties.idleAfter()));
+        long maxBytes = properties.maxSessionBytes().toBytes();
+        for (Candidate candidate : candidates) {
+            freeze(candidate, now, maxBytes);
+        }
+
+        if (!ids.isEmpty()) {
+            watermark = ids.get(ids.size() - 1);
+        }
+        if (ids.size() < properties.batchSize()) {
+            watermark = START;
+            nextPass = now.plus(properties.passInterval());
+        }
+        return ids.size();
+    }
+
+    private void freeze(Candidate candidate, Instant now, long maxBytes) {
+        Frozen frozen;
+        try {
+            frozen = transactions.execute(status -> repository.freeze(candidate, now, maxBytes));
+        } catch (RuntimeException ex) {
+            // Left hot until the next pass
+            failures.increment();
+            log.warn("Archiving session id={} failed", candidate.id(), ex);
+            return;
+        }
+        switch (frozen.outcome()) {
+            case FROZEN -> {
+                sessions.increment();
+                messages.increment(frozen.messages());
+                rawBytes.increment(frozen.rawBytes());
+                blockBytes.increment(frozen.blockBytes());
+                log.debug("Archived session id={} messages={} bytes={}", frozen.sessionId(), frozen.messages(),
+                        frozen.blockBytes());
+            }
+            case SKIPPED -> skipped.increment();
+            case OVERSIZED -> {
+                oversized.increment();
+                log.info("Session id={} left hot: its messages exceed {}", frozen.sessionId(),
+                        properties.maxSessionBytes());
+            }
+        }
+    }
+}
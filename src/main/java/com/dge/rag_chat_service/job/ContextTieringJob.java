@@ -0,0 +1,183 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.config.ContextTieringProperties;
+import com.dge.rag_chat_service.repository.ContextTieringRepository;
+import com.dge.rag_chat_service.repository.ContextTieringRepository.AgedContext;
+import com.dge.rag_chat_service.repository.ListVersionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that strips the contexts of aged messages.
+ *
+ * Every {@code context-tiering.interval} it locks the {@code context-tiering.batch-size} oldest contexts of
+ * messages older than {@code context-tiering.age} that are not stripped yet, and replaces them with a summary of
+ * their cited documents, or with a bare marker in {@code drop} mode, in one short transaction. The session message
+ * versions are bumped in the same transaction, so cached listings are revalidated. Progress lives in the rows
+ * themselves: a restart, or another node, picks up the oldest unstripped context. Chunk text the contexts
+ * referenced stays in context_chunks.
+ */
+@Component
+@ConditionalOnProperty(name = "context-tiering.enabled", havingValue = "true")
+@Slf4j
+public class ContextTieringJob {
+
+    static final String SUMMARIZE = "summarize";
+    static final String DROP = "drop";
+
+    private static final TypeReference<Map<String, Object>> CONTEXT_TYPE = new TypeReference<>() {};
+
+    private final ContextTieringRepository repository;
+    private final ListVersionRepository versionRepository;
+    private final CitationExtractor citationExtractor;
+    private final ObjectMapper objectMapper;
+    private final TransactionOperations transactions;
+    private final ContextTieringProperties properties;
+    private final Clock clock;
+
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter messages;
+    private final Counter bytesSaved;
+    private final Counter failures;
+    private final Timer batchTimer;
+
+    @Autowired
+    public ContextTieringJob(ContextTieringRepository repository,
+                             ListVersionRepository versionRepository,
+                             CitationExtractor citationExtractor,
+                             ObjectMapper objectMapper,
+                             TransactionOperations transactions,
+                             ContextTieringProperties properties,
+                             MeterRegistry meterRegistry) {
+        this(repository, versionRepository, citationExtractor, objectMapper, transactions, properties, meterRegistry,
+                Clock.systemUTC());
+    }
+
+    ContextTieringJob(ContextTieringRepository repository, ListVersionRepository versionRepository,
+                      CitationExtractor citationExtractor, ObjectMapper objectMapper,
+                      TransactionOperations transactions, ContextTieringProperties properties,
+                      MeterRegistry meterRegistry, Clock clock) {
+        if (!SUMMARIZE.equals(properties.mode()) && !DROP.equals(properties.mode())) {
+            throw new IllegalArgumentException("context-tiering.mode must be summarize or drop, got "
+                    + properties.mode());
+        }
+        this.repository = repository;
+        this.versionRepository = versionRepository;
+        this.citationExtractor = citationExtractor;
+        this.objectMapper = objectMapper;
+        this.transactions = transactions;
+        this.properties = properties;
+        this.clock = clock;
+
+        Gauge.builder("chat.context.tiering.lag", lagSeconds, AtomicLong::get)
+                .description("Seconds the last stripped context was past its age limit; 0 once caught up")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.messages = Counter.builder("chat.context.tiering.messages")
+                .description("Message contexts stripped")
+                .tag("mode", properties.mode())
+                .register(meterRegistry);
+        this.bytesSaved = Counter.builder("chat.context.tiering.saved.bytes")
+                .description("Size of stripped contexts less the size of what replaced them, as JSON text")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.failures = Counter.builder("chat.context.tiering.failures")
+                .description("Tiering batches that failed and will be retried")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("chat.context.tiering.batch")
+                .description("Duration of a tiering batch")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${context-tiering.interval:PT1S}")
+    public void run() {
+        try {
+            batchTimer.record(this::stripBatch);
+        } catch (RuntimeException ex) {
+            // The rows stay unstripped and are picked up again
+            failures.increment();
+            log.warn("Context tiering batch failed", ex);
+        }
+    }
+
+    /**
+     * Strips the next batch of aged contexts.
+     *
+     * @return number of contexts stripped; 0 once every aged context is
+     */
+    int stripBatch() {
+        Instant before = clock.instant().minus(properties.age());
+        return transactions.execute(status -> {
+            List<AgedContext> rows = repository.lockOldest(before, properties.batchSize());
+            List<String> stripped = new ArrayList<>(rows.size());
+            long saved = 0;
+            for (AgedContext row : rows) {
+                String context = strip(row.context());
+                stripped.add(context);
+                saved += utf8Length(row.context()) - utf8Length(context);
+            }
+            repository.replaceAll(rows, stripped);
+            versionRepository.bumpSessions(rows.stream().map(AgedContext::sessionId).distinct().toList());
+
+            messages.increment(rows.size());
+            bytesSaved.increment(Math.max(0, saved));
+            lagSeconds.set(rows.size() < properties.batchSize() ? 0
+                    : Duration.between(rows.get(rows.size() - 1).createdAt(), before).toSeconds());
+            return rows.size();
+        });
+    }
+
+    /**
+     * The stripped form of a stored context.
+     */
+    String strip(String json) {
+        Map<String, Object> stripped = new LinkedHashMap<>();
+        if (DROP.equals(properties.mode())) {
+            stripped.put(ContextJson.STRIPPED_KEY, "dropped");
+        } else {
+            stripped.put(ContextJson.STRIPPED_KEY, "summarized");
+            stripped.put("documents", citationExtractor.documents(readContext(json)));
+        }
+        try {
+            return objectMapper.writeValueAsString(stripped);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Stripped context is not serializable", ex);
+        }
+    }
+
+    private Map<String, Object> readContext(String json) {
+        try {
+            return objectMapper.readValue(json, CONTEXT_TYPE);
+        } catch (JsonProcessingException ex) {
+            // Only objects cite documents; a context stored as an array or scalar is summarized as citing none
+            return null;
+        }
+    }
+
+    private static long utf8Length(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
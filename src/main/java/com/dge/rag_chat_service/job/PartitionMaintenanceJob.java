@@ -0,0 +1,106 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.repository.MessagePartitionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background job that creates the monthly partitions of chat_messages ahead of time.
+ *
+ * Runs at startup and then every {@code message-partitions.interval}, making sure the current month and the
+ * next {@code message-partitions.months-ahead} months have a partition, so writes never depend on the job
+ * being on time. Rows that reached the default partition anyway, e.g. old messages from an archive import,
+ * get a partition for their month and are moved into it. Every node runs the job; creation is idempotent.
+ */
+@Component
+@Slf4j
+public class PartitionMaintenanceJob {
+
+    private final MessagePartitionRepository repository;
+    private final int monthsAhead;
+    private final Clock clock;
+
+    private final AtomicInteger ahead = new AtomicInteger();
+    private final Counter created;
+    private final Counter failures;
+
+    @Autowired
+    public PartitionMaintenanceJob(MessagePartitionRepository repository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${message-partitions.months-ahead:3}") int monthsAhead) {
+        this(repository, meterRegistry, monthsAhead, Clock.systemUTC());
+    }
+
+    PartitionMaintenanceJob(MessagePartitionRepository repository, MeterRegistry meterRegistry,
+                            int monthsAhead, Clock clock) {
+        this.repository = repository;
+        this.monthsAhead = monthsAhead;
+        this.clock = clock;
+
+        Gauge.builder("chat.partitions.ahead", ahead, AtomicInteger::get)
+                .description("Consecutive months after the current one that have a chat_messages partition")
+                .register(meterRegistry);
+        this.created = Counter.builder("chat.partitions.created")
+                .description("chat_messages partitions created by this node")
+                .register(meterRegistry);
+        this.failures = Counter.builder("chat.partitions.failures")
+                .description("Partition creations that failed and will be retried")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${message-partitions.interval:PT1H}")
+    public void run() {
+        try {
+            maintain();
+        } catch (RuntimeException ex) {
+            failures.increment();
+            log.warn("Partition maintenance failed", ex);
+        }
+    }
+
+    void maintain() {
+        YearMonth current = YearMonth.now(clock);
+        Set<YearMonth> existing = repository.partitionMonths();
+
+        SortedSet<YearMonth> wanted = new TreeSet<>(repository.monthsInDefault());
+        for (int i = 0; i <= monthsAhead; i++) {
+            wanted.add(current.plusMonths(i));
+        }
+        for (YearMonth month : wanted) {
+            if (existing.contains(month)) {
+                continue;
+            }
+            try {
+                if (repository.createPartition(month)) {
+                    created.increment();
+                    log.info("Created partition {}", MessagePartitionRepository.partitionName(month));
+                }
+                // Otherwise another node created it first
+                existing.add(month);
+            } catch (RuntimeException ex) {
+                // e.g. lock timeout behind a long query; the next run retries
+                failures.increment();
+                log.warn("Failed to create partition {}", MessagePartitionRepository.partitionName(month), ex);
+            }
+        }
+
+        int months = 0;
+        while (existing.contains(current.plusMonths(months + 1))) {
+            months++;
+        }
+        ahead.set(months);
+    }
+}
@@ -0,0 +1,263 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.config.RetentionProperties;
+import com.dge.rag_chat_service.repository.RetentionRepository;
+import com.dge.rag_chat_service.repository.RetentionRepository.Candidate;
+import com.dge.rag_chat_service.repository.RetentionRepository.Cutoffs;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Background job that purges chat sessions according to the retention policy.
+ *
+ * Sessions are walked in id order, {@code retention.batch-size} per run, one run every
+ * {@code retention.batch-interval}; each batch is one read and, unless in dry run, one short transaction, so the
+ * job holds a single connection at a time and never waits for row locks. Batches are skipped while the connection
+ * pool is busier than {@code retention.max-pool-usage}. Purged sessions are tombstoned and announced like a delete
+ * by their owner, and the session reaper removes them. Once the walk reaches the end, the pass is reported and the
+ * next one starts after {@code retention.pass-interval}; progress is kept in memory, so a restart starts over.
+ */
+@Component
+@ConditionalOnProperty(name = "retention.enabled", havingValue = "true")
+@Slf4j
+public class RetentionPurger {
+
+    private static final UUID START = new UUID(0, 0);
+
+    private final RetentionRepository repository;
+    private final SessionListVersionCache listVersions;
+    private final SessionOwnershipCache ownershipCache;
+    private final TransactionOperations transactions;
+    private final RetentionProperties properties;
+    private final DoubleSupplier poolUsage;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong passScanned = new AtomicLong();
+    private final AtomicLong lastPassIdle = new AtomicLong();
+    private final AtomicLong lastPassEmpty = new AtomicLong();
+    private final Counter scanned;
+    private final Counter skipped;
+    private final Counter throttled;
+    private final Counter failures;
+    private final Timer batchTimer;
+
+    private UUID watermark = START;
+    private Instant nextPass = Instant.MIN;
+    private Pass pass = new Pass();
+
+    /**
+     * Sessions found, or purged outside dry run, in the current pass.
+     */
+    record Pass(long idle, long empty, long messages) {
+
+        Pass() {
+            this(0, 0, 0);
+        }
+
+        Pass plus(Candidate candidate) {
+            return candidate.empty()
+                    ? new Pass(idle, empty + 1, messages)
+                    : new Pass(idle + 1, empty, messages + candidate.messages());
+        }
+    }
+
+    @Autowired
+    public RetentionPurger(RetentionRepository repository,
+                           SessionListVersionCache listVersions,
+                           SessionOwnershipCache ownershipCache,
+                           TransactionOperations transactions,
+                           RetentionProperties properties,
+                           DataSource dataSource,
+                           MeterRegistry meterRegistry) {
+        this(repository, listVersions, ownershipCache, transactions, properties, poolUsage(dataSource),
+                meterRegistry, Clock.systemUTC());
+    }
+
+    RetentionPurger(RetentionRepository repository, SessionListVersionCache listVersions,
+                    SessionOwnershipCache ownershipCache, TransactionOperations transactions,
+                    RetentionProperties properties, DoubleSupplier poolUsage, MeterRegistry meterRegistry,
+                    Clock clock) {
+        this.repository = repository;
+        this.listVersions = listVersions;
+        this.ownershipCache = ownershipCache;
+        this.transactions = transactions;
+        this.properties = properties;
+        this.poolUsage = poolUsage;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+
+        Gauge.builder("chat.retention.pass.scanned", passScanned, AtomicLong::get)
+                .description("Sessions examined so far in the current retention pass")
+                .register(meterRegistry);
+        Gauge.builder("chat.retention.last-pass.sessions", lastPassIdle, AtomicLong::get)
+                .description("Sessions selected by the last complete retention pass")
+                .tag("reason", "idle")
+                .register(meterRegistry);
+        Gauge.builder("chat.retention.last-pass.sessions", lastPassEmpty, AtomicLong::get)
+                .description("Sessions selected by the last complete retention pass")
+                .tag("reason", "empty")
+                .register(meterRegistry);
+        this.scanned = Counter.builder("chat.retention.scanned")
+                .description("Sessions examined by the retention purger")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("chat.retention.skipped")
+                .description("Selected sessions left alone because they were locked or written meanwhile")
+                .register(meterRegistry);
+        this.throttled = Counter.builder("chat.retention.throttled")
+                .description("Retention batches skipped because the connection pool was busy")
+                .register(meterRegistry);
+        this.failures = Counter.builder("chat.retention.failures")
+                .description("Retention batches that failed and will be retried")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("chat.retention.batch")
+                .description("Duration of a retention batch")
+                .register(meterRegistry);
+    }
+
+    private static DoubleSupplier poolUsage(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return () -> {
+                HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+                return pool != null ? (double) pool.getActiveConnections() / hikari.getMaximumPoolSize() : 0;
+            };
+        }
+        return () -> 0;
+    }
+
+    @Scheduled(fixedDelayString = "${retention.batch-interval:PT1S}")
+    public void run() {
+        try {
+            batchTimer.record(this::purgeBatch);
+        } catch (RuntimeException ex) {
+            // Retried from the same watermark on the next run
+            failures.increment();
+            log.warn("Retention batch failed after id={}", watermark, ex);
+        }
+    }
+
+    /**
+     * Examines the next batch of sessions and purges, or in dry run reports, those the policy selects.
+     *
+     * @return number of sessions examined; 0 between passes and while throttled
+     */
+    synchronized int purgeBatch() {
+        Instant now = clock.instant();
+        if (now.isBefore(nextPass)) {
+            return 0;
+        }
+        if (poolUsage.getAsDouble() > properties.maxPoolUsage()) {
+            throttled.increment();
+            return 0;
+        }
+
+        List<UUID> ids = repository.sessionIdsAfter(watermark, properties.batchSize());
+        List<Candidate> candidates = repository.findCandidates(ids, new Cutoffs(
+                now.minus(properties.idleAfter()), now.minus(properties.emptyAfter())), userCutoffs(now));
+        List<Candidate> selected = properties.dryRun() ? candidates : purge(candidates, now);
+        for (Candidate candidate : selected) {
+            count(candidate);
+            pass = pass.plus(candidate);
+        }
+
+        scanned.increment(ids.size());
+        passScanned.addAndGet(ids.size());
+        if (!ids.isEmpty()) {
+            watermark = ids.get(ids.size() - 1);
+        }
+        if (ids.size() < properties.batchSize()) {
+            finishPass(now);
+        }
+        return ids.size();
+    }
+
+    private Map<String, Cutoffs> userCutoffs(Instant now) {
+        Map<String, Cutoffs> cutoffs = new HashMap<>();
+        if (properties.users() != null) {
+            for (String userId : properties.users().keySet()) {
+                cutoffs.put(userId, new Cutoffs(now.minus(properties.idleAfter(userId)),
+                        now.minus(properties.emptyAfter(userId))));
+            }
+        }
+        return cutoffs;
+    }
+
+    private List<Candidate> purge(List<Candidate> candidates, Instant now) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        List<Candidate> purged = transactions.execute(status -> {
+            Set<UUID> tombstoned = new HashSet<>(repository.tombstone(candidates, now));
+            List<Candidate> done = candidates.stream().filter(c -> tombstoned.contains(c.id())).toList();
+            // In user order, so concurrent purgers bump the versions of the same users without deadlocking
+            done.stream().map(Candidate::userId).distinct().sorted().forEach(listVersions::bump);
+            return done;
+        });
+        for (Candidate candidate : purged) {
+            ownershipCache.markDeleted(candidate.id(), candidate.userId());
+            log.debug("Purged session id={} userId={} messages={}",
+                    candidate.id(), candidate.userId(), candidate.messages());
+        }
+        skipped.increment(candidates.size() - purged.size());
+        return purged;
+    }
+
+    private void count(Candidate candidate) {
+        String mode = properties.dryRun() ? "dry-run" : "purge";
+        Counter.builder("chat.retention.sessions")
+                .description("Sessions selected by the retention policy; purged unless in dry run")
+                .tag("reason", candidate.empty() ? "empty" : "idle")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+        Counter.builder("chat.retention.messages")
+                .description("Messages of the sessions selected by the retention policy")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment(candidate.messages());
+        if (properties.dryRun()) {
+            log.debug("Would purge session id={} userId={} messages={}",
+                    candidate.id(), candidate.userId(), candidate.messages());
+        }
+    }
+
+    private void finishPass(Instant now) {
+        log.info("Retention pass {}: scanned={} idle={} empty={} messages={}",
+                properties.dryRun() ? "complete (dry run, nothing purged)" : "complete",
+                passScanned.get(), pass.idle(), pass.empty(), pass.messages());
+        lastPassIdle.set(pass.idle());
+        lastPassEmpty.set(pass.empty());
+        passScanned.set(0);
+        pass = new Pass();
+        watermark = START;
+        nextPass = now.plus(properties.passInterval());
+    }
+
+    Pass currentPass() {
+        return pass;
+    }
+}
@@ -0,0 +1,115 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.repository.ChatMessageRepository;
+import com.dge.rag_chat_service.repository.ChatSessionRepository;
+import com.dge.rag_chat_service.repository.ColdSessionRepository;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that physically removes tombstoned chat sessions.
+ *
+ * Messages are deleted in bounded, set-based chunks, each in its own short transaction,
+ * so a large session never pins a request thread or loads its messages into memory.
+ * Its citations are removed the same way first, then the cold block of an archived session, and the session row
+ * itself once no messages remain.
+ */
+@Component
+@Slf4j
+public class SessionReaper {
+
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final MessageCitationRepository citationRepository;
+    private final ColdSessionRepository coldSessionRepository;
+
+    private final int sessionsPerRun;
+    private final int chunkSize;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter sessionsReaped;
+    private final Counter messagesReaped;
+    private final Counter failures;
+    private final Timer runTimer;
+
+    public SessionReaper(ChatSessionRepository sessionRepository,
+                         ChatMessageRepository messageRepository,
+                         MessageCitationRepository citationRepository,
+                         ColdSessionRepository coldSessionRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${session-reaper.sessions-per-run:50}") int sessionsPerRun,
+                         @Value("${session-reaper.chunk-size:1000}") int chunkSize) {
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        this.citationRepository = citationRepository;
+        this.coldSessionRepository = coldSessionRepository;
+        this.sessionsPerRun = sessionsPerRun;
+        this.chunkSize = chunkSize;
+
+        Gauge.builder("chat.reaper.backlog", backlog, AtomicLong::get)
+                .description("Tombstoned sessions waiting to be reaped")
+                .register(meterRegistry);
+        this.sessionsReaped = Counter.builder("chat.reaper.sessions")
+                .description("Tombstoned sessions physically removed")
+                .register(meterRegistry);
+        this.messagesReaped = Counter.builder("chat.reaper.messages")
+                .description("Messages removed from tombstoned sessions")
+                .register(meterRegistry);
+        this.failures = Counter.builder("chat.reaper.failures")
+                .description("Sessions whose reaping failed and will be retried")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("chat.reaper.run")
+                .description("Duration of a reaper run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${session-reaper.interval:PT10S}")
+    public void run() {
+        runTimer.record(this::reap);
+    }
+
+    void reap() {
+        List<UUID> ids = sessionRepository.findTombstonedIds(sessionsPerRun);
+        for (UUID id : ids) {
+            try {
+                reapSession(id);
+            } catch (RuntimeException ex) {
+                // e.g. a message raced in after the last chunk; the next run retries
+                failures.increment();
+                log.warn("Failed to reap session id={}", id, ex);
+            }
+        }
+        backlog.set(sessionRepository.countTombstoned());
+    }
+
+    private void reapSession(UUID id) {
+        int deleted;
+        do {
+            deleted = citationRepository.deleteChunkBySessionId(id, chunkSize);
+        } while (deleted == chunkSize);
+
+        long total = coldSessionRepository.delete(id);
+        messagesReaped.increment(total);
+        do {
+            deleted = messageRepository.deleteChunkBySessionId(id, chunkSize);
+            total += deleted;
+            messagesReaped.increment(deleted);
+        } while (deleted == chunkSize);
+
+        if (sessionRepository.purgeTombstoned(id) > 0) {
+            sessionsReaped.increment();
+        }
+        log.info("Reaped session id={} messages={}", id, total);
+    }
+}
@@ -0,0 +1,189 @@
+package com.dge.rag_chat_service.repository;
+
+import com.dge.rag_chat_service.bulkload.LegacyChatRecord;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC access for the offline bulk loader.
+ *
+ * Each batch is copied into a per-connection temporary table with {@code COPY ... FROM STDIN} and moved into
+ * chat_sessions and chat_messages with {@code INSERT ... ON CONFLICT DO NOTHING}, so batches that were already
+ * loaded before a restart are skipped instead of failing. A session that already exists only has its
+ * {@code messages_from} lowered to the oldest message of the batch, so listings keep finding older messages,
+ * and its messages moved back from the cold archive if it was archived.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BulkLoadRepository {
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMPORARY TABLE IF NOT EXISTS bulk_load_staging (
+                id uuid, session_id uuid, user_id text, session_name text,
+                sender text, message text, context jsonb, created_at timestamptz
+            ) ON COMMIT DELETE ROWS
+            """;
+
+    private static final String COPY_STAGING = "COPY bulk_load_staging FROM STDIN WITH (FORMAT csv)";
+
+    // Locks the existing sessions of the batch in id order, so loaders sharing sessions cannot deadlock
+    private static final String INSERT_SESSIONS = """
+            INSERT INTO chat_sessions (id, user_id, name, favorite, created_at, updated_at, messages_from)
+            SELECT session_id, min(user_id), min(session_name), false, min(created_at), max(created_at), min(created_at)
+            FROM bulk_load_staging
+            GROUP BY session_id
+            ORDER BY session_id
+            ON CONFLICT (id) DO UPDATE SET messages_from = excluded.messages_from
+            WHERE chat_sessions.messages_from > excluded.messages_from
+            """;
+
+    // The upsert above locked the existing sessions of the batch, so none can be archived meanwhile
+    private static final String STAGED_COLD_SESSIONS = """
+            SELECT DISTINCT s.session_id
+            FROM bulk_load_staging s
+            JOIN chat_cold_sessions c ON c.session_id = s.session_id
+            """;
+
+    private static final String INSERT_MESSAGES = """
+            INSERT INTO chat_messages (id, session_id, sender, message, context, created_at)
+            SELECT id, session_id, sender, message, context, created_at
+            FROM bulk_load_staging
+            ORDER BY session_id, created_at, id
+            ON CONFLICT (id, created_at) DO NOTHING
+            """;
+
+    // Sessions that gained messages and users whose session lists changed, for the list ETags. The sessions are
+    // already locked by the upsert above; users are locked in id order, so loaders sharing users cannot deadlock
+    private static final String BUMP_SESSIONS = """
+            UPDATE chat_sessions SET message_version = message_version + 1
+            WHERE id IN (SELECT DISTINCT session_id FROM bulk_load_staging)
+            """;
+
+    private static final String BUMP_USERS = """
+            INSERT INTO chat_user_versions (user_id, version)
+            SELECT DISTINCT user_id, 1 FROM bulk_load_staging
+            ORDER BY user_id
+            ON CONFLICT (user_id) DO UPDATE SET version = chat_user_versions.version + 1
+            """;
+
+    private static final String SECONDARY_INDEXES = """
+            SELECT pg_get_indexdef(x.indexrelid) || ';' || c.relname
+            FROM pg_index x
+            JOIN pg_class c ON c.oid = x.indexrelid
+            JOIN pg_class t ON t.oid = x.indrelid
+            WHERE t.relname = 'chat_messages' AND t.relnamespace = current_schema()::regnamespace
+              AND NOT x.indisprimary AND NOT x.indisunique
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageBodyCodec bodyCodec;
+    private final ColdSessionRepository coldSessionRepository;
+
+    /**
+     * Loads one batch in its own transaction on {@code con}, which must have auto-commit disabled.
+     *
+     * @return number of messages inserted; rows whose id already exists are not counted
+     */
+    public long load(Connection con, List<LegacyChatRecord> records) throws SQLException, IOException {
+        try {
+            try (Statement st = con.createStatement()) {
+                st.execute(CREATE_STAGING);
+            }
+            copy(con, records);
+            long inserted;
+            try (Statement st = con.createStatement()) {
+                st.executeUpdate(INSERT_SESSIONS);
+                thawColdSessions(con);
+                inserted = st.executeUpdate(INSERT_MESSAGES);
+                if (inserted > 0) {
+                    st.executeUpdate(BUMP_SESSIONS);
+                    st.executeUpdate(BUMP_USERS);
+                }
+            }
+            con.commit();
+            return inserted;
+        } catch (SQLException | IOException | RuntimeException ex) {
+            con.rollback();
+            throw ex;
+        }
+    }
+
+    private void thawColdSessions(Connection con) throws SQLException {
+        List<UUID> cold = new ArrayList<>();
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery(STAGED_COLD_SESSIONS)) {
+            while (rs.next()) {
+                cold.add(rs.getObject(1, UUID.class));
+            }
+        }
+        coldSessionRepository.thaw(con, cold);
+    }
+
+    private void copy(Connection con, List<LegacyChatRecord> records) throws SQLException, IOException {
+        PGConnection pg = con.unwrap(PGConnection.class);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(pg, COPY_STAGING, 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+            for (LegacyChatRecord r : records) {
+                out.write(r.id().toString());
+                out.write(',');
+                out.write(r.sessionId().toString());
+                out.write(',');
+                CopyCsv.writeQuoted(out, r.userId());
+                out.write(',');
+                CopyCsv.writeNullable(out, r.sessionName());
+                out.write(',');
+                out.write(r.sender().name());
+                out.write(',');
+                CopyCsv.writeQuoted(out, bodyCodec.encode(r.message()));
+                out.write(',');
+                CopyCsv.writeNullable(out, r.context() == null || r.context().isNull() ? null : r.context().toString());
+                out.write(',');
+                out.write(r.createdAt().toString());
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Drops the non-unique indexes of chat_messages. The primary key stays, it is needed to skip duplicates.
+     *
+     * @return statements that recreate the dropped indexes
+     */
+    public List<String> dropSecondaryIndexes() {
+        List<String> definitions = jdbcTemplate.queryForList(SECONDARY_INDEXES, String.class);
+        for (String definition : definitions) {
+            String name = definition.substring(definition.lastIndexOf(';') + 1);
+            jdbcTemplate.execute("DROP INDEX IF EXISTS \"" + name + "\"");
+        }
+        return definitions.stream().map(d -> d.substring(0, d.lastIndexOf(';'))).toList();
+    }
+
+    /**
+     * Recreates indexes dropped by {@link #dropSecondaryIndexes}. Statements are made idempotent.
+     * Definitions of partitioned indexes read as {@code ON ONLY}, which would skip the partitions; they are
+     * built on every partition instead.
+     */
+    public void createIndexes(List<String> definitions) {
+        for (String definition : definitions) {
+            jdbcTemplate.execute(definition
+                    .replaceFirst("^CREATE INDEX ", "CREATE INDEX IF NOT EXISTS ")
+                    .replaceFirst(" ON ONLY ", " ON "));
+        }
+    }
+}
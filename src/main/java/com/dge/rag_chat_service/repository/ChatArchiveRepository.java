@@ -0,0 +1,168 @@
+package com.dge.rag_chat_service.repository;
+
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.dto.ArchivedMessage;
+import com.dge.rag_chat_service.dto.SessionResponse;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC access for user archive export and import.
+ *
+ * Imports bypass JPA: each session row is inserted with its original id and timestamps, and its messages are
+ * loaded with PostgreSQL {@code COPY ... FROM STDIN}, in one transaction per session that also bumps the
+ * owner's session list version. Archived messages may predate the import, so the session's
+ * {@code messages_from} is lowered to the oldest of them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatArchiveRepository {
+
+    private static final String SELECT_SESSIONS = """
+            SELECT id, name, user_id, favorite, created_at, updated_at
+            FROM chat_sessions
+            WHERE user_id = ? AND deleted_at IS NULL
+            ORDER BY created_at, id
+            """;
+
+    private static final String INSERT_SESSION = """
+            INSERT INTO chat_sessions (id, user_id, name, favorite, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String LOWER_MESSAGES_FROM =
+            "UPDATE chat_sessions SET messages_from = ? WHERE id = ? AND messages_from > ?";
+
+    private static final String COPY_MESSAGES =
+            "COPY chat_messages (id, session_id, sender, message, context, created_at) FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final MessageBodyCodec bodyCodec;
+
+    /**
+     * Live sessions of a user, oldest first.
+     */
+    public List<SessionResponse> findSessionsByUserId(String userId) {
+        return jdbcTemplate.query(SELECT_SESSIONS, (rs, i) -> new SessionResponse(
+                rs.getObject("id", UUID.class),
+                rs.getString("name"),
+                rs.getString("user_id"),
+                rs.getBoolean("favorite"),
+                toInstant(rs.getObject("created_at", OffsetDateTime.class)),
+                toInstant(rs.getObject("updated_at", OffsetDateTime.class))), userId);
+    }
+
+    /**
+     * Inserts a session owned by {@code userId} together with its messages.
+     *
+     * @return number of messages copied, or -1 if a session with the same id already exists
+     */
+    public long importSession(SessionResponse session, String userId, Iterator<ArchivedMessage> messages) {
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                long copied = insertSession(con, session, userId) ? copyMessages(con, session.id(), messages) : -1;
+                con.commit();
+                return copied;
+            } catch (SQLException | IOException | RuntimeException ex) {
+                con.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw jdbcTemplate.getExceptionTranslator().translate("Import session " + session.id(), COPY_MESSAGES, ex);
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot copy messages of session " + session.id(), ex);
+        }
+    }
+
+    private boolean insertSession(Connection con, SessionResponse session, String userId) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(INSERT_SESSION)) {
+            ps.setObject(1, session.id());
+            ps.setString(2, userId);
+            ps.setString(3, session.name());
+            ps.setBoolean(4, session.favorite());
+            ps.setObject(5, toOffsetDateTime(session.createdAt()));
+            ps.setObject(6, toOffsetDateTime(session.updatedAt()));
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        try (PreparedStatement ps = con.prepareStatement(ListVersionRepository.BUMP_USER)) {
+            ps.setString(1, userId);
+            ps.executeUpdate();
+        }
+        return true;
+    }
+
+    private long copyMessages(Connection con, UUID sessionId, Iterator<ArchivedMessage> messages)
+            throws SQLException, IOException {
+        PGConnection pg = con.unwrap(PGConnection.class);
+        long count = 0;
+        Instant first = null;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(pg, COPY_MESSAGES, 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+            String session = sessionId.toString();
+            while (messages.hasNext()) {
+                ArchivedMessage m = messages.next();
+                out.write(m.id().toString());
+                out.write(',');
+                out.write(session);
+                out.write(',');
+                out.write(m.sender().name());
+                out.write(',');
+                CopyCsv.writeQuoted(out, bodyCodec.encode(m.message()));
+                out.write(',');
+                if (m.context() != null && !m.context().isNull()) {
+                    CopyCsv.writeQuoted(out, m.context().toString());
+                }
+                out.write(',');
+                out.write(m.createdAt().toString());
+                out.write('\n');
+                count++;
+                if (first == null || m.createdAt().isBefore(first)) {
+                    first = m.createdAt();
+                }
+            }
+        }
+        if (first != null) {
+            try (PreparedStatement ps = con.prepareStatement(LOWER_MESSAGES_FROM)) {
+                OffsetDateTime from = toOffsetDateTime(first);
+                ps.setObject(1, from);
+                ps.setObject(2, sessionId);
+                ps.setObject(3, from);
+                ps.executeUpdate();
+            }
+        }
+        return count;
+    }
+
+    private static Instant toInstant(OffsetDateTime value) {
+        return value == null ? null : value.toInstant();
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant value) {
+        return value == null ? null : OffsetDateTime.ofInstant(value, ZoneOffset.UTC);
+    }
+}
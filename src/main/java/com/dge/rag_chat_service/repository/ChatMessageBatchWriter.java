@@ -0,0 +1,75 @@
+package com.dge.rag_chat_service.repository;
+
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.cold.ColdSessionStore;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.ingest.JournalEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Inserts journaled messages with plain JDBC batches.
+ *
+ * Ids are assigned before the insert, so rows that were already written (e.g. when a journal is replayed
+ * after a crash) are skipped instead of failing the batch. Citations found in the contexts are indexed,
+ * chunk text moved to the chunk store, the message versions of the sessions bumped and archived sessions moved
+ * back to the hot table in the same transaction. Bodies are encoded like the JPA path does.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatMessageBatchWriter {
+
+    private static final String INSERT = """
+            INSERT INTO chat_messages (id, session_id, sender, message, context, created_at)
+            VALUES (?, ?, ?, ?, CAST(? AS jsonb), ?)
+            ON CONFLICT (id, created_at) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ContextJson contextJson;
+    private final CitationExtractor citationExtractor;
+    private final MessageCitationRepository citationRepository;
+    private final ChunkStore chunkStore;
+    private final MessageBodyCodec bodyCodec;
+    private final ListVersionRepository versionRepository;
+    private final ColdSessionStore coldSessions;
+
+    /**
+     * Inserts all entries in one transaction.
+     */
+    @Transactional
+    public void insert(List<JournalEntry> entries) {
+        List<Map<String, Object>> contexts = chunkStore.dehydrateAll(
+                entries.stream().map(JournalEntry::context).collect(Collectors.toCollection(ArrayList::new)));
+        List<Integer> rows = IntStream.range(0, entries.size()).boxed().toList();
+        jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (ps, i) -> {
+            JournalEntry e = entries.get(i);
+            ps.setObject(1, e.id());
+            ps.setObject(2, e.sessionId());
+            ps.setString(3, e.sender().name());
+            ps.setString(4, bodyCodec.encode(e.message()));
+            ps.setString(5, contextJson.write(contexts.get(i)));
+            ps.setObject(6, OffsetDateTime.ofInstant(e.createdAt(), ZoneOffset.UTC));
+        });
+        citationRepository.insertAll(entries.stream()
+                .flatMap(e -> citationExtractor.extract(e.id(), e.sessionId(), e.createdAt(), e.context()).stream())
+                .toList());
+        Set<UUID> sessionIds = entries.stream().map(JournalEntry::sessionId).collect(Collectors.toSet());
+        versionRepository.bumpSessions(sessionIds);
+        coldSessions.thaw(sessionIds);
+    }
+}
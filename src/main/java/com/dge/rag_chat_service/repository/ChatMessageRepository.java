@@ -4,15 +4,102 @@ import com.dge.rag_chat_service.entity.ChatMessage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Repository interface for managing ChatMessage entities. It extends JpaRepository to provide basic CRUD operations and defines a custom method to find messages by session ID with pagination support.
+ *
+ * The keyset queries below seek on the (session_id, created_at, id) index and never issue a COUNT,
+ * so a deep page costs the same as the first one.
+ *
+ * chat_messages is partitioned by month of created_at. Listings bound created_at from below, by the session's
+ * {@code messages_from} or the cursor position, so partitions of earlier months are pruned when the query runs.
  */
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, UUID> {
 
-    Page<ChatMessage> findBySessionId(UUID sessionId, Pageable pageable);
+    @Query(value = """
+            SELECT m FROM ChatMessage m
+            WHERE m.session.id = :sessionId
+              AND m.createdAt >= (SELECT s.messagesFrom FROM ChatSession s WHERE s.id = :sessionId)
+            """,
+            countQuery = """
+            SELECT count(m) FROM ChatMessage m
+            WHERE m.session.id = :sessionId
+              AND m.createdAt >= (SELECT s.messagesFrom FROM ChatSession s WHERE s.id = :sessionId)
+            """)
+    Page<ChatMessage> findBySessionId(@Param("sessionId") UUID sessionId, Pageable pageable);
+
+    @Query(value = """
+            SELECT * FROM chat_messages
+            WHERE session_id = :sessionId
+              AND created_at >= (SELECT messages_from FROM chat_sessions WHERE id = :sessionId)
+            ORDER BY created_at, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ChatMessage> findFirstBySessionId(@Param("sessionId") UUID sessionId,
+                                           @Param("limit") int limit);
+
+    /**
+     * Returns the message at the given position, while it is hot, and the messages following it.
+     */
+    @Query(value = """
+            SELECT * FROM chat_messages
+            WHERE session_id = :sessionId
+              AND created_at >= :createdAt
+              AND (created_at, id) >= (:createdAt, :id)
+            ORDER BY created_at, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ChatMessage> findBySessionIdFrom(@Param("sessionId") UUID sessionId,
+                                          @Param("createdAt") Instant createdAt,
+                                          @Param("id") UUID id,
+                                          @Param("limit") int limit);
+
+    /**
+     * Returns the message at the given position, while it is hot, and the messages preceding it, newest first.
+     */
+    @Query(value = """
+            SELECT * FROM chat_messages
+            WHERE session_id = :sessionId
+              AND created_at >= (SELECT messages_from FROM chat_sessions WHERE id = :sessionId)
+              AND created_at <= :createdAt
+              AND (created_at, id) <= (:createdAt, :id)
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ChatMessage> findBySessionIdUntil(@Param("sessionId") UUID sessionId,
+                                           @Param("createdAt") Instant createdAt,
+                                           @Param("id") UUID id,
+                                           @Param("limit") int limit);
+
+    /**
+     * Deletes up to {@code limit} messages of a session in one short transaction.
+     * Both sides are bounded by the session's {@code messages_from} and rows are matched on the full primary key,
+     * so only the partitions from the session's first month on are touched.
+     *
+     * @return number of messages deleted; fewer than {@code limit} means the session has no messages left
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE FROM chat_messages m
+            WHERE m.session_id = :sessionId
+              AND m.created_at >= (SELECT messages_from FROM chat_sessions WHERE id = :sessionId)
+              AND (m.id, m.created_at) IN (
+                  SELECT id, created_at FROM chat_messages
+                  WHERE session_id = :sessionId
+                    AND created_at >= (SELECT messages_from FROM chat_sessions WHERE id = :sessionId)
+                  LIMIT :limit
+              )
+            """, nativeQuery = true)
+    int deleteChunkBySessionId(@Param("sessionId") UUID sessionId, @Param("limit") int limit);
 }
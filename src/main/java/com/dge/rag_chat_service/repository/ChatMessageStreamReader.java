@@ -0,0 +1,64 @@
+package com.dge.rag_chat_service.repository;
+
+import com.dge.rag_chat_service.entity.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streams the messages of a session row by row from a forward-only cursor.
+ *
+ * PostgreSQL only uses a server-side cursor when auto-commit is off and a fetch size is set,
+ * hence the read-only transaction around the query. Memory use is bounded by the fetch size,
+ * not by the number of messages. created_at is bounded by the session's {@code messages_from} so only the
+ * partitions from the session's first month on are read. A session without hot messages may be archived; its
+ * cold block is then read in the same transaction and its messages handed over decoded.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatMessageStreamReader {
+
+    private static final String SELECT = """
+            SELECT id, sender, message, context, created_at
+            FROM chat_messages
+            WHERE session_id = ?
+              AND created_at >= (SELECT messages_from FROM chat_sessions WHERE id = ?)
+            ORDER BY created_at, id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ColdSessionRepository coldSessionRepository;
+
+    @Value("${message-export.fetch-size:500}")
+    private int fetchSize;
+
+    /**
+     * Calls {@code handler} for each message of the session, oldest first: with the chat_messages row if the
+     * session is hot, else {@code coldHandler} with each message of its cold block.
+     */
+    @Transactional(readOnly = true)
+    public void forEachBySessionId(UUID sessionId, RowCallbackHandler handler, Consumer<ChatMessage> coldHandler) {
+        long[] rows = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setObject(1, sessionId);
+            ps.setObject(2, sessionId);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            rows[0]++;
+            handler.processRow(rs);
+        });
+        if (rows[0] == 0) {
+            coldSessionRepository.findMessages(sessionId).forEach(coldHandler);
+        }
+    }
+}
@@ -4,15 +4,87 @@ import com.dge.rag_chat_service.entity.ChatSession;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Repository interface for managing ChatSession entities in the database.
+ *
+ * The keyset queries below walk the (user_id, created_at DESC, id DESC) index newest first
+ * and never issue a COUNT.
+ *
+ * Native queries bypass the entity's SQL restriction, so they filter tombstoned sessions explicitly.
  */
 @Repository
 public interface ChatSessionRepository extends JpaRepository<ChatSession, UUID> {
 
     Page<ChatSession> findByUserId(String userId, Pageable pageable);
+
+    @Query(value = """
+            SELECT * FROM chat_sessions
+            WHERE user_id = :userId
+              AND deleted_at IS NULL
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ChatSession> findFirstByUserId(@Param("userId") String userId,
+                                        @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT * FROM chat_sessions
+            WHERE user_id = :userId
+              AND deleted_at IS NULL
+              AND (created_at, id) < (:createdAt, :id)
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ChatSession> findByUserIdBefore(@Param("userId") String userId,
+                                         @Param("createdAt") Instant createdAt,
+                                         @Param("id") UUID id,
+                                         @Param("limit") int limit);
+
+    /**
+     * Loads only the owner and tombstone flag of a session, whether or not it has been deleted.
+     */
+    @Query(value = "SELECT user_id AS userId, deleted_at IS NOT NULL AS deleted FROM chat_sessions WHERE id = :id",
+            nativeQuery = true)
+    Optional<SessionOwnerView> findOwnerById(@Param("id") UUID id);
+
+    /**
+     * Marks a live session as deleted in a single statement.
+     *
+     * @return number of sessions tombstoned, 0 if the session does not exist or is already deleted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE chat_sessions SET deleted_at = :deletedAt WHERE id = :id AND deleted_at IS NULL",
+            nativeQuery = true)
+    int markDeleted(@Param("id") UUID id, @Param("deletedAt") Instant deletedAt);
+
+    @Query(value = """
+            SELECT id FROM chat_sessions
+            WHERE deleted_at IS NOT NULL
+            ORDER BY deleted_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UUID> findTombstonedIds(@Param("limit") int limit);
+
+    @Query(value = "SELECT count(*) FROM chat_sessions WHERE deleted_at IS NOT NULL", nativeQuery = true)
+    long countTombstoned();
+
+    /**
+     * Physically removes a tombstoned session. Its messages must already be gone.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM chat_sessions WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeTombstoned(@Param("id") UUID id);
 }
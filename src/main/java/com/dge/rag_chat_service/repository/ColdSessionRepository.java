@@ -0,0 +1,289 @@
+package com.dge.rag_chat_service.repository;
+
+import com.dge.rag_chat_service.codec.ColdBlockCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.entity.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Queries of the cold archive.
+ *
+ * A cold session has its messages in one chat_cold_sessions row instead of chat_messages: a block deflated by
+ * {@link ColdBlockCodec}, with the chunk references of its contexts listed next to it for the chunk sweep.
+ * Sessions are frozen one at a time, each read through a cursor and given up on once its block outgrows a cap, so
+ * one large session neither fails the others nor holds more than the cap in memory. A session is never hot and
+ * cold at once: archiving locks the session row and requires its message version to be the one it was judged at,
+ * and every writer thaws a session after bumping that version, which waits for an archiving transaction to commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ColdSessionRepository {
+
+    private static final String SESSIONS_AFTER = "SELECT id FROM chat_sessions WHERE id > ? ORDER BY id LIMIT ?";
+
+    // Idle: no write to the session or a message since the cutoff, and messages to move
+    private static final String IDLE = """
+            SELECT s.id, s.message_version
+            FROM chat_sessions s
+            WHERE s.id = ANY (?) AND s.deleted_at IS NULL AND greatest(s.created_at, s.updated_at) < ?
+              AND EXISTS (SELECT 1 FROM chat_messages m WHERE m.session_id = s.id AND m.created_at >= s.messages_from)
+              AND NOT EXISTS (SELECT 1 FROM chat_messages m WHERE m.session_id = s.id AND m.created_at >= ?)
+            """;
+
+    private static final String LOCK = """
+            SELECT id FROM chat_sessions
+            WHERE id = ? AND message_version = ? AND deleted_at IS NULL
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String SELECT_HOT = """
+            SELECT id, sender, message, context, created_at
+            FROM chat_messages
+            WHERE session_id = ?
+              AND created_at >= (SELECT messages_from FROM chat_sessions WHERE id = ?)
+            ORDER BY created_at, id
+            """;
+
+    // Like the reads, bounded by messages_from so only the session's partitions are touched. Stores nothing if the
+    // messages deleted are not the ones the block was written from
+    private static final String STORE = """
+            WITH moved AS (
+                DELETE FROM chat_messages
+                WHERE session_id = ? AND created_at >= (SELECT messages_from FROM chat_sessions WHERE id = ?)
+                RETURNING context
+            )
+            INSERT INTO chat_cold_sessions (session_id, messages, last_message_at, block, chunks, frozen_at)
+            SELECT ?, ?, ?, ?,
+                   ARRAY(SELECT DISTINCT r #>> '{}'
+                         FROM moved, jsonb_path_query(moved.context, 'strict $.**."$chunk" ? (@.type() == "string")') r),
+                   ?
+            WHERE (SELECT count(*) FROM moved) = ?
+            """;
+
+    private static final String DELETE_BLOCKS =
+            "DELETE FROM chat_cold_sessions WHERE session_id = ANY (?) RETURNING session_id, block";
+
+    private static final String INSERT_MESSAGE = """
+            INSERT INTO chat_messages (id, session_id, sender, message, context, created_at)
+            VALUES (?, ?, ?, ?, CAST(? AS jsonb), ?)
+            """;
+
+    private static final String STORAGE_BYTES = """
+            SELECT (SELECT coalesce(sum(pg_total_relation_size(inhrelid)), 0)
+                    FROM pg_inherits WHERE inhparent = 'chat_messages'::regclass) AS hot,
+                   pg_total_relation_size('chat_cold_sessions') AS cold
+            """;
+
+    private static final int FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageBodyCodec bodyCodec;
+    private final ColdBlockCodec blockCodec;
+
+    /**
+     * A session due for archiving.
+     *
+     * @param messageVersion message version the session was judged at
+     */
+    public record Candidate(UUID id, long messageVersion) {}
+
+    /**
+     * What became of a candidate.
+     */
+    public enum Outcome {
+        /** Messages moved to the cold block */
+        FROZEN,
+        /** Left hot: locked by another transaction or written since it was judged idle */
+        SKIPPED,
+        /** Left hot: its block would be larger than the cap */
+        OVERSIZED
+    }
+
+    /**
+     * Result of archiving one session, with the messages moved and the block size before and after compression.
+     */
+    public record Frozen(UUID sessionId, Outcome outcome, int messages, long rawBytes, long blockBytes) {
+
+        static Frozen left(UUID sessionId, Outcome outcome) {
+            return new Frozen(sessionId, outcome, 0, 0, 0);
+        }
+    }
+
+    /**
+     * On-disk size of chat_messages, all partitions and indexes included, and of chat_cold_sessions.
+     */
+    public record StorageBytes(long hot, long cold) {}
+
+    /**
+     * Ids of the next sessions after {@code afterId}, tombstoned ones included, in id order.
+     */
+    public List<UUID> sessionIdsAfter(UUID afterId, int limit) {
+        return jdbcTemplate.queryForList(SESSIONS_AFTER, UUID.class, afterId, limit);
+    }
+
+    /**
+     * The sessions among {@code ids} with hot messages and no write since {@code idleBefore}.
+     */
+    public List<Candidate> findIdle(List<UUID> ids, Instant idleBefore) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        OffsetDateTime cutoff = OffsetDateTime.ofInstant(idleBefore, ZoneOffset.UTC);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(IDLE);
+            ps.setArray(1, con.createArrayOf("uuid", ids.toArray()));
+            ps.setObject(2, cutoff);
+            ps.setObject(3, cutoff);
+            return ps;
+        }, (rs, i) -> new Candidate(rs.getObject("id", UUID.class), rs.getLong("message_version")));
+    }
+
+    /**
+     * Moves the messages of the candidate into its cold block if it is still at the message version it was judged
+     * at. A candidate locked by another transaction is skipped, not waited for; one whose block would exceed
+     * {@code maxRawBytes} of uncompressed JSON is left hot. Must run in a transaction of its own, which gives up on
+     * any other lock after a short timeout.
+     */
+    public Frozen freeze(Candidate candidate, Instant frozenAt, long maxRawBytes) {
+        UUID id = candidate.id();
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '1s'");
+        if (jdbcTemplate.queryForList(LOCK, UUID.class, id, candidate.messageVersion()).isEmpty()) {
+            return Frozen.left(id, Outcome.SKIPPED);
+        }
+        try (ColdBlockCodec.BlockWriter block = blockCodec.writer()) {
+            OffsetDateTime[] lastMessageAt = {null};
+            try {
+                jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(SELECT_HOT, ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setObject(1, id);
+                    ps.setObject(2, id);
+                    return ps;
+                }, (RowCallbackHandler) rs -> {
+                    lastMessageAt[0] = rs.getObject("created_at", OffsetDateTime.class);
+                    try {
+                        block.write(rs.getObject("id", UUID.class), rs.getString("sender"),
+                                bodyCodec.decode(rs.getString("message")), rs.getString("context"),
+                                lastMessageAt[0].toInstant());
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    if (block.rawBytes() > maxRawBytes) {
+                        throw new Oversized();
+                    }
+                });
+            } catch (Oversized ex) {
+                return Frozen.left(id, Outcome.OVERSIZED);
+            }
+            if (block.messages() == 0) {
+                return Frozen.left(id, Outcome.SKIPPED);
+            }
+            long rawBytes = block.rawBytes();
+            byte[] bytes = block.finish();
+            int stored = jdbcTemplate.update(STORE, id, id, id, block.messages(), lastMessageAt[0], bytes,
+                    OffsetDateTime.ofInstant(frozenAt, ZoneOffset.UTC), block.messages());
+            if (stored == 0) {
+                throw new IllegalStateException("Messages of session " + id + " changed while it was archived");
+            }
+            return new Frozen(id, Outcome.FROZEN, block.messages(), rawBytes, bytes.length);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Moves the messages of the cold sessions among {@code sessionIds} back into chat_messages, bodies encoded
+     * again as new ones are. Must run in the transaction that writes to the sessions, after their message versions
+     * were bumped.
+     *
+     * @return number of messages moved back; 0 if no session was cold
+     */
+    public int thaw(Collection<UUID> sessionIds) {
+        return thaw(jdbcTemplate, sessionIds);
+    }
+
+    /**
+     * Like {@link #thaw(Collection)}, in the current transaction of {@code con}, which is left open.
+     */
+    public int thaw(Connection con, Collection<UUID> sessionIds) {
+        return thaw(new JdbcTemplate(new SingleConnectionDataSource(con, true)), sessionIds);
+    }
+
+    private int thaw(JdbcOperations jdbc, Collection<UUID> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        Object[] ids = sessionIds.toArray();
+        List<Object[]> rows = new ArrayList<>();
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_BLOCKS);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            UUID sessionId = rs.getObject("session_id", UUID.class);
+            for (ChatMessage m : blockCodec.decode(rs.getBytes("block"))) {
+                rows.add(new Object[]{m.getId(), sessionId, m.getSender().name(), bodyCodec.encode(m.getMessage()),
+                        m.getContext(), OffsetDateTime.ofInstant(m.getCreatedAt(), ZoneOffset.UTC)});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate(INSERT_MESSAGE, rows);
+        }
+        return rows.size();
+    }
+
+    /**
+     * Messages of a cold session, oldest first, with their bodies decoded; empty if the session is not cold.
+     */
+    public List<ChatMessage> findMessages(UUID sessionId) {
+        List<byte[]> blocks = jdbcTemplate.queryForList(
+                "SELECT block FROM chat_cold_sessions WHERE session_id = ?", byte[].class, sessionId);
+        return blocks.isEmpty() ? List.of() : blockCodec.decode(blocks.get(0));
+    }
+
+    /**
+     * Deletes the cold block of a session.
+     *
+     * @return number of messages it held; 0 if the session was not cold
+     */
+    public int delete(UUID sessionId) {
+        List<Integer> messages = jdbcTemplate.queryForList(
+                "DELETE FROM chat_cold_sessions WHERE session_id = ? RETURNING messages", Integer.class, sessionId);
+        return messages.isEmpty() ? 0 : messages.get(0);
+    }
+
+    /**
+     * Current on-disk size of the hot and the cold messages, from the catalog.
+     */
+    public StorageBytes storageBytes() {
+        return jdbcTemplate.queryForObject(STORAGE_BYTES,
+                (rs, i) -> new StorageBytes(rs.getLong("hot"), rs.getLong("cold")));
+    }
+
+    // Stops reading a session once its block is over the cap
+    private static final class Oversized extends RuntimeException {
+
+        Oversized() {
+            super(null, null, false, false);
+        }
+    }
+}
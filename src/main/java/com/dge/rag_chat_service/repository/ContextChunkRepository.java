@@ -0,0 +1,175 @@
+package com.dge.rag_chat_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * JDBC access to the content-addressed context_chunks table.
+ *
+ * Chunks are inserted with one statement per call from two parallel arrays; {@code RETURNING} reports which
+ * hashes were new, which JDBC batch counts cannot do once the driver rewrites batches. Writing a chunk that
+ * exists refreshes its {@code used_at} if that is older than {@link #TOUCH_INTERVAL}, so the sweep can tell
+ * chunks that may still be referenced by a write in flight.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ContextChunkRepository {
+
+    /**
+     * How stale {@code used_at} may get before a write refreshes it; the sweep grace period must exceed it.
+     */
+    public static final Duration TOUCH_INTERVAL = Duration.ofHours(1);
+
+    private static final long SWEEP_LOCK_KEY = 0x6368756e6b737765L;
+
+    // Rows that conflict are locked even when not refreshed, so a concurrent sweep waits and rechecks used_at
+    private static final String INSERT = """
+            INSERT INTO context_chunks (hash, content, created_at, used_at)
+            SELECT t.hash, t.content, now(), now()
+            FROM unnest(CAST(? AS text[]), CAST(? AS text[])) AS t(hash, content)
+            ON CONFLICT (hash) DO UPDATE SET used_at = excluded.used_at
+                WHERE context_chunks.used_at < now() - CAST(? AS interval)
+            RETURNING hash, created_at = used_at AS stored
+            """;
+
+    private static final UUID FIRST_SESSION = new UUID(0, 0);
+    private static final UUID LAST_SESSION = new UUID(-1, -1);
+
+    private static final String CREATE_LIVE = """
+            CREATE TEMPORARY TABLE IF NOT EXISTS chunk_sweep_live (hash text PRIMARY KEY)
+            """;
+
+    private static final String SESSION_BATCH_END =
+            "SELECT id FROM chat_sessions WHERE id > ? ORDER BY id OFFSET ? LIMIT 1";
+
+    // References are collected from hot messages and cold blocks in one snapshot per range of sessions. All
+    // messages of a session stay in its range when they move between partitions or between hot and cold, so
+    // each is seen exactly once
+    private static final String COLLECT = """
+            INSERT INTO chunk_sweep_live (hash)
+            SELECT jsonb_path_query(context, 'strict $.**."$chunk" ? (@.type() == "string")') #>> '{}'
+            FROM chat_messages
+            WHERE session_id > ? AND session_id <= ? AND context IS NOT NULL
+            UNION
+            SELECT unnest(chunks) FROM chat_cold_sessions WHERE session_id > ? AND session_id <= ?
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String SWEEP = """
+            WITH swept AS (
+                DELETE FROM context_chunks c
+                WHERE c.used_at < ? AND NOT EXISTS (SELECT 1 FROM chunk_sweep_live live WHERE live.hash = c.hash)
+                RETURNING octet_length(c.content) AS bytes
+            )
+            SELECT count(*) AS chunks, coalesce(sum(bytes), 0) AS bytes FROM swept
+            """;
+
+    private static final String SELECT_BY_HASHES = "SELECT hash, content FROM context_chunks WHERE hash = ANY (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Outcome of a sweep: chunks deleted and the bytes of their text.
+     */
+    public record Swept(long chunks, long bytes) {}
+
+    /**
+     * Stores chunks keyed by hash; chunks that already exist are skipped.
+     * Rows are written in hash order so concurrent writers of overlapping chunks cannot deadlock.
+     *
+     * @return hashes of the chunks that were new
+     */
+    public List<String> insertAll(Map<String, String> chunks) {
+        if (chunks.isEmpty()) {
+            return List.of();
+        }
+        TreeMap<String, String> sorted = new TreeMap<>(chunks);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT);
+            ps.setArray(1, con.createArrayOf("text", sorted.keySet().toArray()));
+            ps.setArray(2, con.createArrayOf("text", sorted.values().toArray()));
+            ps.setString(3, TOUCH_INTERVAL.toString());
+            return ps;
+        }, rs -> {
+            List<String> stored = new ArrayList<>();
+            while (rs.next()) {
+                if (rs.getBoolean("stored")) {
+                    stored.add(rs.getString("hash"));
+                }
+            }
+            return stored;
+        });
+    }
+
+    /**
+     * Deletes the chunks no message context or cold block refers to, if unused since {@code unusedBefore}.
+     * Nodes sweeping at the same time are serialized by an advisory lock.
+     *
+     * Every stored context is read once, but no transaction spans the whole sweep: the references of each
+     * {@code sessionsPerBatch} sessions are staged in a temporary table in a transaction of their own, then the
+     * chunks missing from it are deleted in one statement. A reference written to a range already read names a
+     * chunk whose {@code used_at} the write refreshed, so the cutoff keeps it. Must not run in a transaction.
+     *
+     * @return what was deleted, or null if another node is sweeping
+     */
+    public Swept sweep(Instant unusedBefore, int sessionsPerBatch) {
+        return jdbcTemplate.execute((ConnectionCallback<Swept>) con -> {
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(con, true));
+            if (!jdbc.queryForObject("SELECT pg_try_advisory_lock(" + SWEEP_LOCK_KEY + ")", Boolean.class)) {
+                return null;
+            }
+            try {
+                jdbc.execute(CREATE_LIVE);
+                jdbc.execute("TRUNCATE chunk_sweep_live");
+                UUID from = FIRST_SESSION;
+                while (from != null) {
+                    List<UUID> end = jdbc.queryForList(SESSION_BATCH_END, UUID.class, from, sessionsPerBatch - 1);
+                    // The last range is open, for sessions created since
+                    UUID to = end.isEmpty() ? LAST_SESSION : end.get(0);
+                    jdbc.update(COLLECT, from, to, from, to);
+                    from = end.isEmpty() ? null : to;
+                }
+                jdbc.execute("ANALYZE chunk_sweep_live");
+                return jdbc.queryForObject(SWEEP, (rs, i) -> new Swept(rs.getLong("chunks"), rs.getLong("bytes")),
+                        OffsetDateTime.ofInstant(unusedBefore, ZoneOffset.UTC));
+            } finally {
+                jdbc.execute("DROP TABLE IF EXISTS chunk_sweep_live");
+                jdbc.execute("SELECT pg_advisory_unlock(" + SWEEP_LOCK_KEY + ")");
+            }
+        });
+    }
+
+    /**
+     * Loads the text of the given chunks; unknown hashes are absent from the result.
+     */
+    public Map<String, String> findByHashes(Collection<? extends String> hashes) {
+        Map<String, String> chunks = new HashMap<>();
+        if (hashes.isEmpty()) {
+            return chunks;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_BY_HASHES);
+            ps.setArray(1, con.createArrayOf("text", hashes.toArray()));
+            return ps;
+        }, rs -> {
+            chunks.put(rs.getString("hash"), rs.getString("content"));
+        });
+        return chunks;
+    }
+}
@@ -0,0 +1,87 @@
+package com.dge.rag_chat_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Queries of the context tiering job.
+ *
+ * Aged contexts are read oldest first through idx_message_context_unstripped, which only holds contexts not yet
+ * stripped, so every batch starts where the last one ended. {@code ??} is the JDBC escape of the jsonb {@code ?}
+ * operator; the predicate must read like the one of the index for the planner to use it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ContextTieringRepository {
+
+    private static final String OLDEST = """
+            SELECT id, session_id, created_at, context
+            FROM chat_messages
+            WHERE created_at < ? AND context IS NOT NULL AND NOT (context ?? '$stripped')
+            ORDER BY created_at
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    // The created_at range lets PostgreSQL skip the partitions outside the batch
+    private static final String REPLACE = """
+            UPDATE chat_messages m SET context = CAST(v.context AS jsonb)
+            FROM unnest(CAST(? AS uuid[]), CAST(? AS timestamptz[]), CAST(? AS text[])) AS v(id, created_at, context)
+            WHERE m.id = v.id AND m.created_at = v.created_at AND m.created_at >= ? AND m.created_at <= ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * A context due for stripping, as stored.
+     */
+    public record AgedContext(UUID id, UUID sessionId, Instant createdAt, String context) {}
+
+    /**
+     * Locks the oldest contexts of messages created before {@code before} that are not stripped yet, skipping
+     * rows locked by another node. Must run in the transaction that replaces them.
+     *
+     * @return the contexts in created_at order
+     */
+    public List<AgedContext> lockOldest(Instant before, int limit) {
+        return jdbcTemplate.query(OLDEST, (rs, i) -> new AgedContext(
+                        rs.getObject("id", UUID.class),
+                        rs.getObject("session_id", UUID.class),
+                        rs.getObject("created_at", OffsetDateTime.class).toInstant(),
+                        rs.getString("context")),
+                OffsetDateTime.ofInstant(before, ZoneOffset.UTC), limit);
+    }
+
+    /**
+     * Replaces the contexts of {@code rows}, in created_at order, by {@code contexts} in one statement.
+     *
+     * @return number of messages updated
+     */
+    public int replaceAll(List<AgedContext> rows, List<String> contexts) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Object[] ids = rows.stream().map(AgedContext::id).toArray();
+        Object[] createdAt = rows.stream().map(r -> r.createdAt().toString()).toArray();
+        Object[] json = contexts.toArray();
+        Instant from = rows.get(0).createdAt();
+        Instant to = rows.get(rows.size() - 1).createdAt();
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(REPLACE);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("text", createdAt));
+            ps.setArray(3, con.createArrayOf("text", json));
+            ps.setObject(4, OffsetDateTime.ofInstant(from, ZoneOffset.UTC));
+            ps.setObject(5, OffsetDateTime.ofInstant(to, ZoneOffset.UTC));
+            return ps;
+        });
+    }
+}
@@ -0,0 +1,32 @@
+package com.dge.rag_chat_service.repository;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Field encoding for PostgreSQL {@code COPY ... WITH (FORMAT csv)}.
+ * An unquoted empty field is NULL, a quoted one is a string.
+ */
+final class CopyCsv {
+
+    private CopyCsv() {
+    }
+
+    static void writeQuoted(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    static void writeNullable(Writer out, String value) throws IOException {
+        if (value != null) {
+            writeQuoted(out, value);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.dge.rag_chat_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Version counters of the message list of a session and of the session list of a user.
+ *
+ * A counter is bumped in the transaction of the write it covers, and read before the page it tags, so a tag
+ * can be older than the page it was sent with but never newer. Archive imports and the bulk loader bump the
+ * counters with the same statements on their own connections.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ListVersionRepository {
+
+    static final String BUMP_SESSIONS =
+            "UPDATE chat_sessions SET message_version = message_version + 1 WHERE id = ANY (?)";
+
+    static final String BUMP_USER = """
+            INSERT INTO chat_user_versions (user_id, version) VALUES (?, 1)
+            ON CONFLICT (user_id) DO UPDATE SET version = chat_user_versions.version + 1
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Version of the messages of a session, 0 if the session does not exist.
+     */
+    public long sessionVersion(UUID sessionId) {
+        Long version = DataAccessUtils.singleResult(jdbcTemplate.queryForList(
+                "SELECT message_version FROM chat_sessions WHERE id = ?", Long.class, sessionId));
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Version of the sessions of a user, 0 until they first change.
+     */
+    public long userVersion(String userId) {
+        Long version = DataAccessUtils.singleResult(jdbcTemplate.queryForList(
+                "SELECT version FROM chat_user_versions WHERE user_id = ?", Long.class, userId));
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Bumps the message version of a session. Must run in the transaction that writes the messages.
+     */
+    public void bumpSession(UUID sessionId) {
+        bumpSessions(List.of(sessionId));
+    }
+
+    /**
+     * Bumps the message version of every given session in one statement.
+     */
+    public void bumpSessions(Collection<UUID> sessionIds) {
+        if (!sessionIds.isEmpty()) {
+            Object[] ids = sessionIds.toArray();
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(BUMP_SESSIONS);
+                ps.setArray(1, con.createArrayOf("uuid", ids));
+                return ps;
+            });
+        }
+    }
+
+    /**
+     * Bumps the session list version of a user. Must run in the transaction that changes the sessions.
+     *
+     * @return the new version
+     */
+    public long bumpUser(String userId) {
+        return jdbcTemplate.queryForObject(BUMP_USER + " RETURNING version", Long.class, userId);
+    }
+}
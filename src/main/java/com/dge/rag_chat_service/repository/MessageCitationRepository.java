@@ -0,0 +1,160 @@
+package com.dge.rag_chat_service.repository;
+
+import com.dge.rag_chat_service.dto.CitedMessageResponse;
+import com.dge.rag_chat_service.dto.DocumentCitationCount;
+import com.dge.rag_chat_service.entity.MessageCitation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC access to the message_citations index.
+ *
+ * Lookups are scoped to the live sessions of a user by joining chat_sessions; the planner can start either
+ * from the document ({@code idx_citation_doc_created}) or from the user's sessions ({@code idx_citation_session_doc}),
+ * whichever is more selective.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MessageCitationRepository {
+
+    private static final String INSERT = """
+            INSERT INTO message_citations (message_id, doc_id, chunk_id, session_id, created_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String MESSAGES_BY_DOC = """
+            SELECT c.message_id, c.session_id, c.created_at, array_agg(c.chunk_id ORDER BY c.chunk_id) AS chunk_ids
+            FROM message_citations c
+            JOIN chat_sessions s ON s.id = c.session_id
+            WHERE c.doc_id = ? AND s.user_id = ? AND s.deleted_at IS NULL
+              %s
+            GROUP BY c.created_at, c.message_id, c.session_id
+            ORDER BY c.created_at DESC, c.message_id DESC
+            LIMIT ?
+            """;
+
+    private static final String MESSAGES_BY_DOC_FIRST = MESSAGES_BY_DOC.formatted("");
+
+    private static final String MESSAGES_BY_DOC_BEFORE =
+            MESSAGES_BY_DOC.formatted("AND (c.created_at, c.message_id) < (?, ?)");
+
+    private static final String TOP_DOCUMENTS = """
+            SELECT c.doc_id, count(DISTINCT c.message_id) AS citations, count(DISTINCT c.session_id) AS sessions,
+                   max(c.created_at) AS last_cited_at
+            FROM chat_sessions s
+            JOIN message_citations c ON c.session_id = s.id
+            WHERE s.user_id = ? AND s.deleted_at IS NULL AND c.created_at >= ?
+            GROUP BY c.doc_id
+            ORDER BY citations DESC, c.doc_id
+            LIMIT ?
+            """;
+
+    private static final String DELETE_CHUNK = """
+            DELETE FROM message_citations
+            WHERE (message_id, doc_id, chunk_id) IN (
+                SELECT message_id, doc_id, chunk_id FROM message_citations
+                WHERE session_id = ?
+                LIMIT ?
+            )
+            """;
+
+    private static final String MESSAGES_AFTER = """
+            SELECT id, session_id, created_at, context FROM chat_messages
+            WHERE id > ? AND context IS NOT NULL
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final RowMapper<CitedMessageResponse> CITED_MESSAGE = (rs, i) -> new CitedMessageResponse(
+            rs.getObject("message_id", UUID.class),
+            rs.getObject("session_id", UUID.class),
+            chunkIds(rs.getArray("chunk_ids")),
+            rs.getObject("created_at", OffsetDateTime.class).toInstant());
+
+    private static final RowMapper<DocumentCitationCount> DOCUMENT_COUNT = (rs, i) -> new DocumentCitationCount(
+            rs.getString("doc_id"),
+            rs.getLong("citations"),
+            rs.getLong("sessions"),
+            rs.getObject("last_cited_at", OffsetDateTime.class).toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts citations; rows that already exist are skipped.
+     */
+    public void insertAll(List<MessageCitation> citations) {
+        if (citations.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, citations, citations.size(), (ps, c) -> {
+            ps.setObject(1, c.getId().getMessageId());
+            ps.setString(2, c.getId().getDocId());
+            ps.setString(3, c.getId().getChunkId());
+            ps.setObject(4, c.getSessionId());
+            ps.setObject(5, OffsetDateTime.ofInstant(c.getCreatedAt(), ZoneOffset.UTC));
+        });
+    }
+
+    /**
+     * Messages in live sessions of {@code userId} citing {@code docId}, newest first.
+     */
+    public List<CitedMessageResponse> findFirstByDocId(String userId, String docId, int limit) {
+        return jdbcTemplate.query(MESSAGES_BY_DOC_FIRST, CITED_MESSAGE, docId, userId, limit);
+    }
+
+    /**
+     * Messages citing {@code docId} preceding the given position, newest first.
+     */
+    public List<CitedMessageResponse> findByDocIdBefore(String userId, String docId, Instant createdAt, UUID messageId,
+                                                        int limit) {
+        return jdbcTemplate.query(MESSAGES_BY_DOC_BEFORE, CITED_MESSAGE, docId, userId,
+                OffsetDateTime.ofInstant(createdAt, ZoneOffset.UTC), messageId, limit);
+    }
+
+    /**
+     * Documents most cited in live sessions of {@code userId} since the given time.
+     */
+    public List<DocumentCitationCount> findTopDocuments(String userId, Instant since, int limit) {
+        return jdbcTemplate.query(TOP_DOCUMENTS, DOCUMENT_COUNT, userId,
+                OffsetDateTime.ofInstant(since, ZoneOffset.UTC), limit);
+    }
+
+    /**
+     * Deletes up to {@code limit} citations of a session.
+     *
+     * @return number of citations deleted; fewer than {@code limit} means none are left
+     */
+    public int deleteChunkBySessionId(UUID sessionId, int limit) {
+        return jdbcTemplate.update(DELETE_CHUNK, sessionId, limit);
+    }
+
+    /**
+     * Streams up to {@code limit} messages with a context whose id is greater than {@code afterId}, in id order.
+     */
+    public void forEachMessageAfter(UUID afterId, int limit, RowCallbackHandler handler) {
+        jdbcTemplate.query(MESSAGES_AFTER, handler, afterId, limit);
+    }
+
+    private static List<String> chunkIds(Array array) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        for (Object id : (Object[]) array.getArray()) {
+            if (id != null && !((String) id).isEmpty()) {
+                ids.add((String) id);
+            }
+        }
+        return ids;
+    }
+}
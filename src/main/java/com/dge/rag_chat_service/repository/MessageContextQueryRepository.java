@@ -0,0 +1,106 @@
+package com.dge.rag_chat_service.repository;
+
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.dto.MessageResponse;
+import com.dge.rag_chat_service.dto.RawJson;
+import com.dge.rag_chat_service.dto.SenderType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Queries messages by their jsonb context, newest first.
+ *
+ * Filters are applied with {@code @>} and {@code @@}, the operators served by the {@code jsonb_path_ops}
+ * index. Each query runs under a statement timeout, so a filter that still matches too much is cancelled
+ * instead of holding a connection.
+ */
+@Repository
+public class MessageContextQueryRepository {
+
+    private static final String QUERY_CANCELED = "57014";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String timeout;
+    private final RowMapper<MessageResponse> messageMapper;
+
+    public MessageContextQueryRepository(JdbcTemplate jdbcTemplate,
+                                         MessageBodyCodec bodyCodec,
+                                         @Value("${context-query.timeout:PT2S}") Duration timeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeout = Long.toString(timeout.toMillis());
+        this.messageMapper = (rs, i) -> {
+            String context = rs.getString("context");
+            return new MessageResponse(
+                    rs.getObject("id", UUID.class),
+                    SenderType.valueOf(rs.getString("sender")),
+                    bodyCodec.decode(rs.getString("message")),
+                    RawJson.of(context),
+                    ContextJson.isStripped(context),
+                    rs.getObject("created_at", OffsetDateTime.class).toInstant());
+        };
+    }
+
+    /**
+     * Returns messages matching the filters, either in one session or in all live sessions of a user.
+     *
+     * @param contains JSON the context must contain, or null
+     * @param jsonPath predicate the context must satisfy, or null
+     * @param afterCreatedAt with {@code afterId}, the position of the last row already seen, or null
+     * @throws QueryTimeoutException if the query runs longer than {@code context-query.timeout}
+     */
+    @Transactional(readOnly = true)
+    public List<MessageResponse> find(String userId, UUID sessionId, String contains, String jsonPath,
+                                      Instant afterCreatedAt, UUID afterId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT m.id, m.sender, m.message, m.context, m.created_at FROM chat_messages m ");
+        List<Object> args = new ArrayList<>();
+        if (sessionId != null) {
+            sql.append("WHERE m.session_id = ?");
+            args.add(sessionId);
+        } else {
+            sql.append("JOIN chat_sessions s ON s.id = m.session_id WHERE s.user_id = ? AND s.deleted_at IS NULL");
+            args.add(userId);
+        }
+        if (contains != null) {
+            sql.append(" AND m.context @> CAST(? AS jsonb)");
+            args.add(contains);
+        }
+        if (jsonPath != null) {
+            sql.append(" AND m.context @@ CAST(? AS jsonpath)");
+            args.add(jsonPath);
+        }
+        if (afterCreatedAt != null) {
+            sql.append(" AND (m.created_at, m.id) < (?, ?)");
+            args.add(OffsetDateTime.ofInstant(afterCreatedAt, ZoneOffset.UTC));
+            args.add(afterId);
+        }
+        sql.append(" ORDER BY m.created_at DESC, m.id DESC LIMIT ?");
+        args.add(limit);
+
+        try {
+            jdbcTemplate.queryForObject("SELECT set_config('statement_timeout', ?, true)", String.class, timeout);
+            return jdbcTemplate.query(sql.toString(), messageMapper, args.toArray());
+        } catch (DataAccessException ex) {
+            if (!(ex instanceof QueryTimeoutException)
+                    && ex.getMostSpecificCause() instanceof SQLException cause
+                    && QUERY_CANCELED.equals(cause.getSQLState())) {
+                throw new QueryTimeoutException("Context query exceeded " + timeout + " ms", ex);
+            }
+            throw ex;
+        }
+    }
+}
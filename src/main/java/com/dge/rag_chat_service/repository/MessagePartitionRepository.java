@@ -0,0 +1,112 @@
+package com.dge.rag_chat_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DDL for the monthly partitions of chat_messages.
+ *
+ * Partitions are named {@code chat_messages_yYYYYmMM} and cover one calendar month in UTC, like the ones created
+ * by the migration. Attaching a partition briefly locks chat_messages exclusively, so statements give up after
+ * a short lock timeout instead of queueing behind a long query and blocking every writer meanwhile. Nodes
+ * creating partitions at the same time are serialized by an advisory lock.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MessagePartitionRepository {
+
+    public static final String DEFAULT_PARTITION = "chat_messages_default";
+
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'chat_messages_y'yyyy'm'MM");
+    private static final Pattern NAME_PATTERN = Pattern.compile("chat_messages_y(\\d{4})m(\\d{2})");
+
+    // Arbitrary key shared by all nodes
+    private static final long LOCK_KEY = 0x6368617470617274L;
+
+    private static final String PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'chat_messages'::regclass
+            """;
+
+    private static final String MONTHS_IN_DEFAULT = """
+            SELECT DISTINCT to_char(created_at AT TIME ZONE 'UTC', 'YYYY-MM') FROM chat_messages_default
+            """;
+
+    private static final String IN_DEFAULT = """
+            SELECT EXISTS (SELECT 1 FROM chat_messages_default WHERE created_at >= ? AND created_at < ?)
+            """;
+
+    private static final String COLUMNS = "id, session_id, sender, message, context, created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public static String partitionName(YearMonth month) {
+        return NAME.format(month);
+    }
+
+    /**
+     * Months that have a partition.
+     */
+    public Set<YearMonth> partitionMonths() {
+        Set<YearMonth> months = new HashSet<>();
+        for (String name : jdbcTemplate.queryForList(PARTITIONS, String.class)) {
+            Matcher m = NAME_PATTERN.matcher(name);
+            if (m.matches()) {
+                months.add(YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))));
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Months of the rows that fell into the default partition because their month had no partition yet.
+     */
+    public List<YearMonth> monthsInDefault() {
+        return jdbcTemplate.queryForList(MONTHS_IN_DEFAULT, String.class).stream().map(YearMonth::parse).toList();
+    }
+
+    /**
+     * Creates the partition of {@code month}. Rows of that month held by the default partition are moved into
+     * the new partition in the same transaction, since PostgreSQL refuses to add a partition whose rows the
+     * default partition already holds.
+     *
+     * @return false if the partition already exists
+     */
+    @Transactional
+    public boolean createPartition(YearMonth month) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+
+        String name = partitionName(month);
+        if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name)) {
+            return false;
+        }
+        OffsetDateTime from = month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+        OffsetDateTime to = from.plusMonths(1);
+        String bounds = "FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+
+        if (!jdbcTemplate.queryForObject(IN_DEFAULT, Boolean.class, from, to)) {
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF chat_messages " + bounds);
+            return true;
+        }
+        jdbcTemplate.execute("ALTER TABLE chat_messages DETACH PARTITION " + DEFAULT_PARTITION);
+        jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF chat_messages " + bounds);
+        jdbcTemplate.update("INSERT INTO " + name + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM "
+                + DEFAULT_PARTITION + " WHERE created_at >= ? AND created_at < ?", from, to);
+        jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE created_at >= ? AND created_at < ?", from, to);
+        jdbcTemplate.execute("ALTER TABLE chat_messages ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+        return true;
+    }
+}
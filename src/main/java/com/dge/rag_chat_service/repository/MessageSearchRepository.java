@@ -0,0 +1,80 @@
+package com.dge.rag_chat_service.repository;
+
+import com.dge.rag_chat_service.dto.SearchHitResponse;
+import com.dge.rag_chat_service.dto.SenderType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Full-text search over the messages of a user's live sessions.
+ *
+ * Matches come from the GIN index on {@code message_tsv} and are ranked from the stored vector. Only the
+ * rows of the returned page get a snippet, since {@code ts_headline} has to re-parse the message text.
+ * Pages are keyed on (rank, id), so no OFFSET is ever skipped over. Bodies stored compressed have no vector and
+ * never match, so {@code ts_headline} is never run over their encoded text.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MessageSearchRepository {
+
+    /**
+     * Text search configuration used for parsing queries; must match the one of the {@code message_tsv}
+     * column in the migrations.
+     */
+    public static final String TEXT_SEARCH_CONFIG = "english";
+
+    private static final String HEADLINE_OPTIONS = "StartSel=**, StopSel=**, MaxFragments=2, MaxWords=20, MinWords=5";
+
+    private static final String SEARCH = """
+            WITH q AS (SELECT websearch_to_tsquery('%1$s'::regconfig, ?) AS query)
+            SELECT p.id, p.session_id, p.sender, p.created_at, p.rank,
+                   ts_headline('%1$s'::regconfig, p.message, q.query, '%2$s') AS snippet
+            FROM (
+                SELECT m.id, m.session_id, m.sender, m.message, m.created_at,
+                       ts_rank(m.message_tsv, q.query) AS rank
+                FROM q, chat_messages m
+                JOIN chat_sessions s ON s.id = m.session_id
+                WHERE m.message_tsv @@ q.query
+                  AND s.user_id = ? AND s.deleted_at IS NULL
+                  %3$s
+                ORDER BY rank DESC, m.id DESC
+                LIMIT ?
+            ) p, q
+            ORDER BY p.rank DESC, p.id DESC
+            """;
+
+    private static final String SEARCH_FIRST = SEARCH.formatted(TEXT_SEARCH_CONFIG, HEADLINE_OPTIONS, "");
+
+    private static final String SEARCH_AFTER = SEARCH.formatted(TEXT_SEARCH_CONFIG, HEADLINE_OPTIONS,
+            "AND (ts_rank(m.message_tsv, q.query), m.id) < (CAST(? AS real), ?)");
+
+    private static final RowMapper<SearchHitResponse> HIT = (rs, i) -> new SearchHitResponse(
+            rs.getObject("id", UUID.class),
+            rs.getObject("session_id", UUID.class),
+            SenderType.valueOf(rs.getString("sender")),
+            rs.getString("snippet"),
+            rs.getFloat("rank"),
+            rs.getObject("created_at", OffsetDateTime.class).toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the best matches of {@code query}, in web search syntax, in sessions of {@code userId}.
+     */
+    public List<SearchHitResponse> searchFirst(String userId, String query, int limit) {
+        return jdbcTemplate.query(SEARCH_FIRST, HIT, query, userId, limit);
+    }
+
+    /**
+     * Returns the matches ranked below the given position.
+     */
+    public List<SearchHitResponse> searchAfter(String userId, String query, float rank, UUID id, int limit) {
+        return jdbcTemplate.query(SEARCH_AFTER, HIT, query, userId, rank, id, limit);
+    }
+}
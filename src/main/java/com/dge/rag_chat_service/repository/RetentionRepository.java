@@ -0,0 +1,141 @@
+package com.dge.rag_chat_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Queries of the session retention purger.
+ *
+ * Sessions are walked in id order and judged in small batches. Purging only tombstones them, like a delete by
+ * their owner; the session reaper removes their messages afterwards. Tombstoning skips rows another transaction
+ * holds, e.g. one adding a message, which locks the session row to bump its message version, instead of waiting.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RetentionRepository {
+
+    private static final String SESSIONS_AFTER = "SELECT id FROM chat_sessions WHERE id > ? ORDER BY id LIMIT ?";
+
+    // A session is idle if neither it nor a message was written since its cutoff, and empty if it has no message;
+    // the messages of an archived session are counted from its cold block
+    private static final String CANDIDATES = """
+            SELECT p.id, p.user_id, p.message_version,
+                   (SELECT count(*) FROM chat_messages m WHERE m.session_id = p.id)
+                   + coalesce((SELECT c.messages FROM chat_cold_sessions c WHERE c.session_id = p.id), 0) AS messages
+            FROM (SELECT s.id, s.user_id, s.message_version, s.created_at,
+                         greatest(s.created_at, s.updated_at) AS touched_at,
+                         coalesce(o.idle_before, ?) AS idle_before,
+                         coalesce(o.empty_before, ?) AS empty_before
+                  FROM chat_sessions s
+                  LEFT JOIN unnest(CAST(? AS text[]), CAST(? AS timestamptz[]), CAST(? AS timestamptz[]))
+                            AS o(user_id, idle_before, empty_before) ON o.user_id = s.user_id
+                  WHERE s.id = ANY (?) AND s.deleted_at IS NULL) p
+            WHERE (p.created_at < p.empty_before
+                   AND NOT EXISTS (SELECT 1 FROM chat_messages m WHERE m.session_id = p.id)
+                   AND NOT EXISTS (SELECT 1 FROM chat_cold_sessions c WHERE c.session_id = p.id))
+               OR (p.touched_at < p.idle_before
+                   AND NOT EXISTS (SELECT 1 FROM chat_messages m
+                                   WHERE m.session_id = p.id AND m.created_at >= p.idle_before)
+                   AND NOT EXISTS (SELECT 1 FROM chat_cold_sessions c
+                                   WHERE c.session_id = p.id AND c.last_message_at >= p.idle_before))
+            """;
+
+    // The message version must be the one the session was judged at; a message added since changed it
+    private static final String TOMBSTONE = """
+            UPDATE chat_sessions s SET deleted_at = ?
+            FROM (SELECT c.id FROM chat_sessions c
+                  JOIN unnest(CAST(? AS uuid[]), CAST(? AS bigint[])) AS v(id, message_version)
+                       ON v.id = c.id AND v.message_version = c.message_version
+                  WHERE c.deleted_at IS NULL
+                  FOR UPDATE OF c SKIP LOCKED) victims
+            WHERE s.id = victims.id
+            RETURNING s.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Time limits of a session: idle since before {@code idleBefore}, or empty and created before
+     * {@code emptyBefore}.
+     */
+    public record Cutoffs(Instant idleBefore, Instant emptyBefore) {}
+
+    /**
+     * A session the policy selects.
+     *
+     * @param messageVersion message version the session was judged at
+     * @param messages number of messages the session holds
+     */
+    public record Candidate(UUID id, String userId, long messageVersion, long messages) {
+
+        public boolean empty() {
+            return messages == 0;
+        }
+    }
+
+    /**
+     * Ids of the next sessions after {@code afterId}, tombstoned ones included, in id order.
+     */
+    public List<UUID> sessionIdsAfter(UUID afterId, int limit) {
+        return jdbcTemplate.queryForList(SESSIONS_AFTER, UUID.class, afterId, limit);
+    }
+
+    /**
+     * The sessions among {@code ids} that the policy selects, judged by the cutoffs of their user if listed in
+     * {@code users}, by {@code defaults} otherwise.
+     */
+    public List<Candidate> findCandidates(List<UUID> ids, Cutoffs defaults, Map<String, Cutoffs> users) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Object[] userIds = users.keySet().toArray();
+        Object[] idleBefore = users.values().stream().map(c -> c.idleBefore().toString()).toArray();
+        Object[] emptyBefore = users.values().stream().map(c -> c.emptyBefore().toString()).toArray();
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(CANDIDATES);
+            ps.setObject(1, OffsetDateTime.ofInstant(defaults.idleBefore(), ZoneOffset.UTC));
+            ps.setObject(2, OffsetDateTime.ofInstant(defaults.emptyBefore(), ZoneOffset.UTC));
+            ps.setArray(3, con.createArrayOf("text", userIds));
+            ps.setArray(4, con.createArrayOf("text", idleBefore));
+            ps.setArray(5, con.createArrayOf("text", emptyBefore));
+            ps.setArray(6, con.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        }, (rs, i) -> new Candidate(
+                rs.getObject("id", UUID.class),
+                rs.getString("user_id"),
+                rs.getLong("message_version"),
+                rs.getLong("messages")));
+    }
+
+    /**
+     * Tombstones the candidates that are still at the message version they were judged at. Candidates locked
+     * by another transaction are skipped, not waited for. Must run in a transaction, which gives up on any
+     * other lock after a short timeout.
+     *
+     * @return ids of the sessions tombstoned
+     */
+    public List<UUID> tombstone(List<Candidate> candidates, Instant deletedAt) {
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '1s'");
+        Object[] ids = candidates.stream().map(Candidate::id).toArray();
+        Object[] versions = candidates.stream().map(Candidate::messageVersion).toArray();
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(TOMBSTONE);
+            ps.setObject(1, OffsetDateTime.ofInstant(deletedAt, ZoneOffset.UTC));
+            ps.setArray(2, con.createArrayOf("uuid", ids));
+            ps.setArray(3, con.createArrayOf("bigint", versions));
+            return ps;
+        }, (rs, i) -> rs.getObject("id", UUID.class));
+    }
+}
@@ -0,0 +1,11 @@
+package com.dge.rag_chat_service.repository;
+
+/**
+ * Projection of the ownership columns of a chat session, including tombstoned sessions.
+ */
+public interface SessionOwnerView {
+
+    String getUserId();
+
+    boolean isDeleted();
+}
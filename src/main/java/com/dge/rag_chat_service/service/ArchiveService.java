@@ -0,0 +1,27 @@
+package com.dge.rag_chat_service.service;
+
+import com.dge.rag_chat_service.dto.ArchiveImportResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Service interface for exporting and importing all sessions and messages of a user, e.g. for tenant
+ * migrations and data access requests. The archive is a ZIP file with one NDJSON entry per session:
+ * the first line is the session, every further line one of its messages.
+ *
+ */
+public interface ArchiveService {
+
+    /**
+     * Service method to export every live session of a user with its messages.
+     *
+     */
+    MessageService.ExportWriter export(String userId);
+
+    /**
+     * Service method to import an archive into the account of {@code userId}, keeping original ids and timestamps.
+     *
+     */
+    ArchiveImportResponse importArchive(InputStream archive, String userId) throws IOException;
+}
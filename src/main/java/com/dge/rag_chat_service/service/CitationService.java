@@ -0,0 +1,24 @@
+package com.dge.rag_chat_service.service;
+
+import com.dge.rag_chat_service.dto.CitedMessageResponse;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.DocumentCitationCount;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Citation Service defines lookups over the documents cited in a user's messages.
+ */
+public interface CitationService {
+
+    /**
+     * Retrieves messages of a user citing a document, newest first, using keyset pagination.
+     */
+    CursorPage<CitedMessageResponse> findMessagesByDocument(String userId, String docId, String after, int size);
+
+    /**
+     * Retrieves the documents cited most often in a user's messages since the given time.
+     */
+    List<DocumentCitationCount> findTopDocuments(String userId, Instant since, int limit);
+}
@@ -0,0 +1,17 @@
+package com.dge.rag_chat_service.service;
+
+import com.dge.rag_chat_service.dto.ContextQueryRequest;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.MessageResponse;
+
+/**
+ * Context Query Service defines queries over the RAG context stored with each message.
+ */
+public interface ContextQueryService {
+
+    /**
+     * Finds messages of a user, or of one of the user's sessions, whose context matches the filter,
+     * newest first, using keyset pagination.
+     */
+    CursorPage<MessageResponse> query(String userId, ContextQueryRequest request);
+}
@@ -1,13 +1,18 @@
 package com.dge.rag_chat_service.service;
 
 import com.dge.rag_chat_service.dto.CreateMessageRequest;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.dto.MessageResponse;
 import org.springframework.data.domain.Page;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Service interface for managing chat messages within a session. It defines methods for adding new messages and retrieving messages with pagination support.
+ * Every operation requires the session to be owned by the given user.
  *
  */
 public interface MessageService {
@@ -16,11 +21,46 @@ public interface MessageService {
      * Service method to add a new message to a chat session.
      *
      */
-    MessageResponse add(UUID sessionId, CreateMessageRequest req);
+    MessageResponse add(UUID sessionId, CreateMessageRequest req, String userId);
+
+    /**
+     * Service method to add several messages to a chat session in one transaction.
+     *
+     */
+    List<MessageResponse> addAll(UUID sessionId, List<CreateMessageRequest> reqs, String userId);
+
+    /**
+     * Version of the messages of a session, changed by every write to them. Reading it costs a primary key lookup
+     * on chat_sessions and does not touch chat_messages.
+     *
+     */
+    long messagesVersion(UUID sessionId, String userId);
 
     /**
      * Service method to get chat messages for a session with pagination support.
      *
      */
-    Page<MessageResponse> list(UUID sessionId, int page, int size);
+    Page<MessageResponse> list(UUID sessionId, int page, int size, String userId);
+
+    /**
+     * Service method to get chat messages for a session using keyset pagination.
+     * At most one of {@code after} and {@code before} may be set; when neither is set the first page is returned.
+     *
+     */
+    CursorPage<MessageResponse> listByCursor(UUID sessionId, String after, String before, int size, String userId);
+
+    /**
+     * Service method to export all messages of a session as NDJSON, oldest first.
+     * Ownership is checked when this method is called; the messages are read when the returned writer runs.
+     *
+     */
+    ExportWriter export(UUID sessionId, String userId);
+
+    /**
+     * Writes an export to a stream, typically the HTTP response body.
+     */
+    @FunctionalInterface
+    interface ExportWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
 }
@@ -0,0 +1,15 @@
+package com.dge.rag_chat_service.service;
+
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.SearchHitResponse;
+
+/**
+ * Search Service defines full-text search over the messages of a user's sessions.
+ */
+public interface SearchService {
+
+    /**
+     * Searches the messages of all live sessions of a user, best matches first, using keyset pagination.
+     */
+    CursorPage<SearchHitResponse> search(String userId, String query, String after, int size);
+}
@@ -1,6 +1,7 @@
 package com.dge.rag_chat_service.service;
 
 import com.dge.rag_chat_service.dto.CreateSessionRequest;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.dto.FavoriteSessionRequest;
 import com.dge.rag_chat_service.dto.RenameSessionRequest;
 import com.dge.rag_chat_service.dto.SessionResponse;
@@ -10,7 +11,7 @@ import java.util.UUID;
 
 /**
  * Session Service defines the operations for managing chat sessions, including creating, renaming, favoriting, and deleting sessions.
- * Each session is associated with a user and can contain multiple messages.
+ * Each session is associated with a user and can contain multiple messages; only its owner may modify it.
  * The service ensures that session management is handled efficiently and provides necessary responses for client interactions.
  *
  */
@@ -21,23 +22,33 @@ public interface SessionService {
      */
     SessionResponse create(CreateSessionRequest req, String userId);
 
+    /**
+     * Version of the sessions of a user, changed by every create, rename, favorite and delete.
+     */
+    long sessionsVersion(String userId);
+
     /**
      * Retrieves all chat sessions for a specific user with pagination support.
      */
     Page<SessionResponse> findAllByUserId(String userId, int page, int size);
 
+    /**
+     * Retrieves chat sessions for a specific user, newest first, using keyset pagination.
+     */
+    CursorPage<SessionResponse> findAllByUserIdByCursor(String userId, String after, int size);
+
     /**
      * Rename the chat session name
      */
-    SessionResponse rename(UUID id, RenameSessionRequest req);
+    SessionResponse rename(UUID id, RenameSessionRequest req, String userId);
 
     /**
      * Update the favorite status of a chat session.
      */
-    SessionResponse favorite(UUID id, FavoriteSessionRequest req);
+    SessionResponse favorite(UUID id, FavoriteSessionRequest req, String userId);
 
     /**
-     * Deletes a chat session and all associated messages.
+     * Deletes a chat session. The session is hidden immediately; its messages are removed in the background.
      */
-    void delete(UUID id);
+    void delete(UUID id, String userId);
 }
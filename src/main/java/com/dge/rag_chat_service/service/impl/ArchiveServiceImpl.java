@@ -0,0 +1,340 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.dto.ArchiveImportResponse;
+import com.dge.rag_chat_service.dto.ArchivedMessage;
+import com.dge.rag_chat_service.dto.SessionResponse;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.dge.rag_chat_service.repository.ChatArchiveRepository;
+import com.dge.rag_chat_service.repository.ChatMessageStreamReader;
+import com.dge.rag_chat_service.service.ArchiveService;
+import com.dge.rag_chat_service.service.MessageService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Service implementation for user archive export and import.
+ *
+ * Exports read all sessions of the user in one read-only, repeatable-read transaction so the archive is a
+ * consistent snapshot, and stream messages straight from the database cursor into the ZIP entries.
+ * Imports read the archive sequentially, spool each entry to a temporary file and hand the session to a fixed
+ * pool of workers, which stream it from there into the database with COPY in its own transaction. At most two
+ * entries per worker are spooled at a time, and entries larger than {@code archive.import.max-entry-size} or
+ * archives larger than {@code archive.import.max-archive-size}, both uncompressed, are rejected.
+ */
+@Slf4j
+@Service
+public class ArchiveServiceImpl implements ArchiveService {
+
+    private static final String ENTRY_SUFFIX = ".ndjson";
+
+    private final ChatArchiveRepository archiveRepository;
+    private final ChatMessageStreamReader streamReader;
+    private final SessionOwnershipCache ownershipCache;
+    private final SessionListVersionCache listVersions;
+    private final ObjectMapper objectMapper;
+    private final ChunkStore chunkStore;
+    private final MessageBodyCodec bodyCodec;
+    private final TransactionTemplate snapshot;
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final DataSize maxEntrySize;
+    private final DataSize maxArchiveSize;
+
+    public ArchiveServiceImpl(ChatArchiveRepository archiveRepository,
+                              ChatMessageStreamReader streamReader,
+                              SessionOwnershipCache ownershipCache,
+                              SessionListVersionCache listVersions,
+                              ObjectMapper objectMapper,
+                              ChunkStore chunkStore,
+                              MessageBodyCodec bodyCodec,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${archive.import.workers:4}") int workerCount,
+                              @Value("${archive.import.max-entry-size:256MB}") DataSize maxEntrySize,
+                              @Value("${archive.import.max-archive-size:4GB}") DataSize maxArchiveSize) {
+        this.archiveRepository = archiveRepository;
+        this.streamReader = streamReader;
+        this.ownershipCache = ownershipCache;
+        this.listVersions = listVersions;
+        this.objectMapper = objectMapper;
+        this.chunkStore = chunkStore;
+        this.bodyCodec = bodyCodec;
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.workerCount = workerCount;
+        this.maxEntrySize = maxEntrySize;
+        this.maxArchiveSize = maxArchiveSize;
+        this.workers = Executors.newFixedThreadPool(workerCount,
+                Thread.ofPlatform().name("archive-import-", 0).factory());
+    }
+
+    /**
+     * Service method to export every live session of a user with its messages.
+     *
+     */
+    @Override
+    public MessageService.ExportWriter export(String userId) {
+
+        log.info("Export archive for userId={}", userId);
+
+        return out -> {
+            ZipOutputStream zip = new ZipOutputStream(out);
+            try {
+                snapshot.executeWithoutResult(status -> {
+                    for (SessionResponse session : archiveRepository.findSessionsByUserId(userId)) {
+                        writeSession(zip, session);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            zip.finish();
+        };
+    }
+
+    private void writeSession(ZipOutputStream zip, SessionResponse session) {
+        try {
+            zip.putNextEntry(new ZipEntry(session.id() + ENTRY_SUFFIX));
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(zip)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                objectMapper.writeValue(generator, session);
+                generator.writeRaw('\n');
+                streamReader.forEachBySessionId(session.id(), rs -> {
+                    try {
+                        MessageJsonWriter.writeRow(generator, rs, chunkStore, bodyCodec);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }, message -> {
+                    try {
+                        MessageJsonWriter.writeMessage(generator, message, chunkStore);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+            zip.closeEntry();
+        } catch (IOException ex) {
+            // Client went away; abort the export
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Service method to import an archive into the account of {@code userId}.
+     * Sessions whose id already exists are skipped; a session that fails is rolled back on its own
+     * and reported, the others are still imported. If the archive itself is rejected partway through,
+     * sessions not started yet are dropped and those being imported are awaited before the error is thrown.
+     *
+     */
+    @Override
+    public ArchiveImportResponse importArchive(InputStream archive, String userId) throws IOException {
+
+        log.info("Import archive for userId={}", userId);
+
+        Semaphore inFlight = new Semaphore(workerCount * 2);
+        AtomicBoolean aborted = new AtomicBoolean();
+        Map<UUID, Future<Long>> results = new LinkedHashMap<>();
+
+        try {
+            ZipInputStream zip = new ZipInputStream(archive);
+            long archiveBytes = 0;
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || !entry.getName().endsWith(ENTRY_SUFFIX)) {
+                    continue;
+                }
+                inFlight.acquire();
+                StagedEntry staged;
+                try {
+                    staged = stage(zip, entry.getName(), maxArchiveSize.toBytes() - archiveBytes);
+                } catch (IOException | RuntimeException ex) {
+                    inFlight.release();
+                    throw ex;
+                }
+                archiveBytes += staged.bytes();
+
+                results.put(staged.session().id(), workers.submit(() -> {
+                    try (staged) {
+                        // Dropped along with the rest of a rejected archive
+                        return aborted.get() ? -1L : archiveRepository.importSession(staged.session(), userId,
+                                withoutChunkRefs(staged.messages()));
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            aborted.set(true);
+            throw new IOException("Archive import interrupted", ex);
+        } catch (IOException | RuntimeException ex) {
+            aborted.set(true);
+            ArchiveImportResponse partial = collect(results, userId);
+            log.warn("Rejected archive for userId={} after importing {} sessions", userId, partial.importedSessions());
+            throw ex;
+        }
+
+        return collect(results, userId);
+    }
+
+    private ArchiveImportResponse collect(Map<UUID, Future<Long>> results, String userId) throws IOException {
+        int imported = 0;
+        long messages = 0;
+        List<UUID> skipped = new ArrayList<>();
+        List<UUID> failed = new ArrayList<>();
+        for (Map.Entry<UUID, Future<Long>> result : results.entrySet()) {
+            try {
+                long copied = result.getValue().get();
+                if (copied < 0) {
+                    skipped.add(result.getKey());
+                } else {
+                    imported++;
+                    messages += copied;
+                    ownershipCache.put(result.getKey(), userId);
+                }
+            } catch (ExecutionException ex) {
+                log.error("Failed to import sessionId={}", result.getKey(), ex.getCause());
+                failed.add(result.getKey());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Archive import interrupted", ex);
+            }
+        }
+
+        if (imported > 0) {
+            // Each session was committed with a bump of the user's version on its own connection
+            listVersions.refresh(userId);
+        }
+        log.info("Imported {} sessions and {} messages for userId={}, skipped={}, failed={}",
+                imported, messages, userId, skipped.size(), failed.size());
+        return new ArchiveImportResponse(imported, messages, skipped, failed);
+    }
+
+    /**
+     * Copies the current entry to a temporary file, within the entry limit and the {@code archiveBudget} left,
+     * and reads its session line.
+     */
+    private StagedEntry stage(ZipInputStream zip, String entryName, long archiveBudget) throws IOException {
+        Path file = Files.createTempFile("archive-import-", ENTRY_SUFFIX);
+        JsonParser parser = null;
+        try {
+            long bytes = 0;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = zip.read(buffer)) > 0) {
+                    bytes += read;
+                    if (bytes > maxEntrySize.toBytes()) {
+                        throw new BadRequestException("Archive entry " + entryName + " is larger than "
+                                + maxEntrySize.toMegabytes() + " MB uncompressed");
+                    }
+                    if (bytes > archiveBudget) {
+                        throw new BadRequestException("Archive is larger than " + maxArchiveSize.toMegabytes()
+                                + " MB uncompressed");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            parser = objectMapper.getFactory().createParser(file.toFile());
+            SessionResponse session = readSession(parser, entryName);
+            MappingIterator<ArchivedMessage> messages = objectMapper.readerFor(ArchivedMessage.class).readValues(parser);
+            return new StagedEntry(file, parser, bytes, session, messages);
+        } catch (IOException | RuntimeException ex) {
+            if (parser != null) {
+                parser.close();
+            }
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+    }
+
+    // Chunk references would resolve to chunk text of other users on read; the session fails instead
+    private static Iterator<ArchivedMessage> withoutChunkRefs(Iterator<ArchivedMessage> messages) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return messages.hasNext();
+            }
+
+            @Override
+            public ArchivedMessage next() {
+                ArchivedMessage message = messages.next();
+                ContextJson.rejectChunkRefs(message.context());
+                return message;
+            }
+        };
+    }
+
+    private SessionResponse readSession(JsonParser parser, String entryName) {
+        try {
+            SessionResponse session = objectMapper.readValue(parser, SessionResponse.class);
+            if (session == null || session.id() == null) {
+                throw new BadRequestException("Archive entry " + entryName + " does not start with a session");
+            }
+            return session;
+        } catch (IOException ex) {
+            throw new BadRequestException("Archive entry " + entryName + " does not start with a session");
+        }
+    }
+
+    /**
+     * An archive entry spooled to disk, with its session read and its messages ready to stream.
+     */
+    private record StagedEntry(Path file, JsonParser parser, long bytes, SessionResponse session,
+                               MappingIterator<ArchivedMessage> messages) implements Closeable {
+
+        @Override
+        public void close() throws IOException {
+            try {
+                parser.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,78 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.dto.CitedMessageResponse;
+import com.dge.rag_chat_service.dto.Cursor;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.DocumentCitationCount;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
+import com.dge.rag_chat_service.service.CitationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service implementation for citation lookups, answered from the message_citations index.
+ *
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CitationServiceImpl implements CitationService {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    private final MessageCitationRepository repository;
+
+    /**
+     * Retrieves messages of a user citing a document, newest first.
+     * One extra row is fetched to detect whether another page exists, so no COUNT query is needed.
+     *
+     */
+    @Override
+    public CursorPage<CitedMessageResponse> findMessagesByDocument(String userId, String docId, String after, int size) {
+        log.info("Get messages citing docId={} for userId={}", docId, userId);
+
+        if (docId == null || docId.isBlank()) {
+            throw new BadRequestException("docId is required");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        Cursor cursor = after != null ? Cursor.decode(after) : null;
+        List<CitedMessageResponse> rows = new ArrayList<>(cursor == null
+                ? repository.findFirstByDocId(userId, docId, size + 1)
+                : repository.findByDocIdBefore(userId, docId, cursor.createdAt(), cursor.id(), size + 1));
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows.remove(rows.size() - 1);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            CitedMessageResponse last = rows.get(rows.size() - 1);
+            nextCursor = new Cursor(last.createdAt(), last.messageId()).encode();
+        }
+
+        return new CursorPage<>(rows, size, nextCursor, null);
+    }
+
+    /**
+     * Retrieves the documents cited most often in a user's messages; all time if {@code since} is null.
+     *
+     */
+    @Override
+    public List<DocumentCitationCount> findTopDocuments(String userId, Instant since, int limit) {
+        log.info("Get top cited documents for userId={} since={}", userId, since);
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return repository.findTopDocuments(userId, since != null ? since : Instant.EPOCH, limit);
+    }
+}
@@ -0,0 +1,84 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for the restricted JSONPath predicates accepted by the context query API.
+ *
+ * Only conjunctions of {@code path op literal} are accepted, where a path is made of member names and
+ * {@code [*]}, and the literal is a string, number, boolean or null. The predicate is rebuilt from the
+ * parsed parts, so nothing the client wrote reaches the database verbatim. An {@code ==} comparison can be
+ * answered by the {@code jsonb_path_ops} index; other operators are only checked on the rows it returns.
+ */
+final class ContextFilter {
+
+    static final int MAX_LENGTH = 512;
+    static final int MAX_COMPARISONS = 8;
+    static final int MAX_DEPTH = 8;
+
+    private static final Pattern COMPARISON = Pattern.compile(
+            "\\s*\\$((?:\\s*(?:\\.\\s*[A-Za-z_][A-Za-z0-9_]*|\\[\\s*\\*\\s*]))+)\\s*(==|!=|<=|>=|<|>)\\s*"
+                    + "(\"(?:[^\"\\\\]|\\\\[\"\\\\bfnrt])*\"|-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?|true|false|null)\\s*");
+
+    private static final Pattern STEP = Pattern.compile("\\.\\s*([A-Za-z_][A-Za-z0-9_]*)|\\[\\s*\\*\\s*]");
+
+    /**
+     * A parsed predicate.
+     *
+     * @param jsonPath canonical predicate to bind as {@code jsonpath}
+     * @param indexable whether at least one comparison can be answered by the index
+     */
+    record Parsed(String jsonPath, boolean indexable) {}
+
+    private ContextFilter() {
+    }
+
+    static Parsed parse(String predicate) {
+        if (predicate.length() > MAX_LENGTH) {
+            throw new BadRequestException("Context path must be at most " + MAX_LENGTH + " characters");
+        }
+        List<String> comparisons = new ArrayList<>();
+        boolean indexable = false;
+        Matcher m = COMPARISON.matcher(predicate);
+        int pos = 0;
+        while (true) {
+            m.region(pos, predicate.length());
+            if (!m.lookingAt()) {
+                throw new BadRequestException("Unsupported context path at position " + pos
+                        + "; expected comparisons like $.documents[*].id == \"doc-1\" joined with &&");
+            }
+            if (comparisons.size() == MAX_COMPARISONS) {
+                throw new BadRequestException("Context path may combine at most " + MAX_COMPARISONS + " comparisons");
+            }
+            comparisons.add("$" + steps(m.group(1)) + " " + m.group(2) + " " + m.group(3));
+            indexable |= m.group(2).equals("==");
+            pos = m.end();
+            if (pos == predicate.length()) {
+                break;
+            }
+            if (!predicate.startsWith("&&", pos)) {
+                throw new BadRequestException("Unsupported context path at position " + pos + "; only && may join comparisons");
+            }
+            pos += 2;
+        }
+        return new Parsed(String.join(" && ", comparisons), indexable);
+    }
+
+    private static String steps(String raw) {
+        StringBuilder out = new StringBuilder();
+        Matcher m = STEP.matcher(raw);
+        int depth = 0;
+        while (m.find()) {
+            if (++depth > MAX_DEPTH) {
+                throw new BadRequestException("Context path may be at most " + MAX_DEPTH + " steps deep");
+            }
+            out.append(m.group(1) != null ? ".\"" + m.group(1) + "\"" : "[*]");
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.dto.ContextQueryRequest;
+import com.dge.rag_chat_service.dto.Cursor;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.MessageResponse;
+import com.dge.rag_chat_service.dto.RawJson;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.dge.rag_chat_service.repository.MessageContextQueryRepository;
+import com.dge.rag_chat_service.service.ContextQueryService;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service implementation for context queries.
+ *
+ * A filter is only accepted if the {@code jsonb_path_ops} index can narrow it down: a containment value with at
+ * least one scalar, or an {@code ==} comparison in the path. Filters with only range or inequality comparisons
+ * would have to read every message of the user and are accepted only within a single session, where the
+ * session index bounds the rows read. A filter that still runs too long is cancelled by the statement timeout.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContextQueryServiceImpl implements ContextQueryService {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_CONTAINS_LENGTH = 4096;
+
+    private final MessageContextQueryRepository repository;
+
+    private final SessionOwnershipCache ownershipCache;
+
+    private final ChunkStore chunkStore;
+
+    /**
+     * Finds messages whose context matches the filter, newest first.
+     * One extra row is fetched to detect whether another page exists, so no COUNT query is needed.
+     *
+     */
+    @Override
+    public CursorPage<MessageResponse> query(String userId, ContextQueryRequest request) {
+        log.info("Query messages by context for userId={}, sessionId={}", userId, request.sessionId());
+
+        int size = request.size() != null ? request.size() : DEFAULT_PAGE_SIZE;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String contains = containsFilter(request.contains());
+        ContextFilter.Parsed path = request.path() != null && !request.path().isBlank()
+                ? ContextFilter.parse(request.path())
+                : null;
+        if (contains == null && path == null) {
+            throw new BadRequestException("Either contains or path is required");
+        }
+        boolean indexable = contains != null || path.indexable();
+        if (!indexable && request.sessionId() == null) {
+            throw new BadRequestException("Filter cannot use the context index: add a contains value or an == "
+                    + "comparison, or restrict the query to a sessionId");
+        }
+        Cursor cursor = request.after() != null ? Cursor.decode(request.after()) : null;
+
+        if (request.sessionId() != null) {
+            ownershipCache.requireOwned(request.sessionId(), userId);
+        }
+
+        List<MessageResponse> rows;
+        try {
+            rows = new ArrayList<>(repository.find(userId, request.sessionId(), contains,
+                    path != null ? path.jsonPath() : null,
+                    cursor != null ? cursor.createdAt() : null,
+                    cursor != null ? cursor.id() : null,
+                    size + 1));
+        } catch (QueryTimeoutException ex) {
+            log.warn("Context query timed out for userId={}, path={}", userId, request.path());
+            throw new BadRequestException("Filter is too broad to answer in time; make it more selective");
+        }
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows.remove(rows.size() - 1);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            MessageResponse last = rows.get(rows.size() - 1);
+            nextCursor = new Cursor(last.createdAt(), last.id()).encode();
+        }
+
+        return new CursorPage<>(withChunks(rows), size, nextCursor, null);
+    }
+
+    private List<MessageResponse> withChunks(List<MessageResponse> rows) {
+        List<String> contexts = chunkStore.hydrateJsonAll(rows.stream()
+                .map(m -> m.context() != null ? m.context().json() : null)
+                .collect(Collectors.toCollection(ArrayList::new)));
+        List<MessageResponse> result = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            MessageResponse m = rows.get(i);
+            result.add(new MessageResponse(m.id(), m.sender(), m.message(), RawJson.of(contexts.get(i)),
+                    m.contextStripped(), m.createdAt()));
+        }
+        return result;
+    }
+
+    /**
+     * Validates the containment value; the index can only use it if it names at least one scalar.
+     */
+    private static String containsFilter(JsonNode contains) {
+        if (contains == null || contains.isNull()) {
+            return null;
+        }
+        if (!contains.isContainerNode() || !hasScalar(contains)) {
+            throw new BadRequestException("contains must be a JSON object or array with at least one value");
+        }
+        String json = contains.toString();
+        if (json.length() > MAX_CONTAINS_LENGTH) {
+            throw new BadRequestException("contains must be at most " + MAX_CONTAINS_LENGTH + " characters");
+        }
+        return json;
+    }
+
+    private static boolean hasScalar(JsonNode node) {
+        if (node.isValueNode()) {
+            return true;
+        }
+        for (JsonNode child : node) {
+            if (hasScalar(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.entity.ChatMessage;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Writes a chat_messages row, or a message of a cold block, as one NDJSON line in the {@code MessageResponse} shape.
+ * The jsonb context is copied as raw JSON, with chunk references resolved; compressed bodies are decoded.
+ */
+final class MessageJsonWriter {
+
+    private MessageJsonWriter() {
+    }
+
+    static void writeRow(JsonGenerator generator, ResultSet rs, ChunkStore chunkStore, MessageBodyCodec bodyCodec) throws IOException, SQLException {
+        write(generator, rs.getObject("id", UUID.class), rs.getString("sender"), bodyCodec.decode(rs.getString("message")),
+                rs.getString("context"), rs.getObject("created_at", OffsetDateTime.class).toInstant(), chunkStore);
+    }
+
+    /**
+     * Writes a message read from a cold block, whose body is already decoded.
+     */
+    static void writeMessage(JsonGenerator generator, ChatMessage message, ChunkStore chunkStore) throws IOException {
+        write(generator, message.getId(), message.getSender().name(), message.getMessage(), message.getContext(),
+                message.getCreatedAt(), chunkStore);
+    }
+
+    private static void write(JsonGenerator generator, UUID id, String sender, String body, String context,
+                              Instant createdAt, ChunkStore chunkStore) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", id.toString());
+        generator.writeStringField("sender", sender);
+        generator.writeStringField("message", body);
+        generator.writeFieldName("context");
+        if (context == null) {
+            generator.writeNull();
+        } else {
+            generator.writeRawValue(chunkStore.hydrateJson(context));
+        }
+        generator.writeStringField("createdAt", createdAt.toString());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
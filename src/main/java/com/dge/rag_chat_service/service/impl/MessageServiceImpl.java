@@ -1,22 +1,49 @@
 package com.dge.rag_chat_service.service.impl;
 
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.cold.ColdSessionStore;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.dto.Cursor;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.entity.ChatMessage;
 import com.dge.rag_chat_service.entity.ChatSession;
-import com.dge.rag_chat_service.exception.ResourceNotFoundException;
+import com.dge.rag_chat_service.entity.MessageCitation;
+import com.dge.rag_chat_service.exception.BadRequestException;
 import com.dge.rag_chat_service.dto.CreateMessageRequest;
 import com.dge.rag_chat_service.dto.MessageResponse;
+import com.dge.rag_chat_service.dto.RawJson;
 import com.dge.rag_chat_service.repository.ChatMessageRepository;
+import com.dge.rag_chat_service.repository.ChatMessageStreamReader;
+import com.dge.rag_chat_service.repository.ListVersionRepository;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
 import com.dge.rag_chat_service.repository.ChatSessionRepository;
 import com.dge.rag_chat_service.service.MessageService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Service implementation for managing chat messages within a session. It defines methods for adding new messages and retrieving messages with pagination support.
@@ -27,47 +54,128 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class MessageServiceImpl implements MessageService {
 
+    static final int MAX_PAGE_SIZE = 100;
+
     private final ChatMessageRepository repository;
 
     private final ChatSessionRepository sessionRepository;
 
+    private final SessionOwnershipCache ownershipCache;
+
+    private final ChatMessageStreamReader streamReader;
+
+    private final ObjectMapper objectMapper;
+
+    private final CitationExtractor citationExtractor;
+
+    private final MessageCitationRepository citationRepository;
+
+    private final ChunkStore chunkStore;
+
+    private final MessageBodyCodec bodyCodec;
+
+    private final ContextJson contextJson;
+
+    private final ListVersionRepository versionRepository;
+
+    private final ColdSessionStore coldSessions;
+
     /**
      * Service method to add a new message to a chat session.
+     * Ownership is checked against the session cache, and the session is attached as a reference,
+     * so a cache hit costs a single INSERT, plus one each for the citations and the chunks found in the context,
+     * the UPDATE that bumps the session's message version, and the statement that moves the messages of an
+     * archived session back to the hot table.
      *
      */
     @Override
-    public MessageResponse add(UUID sessionId, CreateMessageRequest req) {
+    @Transactional
+    public MessageResponse add(UUID sessionId, CreateMessageRequest req, String userId) {
 
         log.info("Save chat message for sessionId={} and request={}", sessionId, req);
 
-        ChatSession session = sessionRepository.findById(sessionId)
-                .orElseThrow(() ->
-                        new ResourceNotFoundException("Session not found"));
+        contextJson.validate(req.context());
+        ownershipCache.requireOwned(sessionId, userId);
+        ChatSession session = sessionRepository.getReferenceById(sessionId);
 
         ChatMessage m = ChatMessage.builder()
                 .session(session)
                 .sender(req.sender())
                 .message(req.message())
-                .context(req.context())
+                .context(contextJson.write(chunkStore.dehydrate(req.context())))
                 .build();
-        return getMessageResponse(repository.save(m));
+        ChatMessage saved = repository.save(m);
+        citationRepository.insertAll(citationExtractor.extract(
+                saved.getId(), sessionId, saved.getCreatedAt(), req.context()));
+        versionRepository.bumpSession(sessionId);
+        coldSessions.thaw(List.of(sessionId));
+        return getMessageResponse(saved);
+    }
+
+    /**
+     * Service method to add several messages to a chat session in one transaction.
+     * Ownership is checked once; the inserts are sent as JDBC batches.
+     * Each message gets a distinct, increasing timestamp so the request order is kept when listing.
+     *
+     */
+    @Override
+    @Transactional
+    public List<MessageResponse> addAll(UUID sessionId, List<CreateMessageRequest> reqs, String userId) {
+
+        log.info("Save {} chat messages for sessionId={}", reqs.size(), sessionId);
+
+        reqs.forEach(req -> contextJson.validate(req.context()));
+        ownershipCache.requireOwned(sessionId, userId);
+        ChatSession session = sessionRepository.getReferenceById(sessionId);
+
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<Map<String, Object>> contexts = chunkStore.dehydrateAll(
+                reqs.stream().map(CreateMessageRequest::context).collect(Collectors.toCollection(ArrayList::new)));
+        List<ChatMessage> messages = new ArrayList<>(reqs.size());
+        for (int i = 0; i < reqs.size(); i++) {
+            CreateMessageRequest req = reqs.get(i);
+            messages.add(ChatMessage.builder()
+                    .session(session)
+                    .sender(req.sender())
+                    .message(req.message())
+                    .context(contextJson.write(contexts.get(i)))
+                    .createdAt(now.plus(i, ChronoUnit.MICROS))
+                    .build());
+        }
+        List<ChatMessage> saved = repository.saveAll(messages);
+        List<MessageCitation> citations = new ArrayList<>();
+        for (int i = 0; i < saved.size(); i++) {
+            ChatMessage m = saved.get(i);
+            citations.addAll(citationExtractor.extract(m.getId(), sessionId, m.getCreatedAt(), reqs.get(i).context()));
+        }
+        citationRepository.insertAll(citations);
+        versionRepository.bumpSession(sessionId);
+        coldSessions.thaw(List.of(sessionId));
+        return toResponses(saved);
+    }
+
+    /**
+     * Service method to get the version of a session's messages after checking ownership.
+     *
+     */
+    @Override
+    public long messagesVersion(UUID sessionId, String userId) {
+        ownershipCache.requireOwned(sessionId, userId);
+        return versionRepository.sessionVersion(sessionId);
     }
 
     /**
      * Service method to get chat messages for a session with pagination support.
+     * A session without hot messages may be archived; its page is then cut from the cold block.
      *
      */
     @Override
-    public Page<MessageResponse> list(UUID sessionId, int page, int size) {
+    public Page<MessageResponse> list(UUID sessionId, int page, int size, String userId) {
 
         log.info("Get paginated chat messages for sessionId={}", sessionId);
 
-        // Validate session exists
-        if (!sessionRepository.existsById(sessionId)) {
-            log.error("Session not found for sessionId={}", sessionId);
-            throw new ResourceNotFoundException(
-                    "Session not found with id: " + sessionId);
-        }
+        // Validate session exists and belongs to the caller
+        ownershipCache.requireOwned(sessionId, userId);
 
         // Sorting by creation time (Oldest ->Newest)
         Pageable pageable = PageRequest.of(
@@ -76,11 +184,176 @@ public class MessageServiceImpl implements MessageService {
                 Sort.by(Sort.Direction.ASC, "createdAt")
         );
 
-        return repository.findBySessionId(sessionId, pageable).map(this::getMessageResponse);
+        Page<ChatMessage> rows = repository.findBySessionId(sessionId, pageable);
+        if (rows.getTotalElements() == 0) {
+            List<ChatMessage> cold = coldSessions.read(sessionId);
+            int from = (int) Math.min(pageable.getOffset(), cold.size());
+            int to = Math.min(from + size, cold.size());
+            return new PageImpl<>(toResponses(cold.subList(from, to)), pageable, cold.size());
+        }
+        return new PageImpl<>(toResponses(rows.getContent()), rows.getPageable(), rows.getTotalElements());
+    }
+
+    /**
+     * Service method to get chat messages for a session using keyset pagination.
+     * One extra row is fetched to detect whether another page exists, so no COUNT query is needed.
+     * Cursor pages also fetch the cursor row itself: while it is hot the session is hot, so an empty page, such
+     * as a poll for new messages, needs no look at the cold archive. Only when neither the cursor row nor any
+     * row of the page is hot, the session may be archived and the page is cut from the cold block the same way.
+     *
+     */
+    @Override
+    public CursorPage<MessageResponse> listByCursor(UUID sessionId, String after, String before, int size, String userId) {
+
+        log.info("Get cursor paginated chat messages for sessionId={}", sessionId);
+
+        if (after != null && before != null) {
+            throw new BadRequestException("Only one of 'after' and 'before' may be set");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        ownershipCache.requireOwned(sessionId, userId);
+
+        List<ChatMessage> rows;
+        boolean hasMore;
+        String nextCursor;
+        String previousCursor;
+
+        if (before != null) {
+            Cursor cursor = Cursor.decode(before);
+            List<ChatMessage> hot = repository.findBySessionIdUntil(
+                    sessionId, cursor.createdAt(), cursor.id(), size + 2);
+            rows = hot.isEmpty()
+                    ? coldRows(sessionId, m -> compare(m, cursor) < 0, true, size + 1)
+                    : pastCursor(hot, cursor, size + 1);
+            hasMore = rows.size() > size;
+            if (hasMore) {
+                rows.remove(rows.size() - 1);
+            }
+            // Rows come back newest first; restore chronological order
+            Collections.reverse(rows);
+            // The next page starts right after the last row shown, which is older than the cursor row itself
+            nextCursor = rows.isEmpty() ? before : cursorOf(rows.get(rows.size() - 1));
+            previousCursor = hasMore ? cursorOf(rows.get(0)) : null;
+        } else {
+            Cursor cursor = after != null ? Cursor.decode(after) : null;
+            List<ChatMessage> hot = cursor == null
+                    ? repository.findFirstBySessionId(sessionId, size + 1)
+                    : repository.findBySessionIdFrom(sessionId, cursor.createdAt(), cursor.id(), size + 2);
+            if (hot.isEmpty()) {
+                rows = coldRows(sessionId, m -> cursor == null || compare(m, cursor) > 0, false, size + 1);
+            } else {
+                rows = cursor == null ? new ArrayList<>(hot) : pastCursor(hot, cursor, size + 1);
+            }
+            hasMore = rows.size() > size;
+            if (hasMore) {
+                rows.remove(rows.size() - 1);
+            }
+            nextCursor = hasMore ? cursorOf(rows.get(rows.size() - 1)) : null;
+            previousCursor = cursor != null && !rows.isEmpty() ? cursorOf(rows.get(0)) : null;
+        }
+
+        return new CursorPage<>(toResponses(rows), size, nextCursor, previousCursor);
+    }
+
+    /**
+     * Service method to export all messages of a session as NDJSON.
+     * Rows are copied from the JDBC cursor straight into the JSON generator; the stored context is already
+     * JSON and is written as is unless it references stored chunks, so no entities or response objects are built.
+     *
+     */
+    @Override
+    public ExportWriter export(UUID sessionId, String userId) {
+
+        log.info("Export chat messages for sessionId={}", sessionId);
+
+        ownershipCache.requireOwned(sessionId, userId);
+
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // Lines are separated by the newline written after each; no extra space before the next
+                generator.setRootValueSeparator(null);
+                streamReader.forEachBySessionId(sessionId, rs -> {
+                    try {
+                        MessageJsonWriter.writeRow(generator, rs, chunkStore, bodyCodec);
+                    } catch (IOException ex) {
+                        // Client went away; abort the query
+                        throw new UncheckedIOException(ex);
+                    }
+                }, message -> {
+                    try {
+                        MessageJsonWriter.writeMessage(generator, message, chunkStore);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+    }
+
+    /**
+     * Messages of a cold session matching {@code filter}, as the keyset queries return them: the {@code limit}
+     * oldest, or newest first if {@code newestFirst}.
+     */
+    private List<ChatMessage> coldRows(UUID sessionId, Predicate<ChatMessage> filter, boolean newestFirst, int limit) {
+        List<ChatMessage> rows = new ArrayList<>(coldSessions.read(sessionId).stream().filter(filter).toList());
+        if (newestFirst) {
+            Collections.reverse(rows);
+        }
+        return new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+    }
+
+    /**
+     * Rows of a keyset query that includes the cursor position, without the cursor row, at most {@code limit}.
+     */
+    private static List<ChatMessage> pastCursor(List<ChatMessage> rows, Cursor cursor, int limit) {
+        int from = rows.get(0).getId().equals(cursor.id()) ? 1 : 0;
+        return new ArrayList<>(rows.subList(from, Math.min(rows.size(), from + limit)));
+    }
+
+    /**
+     * Orders a message against a cursor like PostgreSQL orders (created_at, id); uuids compare as unsigned bytes.
+     */
+    private static int compare(ChatMessage m, Cursor cursor) {
+        int cmp = m.getCreatedAt().compareTo(cursor.createdAt());
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(m.getId().getMostSignificantBits(), cursor.id().getMostSignificantBits());
+        }
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(m.getId().getLeastSignificantBits(), cursor.id().getLeastSignificantBits());
+        }
+        return cmp;
+    }
+
+    private String cursorOf(ChatMessage chatMessage) {
+        return new Cursor(chatMessage.getCreatedAt(), chatMessage.getId()).encode();
     }
 
     MessageResponse getMessageResponse (ChatMessage chatMessage){
-        return new MessageResponse(chatMessage.getId(),chatMessage.getSender(), chatMessage.getMessage(), chatMessage.getContext(), chatMessage.getCreatedAt());
+        return toResponse(chatMessage, chunkStore.hydrateJson(chatMessage.getContext()));
+    }
+
+    /**
+     * Builds the responses of a page, resolving the chunks of all contexts with at most one query.
+     */
+    private List<MessageResponse> toResponses(List<ChatMessage> messages) {
+        List<String> contexts = chunkStore.hydrateJsonAll(
+                messages.stream().map(ChatMessage::getContext).collect(Collectors.toCollection(ArrayList::new)));
+        List<MessageResponse> responses = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            responses.add(toResponse(messages.get(i), contexts.get(i)));
+        }
+        return responses;
+    }
+
+    private static MessageResponse toResponse(ChatMessage chatMessage, String context) {
+        return new MessageResponse(chatMessage.getId(),chatMessage.getSender(), chatMessage.getMessage(), RawJson.of(context),
+                ContextJson.isStripped(context), chatMessage.getCreatedAt());
     }
 
 }
@@ -0,0 +1,66 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.SearchCursor;
+import com.dge.rag_chat_service.dto.SearchHitResponse;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.dge.rag_chat_service.repository.MessageSearchRepository;
+import com.dge.rag_chat_service.service.SearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service implementation for full-text message search.
+ *
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchServiceImpl implements SearchService {
+
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_QUERY_LENGTH = 256;
+
+    private final MessageSearchRepository repository;
+
+    /**
+     * Searches the messages of all live sessions of a user, best matches first.
+     * One extra row is fetched to detect whether another page exists, so no COUNT query is needed.
+     *
+     */
+    @Override
+    public CursorPage<SearchHitResponse> search(String userId, String query, String after, int size) {
+        log.info("Search messages for userId={}", userId);
+
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Search query must not be blank");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new BadRequestException("Search query must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        SearchCursor cursor = after != null ? SearchCursor.decode(after) : null;
+        List<SearchHitResponse> rows = new ArrayList<>(cursor == null
+                ? repository.searchFirst(userId, query, size + 1)
+                : repository.searchAfter(userId, query, cursor.rank(), cursor.id(), size + 1));
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows.remove(rows.size() - 1);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            SearchHitResponse last = rows.get(rows.size() - 1);
+            nextCursor = new SearchCursor(last.rank(), last.messageId()).encode();
+        }
+
+        return new CursorPage<>(rows, size, nextCursor, null);
+    }
+}
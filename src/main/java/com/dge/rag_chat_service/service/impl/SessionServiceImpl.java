@@ -1,7 +1,12 @@
 package com.dge.rag_chat_service.service.impl;
 
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.dto.Cursor;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.dto.FavoriteSessionRequest;
 import com.dge.rag_chat_service.entity.ChatSession;
+import com.dge.rag_chat_service.exception.BadRequestException;
 import com.dge.rag_chat_service.exception.ResourceNotFoundException;
 import com.dge.rag_chat_service.dto.CreateSessionRequest;
 import com.dge.rag_chat_service.dto.RenameSessionRequest;
@@ -15,7 +20,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -30,10 +40,17 @@ public class SessionServiceImpl implements SessionService {
 
     private final ChatSessionRepository repository;
 
+    private final SessionOwnershipCache ownershipCache;
+
+    private final SessionListVersionCache listVersions;
+
+    private final TransactionOperations transactions;
+
     /**
      * Creates a new chat session for a user.
      */
     @Override
+    @Transactional
     public SessionResponse create(CreateSessionRequest req, String userId) {
 
         log.info("Create session for request={}", req);
@@ -41,7 +58,18 @@ public class SessionServiceImpl implements SessionService {
                 .userId(userId)
                 .name(req.name() != null ? req.name() : "New Chat")
                 .build();
-        return getSessionResponse(repository.save(session));
+        ChatSession saved = repository.save(session);
+        listVersions.bump(userId);
+        ownershipCache.put(saved.getId(), userId);
+        return getSessionResponse(saved);
+    }
+
+    /**
+     * Version of the sessions of a user, usually answered from the near cache without a round trip.
+     */
+    @Override
+    public long sessionsVersion(String userId) {
+        return listVersions.get(userId);
     }
 
     /**
@@ -61,38 +89,83 @@ public class SessionServiceImpl implements SessionService {
         return repository.findByUserId(userId, pageable).map(this::getSessionResponse);
     }
 
+    /**
+     * Retrieves chat sessions for a specific user, newest first, using keyset pagination.
+     * One extra row is fetched to detect whether another page exists, so no COUNT query is needed.
+     *
+     */
+    @Override
+    public CursorPage<SessionResponse> findAllByUserIdByCursor(String userId, String after, int size) {
+        log.info("Get cursor paginated chat sessions for userid={}", userId);
+
+        if (size < 1) {
+            throw new BadRequestException("Page size must be at least 1");
+        }
+
+        Cursor cursor = after != null ? Cursor.decode(after) : null;
+        List<ChatSession> rows = new ArrayList<>(cursor == null
+                ? repository.findFirstByUserId(userId, size + 1)
+                : repository.findByUserIdBefore(userId, cursor.createdAt(), cursor.id(), size + 1));
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows.remove(rows.size() - 1);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            ChatSession last = rows.get(rows.size() - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return new CursorPage<>(rows.stream().map(this::getSessionResponse).toList(), size, nextCursor, null);
+    }
+
     /**
      * Rename the chat session name
      */
     @Override
-    public SessionResponse rename(UUID id, RenameSessionRequest req) {
+    @Transactional
+    public SessionResponse rename(UUID id, RenameSessionRequest req, String userId) {
         log.info("Rename session for id={} and request={}", id, req);
+        ownershipCache.requireOwned(id, userId);
         ChatSession session = getSession(id);
         session.setName(req.name());
-        return getSessionResponse(repository.save(session));
+        ChatSession saved = repository.save(session);
+        listVersions.bump(userId);
+        return getSessionResponse(saved);
     }
 
     /**
      * Update the favorite status of a chat session.
      */
     @Override
-    public SessionResponse favorite(UUID id, FavoriteSessionRequest req) {
+    @Transactional
+    public SessionResponse favorite(UUID id, FavoriteSessionRequest req, String userId) {
         log.info("Update favorite session for id={} and favorite={}", id, req.favorite());
+        ownershipCache.requireOwned(id, userId);
         ChatSession session = getSession(id);
         session.setFavorite(req.favorite());
-        return getSessionResponse(repository.save(session));
+        ChatSession saved = repository.save(session);
+        listVersions.bump(userId);
+        return getSessionResponse(saved);
     }
 
     /**
-     * Deletes a chat session and all associated messages.
+     * Deletes a chat session by marking it as a tombstone in a single UPDATE.
+     * Messages are not loaded here; the session reaper removes them in bounded chunks.
+     * The tombstone is broadcast to the ownership cache on every node once it is committed.
      */
-
     @Override
-    public void delete(UUID id) {
+    public void delete(UUID id, String userId) {
         log.info("Delete session for id={}", id);
-        ChatSession session = getSession(id);
-
-        repository.delete(session);
+        ownershipCache.requireOwned(id, userId);
+        transactions.executeWithoutResult(status -> {
+            if (repository.markDeleted(id, Instant.now()) == 0) {
+                throw new ResourceNotFoundException("Session not found");
+            }
+            listVersions.bump(userId);
+        });
+        ownershipCache.markDeleted(id, userId);
     }
 
     private ChatSession getSession(UUID id) {
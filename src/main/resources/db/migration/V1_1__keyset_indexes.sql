@@ -0,0 +1,6 @@
+-- Keyset pagination of messages per session and of sessions per user.
+-- idx_user_id is a prefix of idx_user_created_id.
+
+CREATE INDEX IF NOT EXISTS idx_session_created_id ON chat_messages (session_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_user_created_id ON chat_sessions (user_id, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_user_id;
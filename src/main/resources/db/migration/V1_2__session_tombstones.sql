@@ -0,0 +1,5 @@
+-- Deleted sessions are tombstoned and their messages reaped in the background by SessionReaper.
+
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS deleted_at timestamp with time zone;
+
+CREATE INDEX IF NOT EXISTS idx_deleted_at ON chat_sessions (deleted_at);
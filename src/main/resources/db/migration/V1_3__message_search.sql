@@ -0,0 +1,8 @@
+-- Full-text search over messages and indexed filters on their RAG context, formerly added at startup by
+-- SearchSchemaInitializer. Adding the generated column rewrites chat_messages once.
+
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS message_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english'::regconfig, message)) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_message_tsv ON chat_messages USING gin (message_tsv);
+CREATE INDEX IF NOT EXISTS idx_message_context ON chat_messages USING gin (context jsonb_path_ops);
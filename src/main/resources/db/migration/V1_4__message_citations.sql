@@ -0,0 +1,13 @@
+-- Documents and chunks cited by each message, for citation lookups and rollups.
+
+CREATE TABLE IF NOT EXISTS message_citations (
+    chunk_id   varchar(255)             NOT NULL,
+    doc_id     varchar(255)             NOT NULL,
+    message_id uuid                     NOT NULL,
+    session_id uuid                     NOT NULL,
+    created_at timestamp with time zone NOT NULL,
+    CONSTRAINT message_citations_pkey PRIMARY KEY (chunk_id, doc_id, message_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_citation_doc_created ON message_citations (doc_id, created_at DESC, message_id DESC);
+CREATE INDEX IF NOT EXISTS idx_citation_session_doc ON message_citations (session_id, doc_id);
@@ -0,0 +1,8 @@
+-- Context chunk text stored once and referenced from message contexts by its SHA-256.
+
+CREATE TABLE IF NOT EXISTS context_chunks (
+    hash       varchar(64)              NOT NULL,
+    content    text                     NOT NULL,
+    created_at timestamp with time zone NOT NULL,
+    CONSTRAINT context_chunks_pkey PRIMARY KEY (hash)
+);
@@ -0,0 +1,9 @@
+-- Versions behind the ETags of message and session lists, bumped on every write.
+
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS message_version bigint DEFAULT 0 NOT NULL;
+
+CREATE TABLE IF NOT EXISTS chat_user_versions (
+    user_id varchar(255) NOT NULL,
+    version bigint       NOT NULL,
+    CONSTRAINT chat_user_versions_pkey PRIMARY KEY (user_id)
+);
@@ -0,0 +1,29 @@
+-- Schema as created by Hibernate (ddl-auto: update) in the last release before the migrations.
+-- Databases that already have it are baselined at this version and start from V1_1. Later additions may have
+-- reached them through ddl-auto as well, so the migrations up to V2 only create what is missing.
+
+CREATE TABLE chat_sessions (
+    id         uuid                     NOT NULL,
+    user_id    varchar(255),
+    name       varchar(255),
+    favorite   boolean                  NOT NULL,
+    created_at timestamp with time zone,
+    updated_at timestamp with time zone,
+    CONSTRAINT chat_sessions_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_user_id ON chat_sessions (user_id);
+
+CREATE TABLE chat_messages (
+    id         uuid                     NOT NULL,
+    session_id uuid                     NOT NULL,
+    sender     varchar(255)             NOT NULL,
+    message    text                     NOT NULL,
+    context    jsonb,
+    created_at timestamp with time zone NOT NULL,
+    CONSTRAINT chat_messages_pkey PRIMARY KEY (id),
+    CONSTRAINT chat_messages_sender_check CHECK (sender IN ('USER', 'AI')),
+    CONSTRAINT fk_chat_messages_session FOREIGN KEY (session_id) REFERENCES chat_sessions (id)
+);
+
+CREATE INDEX idx_session_id ON chat_messages (session_id);
@@ -0,0 +1,69 @@
+-- Turns chat_messages into a table range-partitioned by month of created_at (UTC).
+--
+-- Rows are copied into the new table, so this rewrites chat_messages once and holds it locked meanwhile;
+-- run it in a maintenance window on large installations. Partitions for the months of existing data and the
+-- next three months are created here; PartitionMaintenanceJob keeps creating them ahead afterwards.
+-- Rows outside every monthly range land in chat_messages_default, which the job moves out again.
+
+ALTER TABLE chat_messages RENAME TO chat_messages_unpartitioned;
+ALTER TABLE chat_messages_unpartitioned DROP CONSTRAINT chat_messages_pkey;
+DROP INDEX IF EXISTS idx_session_created_id;
+DROP INDEX IF EXISTS idx_message_tsv;
+DROP INDEX IF EXISTS idx_message_context;
+
+-- The primary key of a partitioned table must contain the partition key
+CREATE TABLE chat_messages (
+    id          uuid                     NOT NULL,
+    session_id  uuid                     NOT NULL,
+    sender      varchar(255)             NOT NULL,
+    message     text                     NOT NULL,
+    context     jsonb,
+    created_at  timestamp with time zone NOT NULL,
+    message_tsv tsvector GENERATED ALWAYS AS (to_tsvector('english'::regconfig, message)) STORED,
+    CONSTRAINT chat_messages_sender_check CHECK (sender IN ('USER', 'AI'))
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE chat_messages_default PARTITION OF chat_messages DEFAULT;
+
+DO $$
+DECLARE
+    month      timestamp := date_trunc('month',
+                   coalesce((SELECT min(created_at) FROM chat_messages_unpartitioned), now()) AT TIME ZONE 'UTC');
+    last_month timestamp := date_trunc('month', (now() AT TIME ZONE 'UTC') + interval '3 months');
+BEGIN
+    WHILE month <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF chat_messages FOR VALUES FROM (%L) TO (%L)',
+                       'chat_messages_' || to_char(month, '"y"YYYY"m"MM'),
+                       month AT TIME ZONE 'UTC', (month + interval '1 month') AT TIME ZONE 'UTC');
+        month := month + interval '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO chat_messages (id, session_id, sender, message, context, created_at)
+SELECT id, session_id, sender, message, context, created_at
+FROM chat_messages_unpartitioned;
+
+-- Lower bound of the created_at of a session's messages, so listings can skip older partitions.
+-- New sessions get their creation time less a margin for clock skew between the nodes stamping messages;
+-- archive import and bulk load lower it to the oldest message they write.
+ALTER TABLE chat_sessions
+    ADD COLUMN messages_from timestamp with time zone DEFAULT now() - interval '1 hour' NOT NULL;
+
+UPDATE chat_sessions s SET messages_from = least(s.messages_from, m.first_created_at)
+FROM (SELECT session_id, min(created_at) AS first_created_at
+      FROM chat_messages_unpartitioned
+      GROUP BY session_id) m
+WHERE m.session_id = s.id;
+
+DROP TABLE chat_messages_unpartitioned;
+
+ALTER TABLE chat_messages ADD CONSTRAINT chat_messages_pkey PRIMARY KEY (id, created_at);
+ALTER TABLE chat_messages ADD CONSTRAINT fk_chat_messages_session
+    FOREIGN KEY (session_id) REFERENCES chat_sessions (id);
+
+CREATE INDEX idx_session_created_id ON chat_messages (session_id, created_at, id);
+CREATE INDEX idx_message_tsv ON chat_messages USING gin (message_tsv);
+CREATE INDEX idx_message_context ON chat_messages USING gin (context jsonb_path_ops);
+
+ANALYZE chat_messages;
+ANALYZE chat_sessions;
@@ -0,0 +1,6 @@
+-- Messages whose context ContextTieringJob has not stripped yet, oldest first. Stripped rows leave the index,
+-- so it stays about as large as the recent messages and the job resumes where it stopped without a checkpoint.
+-- Building it locks chat_messages against writes; run it in a quiet period on large installations.
+
+CREATE INDEX idx_message_context_unstripped ON chat_messages (created_at)
+    WHERE context IS NOT NULL AND NOT (context ? '$stripped');
@@ -0,0 +1,18 @@
+-- Messages of long-idle sessions, moved out of chat_messages by ColdSessionArchiver: one row per session whose
+-- block is the session's messages, oldest first, as a JSON array deflated by the service. chunks lists the chunk
+-- references of their contexts, so the chunk sweep does not have to open blocks. A write to the session moves its
+-- messages back into chat_messages and removes the row.
+
+CREATE TABLE chat_cold_sessions (
+    session_id      uuid                     NOT NULL,
+    messages        integer                  NOT NULL,
+    last_message_at timestamp with time zone NOT NULL,
+    block           bytea                    NOT NULL,
+    chunks          text[]                   NOT NULL,
+    frozen_at       timestamp with time zone NOT NULL,
+    CONSTRAINT chat_cold_sessions_pkey PRIMARY KEY (session_id),
+    CONSTRAINT fk_chat_cold_sessions_session FOREIGN KEY (session_id) REFERENCES chat_sessions (id)
+);
+
+-- Blocks are compressed already
+ALTER TABLE chat_cold_sessions ALTER COLUMN block SET STORAGE EXTERNAL;
@@ -0,0 +1,4 @@
+-- Last time a chunk was written into a context, refreshed at most hourly. ChunkSweeper only deletes chunks
+-- unused for longer than its grace period, so a chunk cannot be swept while a write referencing it is in flight.
+
+ALTER TABLE context_chunks ADD COLUMN used_at timestamp with time zone DEFAULT now() NOT NULL;
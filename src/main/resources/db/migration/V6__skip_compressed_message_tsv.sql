@@ -0,0 +1,14 @@
+-- Leaves message_tsv empty for bodies stored compressed by MessageBodyCodec, a \u0001 marker followed by base64,
+-- whose lexemes are noise that only bloats idx_message_tsv and can produce false matches.
+--
+-- A generated column cannot change its expression in place, so it is added again; this rewrites chat_messages
+-- once, like V1_3 did, and recreates the index.
+
+DROP INDEX IF EXISTS idx_message_tsv;
+ALTER TABLE chat_messages DROP COLUMN message_tsv;
+
+ALTER TABLE chat_messages ADD COLUMN message_tsv tsvector
+    GENERATED ALWAYS AS (CASE WHEN left(message, 1) = chr(1) THEN NULL
+                              ELSE to_tsvector('english'::regconfig, message) END) STORED;
+
+CREATE INDEX idx_message_tsv ON chat_messages USING gin (message_tsv);
@@ -0,0 +1,229 @@
+package com.dge.rag_chat_service.benchmark;
+
+import com.dge.rag_chat_service.codec.ColdBlockCodec;
+import com.dge.rag_chat_service.codec.DeflateBodyCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.cold.ColdSessionStore;
+import com.dge.rag_chat_service.config.ColdArchiveProperties;
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import com.dge.rag_chat_service.entity.ChatMessage;
+import com.dge.rag_chat_service.job.ColdSessionArchiver;
+import com.dge.rag_chat_service.repository.ChatMessageRepository;
+import com.dge.rag_chat_service.repository.ColdSessionRepository;
+import com.dge.rag_chat_service.repository.MessagePartitionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the cold archive: size of the hot and cold tables, latency of reading a session hot and cold, and of
+ * moving it back, and checks that messages read the same in every state.
+ *
+ * Seeds {@code benchmark.sessions} sessions (20k by default) of {@code benchmark.messages-per-session} messages
+ * with retrieval contexts, idle for 30 to 90 days, then runs the archiver until it finished a pass. Every run seeds
+ * its own rows and removes them afterwards. The archiver moves every idle session of the database and the
+ * partitions are rewritten with VACUUM FULL, so use a dedicated one:
+ * <pre>
+ * mvn test -Dtest=ColdArchiveBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/chat_cold -Dbenchmark.db.username=... -Dbenchmark.db.password=...
+ * </pre>
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "cold-archive.enabled=true",
+        "cold-archive.idle-after=7d",
+        "cold-archive.batch-size=500"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ColdSessionArchiver.class, ColdSessionRepository.class, ColdSessionStore.class, ColdBlockCodec.class,
+        MessagePartitionRepository.class, MessageBodyCodec.class, DeflateBodyCodec.class, SimpleMeterRegistry.class,
+        JacksonAutoConfiguration.class})
+@EnableConfigurationProperties({ColdArchiveProperties.class, MessageCompressionProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DisplayName("Cold archive benchmark")
+class ColdArchiveBenchmark {
+
+    private static final int SESSIONS = Integer.getInteger("benchmark.sessions", 20_000);
+    private static final int MESSAGES_PER_SESSION = Integer.getInteger("benchmark.messages-per-session", 20);
+    private static final int SAMPLE_SESSIONS = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ColdSessionArchiver archiver;
+
+    @Autowired
+    private ColdSessionRepository coldSessionRepository;
+
+    @Autowired
+    private ColdSessionStore coldSessionStore;
+
+    @Autowired
+    private ChatMessageRepository messageRepository;
+
+    @Autowired
+    private MessagePartitionRepository partitionRepository;
+
+    @Autowired
+    private TransactionOperations transactions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.db.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.db.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.db.password", ""));
+    }
+
+    @Test
+    void archiveAndRehydrate() {
+        String run = "cold-bench-" + Long.toString(System.currentTimeMillis(), 36);
+        List<UUID> sample = seed(run);
+        try {
+            List<String> before = digests(sample, id -> messageRepository.findFirstBySessionId(id, Integer.MAX_VALUE));
+            long[] hotReads = time(sample, id -> messageRepository.findFirstBySessionId(id, MESSAGES_PER_SESSION + 1));
+            long hotBytes = compactedHotBytes();
+
+            long start = System.nanoTime();
+            double sessions;
+            do {
+                sessions = meterRegistry.get("chat.cold.sessions").counter().count();
+                archiver.run();
+            } while (meterRegistry.get("chat.cold.sessions").counter().count() > sessions);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("archived %.0f sessions, %.0f messages in %.1f s (%.0f sessions/s)%n", sessions,
+                    meterRegistry.get("chat.cold.messages").counter().count(), seconds, sessions / seconds);
+
+            long coldHotBytes = compactedHotBytes();
+            ColdSessionRepository.StorageBytes after = coldSessionRepository.storageBytes();
+            System.out.printf("hot tier: %d MB -> %d MB after VACUUM FULL; cold tier: %d MB (%.1fx smaller than the rows it replaced)%n",
+                    hotBytes >> 20, coldHotBytes >> 20, after.cold() >> 20,
+                    (double) (hotBytes - coldHotBytes) / after.cold());
+            System.out.printf("blocks: %d MB of JSON deflated to %d MB%n",
+                    (long) meterRegistry.get("chat.cold.block.bytes").tag("form", "raw").counter().count() >> 20,
+                    (long) meterRegistry.get("chat.cold.block.bytes").tag("form", "compressed").counter().count() >> 20);
+
+            assertThat(digests(sample, coldSessionStore::read)).as("cold messages").isEqualTo(before);
+            long[] coldReads = time(sample, coldSessionStore::read);
+            long[] thaws = time(sample, id -> transactions.execute(status -> {
+                coldSessionStore.thaw(List.of(id));
+                return null;
+            }));
+            assertThat(digests(sample, id -> messageRepository.findFirstBySessionId(id, Integer.MAX_VALUE)))
+                    .as("thawed messages").isEqualTo(before);
+
+            print("hot read", hotReads);
+            print("cold read", coldReads);
+            print("thaw", thaws);
+        } finally {
+            jdbcTemplate.update("DELETE FROM chat_cold_sessions WHERE session_id IN (SELECT id FROM chat_sessions WHERE user_id = ?)", run);
+            jdbcTemplate.update("DELETE FROM chat_messages WHERE session_id IN (SELECT id FROM chat_sessions WHERE user_id = ?)", run);
+            jdbcTemplate.update("DELETE FROM chat_sessions WHERE user_id = ?", run);
+        }
+    }
+
+    private List<UUID> seed(String run) {
+        YearMonth month = YearMonth.now(ZoneOffset.UTC).minusMonths(4);
+        for (; !month.isAfter(YearMonth.now(ZoneOffset.UTC)); month = month.plusMonths(1)) {
+            partitionRepository.createPartition(month);
+        }
+        long start = System.nanoTime();
+        jdbcTemplate.update("""
+                INSERT INTO chat_sessions (id, user_id, name, favorite, created_at, updated_at, messages_from)
+                SELECT md5(? || g)::uuid, ?, 'Session ' || g, false, now() - interval '100 days',
+                       now() - interval '100 days', now() - interval '100 days'
+                FROM generate_series(0, ? - 1) g
+                """, run, run, SESSIONS);
+        // Every second message is an answer with the five chunks it was grounded on
+        jdbcTemplate.update("""
+                INSERT INTO chat_messages (id, session_id, sender, message, context, created_at)
+                SELECT gen_random_uuid(), md5(? || (g / %1$d))::uuid,
+                       CASE WHEN g %% 2 = 0 THEN 'USER' ELSE 'AI' END,
+                       'message ' || g || ' ' || md5(g::text) || ' ' || md5((g + 1)::text),
+                       CASE WHEN g %% 2 = 1 THEN jsonb_build_object(
+                           'documents', (SELECT jsonb_agg(jsonb_build_object(
+                                   'id', 'doc-' || ((g * 7 + k) %% 5000), 'chunkId', 'c-' || k,
+                                   'score', round(random()::numeric, 3),
+                                   'content', (SELECT string_agg(md5(g::text || k || j), ' ')
+                                               FROM generate_series(1, 21) j)))
+                               FROM generate_series(1, 5) k)) END,
+                       now() - interval '90 days' + interval '60 days' * (g / %1$d) / ? + (g %% %1$d) * interval '1 second'
+                FROM generate_series(0, ? - 1) g
+                """.formatted(MESSAGES_PER_SESSION), run, SESSIONS, (long) SESSIONS * MESSAGES_PER_SESSION);
+        jdbcTemplate.execute("ANALYZE chat_messages");
+        jdbcTemplate.execute("ANALYZE chat_sessions");
+        System.out.printf("Seeded %d sessions of %d messages in %.0f s%n", SESSIONS, MESSAGES_PER_SESSION,
+                (System.nanoTime() - start) / 1e9);
+        return jdbcTemplate.queryForList("""
+                SELECT id FROM chat_sessions WHERE user_id = ? ORDER BY md5(id::text) LIMIT ?
+                """, UUID.class, run, SAMPLE_SESSIONS);
+    }
+
+    private long compactedHotBytes() {
+        partitionRepository.partitionMonths().stream()
+                .map(MessagePartitionRepository::partitionName)
+                .forEach(p -> jdbcTemplate.execute("VACUUM FULL " + p));
+        jdbcTemplate.execute("VACUUM FULL chat_cold_sessions");
+        return coldSessionRepository.storageBytes().hot();
+    }
+
+    private static List<String> digests(List<UUID> sessions, java.util.function.Function<UUID, List<ChatMessage>> read) {
+        List<String> digests = new ArrayList<>(sessions.size());
+        for (UUID id : sessions) {
+            digests.add(read.apply(id).stream()
+                    .map(m -> m.getId() + "|" + m.getSender() + "|" + m.getMessage() + "|" + m.getContext() + "|" + m.getCreatedAt())
+                    .collect(Collectors.joining("\n")));
+        }
+        return digests;
+    }
+
+    private static long[] time(List<UUID> sessions, java.util.function.Consumer<UUID> op) {
+        long[] nanos = new long[sessions.size()];
+        for (int i = 0; i < sessions.size(); i++) {
+            long start = System.nanoTime();
+            op.accept(sessions.get(i));
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private static void print(String phase, long[] nanos) {
+        System.out.printf("%-9s sessions=%d p50=%.2f ms p95=%.2f ms p99=%.2f ms%n", phase, nanos.length,
+                percentile(nanos, 50), percentile(nanos, 95), percentile(nanos, 99));
+    }
+
+    private static double percentile(long[] nanos, int p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int idx = Math.max(0, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[idx] / 1e6;
+    }
+}
@@ -0,0 +1,96 @@
+package com.dge.rag_chat_service.benchmark;
+
+import com.dge.rag_chat_service.dto.RawJson;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the response path for stored contexts before and after they were passed through as raw JSON:
+ * parsing the jsonb text into a Map and serializing it again, against writing the text as is. Reports the
+ * latency percentiles and the bytes allocated per response for each context size.
+ *
+ * Runs in memory and is not picked up by a normal build. Run it with:
+ * <pre>
+ * mvn test -Dtest=ContextPassthroughBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.context-bytes=10000,100000,1000000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.context-bytes", matches = "[0-9,]+")
+@DisplayName("Context passthrough benchmark")
+class ContextPassthroughBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 500);
+    private static final TypeReference<Map<String, Object>> CONTEXT_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void mapRoundTripVersusRawJson() throws Exception {
+        for (String size : System.getProperty("benchmark.context-bytes").split(",")) {
+            String json = objectMapper.writeValueAsString(context(Integer.parseInt(size)));
+
+            Result parsed = measure(() -> objectMapper.writeValueAsString(
+                    Map.of("context", objectMapper.readValue(json, CONTEXT_TYPE))));
+            Result raw = measure(() -> objectMapper.writeValueAsString(Map.of("context", RawJson.of(json))));
+
+            System.out.printf("context=%d B  map: p50=%.3f ms p99=%.3f ms %d B/op  raw: p50=%.3f ms p99=%.3f ms %d B/op%n",
+                    json.length(), parsed.p50(), parsed.p99(), parsed.bytesPerOp(),
+                    raw.p50(), raw.p99(), raw.bytesPerOp());
+        }
+    }
+
+    private Result measure(Response response) throws Exception {
+        // Warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            response.write();
+        }
+        long[] nanos = new long[ITERATIONS];
+        long thread = Thread.currentThread().threadId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            response.write();
+            nanos[i] = System.nanoTime() - start;
+        }
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        Arrays.sort(nanos);
+        return new Result(nanos[ITERATIONS / 2] / 1e6, nanos[ITERATIONS * 99 / 100] / 1e6, allocated / ITERATIONS);
+    }
+
+    private static Map<String, Object> context(int bytes) {
+        Random random = new Random(42);
+        List<Map<String, Object>> documents = new ArrayList<>();
+        int written = 0;
+        for (int i = 0; written < bytes; i++) {
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("id", "doc-" + i);
+            document.put("score", random.nextDouble());
+            document.put("page", random.nextInt(500));
+            document.put("content", "Refunds are issued within 14 days of the return. ".repeat(20));
+            documents.add(document);
+            written += 1_050;
+        }
+        return Map.of("documents", documents, "query", "refund policy");
+    }
+
+    @FunctionalInterface
+    private interface Response {
+        String write() throws Exception;
+    }
+
+    private record Result(double p50, double p99, long bytesPerOp) {
+    }
+}
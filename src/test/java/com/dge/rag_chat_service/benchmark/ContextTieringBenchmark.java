@@ -0,0 +1,232 @@
+package com.dge.rag_chat_service.benchmark;
+
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.codec.DeflateBodyCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.config.CitationProperties;
+import com.dge.rag_chat_service.config.ContextTieringProperties;
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import com.dge.rag_chat_service.job.ContextTieringJob;
+import com.dge.rag_chat_service.repository.ContextTieringRepository;
+import com.dge.rag_chat_service.repository.ListVersionRepository;
+import com.dge.rag_chat_service.repository.MessagePartitionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures what stripping aged contexts saves: context bytes, buffers read to load the contexts of old sessions,
+ * and the size of the aged partitions once rewritten, and checks that message text and order are unchanged.
+ *
+ * Seeds {@code benchmark.rows} messages (1M by default) over the last six months, each with a context of five
+ * retrieved chunks, then runs the tiering job until it catches up with {@code context-tiering.age} of 30 days.
+ * Every run seeds its own rows and removes them afterwards. The job strips every aged context of the database and
+ * the aged partitions are rewritten with VACUUM FULL, so use a dedicated one:
+ * <pre>
+ * mvn test -Dtest=ContextTieringBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/chat_tiering -Dbenchmark.db.username=... -Dbenchmark.db.password=...
+ * </pre>
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "context-tiering.enabled=true",
+        "context-tiering.age=30d",
+        "context-tiering.batch-size=1000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ContextTieringJob.class, ContextTieringRepository.class, ListVersionRepository.class, CitationExtractor.class,
+        MessagePartitionRepository.class, MessageBodyCodec.class, DeflateBodyCodec.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties({ContextTieringProperties.class, CitationProperties.class,
+        MessageCompressionProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DisplayName("Context tiering benchmark")
+class ContextTieringBenchmark {
+
+    private static final long ROWS = Long.getLong("benchmark.rows", 1_000_000);
+    private static final int MESSAGES_PER_SESSION = 50;
+    private static final int SAMPLE_SESSIONS = 200;
+    private static final Pattern BUFFERS = Pattern.compile("Buffers: shared(?: hit=(\\d+))?(?: read=(\\d+))?");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ContextTieringJob job;
+
+    @Autowired
+    private MessagePartitionRepository partitionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.db.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.db.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.db.password", ""));
+    }
+
+    @Test
+    void strippingSavings() {
+        String run = "tiering-bench-" + Long.toString(System.currentTimeMillis(), 36);
+        seed(run);
+        try {
+            String messagesBefore = messagesDigest(run);
+            String sample = samplePredicate(run);
+            long contextBytes = contextBytes(run);
+            long buffers = buffersToRead(sample);
+
+            long start = System.nanoTime();
+            double stripped;
+            do {
+                stripped = meterRegistry.get("chat.context.tiering.messages").counter().count();
+                job.run();
+            } while (meterRegistry.get("chat.context.tiering.messages").counter().count() > stripped);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("stripped=%.0f in %.1f s (%.0f/s)%n", stripped, seconds, stripped / seconds);
+
+            List<String> aged = agedPartitions();
+            long sizeBefore = relationSize(aged);
+            aged.forEach(p -> jdbcTemplate.execute("VACUUM FULL " + p));
+            jdbcTemplate.execute("ANALYZE chat_messages");
+            long sizeAfter = relationSize(aged);
+
+            System.out.printf("context bytes of %s: %d -> %d (%.1fx)%n", run, contextBytes, contextBytes(run),
+                    (double) contextBytes / contextBytes(run));
+            System.out.printf("buffers to read contexts of %d aged sessions: %d -> %d (%.1fx)%n", SAMPLE_SESSIONS,
+                    buffers, buffersToRead(sample), (double) buffers / buffersToRead(sample));
+            System.out.printf("aged partitions %s: %d MB -> %d MB after VACUUM FULL (%.1fx)%n", aged,
+                    sizeBefore >> 20, sizeAfter >> 20, (double) sizeBefore / sizeAfter);
+            System.out.printf("saved (JSON text)=%.0f MB%n",
+                    meterRegistry.get("chat.context.tiering.saved.bytes").counter().count() / (1 << 20));
+
+            assertThat(messagesDigest(run)).as("message text and order").isEqualTo(messagesBefore);
+            assertThat(jdbcTemplate.queryForObject("""
+                    SELECT count(*) FROM chat_messages m JOIN chat_sessions s ON s.id = m.session_id
+                    WHERE s.user_id = ? AND m.created_at >= now() - interval '29 days' AND m.context ?? '$stripped'
+                    """, Long.class, run))
+                    .as("recent contexts stripped").isZero();
+        } finally {
+            jdbcTemplate.update("DELETE FROM chat_messages WHERE session_id IN (SELECT id FROM chat_sessions WHERE user_id = ?)", run);
+            jdbcTemplate.update("DELETE FROM chat_sessions WHERE user_id = ?", run);
+        }
+    }
+
+    private void seed(String run) {
+        YearMonth month = YearMonth.now(ZoneOffset.UTC).minusMonths(6);
+        for (; !month.isAfter(YearMonth.now(ZoneOffset.UTC)); month = month.plusMonths(1)) {
+            partitionRepository.createPartition(month);
+        }
+        long sessions = Math.max(1, ROWS / MESSAGES_PER_SESSION);
+        long start = System.nanoTime();
+        jdbcTemplate.update("""
+                INSERT INTO chat_sessions (id, user_id, name, favorite, created_at, updated_at, messages_from)
+                SELECT md5(? || g)::uuid, ?, 'Session ' || g, false, now(), now(), now() - interval '200 days'
+                FROM generate_series(0, ? - 1) g
+                """, run, run, sessions);
+        // Sessions are spread over 180 days; each context holds five chunks of about 700 characters
+        jdbcTemplate.update("""
+                INSERT INTO chat_messages (id, session_id, sender, message, context, created_at)
+                SELECT gen_random_uuid(), md5(? || (g / %1$d))::uuid,
+                       CASE WHEN g %% 2 = 0 THEN 'USER' ELSE 'AI' END,
+                       'message ' || g || ' ' || md5(g::text),
+                       CASE WHEN g %% 2 = 1 THEN jsonb_build_object(
+                           'documents', (SELECT jsonb_agg(jsonb_build_object(
+                                   'id', 'doc-' || ((g * 7 + k) %% 5000), 'chunkId', 'c-' || k,
+                                   'score', round(random()::numeric, 3),
+                                   'content', (SELECT string_agg(md5(g::text || k || j), ' ')
+                                               FROM generate_series(1, 21) j)))
+                               FROM generate_series(1, 5) k),
+                           'prompt', 'Answer using the documents. ' || md5(g::text)) END,
+                       now() - interval '180 days' * (g / %1$d) / ? + (g %% %1$d) * interval '1 second'
+                FROM generate_series(0, ? - 1) g
+                """.formatted(MESSAGES_PER_SESSION), run, sessions, ROWS);
+        jdbcTemplate.execute("ANALYZE chat_messages");
+        System.out.printf("Seeded %d messages in %.0f s%n", ROWS, (System.nanoTime() - start) / 1e9);
+    }
+
+    private String messagesDigest(String run) {
+        return jdbcTemplate.queryForObject("""
+                SELECT md5(string_agg(m.id::text || m.message, ',' ORDER BY m.session_id, m.created_at, m.id))
+                FROM chat_messages m JOIN chat_sessions s ON s.id = m.session_id WHERE s.user_id = ?
+                """, String.class, run);
+    }
+
+    private long contextBytes(String run) {
+        return jdbcTemplate.queryForObject("""
+                SELECT coalesce(sum(pg_column_size(m.context)), 0)
+                FROM chat_messages m JOIN chat_sessions s ON s.id = m.session_id WHERE s.user_id = ?
+                """, Long.class, run);
+    }
+
+    /**
+     * Sessions whose messages are all older than the age limit, as a predicate with literals for EXPLAIN.
+     */
+    private String samplePredicate(String run) {
+        long sessions = Math.max(1, ROWS / MESSAGES_PER_SESSION);
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < SAMPLE_SESSIONS; i++) {
+            long g = sessions / 2 + (long) i * (sessions / 2) / SAMPLE_SESSIONS;
+            ids.append(i == 0 ? "" : ",").append("'").append(run).append(g).append("'");
+        }
+        return "session_id IN (SELECT md5(x)::uuid FROM unnest(ARRAY[" + ids + "]) x)";
+    }
+
+    /**
+     * Shared buffers touched to load, and detoast, every context of the sample sessions.
+     */
+    private long buffersToRead(String sample) {
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN (ANALYZE, BUFFERS) SELECT sum(length(context::text)) FROM chat_messages WHERE " + sample,
+                String.class);
+        // The first Buffers line is the total of the top node
+        Matcher m = BUFFERS.matcher(String.join("\n", plan));
+        long buffers = 0;
+        if (m.find()) {
+            buffers = (m.group(1) != null ? Long.parseLong(m.group(1)) : 0)
+                    + (m.group(2) != null ? Long.parseLong(m.group(2)) : 0);
+        }
+        return buffers;
+    }
+
+    private List<String> agedPartitions() {
+        YearMonth last = YearMonth.now(ZoneOffset.UTC).minusMonths(2);
+        return partitionRepository.partitionMonths().stream()
+                .filter(month -> !month.isAfter(last) && !month.isBefore(last.minusMonths(4)))
+                .sorted()
+                .map(MessagePartitionRepository::partitionName)
+                .toList();
+    }
+
+    private long relationSize(List<String> partitions) {
+        long size = 0;
+        for (String partition : partitions) {
+            size += jdbcTemplate.queryForObject("SELECT pg_total_relation_size(?::regclass)", Long.class, partition);
+        }
+        return size;
+    }
+}
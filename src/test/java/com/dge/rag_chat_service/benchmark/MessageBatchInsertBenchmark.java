@@ -0,0 +1,123 @@
+package com.dge.rag_chat_service.benchmark;
+
+import com.dge.rag_chat_service.codec.DeflateBodyCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.entity.ChatMessage;
+import com.dge.rag_chat_service.entity.ChatSession;
+import com.dge.rag_chat_service.repository.ChatMessageRepository;
+import com.dge.rag_chat_service.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares one INSERT per request with the batched insert used by the messages:batch endpoint.
+ *
+ * Needs a real PostgreSQL, so it is not picked up by a normal build. Run it with:
+ * <pre>
+ * mvn test -Dtest=MessageBatchInsertBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/chat -Dbenchmark.db.username=... -Dbenchmark.db.password=...
+ * </pre>
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({MessageBodyCodec.class, DeflateBodyCodec.class,
+        SimpleMeterRegistry.class})
+@EnableConfigurationProperties(MessageCompressionProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DisplayName("Message batch insert benchmark")
+class MessageBatchInsertBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 5_000);
+    private static final int BATCH = Integer.getInteger("benchmark.batch", 50);
+
+    @Autowired
+    private ChatMessageRepository messageRepository;
+
+    @Autowired
+    private ChatSessionRepository sessionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.db.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.db.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.db.password", ""));
+    }
+
+    @Test
+    void singleVersusBatchedInserts() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        ChatSession session = sessionRepository.save(ChatSession.builder()
+                .userId("benchmark")
+                .name("Batch insert benchmark")
+                .build());
+        try {
+            // Warm up connection pool, statement cache and JIT
+            insertSingle(tx, session, 200);
+            insertBatched(tx, session, 200);
+
+            long start = System.nanoTime();
+            insertSingle(tx, session, ROWS);
+            double singleRate = ROWS / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            insertBatched(tx, session, ROWS);
+            double batchedRate = ROWS / ((System.nanoTime() - start) / 1e9);
+
+            System.out.printf("rows=%d batch=%d single=%.0f rows/s batched=%.0f rows/s speedup=%.1fx%n",
+                    ROWS, BATCH, singleRate, batchedRate, batchedRate / singleRate);
+        } finally {
+            while (messageRepository.deleteChunkBySessionId(session.getId(), 10_000) > 0) {
+                // keep deleting
+            }
+            sessionRepository.deleteById(session.getId());
+        }
+    }
+
+    private void insertSingle(TransactionTemplate tx, ChatSession session, int rows) {
+        for (int i = 0; i < rows; i++) {
+            ChatMessage message = message(session, i);
+            tx.executeWithoutResult(status -> messageRepository.save(message));
+        }
+    }
+
+    private void insertBatched(TransactionTemplate tx, ChatSession session, int rows) {
+        for (int from = 0; from < rows; from += BATCH) {
+            List<ChatMessage> messages = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(rows, from + BATCH); i++) {
+                messages.add(message(session, i));
+            }
+            tx.executeWithoutResult(status -> messageRepository.saveAll(messages));
+        }
+    }
+
+    private static ChatMessage message(ChatSession session, int i) {
+        return ChatMessage.builder()
+                .session(session)
+                .sender(i % 2 == 0 ? SenderType.USER : SenderType.AI)
+                .message("Benchmark message " + i)
+                .context("{\"chunk\": " + i + "}")
+                .build();
+    }
+}
@@ -0,0 +1,126 @@
+package com.dge.rag_chat_service.benchmark;
+
+import com.dge.rag_chat_service.codec.DeflateBodyCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares storing large message bodies as plain TEXT, which PostgreSQL compresses itself once a value is
+ * TOASTed, with storing them compressed by {@link MessageBodyCodec}: table size, and the CPU time spent
+ * encoding and decoding in the service per deflate level.
+ *
+ * Needs a real PostgreSQL and is not picked up by a normal build. Run it with:
+ * <pre>
+ * mvn test -Dtest=MessageCompressionBenchmark -Dsurefire.failIfNoSpecifiedTests=false -Dbenchmark.rows=20000 \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/chat -Dbenchmark.db.username=... -Dbenchmark.db.password=...
+ * </pre>
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DisplayName("Message compression benchmark")
+class MessageCompressionBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 5_000);
+    private static final int BODY_BYTES = Integer.getInteger("benchmark.body-bytes", 50_000);
+    private static final int BATCH = 200;
+
+    private static final String[] WORDS = {
+            "the", "order", "refund", "policy", "customer", "shipping", "within", "days", "account", "invoice",
+            "section", "applies", "to", "all", "payments", "made", "by", "card", "or", "transfer", "warranty",
+            "covers", "defects", "in", "materials", "and", "workmanship", "for", "two", "years"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.db.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.db.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.db.password", ""));
+    }
+
+    @Test
+    void plainVersusCompressedBodies() {
+        List<String> bodies = bodies();
+        long rawBytes = bodies.stream().mapToLong(b -> b.getBytes(StandardCharsets.UTF_8).length).sum();
+        System.out.printf("rows=%d raw=%.1f MB%n", ROWS, rawBytes / 1e6);
+
+        store("bench_body_plain", bodies);
+        for (int level : new int[] {1, 6, 9}) {
+            MessageBodyCodec codec = new MessageBodyCodec(List.of(new DeflateBodyCodec(level)),
+                    new MessageCompressionProperties(true, 16_384, "deflate"), new SimpleMeterRegistry());
+            // Warm up
+            bodies.subList(0, Math.min(200, ROWS)).forEach(b -> codec.decode(codec.encode(b)));
+
+            long start = System.nanoTime();
+            List<String> encoded = bodies.stream().map(codec::encode).toList();
+            long encodeNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            encoded.forEach(codec::decode);
+            long decodeNanos = System.nanoTime() - start;
+
+            store("bench_body_deflate_" + level, encoded);
+            System.out.printf("level=%d encode=%.1f us/body (%.0f MB/s) decode=%.1f us/body (%.0f MB/s)%n",
+                    level, encodeNanos / 1e3 / ROWS, rawBytes / (encodeNanos / 1e9) / 1e6,
+                    decodeNanos / 1e3 / ROWS, rawBytes / (decodeNanos / 1e9) / 1e6);
+        }
+    }
+
+    private void store(String table, List<String> bodies) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (id bigint PRIMARY KEY, message text NOT NULL)");
+        try {
+            for (int from = 0; from < bodies.size(); from += BATCH) {
+                List<Object[]> args = new ArrayList<>(BATCH);
+                for (int i = from; i < Math.min(bodies.size(), from + BATCH); i++) {
+                    args.add(new Object[] {i, bodies.get(i)});
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, message) VALUES (?, ?)", args);
+            }
+            jdbcTemplate.execute("VACUUM ANALYZE " + table);
+            Long size = jdbcTemplate.queryForObject("SELECT pg_total_relation_size(?::regclass)", Long.class, table);
+            System.out.printf("%-22s stored=%.1f MB%n", table, size / 1e6);
+        } finally {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        }
+    }
+
+    /**
+     * Prose-like bodies drawn from a small vocabulary with pasted numbers, roughly as compressible as answers
+     * quoting source documents.
+     */
+    private static List<String> bodies() {
+        Random random = new Random(42);
+        List<String> bodies = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            StringBuilder sb = new StringBuilder(BODY_BYTES + 16);
+            while (sb.length() < BODY_BYTES) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                if (random.nextInt(12) == 0) {
+                    sb.append(random.nextInt(100_000)).append(". ");
+                }
+            }
+            bodies.add(sb.toString());
+        }
+        return bodies;
+    }
+}
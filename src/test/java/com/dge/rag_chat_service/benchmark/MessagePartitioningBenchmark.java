@@ -0,0 +1,304 @@
+package com.dge.rag_chat_service.benchmark;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares a monthly range-partitioned message table with an unpartitioned one holding the same rows:
+ * latency of the first and second keyset page of a session, and the cost of purging the oldest month,
+ * {@code DELETE} plus {@code VACUUM} against {@code DETACH} plus {@code DROP} of its partition.
+ *
+ * Both tables are shaped like chat_messages before and after the partitioning migration and are queried with
+ * the statements of the repository. Seeds {@code benchmark.rows} messages (100M by default) over
+ * {@code benchmark.months} months into each table, unless a previous run already did; the data is kept, so a
+ * rerun only reseeds the month the previous one purged. Use a dedicated database:
+ * <pre>
+ * mvn test -Dtest=MessagePartitioningBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/chat_bench -Dbenchmark.db.username=... -Dbenchmark.db.password=...
+ * </pre>
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DisplayName("Message partitioning benchmark")
+class MessagePartitioningBenchmark {
+
+    private static final long ROWS = Long.getLong("benchmark.rows", 100_000_000);
+    private static final int MONTHS = Integer.getInteger("benchmark.months", 12);
+    private static final int SESSIONS = Integer.getInteger("benchmark.sessions", 1_000_000);
+    private static final int QUERIES = Integer.getInteger("benchmark.queries", 2_000);
+    private static final int CHUNK = 1_000_000;
+    private static final int PAGE = 20;
+
+    // Fixed, so kept data matches on the next run
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2024, 1);
+
+    private static final String FLAT = "part_bench_flat";
+    private static final String MONTHLY = "part_bench_monthly";
+
+    private static final String COLUMNS = """
+            id          uuid                     NOT NULL,
+            session_id  uuid                     NOT NULL,
+            sender      varchar(255)             NOT NULL,
+            message     text                     NOT NULL,
+            context     jsonb,
+            created_at  timestamp with time zone NOT NULL,
+            message_tsv tsvector GENERATED ALWAYS AS (to_tsvector('english'::regconfig, message)) STORED
+            """;
+
+    private static final String FIRST_PAGE = """
+            SELECT * FROM %s
+            WHERE session_id = ?
+              AND created_at >= (SELECT messages_from FROM part_bench_sessions WHERE id = ?)
+            ORDER BY created_at, id
+            LIMIT ?
+            """;
+
+    private static final String NEXT_PAGE = """
+            SELECT * FROM %s
+            WHERE session_id = ?
+              AND created_at >= ?
+              AND (created_at, id) > (?, ?)
+            ORDER BY created_at, id
+            LIMIT ?
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.db.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.db.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.db.password", ""));
+    }
+
+    @Test
+    void listLatencyAndPurgeCost() {
+        createTables();
+        seed();
+
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN (ANALYZE, COSTS OFF) " + explainable(sessionId(MONTHS - 1)), String.class));
+        assertThat(plan).as("partitions before the session's first month are skipped").contains("never executed");
+
+        // Warm up
+        listPages(FLAT, 100);
+        listPages(MONTHLY, 100);
+        for (String table : List.of(FLAT, MONTHLY)) {
+            long[] nanos = listPages(table, QUERIES);
+            System.out.printf("rows=%d months=%d list %s p50=%.2f ms p95=%.2f ms p99=%.2f ms%n", ROWS, MONTHS,
+                    table, percentile(nanos, 50), percentile(nanos, 95), percentile(nanos, 99));
+        }
+
+        OffsetDateTime from = start(FIRST_MONTH);
+        OffsetDateTime to = start(FIRST_MONTH.plusMonths(1));
+        String partition = partitionName(FIRST_MONTH);
+
+        long wal = walPosition();
+        long start = System.nanoTime();
+        int deleted = jdbcTemplate.update("DELETE FROM " + FLAT + " WHERE created_at >= ? AND created_at < ?", from, to);
+        long deleteNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        jdbcTemplate.execute("VACUUM " + FLAT);
+        long vacuumNanos = System.nanoTime() - start;
+        long flatWal = walPosition() - wal;
+
+        wal = walPosition();
+        start = System.nanoTime();
+        jdbcTemplate.execute("ALTER TABLE " + MONTHLY + " DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        long dropNanos = System.nanoTime() - start;
+        long monthlyWal = walPosition() - wal;
+        jdbcTemplate.update("DELETE FROM part_bench_seeded WHERE month = 0");
+
+        System.out.printf("purge %s rows=%d delete=%.1f s vacuum=%.1f s wal=%d MB%n",
+                FLAT, deleted, deleteNanos / 1e9, vacuumNanos / 1e9, flatWal >> 20);
+        System.out.printf("purge %s %s detach+drop=%.1f ms wal=%d kB%n",
+                MONTHLY, partition, dropNanos / 1e6, monthlyWal >> 10);
+    }
+
+    private void createTables() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS part_bench_sessions (
+                    id uuid PRIMARY KEY, messages_from timestamp with time zone NOT NULL)
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS part_bench_seeded (
+                    table_name text, month int, PRIMARY KEY (table_name, month))
+                """);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + FLAT + " (" + COLUMNS + ")");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + MONTHLY + " (" + COLUMNS + ") PARTITION BY RANGE (created_at)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + MONTHLY + "_default PARTITION OF " + MONTHLY + " DEFAULT");
+        // Three empty months ahead, as the maintenance job keeps them
+        for (int m = 0; m < MONTHS + 3; m++) {
+            createPartition(FIRST_MONTH.plusMonths(m));
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + MONTHLY
+                + " FOR VALUES FROM ('" + start(month) + "') TO ('" + start(month.plusMonths(1)) + "')");
+    }
+
+    /**
+     * Built once all data is in, which is much faster than maintaining them while seeding.
+     */
+    private void createIndexes() {
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + FLAT + "_pkey ON " + FLAT + " (id)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + MONTHLY + "_pkey ON " + MONTHLY + " (id, created_at)");
+        for (String table : List.of(FLAT, MONTHLY)) {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_session ON " + table
+                    + " (session_id, created_at, id)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_tsv ON " + table + " USING gin (message_tsv)");
+            jdbcTemplate.execute("ANALYZE " + table);
+        }
+    }
+
+    private void seed() {
+        jdbcTemplate.update("""
+                INSERT INTO part_bench_sessions (id, messages_from)
+                SELECT md5('part-bench-session-' || g)::uuid, ?::timestamptz + (g % ?) * interval '1 month'
+                FROM generate_series(0, ? - 1) g
+                ON CONFLICT (id) DO NOTHING
+                """, start(FIRST_MONTH), MONTHS, SESSIONS);
+
+        long perMonth = ROWS / MONTHS;
+        boolean seeded = false;
+        long begin = System.nanoTime();
+        for (int m = 0; m < MONTHS; m++) {
+            createPartition(FIRST_MONTH.plusMonths(m));
+            for (String table : List.of(FLAT, MONTHLY)) {
+                Boolean done = jdbcTemplate.queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM part_bench_seeded WHERE table_name = ? AND month = ?)",
+                        Boolean.class, table, m);
+                if (Boolean.TRUE.equals(done)) {
+                    continue;
+                }
+                for (long from = 0; from < perMonth; from += CHUNK) {
+                    seedMonth(table, m, from, Math.min(perMonth, from + CHUNK) - 1, perMonth);
+                }
+                jdbcTemplate.update("INSERT INTO part_bench_seeded VALUES (?, ?)", table, m);
+                seeded = true;
+                System.out.printf("Seeded %s %s in %.0f s%n", table, FIRST_MONTH.plusMonths(m),
+                        (System.nanoTime() - begin) / 1e9);
+            }
+        }
+        if (seeded) {
+            createIndexes();
+        } else {
+            System.out.printf("Reusing %d seeded messages per table%n", perMonth * MONTHS);
+        }
+    }
+
+    /**
+     * Rows {@code from..to} of a month. The sessions of month m are m, m + MONTHS, m + 2 * MONTHS...; each gets
+     * messages spread over the whole month, with time-ordered ids like the service generates.
+     */
+    private void seedMonth(String table, int month, long from, long to, long perMonth) {
+        OffsetDateTime start = start(FIRST_MONTH.plusMonths(month));
+        OffsetDateTime end = start(FIRST_MONTH.plusMonths(month + 1));
+        jdbcTemplate.update("""
+                INSERT INTO %s (id, session_id, sender, message, created_at)
+                SELECT (lpad(to_hex((extract(epoch FROM t) * 1000)::bigint), 12, '0')
+                            || substr(md5(%d || '-' || g), 13))::uuid,
+                       md5('part-bench-session-' || (%d + %d * (g %% %d)))::uuid,
+                       CASE WHEN g %% 2 = 0 THEN 'USER' ELSE 'AI' END,
+                       'Message ' || g || ' about the refund of order ' || (g %% 100000),
+                       t
+                FROM generate_series(?::bigint, ?::bigint) g,
+                     LATERAL (SELECT ?::timestamptz + g * ((?::timestamptz - ?::timestamptz) / ?) AS t) ts
+                """.formatted(table, month, month, MONTHS, SESSIONS / MONTHS),
+                from, to, start, end, start, perMonth);
+    }
+
+    private long[] listPages(String table, int count) {
+        long[] nanos = new long[count];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String firstPage = FIRST_PAGE.formatted(table);
+        String nextPage = NEXT_PAGE.formatted(table);
+        for (int i = 0; i < count; i++) {
+            UUID session = sessionId(random.nextInt(SESSIONS));
+            long start = System.nanoTime();
+            List<Map<String, Object>> page = jdbcTemplate.queryForList(firstPage, session, session, PAGE + 1);
+            if (page.size() > PAGE) {
+                Map<String, Object> last = page.get(PAGE - 1);
+                Object createdAt = last.get("created_at");
+                jdbcTemplate.queryForList(nextPage, session, createdAt, createdAt, last.get("id"), PAGE + 1);
+            }
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private String explainable(UUID session) {
+        // Same statement as the first page, with literals so EXPLAIN can plan it
+        return """
+                SELECT * FROM part_bench_monthly
+                WHERE session_id = '%1$s'
+                  AND created_at >= (SELECT messages_from FROM part_bench_sessions WHERE id = '%1$s')
+                ORDER BY created_at, id
+                LIMIT 21
+                """.formatted(session);
+    }
+
+    private long walPosition() {
+        return jdbcTemplate.queryForObject("SELECT pg_current_wal_lsn() - '0/0'::pg_lsn", Long.class);
+    }
+
+    // Same as md5('part-bench-session-' || index)::uuid in the seed statements
+    private static UUID sessionId(int index) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5")
+                    .digest(("part-bench-session-" + index).getBytes(StandardCharsets.UTF_8));
+            long msb = 0;
+            long lsb = 0;
+            for (int i = 0; i < 8; i++) {
+                msb = (msb << 8) | (digest[i] & 0xff);
+                lsb = (lsb << 8) | (digest[i + 8] & 0xff);
+            }
+            return new UUID(msb, lsb);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return MONTHLY + "_y%04dm%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+
+    private static OffsetDateTime start(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    private static double percentile(long[] nanos, int p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int idx = Math.max(0, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[idx] / 1e6;
+    }
+}
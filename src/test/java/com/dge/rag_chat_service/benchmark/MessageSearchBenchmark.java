@@ -0,0 +1,169 @@
+package com.dge.rag_chat_service.benchmark;
+
+import com.dge.rag_chat_service.codec.DeflateBodyCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import com.dge.rag_chat_service.dto.SearchHitResponse;
+import com.dge.rag_chat_service.repository.MessageSearchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures full-text search latency on a seeded dataset and checks that the plans never scan chat_messages
+ * sequentially.
+ *
+ * Seeds {@code benchmark.rows} messages (10M by default) spread over 100k sessions of 10k users, unless a
+ * previous run already did; the data is kept so reruns start immediately. Use a dedicated database:
+ * <pre>
+ * mvn test -Dtest=MessageSearchBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/chat_bench -Dbenchmark.db.username=... -Dbenchmark.db.password=...
+ * </pre>
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({MessageSearchRepository.class, MessageBodyCodec.class, DeflateBodyCodec.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties(MessageCompressionProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DisplayName("Message search benchmark")
+class MessageSearchBenchmark {
+
+    private static final long ROWS = Long.getLong("benchmark.rows", 10_000_000);
+    private static final int QUERIES = Integer.getInteger("benchmark.queries", 500);
+    private static final int USERS = 10_000;
+    private static final int SESSIONS = 100_000;
+    private static final int CHUNK = 1_000_000;
+
+    private static final String WORDS = """
+            ARRAY['refund','order','payment','invoice','shipping','delivery','account','password','reset','login',
+                  'error','timeout','upgrade','plan','billing','discount','coupon','address','tracking','return',
+                  'warranty','battery','screen','charger','cable','subscription','cancel','renewal','support','agent',
+                  'thanks','please','help','problem','question','answer','document','policy','contract','premium']
+            """;
+
+    private static final List<String> QUERY_TERMS = List.of(
+            "refund", "password reset", "\"tracking number\"", "battery or charger", "invoice -discount",
+            "term42", "term7 term9", "warranty", "subscription cancel", "term31337");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageSearchRepository searchRepository;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.db.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.db.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.db.password", ""));
+    }
+
+    @Test
+    void searchLatencyAndPlans() throws Exception {
+        seed();
+
+        for (String term : QUERY_TERMS) {
+            String plan = String.join("\n", jdbcTemplate.queryForList(
+                    "EXPLAIN " + explainable(term), String.class));
+            assertThat(plan).as("plan for %s", term).doesNotContain("Seq Scan");
+        }
+
+        // Warm up
+        runQueries(50);
+        long[] first = runQueries(QUERIES);
+        System.out.printf("rows=%d queries=%d p50=%.1f ms p95=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                ROWS, QUERIES, percentile(first, 50), percentile(first, 95), percentile(first, 99),
+                percentile(first, 100));
+    }
+
+    private long[] runQueries(int count) {
+        long[] nanos = new long[count];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+            String user = "search-bench-" + random.nextInt(USERS);
+            String term = QUERY_TERMS.get(random.nextInt(QUERY_TERMS.size()));
+            long start = System.nanoTime();
+            List<SearchHitResponse> page = searchRepository.searchFirst(user, term, 21);
+            if (page.size() == 21) {
+                SearchHitResponse last = page.get(19);
+                searchRepository.searchAfter(user, term, last.rank(), last.messageId(), 21);
+            }
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private String explainable(String term) {
+        // Same statement shape as the repository, with literals so EXPLAIN can plan it
+        return """
+                SELECT m.id FROM chat_messages m JOIN chat_sessions s ON s.id = m.session_id,
+                     websearch_to_tsquery('english'::regconfig, '%s') q
+                WHERE m.message_tsv @@ q AND s.user_id = 'search-bench-1' AND s.deleted_at IS NULL
+                ORDER BY ts_rank(m.message_tsv, q) DESC, m.id DESC LIMIT 21
+                """.formatted(term.replace("'", "''"));
+    }
+
+    private void seed() {
+        Long existing = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM chat_messages m JOIN chat_sessions s ON s.id = m.session_id
+                WHERE s.user_id LIKE 'search-bench-%'
+                """, Long.class);
+        if (existing != null && existing >= ROWS) {
+            System.out.printf("Reusing %d seeded messages%n", existing);
+            return;
+        }
+        jdbcTemplate.update("""
+                INSERT INTO chat_sessions (id, user_id, name, favorite, created_at, updated_at, messages_from)
+                SELECT md5('search-bench-session-' || g)::uuid, 'search-bench-' || (g % ?), 'Session ' || g,
+                       false, now(), now(), now() - ? * interval '1 millisecond'
+                FROM generate_series(0, ? - 1) g
+                ON CONFLICT (id) DO NOTHING
+                """, USERS, ROWS, SESSIONS);
+
+        long start = System.nanoTime();
+        for (long from = existing == null ? 0 : existing; from < ROWS; from += CHUNK) {
+            long to = Math.min(ROWS, from + CHUNK) - 1;
+            // Eight common words plus four skewed "termN" tokens, so some terms match millions of rows
+            // and others only a handful
+            jdbcTemplate.update("""
+                    INSERT INTO chat_messages (id, session_id, sender, message, created_at)
+                    SELECT gen_random_uuid(), md5('search-bench-session-' || (g % %d))::uuid,
+                           CASE WHEN g %% 2 = 0 THEN 'USER' ELSE 'AI' END,
+                           (SELECT string_agg(CASE WHEN k <= 8
+                                                   THEN w[1 + floor(random() * array_length(w, 1))::int]
+                                                   ELSE 'term' || floor(power(random(), 3) * 100000)::int END, ' ')
+                            FROM generate_series(1, 12) k WHERE g >= 0),
+                           now() - g * interval '1 millisecond'
+                    FROM generate_series(%d, %d) g, (SELECT %s AS w) v
+                    """.formatted(SESSIONS, from, to, WORDS));
+            System.out.printf("Seeded %d messages in %.0f s%n", to + 1, (System.nanoTime() - start) / 1e9);
+        }
+        jdbcTemplate.execute("ANALYZE chat_sessions");
+        jdbcTemplate.execute("ANALYZE chat_messages");
+    }
+
+    private static double percentile(long[] nanos, int p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int idx = Math.max(0, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[idx] / 1e6;
+    }
+}
@@ -0,0 +1,287 @@
+package com.dge.rag_chat_service.benchmark;
+
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.codec.DeflateBodyCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.config.ChunkStoreProperties;
+import com.dge.rag_chat_service.config.CitationProperties;
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import com.dge.rag_chat_service.config.RetentionProperties;
+import com.dge.rag_chat_service.dto.CreateMessageRequest;
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.job.RetentionPurger;
+import com.dge.rag_chat_service.job.SessionReaper;
+import com.dge.rag_chat_service.repository.ChatMessageStreamReader;
+import com.dge.rag_chat_service.repository.ContextChunkRepository;
+import com.dge.rag_chat_service.repository.ListVersionRepository;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
+import com.dge.rag_chat_service.repository.MessagePartitionRepository;
+import com.dge.rag_chat_service.repository.RetentionRepository;
+import com.dge.rag_chat_service.service.MessageService;
+import com.dge.rag_chat_service.service.impl.MessageServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the latency of {@link MessageServiceImpl#add} under concurrent traffic, first alone and then while the
+ * retention purger and the session reaper work through a backlog of expired sessions.
+ *
+ * Seeds {@code benchmark.sessions} sessions (100k by default) of which 60% are idle for months, 20% are old and
+ * empty and 20% are active, with {@code benchmark.messages-per-session} messages each, plus 1000 live sessions that
+ * receive the traffic. The purger and the reaper run back to back in their own threads, without the configured
+ * pauses, as a worst case. Every run seeds its own rows and removes what is left of them afterwards. The purger
+ * judges every session of the database, so use a dedicated one:
+ * <pre>
+ * mvn test -Dtest=RetentionPurgeBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/chat_retention -Dbenchmark.db.username=... -Dbenchmark.db.password=...
+ * </pre>
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "retention.enabled=true",
+        "retention.dry-run=false",
+        "retention.idle-after=30d",
+        "retention.empty-after=24h",
+        "retention.pass-interval=PT24H"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({MessageServiceImpl.class, SessionOwnershipCache.class, ChatMessageStreamReader.class, CitationExtractor.class,
+        MessageCitationRepository.class, ChunkStore.class, ContextChunkRepository.class, MessageBodyCodec.class,
+        DeflateBodyCodec.class, ContextJson.class, ListVersionRepository.class, RetentionRepository.class,
+        RetentionPurger.class, SessionReaper.class, MessagePartitionRepository.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties({MessageCompressionProperties.class, CitationProperties.class,
+        ChunkStoreProperties.class, RetentionProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DisplayName("Retention purge benchmark")
+class RetentionPurgeBenchmark {
+
+    private static final int SESSIONS = Integer.getInteger("benchmark.sessions", 100_000);
+    private static final int MESSAGES_PER_SESSION = Integer.getInteger("benchmark.messages-per-session", 20);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 4);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 20);
+    private static final int LIVE_SESSIONS = 1000;
+    private static final int USERS = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private SessionOwnershipCache ownershipCache;
+
+    @Autowired
+    private MessagePartitionRepository partitionRepository;
+
+    @Autowired
+    private RetentionPurger purger;
+
+    @Autowired
+    private SessionReaper reaper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private StringRedisTemplate redisTemplate;
+
+    @MockitoBean
+    private SessionListVersionCache listVersions;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.db.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.db.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.db.password", ""));
+    }
+
+    private record Live(UUID sessionId, String userId) {}
+
+    @Test
+    void addLatencyWhilePurging() throws Exception {
+        String run = "retention-bench-" + Long.toString(System.currentTimeMillis(), 36);
+        List<Live> live = seed(run);
+        try {
+            // Warm up
+            addTraffic(live, 3, new AtomicBoolean());
+            long[] alone = addTraffic(live, SECONDS, new AtomicBoolean());
+
+            AtomicBoolean stop = new AtomicBoolean();
+            ExecutorService background = Executors.newFixedThreadPool(2);
+            Future<?> purging = background.submit(() -> {
+                while (!stop.get()) {
+                    purger.run();
+                }
+            });
+            Future<?> reaping = background.submit(() -> {
+                while (!stop.get()) {
+                    reaper.run();
+                }
+            });
+            long[] purgingLatencies = addTraffic(live, SECONDS, stop);
+            purging.get();
+            reaping.get();
+            background.shutdown();
+
+            print("alone", alone);
+            print("purging", purgingLatencies);
+            System.out.printf("scanned=%.0f tombstoned=%.0f skipped=%.0f throttled=%.0f reaped sessions=%.0f messages=%.0f%n",
+                    meterRegistry.get("chat.retention.scanned").counter().count(),
+                    meterRegistry.get("chat.retention.sessions").counters().stream().mapToDouble(c -> c.count()).sum(),
+                    meterRegistry.get("chat.retention.skipped").counter().count(),
+                    meterRegistry.get("chat.retention.throttled").counter().count(),
+                    meterRegistry.get("chat.reaper.sessions").counter().count(),
+                    meterRegistry.get("chat.reaper.messages").counter().count());
+
+            assertThat(jdbcTemplate.queryForObject("""
+                    SELECT count(*) FROM chat_sessions
+                    WHERE user_id LIKE ? AND name IN ('live', 'active') AND deleted_at IS NOT NULL
+                    """, Long.class, run + "-%")).as("active sessions purged").isZero();
+        } finally {
+            cleanUp(run);
+        }
+    }
+
+    /**
+     * Adds messages to random live sessions from {@code THREADS} threads for {@code seconds}, then sets
+     * {@code done}.
+     *
+     * @return latency of every add in nanoseconds
+     */
+    private long[] addTraffic(List<Live> live, int seconds, AtomicBoolean done) throws Exception {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] nanos = new long[1024];
+                int n = 0;
+                while (System.nanoTime() < end) {
+                    Live target = live.get(random.nextInt(live.size()));
+                    CreateMessageRequest req = new CreateMessageRequest(SenderType.USER,
+                            "How do I reset my password? " + random.nextLong(), Map.of("source", "benchmark"));
+                    long start = System.nanoTime();
+                    messageService.add(target.sessionId(), req, target.userId());
+                    if (n == nanos.length) {
+                        nanos = Arrays.copyOf(nanos, n * 2);
+                    }
+                    nanos[n++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(nanos, n);
+            }));
+        }
+        List<long[]> all = new ArrayList<>();
+        for (Future<long[]> result : results) {
+            all.add(result.get());
+        }
+        pool.shutdown();
+        done.set(true);
+        return all.stream().flatMapToLong(Arrays::stream).toArray();
+    }
+
+    private List<Live> seed(String run) {
+        YearMonth month = YearMonth.now(ZoneOffset.UTC).minusMonths(14);
+        for (; !month.isAfter(YearMonth.now(ZoneOffset.UTC)); month = month.plusMonths(1)) {
+            partitionRepository.createPartition(month);
+        }
+
+        // Kinds by g % 10: 0-5 idle for 200 days, 6-7 empty for 2 days, 8-9 active until yesterday
+        long start = System.nanoTime();
+        jdbcTemplate.update("""
+                INSERT INTO chat_sessions (id, user_id, name, favorite, created_at, updated_at, messages_from)
+                SELECT gen_random_uuid(), ? || '-' || (g % ?),
+                       CASE WHEN g % 10 < 6 THEN 'idle' WHEN g % 10 < 8 THEN 'empty' ELSE 'active' END,
+                       false, c, c, c - interval '1 hour'
+                FROM generate_series(0, ? - 1) g,
+                     LATERAL (SELECT CASE WHEN g % 10 IN (6, 7) THEN now() - interval '2 days'
+                                          ELSE now() - interval '400 days' END AS c) t
+                """, run, USERS, SESSIONS);
+        jdbcTemplate.update("""
+                INSERT INTO chat_messages (id, session_id, sender, message, created_at)
+                SELECT gen_random_uuid(), s.id, CASE WHEN j % 2 = 0 THEN 'USER' ELSE 'AI' END,
+                       repeat('lorem ipsum dolor sit amet ', 8),
+                       CASE WHEN s.name = 'idle' THEN now() - interval '400 days' + j * interval '10 days'
+                            ELSE now() - (? - j) * interval '1 day' END
+                FROM chat_sessions s, generate_series(0, ? - 1) j
+                WHERE s.user_id LIKE ? AND s.name IN ('idle', 'active')
+                """, MESSAGES_PER_SESSION, MESSAGES_PER_SESSION, run + "-%");
+        List<Live> live = new ArrayList<>();
+        for (int i = 0; i < LIVE_SESSIONS; i++) {
+            UUID id = UUID.randomUUID();
+            String userId = run + "-" + (i % USERS);
+            jdbcTemplate.update("""
+                    INSERT INTO chat_sessions (id, user_id, name, favorite, created_at, updated_at)
+                    VALUES (?, ?, 'live', false, now(), now())
+                    """, id, userId);
+            ownershipCache.put(id, userId);
+            live.add(new Live(id, userId));
+        }
+        jdbcTemplate.execute("ANALYZE chat_sessions");
+        jdbcTemplate.execute("ANALYZE chat_messages");
+        System.out.printf("Seeded %d sessions in %.0f s%n", SESSIONS + LIVE_SESSIONS, (System.nanoTime() - start) / 1e9);
+        return live;
+    }
+
+    private void cleanUp(String run) {
+        jdbcTemplate.update("""
+                DELETE FROM message_citations WHERE session_id IN (SELECT id FROM chat_sessions WHERE user_id LIKE ?)
+                """, run + "-%");
+        jdbcTemplate.update("""
+                DELETE FROM chat_messages WHERE session_id IN (SELECT id FROM chat_sessions WHERE user_id LIKE ?)
+                """, run + "-%");
+        jdbcTemplate.update("DELETE FROM chat_sessions WHERE user_id LIKE ?", run + "-%");
+    }
+
+    private static void print(String phase, long[] nanos) {
+        System.out.printf("%-8s adds=%d (%.0f/s) p50=%.2f ms p95=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                phase, nanos.length, nanos.length / (double) SECONDS, percentile(nanos, 50), percentile(nanos, 95),
+                percentile(nanos, 99), percentile(nanos, 100));
+    }
+
+    private static double percentile(long[] nanos, int p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int idx = Math.max(0, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[idx] / 1e6;
+    }
+}
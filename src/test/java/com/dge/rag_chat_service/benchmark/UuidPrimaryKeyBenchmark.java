@@ -0,0 +1,94 @@
+package com.dge.rag_chat_service.benchmark;
+
+import com.dge.rag_chat_service.entity.UuidV7Generator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Compares random (v4) and time-ordered (v7) primary keys on a table shaped like chat_messages:
+ * insert throughput and the size of the primary key and (session_id, created_at, id) indexes afterwards.
+ *
+ * Needs a real PostgreSQL and is not picked up by a normal build. The effect shows once the indexes no
+ * longer fit in shared_buffers, so use tens of millions of rows:
+ * <pre>
+ * mvn test -Dtest=UuidPrimaryKeyBenchmark -Dsurefire.failIfNoSpecifiedTests=false -Dbenchmark.rows=20000000 \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/chat -Dbenchmark.db.username=... -Dbenchmark.db.password=...
+ * </pre>
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DisplayName("UUID primary key benchmark")
+class UuidPrimaryKeyBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int BATCH = 1_000;
+    private static final int SESSIONS = 10_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.db.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.db.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.db.password", ""));
+    }
+
+    @Test
+    void randomVersusTimeOrderedIds() {
+        run("bench_ids_v4", UUID::randomUUID);
+        run("bench_ids_v7", UuidV7Generator::next);
+    }
+
+    private void run(String table, Supplier<UUID> ids) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table
+                + " (id uuid PRIMARY KEY, session_id uuid NOT NULL, created_at timestamptz NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX " + table + "_session ON " + table + " (session_id, created_at, id)");
+
+        List<UUID> sessions = new ArrayList<>(SESSIONS);
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions.add(UUID.randomUUID());
+        }
+
+        try {
+            long start = System.nanoTime();
+            List<Object[]> rows = new ArrayList<>(BATCH);
+            for (int i = 0; i < ROWS; i++) {
+                rows.add(new Object[]{ids.get(), sessions.get(i % SESSIONS), OffsetDateTime.now()});
+                if (rows.size() == BATCH) {
+                    jdbcTemplate.batchUpdate("INSERT INTO " + table + " VALUES (?, ?, ?)", rows);
+                    rows.clear();
+                }
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO " + table + " VALUES (?, ?, ?)", rows);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Long pkey = jdbcTemplate.queryForObject("SELECT pg_relation_size('" + table + "_pkey')", Long.class);
+            Long session = jdbcTemplate.queryForObject("SELECT pg_relation_size('" + table + "_session')", Long.class);
+            System.out.printf("%s rows=%d rows/s=%.0f pkey=%d MB session_idx=%d MB%n",
+                    table, ROWS, ROWS / seconds, pkey >> 20, session >> 20);
+        } finally {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.dge.rag_chat_service.bulkload;
+
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.config.BulkLoadProperties;
+import com.dge.rag_chat_service.repository.BulkLoadRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for BulkLoader.
+ * Tests routing by session, invalid input handling, checkpoints and resume, and index maintenance.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BulkLoader Tests")
+class BulkLoaderTest {
+
+    private static final UUID SESSION_A = UUID.fromString("00000000-0000-7000-8000-00000000000a");
+    private static final UUID SESSION_B = UUID.fromString("00000000-0000-7000-8000-00000000000b");
+
+    @Mock
+    private BulkLoadRepository repository;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private SessionListVersionCache listVersions;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Connection otherConnection;
+
+    @TempDir
+    private Path dir;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private final List<List<LegacyChatRecord>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final Map<UUID, Set<Connection>> connectionsBySession = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection, otherConnection);
+    }
+
+    private void recordBatches() throws SQLException, IOException {
+        when(repository.load(any(), anyList())).thenAnswer(inv -> {
+            List<LegacyChatRecord> batch = inv.getArgument(1);
+            batches.add(batch);
+            batch.forEach(r -> connectionsBySession
+                    .computeIfAbsent(r.sessionId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(inv.getArgument(0)));
+            return (long) batch.size();
+        });
+    }
+
+    private BulkLoader loader(boolean dropIndexes) {
+        BulkLoadProperties properties = new BulkLoadProperties(dir.resolve("in").toString(), 2, 2, 3,
+                dir.resolve("checkpoint.json").toString(), dropIndexes, Duration.ofMinutes(1));
+        return new BulkLoader(repository, dataSource, objectMapper, properties, listVersions);
+    }
+
+    private static String line(UUID sessionId, String message) {
+        return "{\"sessionId\":\"" + sessionId + "\",\"userId\":\"user-1\",\"sender\":\"USER\",\"message\":\""
+                + message + "\",\"createdAt\":\"2024-01-01T00:00:00Z\"}\n";
+    }
+
+    private Path input(String name, String content) throws IOException {
+        Path in = Files.createDirectories(dir.resolve("in"));
+        return Files.writeString(in.resolve(name), content);
+    }
+
+    private List<String> loadedMessages() {
+        return batches.stream().flatMap(List::stream).map(LegacyChatRecord::message).sorted().toList();
+    }
+
+    @Test
+    @DisplayName("Run - loads every record and keeps each session on one writer")
+    void run_shouldLoadAllRecordsGroupedBySession() throws Exception {
+        recordBatches();
+        input("a.jsonl", line(SESSION_A, "a1") + line(SESSION_B, "b1") + line(SESSION_A, "a2")
+                + line(SESSION_B, "b2") + line(SESSION_A, "a3"));
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dir.resolve("in/b.jsonl.gz")))) {
+            out.write(line(SESSION_B, "b3").getBytes(StandardCharsets.UTF_8));
+        }
+
+        BulkLoader.Report report = loader(false).run();
+
+        assertThat(report.read()).isEqualTo(6);
+        assertThat(report.inserted()).isEqualTo(6);
+        assertThat(loadedMessages()).containsExactly("a1", "a2", "a3", "b1", "b2", "b3");
+        assertThat(connectionsBySession).containsOnlyKeys(SESSION_A, SESSION_B);
+        assertThat(connectionsBySession.values()).allSatisfy(connections -> assertThat(connections).hasSize(1));
+        assertThat(batches).flatExtracting(b -> b).extracting(LegacyChatRecord::id).doesNotContainNull();
+
+        BulkLoadCheckpoint checkpoint = BulkLoadCheckpoint.read(dir.resolve("checkpoint.json"), objectMapper);
+        assertThat(checkpoint.files()).containsOnlyKeys("a.jsonl", "b.jsonl.gz");
+        assertThat(checkpoint.files().values()).allMatch(BulkLoadCheckpoint.FileProgress::done);
+        verify(listVersions, atLeastOnce()).refresh("user-1");
+    }
+
+    @Test
+    @DisplayName("Run - skips blank lines and counts malformed or incomplete records as invalid")
+    void run_shouldCountInvalidRecords() throws Exception {
+        recordBatches();
+        input("a.jsonl", line(SESSION_A, "a1") + "\n{not json\n{\"sessionId\":\"" + SESSION_A + "\"}\n"
+                + line(SESSION_A, "a2"));
+
+        BulkLoader.Report report = loader(false).run();
+
+        assertThat(report.read()).isEqualTo(2);
+        assertThat(report.invalid()).isEqualTo(2);
+        assertThat(loadedMessages()).containsExactly("a1", "a2");
+    }
+
+    @Test
+    @DisplayName("Run - derives the same ids when a file is loaded again")
+    void run_shouldDeriveDeterministicIds() throws Exception {
+        recordBatches();
+        input("a.jsonl", line(SESSION_A, "a1") + line(SESSION_A, "a2"));
+
+        loader(false).run();
+        List<UUID> first = batches.stream().flatMap(List::stream).map(LegacyChatRecord::id).toList();
+        batches.clear();
+        Files.delete(dir.resolve("checkpoint.json"));
+        loader(false).run();
+        List<UUID> second = batches.stream().flatMap(List::stream).map(LegacyChatRecord::id).toList();
+
+        assertThat(first).hasSize(2).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(second);
+    }
+
+    @Test
+    @DisplayName("Run - resumes after the checkpointed offset and skips finished files")
+    void run_shouldResumeFromCheckpoint() throws Exception {
+        recordBatches();
+        input("a.jsonl", line(SESSION_A, "a1"));
+        String done = line(SESSION_B, "b1");
+        input("b.jsonl", done + line(SESSION_B, "b2"));
+        new BulkLoadCheckpoint(Map.of(
+                "a.jsonl", new BulkLoadCheckpoint.FileProgress(done.length(), true),
+                "b.jsonl", new BulkLoadCheckpoint.FileProgress(done.getBytes(StandardCharsets.UTF_8).length, false)),
+                List.of()).write(dir.resolve("checkpoint.json"), objectMapper);
+
+        BulkLoader.Report report = loader(false).run();
+
+        assertThat(report.read()).isEqualTo(1);
+        assertThat(loadedMessages()).containsExactly("b2");
+    }
+
+    @Test
+    @DisplayName("Run - failing writer stops the load without advancing the checkpoint")
+    void run_whenWriterFails_shouldKeepLastCheckpoint() throws Exception {
+        when(repository.load(any(), anyList())).thenThrow(new SQLException("copy failed"));
+        input("a.jsonl", line(SESSION_A, "a1") + line(SESSION_A, "a2"));
+
+        assertThatThrownBy(() -> loader(false).run()).isInstanceOf(IOException.class);
+
+        assertThat(Files.exists(dir.resolve("checkpoint.json"))).isFalse();
+        verify(connection).close();
+        verify(otherConnection).close();
+        verify(listVersions, never()).refresh(any());
+    }
+
+    @Test
+    @DisplayName("Run - drops secondary indexes first and rebuilds them at the end")
+    void run_withDropIndexes_shouldRebuildDroppedIndexes() throws Exception {
+        recordBatches();
+        input("a.jsonl", line(SESSION_A, "a1"));
+        List<String> definitions = List.of("CREATE INDEX idx_session_created ON public.chat_messages USING btree (session_id)");
+        when(repository.dropSecondaryIndexes()).thenReturn(definitions);
+
+        loader(true).run();
+
+        verify(repository).createIndexes(definitions);
+        assertThat(BulkLoadCheckpoint.read(dir.resolve("checkpoint.json"), objectMapper).droppedIndexes()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Run - rebuilds indexes left dropped by an interrupted load instead of dropping again")
+    void run_withPendingDroppedIndexes_shouldNotDropAgain() throws Exception {
+        input("a.jsonl", "");
+        List<String> definitions = List.of("CREATE INDEX idx_x ON public.chat_messages USING btree (created_at)");
+        new BulkLoadCheckpoint(Map.of(), definitions).write(dir.resolve("checkpoint.json"), objectMapper);
+
+        loader(true).run();
+
+        verify(repository, never()).dropSecondaryIndexes();
+        verify(repository).createIndexes(definitions);
+    }
+}
@@ -0,0 +1,161 @@
+package com.dge.rag_chat_service.cache;
+
+import com.dge.rag_chat_service.repository.ListVersionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for SessionListVersionCache.
+ * Tests near cache and Redis reads, publishing after commit, retries of failed publishes and monotonic cross-node
+ * updates.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SessionListVersionCache Tests")
+class SessionListVersionCacheTest {
+
+    @Mock
+    private ListVersionRepository repository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> values;
+
+    private SessionListVersionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SessionListVersionCache(repository, redisTemplate, new SimpleMeterRegistry(), 100,
+                Duration.ofMinutes(10), Duration.ofSeconds(5));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(SessionListVersionCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Get - reads Redis once, then serves from the near cache without Postgres")
+    void get_shouldReadRedisOnce() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.get("chat:session-list-version:user1")).thenReturn("4");
+
+        assertThat(cache.get("user1")).isEqualTo(4);
+        assertThat(cache.get("user1")).isEqualTo(4);
+
+        verify(values, times(1)).get(anyString());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Get - seeds Redis from Postgres on a miss, and falls back to Postgres uncached when Redis is down")
+    @SuppressWarnings("unchecked")
+    void get_onRedisMissOrFailure_shouldReadPostgres() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.get("chat:session-list-version:user1")).thenReturn(null);
+        when(repository.userVersion("user1")).thenReturn(2L);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("chat:session-list-version:user1")),
+                eq("2"), anyString())).thenReturn(2L);
+
+        assertThat(cache.get("user1")).isEqualTo(2);
+
+        when(values.get("chat:session-list-version:user2")).thenThrow(new RedisConnectionFailureException("down"));
+        when(repository.userVersion("user2")).thenReturn(9L);
+
+        assertThat(cache.get("user2")).isEqualTo(9);
+        assertThat(cache.get("user2")).isEqualTo(9);
+        verify(repository, times(2)).userVersion("user2");
+    }
+
+    @Test
+    @DisplayName("Bump - publishes the new version only after the transaction commits")
+    @SuppressWarnings("unchecked")
+    void bump_shouldPublishAfterCommit() {
+        when(repository.bumpUser("user1")).thenReturn(5L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.bump("user1");
+            verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq("5"), anyString());
+        verify(redisTemplate).convertAndSend(SessionListVersionCache.INVALIDATION_CHANNEL, "user1:5");
+        assertThat(cache.get("user1")).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Broadcast - versions only move forward, whatever order updates arrive in")
+    void onMessage_shouldKeepHighestVersion() {
+        cache.onMessage(message("tenant:user1:7"), null);
+        cache.onMessage(message("tenant:user1:6"), null);
+        cache.onMessage(message("garbage"), null);
+
+        assertThat(cache.get("tenant:user1")).isEqualTo(7);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Publish - keeps a version Redis rejected and writes it on a later retry")
+    @SuppressWarnings("unchecked")
+    void refresh_whenRedisFails_shouldRetryLater() {
+        when(repository.userVersion("user1")).thenReturn(3L);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), eq("3"), anyString()))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn(3L);
+
+        cache.refresh("user1");
+        cache.retryUnpublished();
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+
+        cache.retryUnpublished();
+        cache.retryUnpublished();
+
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class), anyList(), eq("3"), anyString());
+        verify(redisTemplate).convertAndSend(SessionListVersionCache.INVALIDATION_CHANNEL, "user1:3");
+    }
+
+    @Test
+    @DisplayName("Subscribe - drops the near cache, since broadcasts sent while unsubscribed are lost")
+    void onChannelSubscribed_shouldClearNearCache() {
+        cache.onMessage(message("user1:7"), null);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.get("chat:session-list-version:user1")).thenReturn("8");
+
+        cache.onChannelSubscribed(SessionListVersionCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8), 1);
+
+        assertThat(cache.get("user1")).isEqualTo(8);
+    }
+}
@@ -0,0 +1,134 @@
+package com.dge.rag_chat_service.cache;
+
+import com.dge.rag_chat_service.exception.ResourceNotFoundException;
+import com.dge.rag_chat_service.repository.ChatSessionRepository;
+import com.dge.rag_chat_service.repository.SessionOwnerView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for SessionOwnershipCache.
+ * Tests ownership checks, caching of lookups and cross-node invalidation.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SessionOwnershipCache Tests")
+class SessionOwnershipCacheTest {
+
+    @Mock
+    private ChatSessionRepository repository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private SessionOwnershipCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SessionOwnershipCache(repository, redisTemplate, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    @DisplayName("Require owned - loads once and then serves from cache")
+    void requireOwned_shouldLoadOnce() {
+        UUID id = UUID.randomUUID();
+        when(repository.findOwnerById(id)).thenReturn(Optional.of(owner("user1", false)));
+
+        cache.requireOwned(id, "user1");
+        cache.requireOwned(id, "user1");
+
+        verify(repository, times(1)).findOwnerById(id);
+    }
+
+    @Test
+    @DisplayName("Require owned - another user's session is reported as not found")
+    void requireOwned_whenOtherOwner_shouldThrow() {
+        UUID id = UUID.randomUUID();
+        cache.put(id, "user1");
+
+        assertThrows(ResourceNotFoundException.class, () -> cache.requireOwned(id, "user2"));
+        verify(repository, never()).findOwnerById(id);
+    }
+
+    @Test
+    @DisplayName("Require owned - tombstoned and missing sessions are not found")
+    void requireOwned_whenDeletedOrMissing_shouldThrow() {
+        UUID deleted = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        when(repository.findOwnerById(deleted)).thenReturn(Optional.of(owner("user1", true)));
+        when(repository.findOwnerById(missing)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> cache.requireOwned(deleted, "user1"));
+        assertThrows(ResourceNotFoundException.class, () -> cache.requireOwned(missing, "user1"));
+    }
+
+    @Test
+    @DisplayName("Mark deleted - hides the session locally and broadcasts an invalidation")
+    void markDeleted_shouldPublishInvalidation() {
+        UUID id = UUID.randomUUID();
+        cache.put(id, "user1");
+
+        cache.markDeleted(id, "user1");
+
+        assertThrows(ResourceNotFoundException.class, () -> cache.requireOwned(id, "user1"));
+        verify(redisTemplate).convertAndSend(SessionOwnershipCache.INVALIDATION_CHANNEL, id.toString());
+    }
+
+    @Test
+    @DisplayName("Mark deleted - publish failure does not fail the delete")
+    void markDeleted_whenPublishFails_shouldNotThrow() {
+        UUID id = UUID.randomUUID();
+        doThrow(new IllegalStateException("redis down")).when(redisTemplate).convertAndSend(eq(SessionOwnershipCache.INVALIDATION_CHANNEL), anyString());
+
+        assertDoesNotThrow(() -> cache.markDeleted(id, "user1"));
+    }
+
+    @Test
+    @DisplayName("Invalidation message - evicts the entry so the next check reloads it")
+    void onMessage_shouldEvictEntry() {
+        UUID id = UUID.randomUUID();
+        cache.put(id, "user1");
+        when(repository.findOwnerById(id)).thenReturn(Optional.of(owner("user1", true)));
+
+        cache.onMessage(new DefaultMessage(SessionOwnershipCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                id.toString().getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThrows(ResourceNotFoundException.class, () -> cache.requireOwned(id, "user1"));
+        verify(repository).findOwnerById(id);
+    }
+
+    private SessionOwnerView owner(String userId, boolean deleted) {
+        return new SessionOwnerView() {
+            @Override
+            public String getUserId() {
+                return userId;
+            }
+
+            @Override
+            public boolean isDeleted() {
+                return deleted;
+            }
+        };
+    }
+}
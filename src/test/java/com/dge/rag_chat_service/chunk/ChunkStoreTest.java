@@ -0,0 +1,132 @@
+package com.dge.rag_chat_service.chunk;
+
+import com.dge.rag_chat_service.config.ChunkStoreProperties;
+import com.dge.rag_chat_service.repository.ContextChunkRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ChunkStore.
+ * Tests moving chunk text out of contexts, resolving references through the cache, and the dedup metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ChunkStore Tests")
+class ChunkStoreTest {
+
+    private static final String CHUNK = "Refunds are issued within 14 days. ".repeat(10);
+    private static final String HASH = ChunkStore.sha256(CHUNK);
+
+    @Mock
+    private ContextChunkRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ChunkStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = store(true);
+    }
+
+    private ChunkStore store(boolean enabled) {
+        return new ChunkStore(repository, new ObjectMapper(),
+                new ChunkStoreProperties(enabled, List.of("content", "text"), 256, 100), meterRegistry);
+    }
+
+    private static Map<String, Object> context(String content) {
+        return Map.of("documents", List.of(Map.of("id", "doc-1", "content", content, "score", 0.9)));
+    }
+
+    @Test
+    @DisplayName("Dehydrate - stores a chunk repeated across contexts once and keeps references")
+    @SuppressWarnings("unchecked")
+    void dehydrateAll_shouldStoreEachChunkOnce() {
+        when(repository.insertAll(anyMap())).thenReturn(List.of(HASH));
+
+        List<Map<String, Object>> result = store.dehydrateAll(List.of(context(CHUNK), context(CHUNK), context("short")));
+
+        ArgumentCaptor<Map<String, String>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(repository).insertAll(captor.capture());
+        assertThat(captor.getValue()).containsExactly(Map.entry(HASH, CHUNK));
+        assertThat(result.get(0)).isEqualTo(Map.of("documents", List.of(
+                Map.of("id", "doc-1", "content", Map.of(ChunkStore.REF_KEY, HASH), "score", 0.9))));
+        assertThat(result.get(1)).isEqualTo(result.get(0));
+        assertThat(result.get(2)).isEqualTo(context("short"));
+        assertThat(meterRegistry.get("chat.chunks.dedup.ratio").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("chat.chunks.saved.bytes").gauge().value()).isEqualTo(CHUNK.length() - 2 * 77.0);
+    }
+
+    @Test
+    @DisplayName("Dehydrate - leaves contexts untouched when disabled or without chunks")
+    void dehydrate_withoutChunks_shouldNotStore() {
+        assertThat(store.dehydrate(null)).isNull();
+        assertThat(store.dehydrate(context("short"))).isEqualTo(context("short"));
+        assertThat(store(false).dehydrate(context(CHUNK))).isEqualTo(context(CHUNK));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Hydrate - loads missing chunks once and serves repeats from the cache")
+    void hydrateAll_shouldResolveReferencesThroughCache() {
+        Map<String, Object> stored = Map.of("documents", List.of(
+                Map.of("id", "doc-1", "content", Map.of(ChunkStore.REF_KEY, HASH))));
+        when(repository.findByHashes(Set.of(HASH))).thenReturn(Map.of(HASH, CHUNK));
+
+        List<Map<String, Object>> first = store.hydrateAll(List.of(stored, stored));
+        Map<String, Object> second = store.hydrate(stored);
+
+        Map<String, Object> expected = Map.of("documents", List.of(Map.of("id", "doc-1", "content", CHUNK)));
+        assertThat(first).containsExactly(expected, expected);
+        assertThat(second).isEqualTo(expected);
+        verify(repository).findByHashes(any());
+    }
+
+    @Test
+    @DisplayName("Hydrate - keeps references to unknown chunks and passes through plain JSON")
+    void hydrateJson_shouldResolveOnlyWhenReferenced() {
+        String plain = "{\"documents\":[{\"id\":\"doc-1\"}]}";
+        assertThat(store.hydrateJson(plain)).isSameAs(plain);
+        assertThat(store.hydrateJson(null)).isNull();
+
+        when(repository.findByHashes(any())).thenReturn(Map.of(HASH, CHUNK));
+        String missing = "0".repeat(64);
+        String json = "{\"a\":{\"$chunk\":\"" + HASH + "\"},\"b\":{\"$chunk\":\"" + missing + "\"}}";
+
+        assertThat(store.hydrateJson(json))
+                .isEqualTo("{\"a\":\"" + CHUNK + "\",\"b\":{\"$chunk\":\"" + missing + "\"}}");
+    }
+
+    @Test
+    @DisplayName("Hydrate - parses only the referencing contexts of a page and keeps the others as they are")
+    void hydrateJsonAll_shouldParseOnlyReferencingContexts() {
+        when(repository.findByHashes(Set.of(HASH))).thenReturn(Map.of(HASH, CHUNK));
+        String plain = "{\"documents\":[{\"id\":\"doc-2\"}]}";
+        String referencing = "{\"content\":{\"$chunk\":\"" + HASH + "\"}}";
+
+        List<String> result = store.hydrateJsonAll(Arrays.asList(plain, null, referencing));
+
+        assertThat(result.get(0)).isSameAs(plain);
+        assertThat(result.get(1)).isNull();
+        assertThat(result.get(2)).isEqualTo("{\"content\":\"" + CHUNK + "\"}");
+    }
+}
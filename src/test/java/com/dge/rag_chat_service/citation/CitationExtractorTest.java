@@ -0,0 +1,103 @@
+package com.dge.rag_chat_service.citation;
+
+import com.dge.rag_chat_service.config.CitationProperties;
+import com.dge.rag_chat_service.entity.MessageCitation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for CitationExtractor.
+ * Tests path evaluation over message contexts and validation of configured paths.
+ */
+@DisplayName("CitationExtractor Tests")
+class CitationExtractorTest {
+
+    private static final UUID MESSAGE_ID = UUID.randomUUID();
+    private static final UUID SESSION_ID = UUID.randomUUID();
+    private static final Instant CREATED_AT = Instant.parse("2024-05-01T10:00:00Z");
+
+    private static CitationExtractor extractor(String itemPath, String docIdPath, String chunkIdPath, int max) {
+        return new CitationExtractor(new CitationProperties(itemPath, docIdPath, chunkIdPath, "$.score", max,
+                new CitationProperties.Backfill(false, 1000, Duration.ofSeconds(1))));
+    }
+
+    private static List<String> keys(List<MessageCitation> citations) {
+        return citations.stream().map(c -> c.getId().getDocId() + "/" + c.getId().getChunkId()).toList();
+    }
+
+    @Test
+    @DisplayName("Extract - reads doc and chunk ids of every item with the default paths")
+    void extract_withDefaultPaths_shouldReturnCitations() {
+        CitationExtractor extractor = extractor("$.documents[*]", "$.id", "$.chunkId", 100);
+        Map<String, Object> context = Map.of("documents", List.of(
+                Map.of("id", "doc-1", "chunkId", "c-1", "score", 0.9),
+                Map.of("id", 42, "chunkId", 7),
+                Map.of("id", "", "chunkId", "ignored"),
+                "not an item"));
+
+        List<MessageCitation> citations = extractor.extract(MESSAGE_ID, SESSION_ID, CREATED_AT, context);
+
+        assertThat(keys(citations)).containsExactly("doc-1/c-1", "42/7");
+        assertThat(citations.get(0).getId().getMessageId()).isEqualTo(MESSAGE_ID);
+        assertThat(citations.get(0).getSessionId()).isEqualTo(SESSION_ID);
+        assertThat(citations.get(0).getCreatedAt()).isEqualTo(CREATED_AT);
+    }
+
+    @Test
+    @DisplayName("Extract - member steps unwrap arrays like JSONPath lax mode")
+    void extract_withNestedArrays_shouldUnwrapLikeLaxMode() {
+        CitationExtractor extractor = extractor("$.retrievals.hits", "$.doc.id", "$.chunk", 100);
+        Map<String, Object> context = Map.of("retrievals", List.of(
+                Map.of("hits", List.of(Map.of("doc", Map.of("id", "a"), "chunk", "1"))),
+                Map.of("hits", Map.of("doc", Map.of("id", "b")))));
+
+        assertThat(keys(extractor.extract(MESSAGE_ID, SESSION_ID, CREATED_AT, context))).containsExactly("a/1", "b/");
+    }
+
+    @Test
+    @DisplayName("Extract - items may be plain ids and are capped per message")
+    void extract_withScalarItems_shouldCapCitations() {
+        CitationExtractor extractor = extractor("$.sources[*]", "$", "$.chunk", 2);
+        Map<String, Object> context = Map.of("sources", List.of("a", "b", "b", "c"));
+
+        assertThat(keys(extractor.extract(MESSAGE_ID, SESSION_ID, CREATED_AT, context))).containsExactly("a/", "b/");
+        assertThat(extractor.extract(MESSAGE_ID, SESSION_ID, CREATED_AT, null)).isEmpty();
+        assertThat(extractor.extract(MESSAGE_ID, SESSION_ID, CREATED_AT, Map.of("other", 1))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Documents - one entry per document with its best score, capped per message")
+    void documents_shouldMergeItemsOfADocument() {
+        CitationExtractor extractor = extractor("$.documents[*]", "$.id", "$.chunkId", 2);
+        Map<String, Object> context = Map.of("documents", List.of(
+                Map.of("id", "doc-1", "score", 0.5),
+                Map.of("id", "doc-2"),
+                Map.of("id", "doc-1", "score", 0.9),
+                Map.of("id", "doc-3", "score", 1.0)));
+
+        assertThat(extractor.documents(context)).containsExactly(
+                Map.of("id", "doc-1", "score", 0.9),
+                Map.of("id", "doc-2"));
+        assertThat(extractor.documents(null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Create - rejects paths outside the supported subset")
+    void create_withUnsupportedPath_shouldFail() {
+        assertThatThrownBy(() -> extractor("$.documents[0]", "$.id", "$.chunkId", 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("citation.item-path");
+        assertThatThrownBy(() -> extractor("$.documents[*]", "id", "$.chunkId", 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("citation.doc-id-path");
+    }
+}
@@ -0,0 +1,75 @@
+package com.dge.rag_chat_service.codec;
+
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.entity.ChatMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for ColdBlockCodec.
+ * Tests round trips of bodies and contexts, the raw size count and corrupt blocks.
+ */
+@DisplayName("ColdBlockCodec Tests")
+class ColdBlockCodecTest {
+
+    private final ColdBlockCodec codec = new ColdBlockCodec(new ObjectMapper(), 6);
+
+    @Test
+    @DisplayName("Block - messages read back exactly as written, contexts as their stored text")
+    void decode_shouldReturnMessagesAsWritten() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        String context = "{\"documents\": [{\"id\": \"doc-1\", \"$chunk\": \"ab12\"}]}";
+        byte[] block;
+        try (ColdBlockCodec.BlockWriter writer = codec.writer()) {
+            writer.write(first, "USER", "\u0001d looks encoded but is not", null,
+                    Instant.parse("2026-01-01T10:00:00.123456Z"));
+            writer.write(second, "AI", "Answer", context, Instant.parse("2026-01-01T10:00:01Z"));
+            assertThat(writer.messages()).isEqualTo(2);
+            block = writer.finish();
+        }
+
+        List<ChatMessage> messages = codec.decode(block);
+
+        assertThat(messages).hasSize(2);
+        assertThat(messages.get(0).getId()).isEqualTo(first);
+        assertThat(messages.get(0).getSender()).isEqualTo(SenderType.USER);
+        assertThat(messages.get(0).getMessage()).isEqualTo("\u0001d looks encoded but is not");
+        assertThat(messages.get(0).getContext()).isNull();
+        assertThat(messages.get(0).getCreatedAt()).isEqualTo(Instant.parse("2026-01-01T10:00:00.123456Z"));
+        assertThat(messages.get(1).getSender()).isEqualTo(SenderType.AI);
+        assertThat(messages.get(1).getContext()).isEqualTo(context);
+    }
+
+    @Test
+    @DisplayName("Block - repeated text compresses across messages and raw bytes count the JSON")
+    void writer_shouldCompressAcrossMessages() throws Exception {
+        String body = "The refund policy applies to all orders paid by card. ".repeat(20);
+        try (ColdBlockCodec.BlockWriter writer = codec.writer()) {
+            for (int i = 0; i < 50; i++) {
+                writer.write(UUID.randomUUID(), "AI", body, null, Instant.parse("2026-01-01T10:00:00Z"));
+            }
+            long raw = writer.rawBytes();
+            byte[] block = writer.finish();
+
+            assertThat(raw).isGreaterThan(50L * body.length());
+            assertThat(block.length).isLessThan((int) (raw / 20));
+        }
+    }
+
+    @Test
+    @DisplayName("Decode - a block that does not inflate is rejected")
+    void decode_corruptBlock_shouldThrow() {
+        assertThatThrownBy(() -> codec.decode(new byte[]{1, 2, 3}))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Corrupt cold block");
+    }
+}
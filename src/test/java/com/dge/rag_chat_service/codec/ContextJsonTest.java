@@ -0,0 +1,98 @@
+package com.dge.rag_chat_service.codec;
+
+import com.dge.rag_chat_service.dto.RawJson;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for ContextJson and RawJson.
+ * Tests the depth and size limits, serialization on write and passthrough of stored JSON in responses.
+ */
+@DisplayName("ContextJson Tests")
+class ContextJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ContextJson contextJson = new ContextJson(objectMapper, 1024, 4);
+
+    @Test
+    @DisplayName("Validate - accepts contexts within the limits")
+    void validate_withinLimits_shouldPass() {
+        contextJson.validate(null);
+        contextJson.validate(Map.of("documents", List.of(Map.of("id", "doc-1", "score", 0.9))));
+    }
+
+    @Test
+    @DisplayName("Validate - rejects contexts nested too deep or too large")
+    void validate_overLimits_shouldThrow() {
+        Map<String, Object> deep = Map.of("a", List.of(Map.of("b", List.of(Map.of("c", "leaf")))));
+        Map<String, Object> large = Map.of("documents", List.of(Map.of("content", "x".repeat(1024))));
+
+        assertThatThrownBy(() -> contextJson.validate(deep))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("4 levels");
+        assertThatThrownBy(() -> contextJson.validate(large))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("1024 bytes");
+    }
+
+    @Test
+    @DisplayName("Validate - rejects the key reserved for stripped contexts")
+    void validate_withStrippedKey_shouldThrow() {
+        assertThatThrownBy(() -> contextJson.validate(Map.of("$stripped", "summarized")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("reserved");
+    }
+
+    @Test
+    @DisplayName("Validate - rejects chunk references at any depth, in requests and archived contexts")
+    void validate_withChunkRef_shouldThrow() throws Exception {
+        Map<String, Object> nested = Map.of("documents", List.of(Map.of("content", Map.of("$chunk", "ab12"))));
+        String archived = "{\"documents\":[{\"content\":{\"$chunk\":\"ab12\"}}]}";
+
+        assertThatThrownBy(() -> contextJson.validate(nested))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("$chunk");
+        assertThatThrownBy(() -> ContextJson.rejectChunkRefs(objectMapper.readTree(archived)))
+                .isInstanceOf(BadRequestException.class);
+        // Only the exact shape of a reference is reserved
+        contextJson.validate(Map.of("$chunk", "ab12", "id", "doc-1"));
+        ContextJson.rejectChunkRefs(objectMapper.readTree("{\"documents\":[{\"$chunk\":\"ab12\",\"id\":1}]}"));
+        ContextJson.rejectChunkRefs(null);
+    }
+
+    @Test
+    @DisplayName("Stripped - recognizes stripped contexts as PostgreSQL returns them")
+    void isStripped_shouldMatchStoredMarker() {
+        assertThat(ContextJson.isStripped("{\"$stripped\": \"summarized\", \"documents\": [{\"id\": \"doc-1\"}]}"))
+                .isTrue();
+        assertThat(ContextJson.isStripped("{\"$stripped\": \"dropped\"}")).isTrue();
+        assertThat(ContextJson.isStripped("{\"documents\": [{\"$stripped\": true}]}")).isFalse();
+        assertThat(ContextJson.isStripped(null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Write - serializes once and responses embed the stored text unchanged")
+    void write_shouldRoundTripThroughRawJson() throws Exception {
+        Map<String, Object> context = Map.of("documents", List.of(Map.of("id", "doc-1")));
+
+        String json = contextJson.write(context);
+        String response = objectMapper.writeValueAsString(Map.of("context", RawJson.of(json)));
+
+        assertThat(contextJson.write(null)).isNull();
+        assertThat(json).isEqualTo("{\"documents\":[{\"id\":\"doc-1\"}]}");
+        assertThat(response).isEqualTo("{\"context\":" + json + "}");
+        assertThat(objectMapper.readValue(response, Wrapper.class).context()).isEqualTo(RawJson.of(json));
+    }
+
+    record Wrapper(RawJson context) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.dge.rag_chat_service.codec;
+
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for MessageBodyCodec.
+ * Tests the compression threshold, round trips, marker escaping and the size metrics.
+ */
+@DisplayName("MessageBodyCodec Tests")
+class MessageBodyCodecTest {
+
+    private static final String LARGE = "The refund policy applies to all orders paid by card. ".repeat(400);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private MessageBodyCodec codec(boolean enabled) {
+        return new MessageBodyCodec(List.of(new DeflateBodyCodec(6)),
+                new MessageCompressionProperties(enabled, 1024, "deflate"), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Encode - compresses bodies above the threshold and decodes them back")
+    void encode_largeBody_shouldCompressAndRoundTrip() {
+        MessageBodyCodec codec = codec(true);
+
+        String stored = codec.encode(LARGE);
+
+        assertThat(stored).startsWith("\u0001d");
+        assertThat(stored.length()).isLessThan(LARGE.length() / 4);
+        assertThat(codec.decode(stored)).isEqualTo(LARGE);
+        assertThat(meterRegistry.get("chat.messages.body.size").summary().totalAmount()).isEqualTo(LARGE.length());
+        assertThat(meterRegistry.get("chat.messages.body.saved.bytes").counter().count())
+                .isEqualTo(LARGE.length() - stored.length());
+    }
+
+    @Test
+    @DisplayName("Encode - keeps small, incompressible and disabled bodies as is")
+    void encode_shouldKeepBodiesThatDoNotBenefit() {
+        byte[] noise = new byte[4096];
+        new Random(1).nextBytes(noise);
+        String random = Base64.getEncoder().encodeToString(noise);
+
+        assertThat(codec(true).encode("hello")).isEqualTo("hello");
+        assertThat(codec(true).encode(random)).isSameAs(random);
+        assertThat(codec(false).encode(LARGE)).isSameAs(LARGE);
+        assertThat(codec(true).decode(LARGE)).isSameAs(LARGE);
+        assertThat(codec(true).encode(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Encode - always encodes bodies that start with the marker")
+    void encode_bodyStartingWithMarker_shouldStillRoundTrip() {
+        MessageBodyCodec codec = codec(false);
+        String body = "\u0001d not base64";
+
+        String stored = codec.encode(body);
+
+        assertThat(stored).isNotEqualTo(body);
+        assertThat(codec.decode(stored)).isEqualTo(body);
+    }
+
+    @Test
+    @DisplayName("Decode - rejects bodies of an unknown codec")
+    void decode_unknownCodec_shouldFail() {
+        assertThatThrownBy(() -> codec(true).decode("\u0001zAAAA"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("unknown codec");
+    }
+}
@@ -0,0 +1,142 @@
+package com.dge.rag_chat_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for CircuitBreakerRateLimiter.
+ * Uses a Redis stand-in with injectable delays and outages and the real in-memory fallback.
+ */
+@DisplayName("CircuitBreakerRateLimiter Tests")
+class CircuitBreakerRateLimiterTest {
+
+    private static final RateLimitProperties.Tier TIER = new RateLimitProperties.Tier(100, Duration.ofMinutes(1));
+    private static final long MILLI = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private FakeRedis redis;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CircuitBreakerRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        redis = new FakeRedis();
+        meterRegistry = new SimpleMeterRegistry();
+        RateLimitProperties properties = new RateLimitProperties("redis", "standard", Map.of("standard", TIER), Map.of(),
+                new RateLimitProperties.Leasing(0.05, Duration.ofSeconds(1), Duration.ofMillis(200)),
+                new RateLimitProperties.Breaker(Duration.ofMillis(50), 3, Duration.ofSeconds(5), Duration.ofMillis(50)),
+                new RateLimitProperties.Fallback(4));
+        limiter = new CircuitBreakerRateLimiter(redis, new LocalRateLimiter(properties), properties.breaker(),
+                meterRegistry, clock::get);
+    }
+
+    @Test
+    @DisplayName("Healthy Redis - decisions come from Redis and the breaker stays closed")
+    void healthyRedis_shouldStayClosed() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire("k", TIER).allowed()).isTrue();
+        }
+
+        assertThat(redis.calls.get()).isEqualTo(10);
+        assertThat(limiter.state()).isEqualTo(CircuitBreakerRateLimiter.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Slow Redis - breaker opens after consecutive budget overruns")
+    void slowRedis_shouldOpenBreaker() {
+        redis.delayMillis = 80;
+
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("k", TIER);
+        }
+        limiter.tryAcquire("k", TIER);
+
+        assertThat(limiter.state()).isEqualTo(CircuitBreakerRateLimiter.State.OPEN);
+        assertThat(redis.calls.get()).isEqualTo(3);
+        assertThat(meterRegistry.get("chat.ratelimit.breaker.state").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Redis outage - fallback limits each node to capacity / node count")
+    void redisDown_shouldUseLocalBucketsSizedPerNode() {
+        redis.down = true;
+
+        int allowed = 0;
+        for (int i = 0; i < 40; i++) {
+            RateLimitResult result = limiter.tryAcquire("k", TIER);
+            if (result.allowed()) {
+                allowed++;
+            }
+        }
+
+        assertThat(allowed).isEqualTo(25);
+        assertThat(redis.calls.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("chat.ratelimit.fallback.decisions", "outcome", "allowed").count()).isEqualTo(25);
+        assertThat(meterRegistry.counter("chat.ratelimit.fallback.decisions", "outcome", "rejected").count()).isEqualTo(15);
+    }
+
+    @Test
+    @DisplayName("Recovery - breaker closes after a successful trial call")
+    void recoveredRedis_shouldCloseBreaker() {
+        redis.down = true;
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("k", TIER);
+        }
+        assertThat(limiter.state()).isEqualTo(CircuitBreakerRateLimiter.State.OPEN);
+
+        redis.down = false;
+        clock.addAndGet(5_001 * MILLI);
+        limiter.tryAcquire("k", TIER);
+
+        assertThat(limiter.state()).isEqualTo(CircuitBreakerRateLimiter.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Failed trial - breaker re-opens for another period")
+    void failedTrial_shouldReopenBreaker() {
+        redis.down = true;
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("k", TIER);
+        }
+
+        clock.addAndGet(5_001 * MILLI);
+        limiter.tryAcquire("k", TIER);
+        int callsAfterTrial = redis.calls.get();
+        limiter.tryAcquire("k", TIER);
+
+        assertThat(limiter.state()).isEqualTo(CircuitBreakerRateLimiter.State.OPEN);
+        assertThat(redis.calls.get()).isEqualTo(callsAfterTrial);
+    }
+
+    /**
+     * Redis stand-in: always allows, optionally after a delay (advancing the fake clock) or by failing.
+     */
+    private class FakeRedis implements RateLimiter {
+
+        final AtomicInteger calls = new AtomicInteger();
+        volatile long delayMillis;
+        volatile boolean down;
+
+        @Override
+        public RateLimitResult tryAcquire(String key, RateLimitProperties.Tier tier) {
+            calls.incrementAndGet();
+            clock.addAndGet(delayMillis * MILLI);
+            if (down) {
+                throw new IllegalStateException("Redis command timed out");
+            }
+            return new RateLimitResult(true, tier.capacity(), tier.capacity() - 1, 0, 600);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.dge.rag_chat_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for LeasingRateLimiter.
+ * Tests that hot keys are served from local leases and that leased tokens bound what a node admits.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LeasingRateLimiter Tests")
+class LeasingRateLimiterTest {
+
+    private static final RateLimitProperties.Tier TIER = new RateLimitProperties.Tier(1000, Duration.ofMinutes(1));
+    private static final long MILLI = 1_000_000L;
+
+    @Mock
+    private RedisTokenBucket redisBucket;
+
+    private final AtomicLong clock = new AtomicLong(1_000 * MILLI);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LeasingRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        RateLimitProperties.Leasing leasing = new RateLimitProperties.Leasing(0.05, Duration.ofSeconds(1), Duration.ofMillis(200));
+        limiter = new LeasingRateLimiter(redisBucket, leasing, meterRegistry, Runnable::run, clock::get);
+    }
+
+    @Test
+    @DisplayName("Hot key - served locally after the lease adapts to the request rate")
+    void hotKey_shouldBeServedFromLocalLease() {
+        AtomicLong granted = new AtomicLong();
+        when(redisBucket.acquire(eq("k"), eq(TIER), anyLong())).thenAnswer(inv -> {
+            long requested = inv.getArgument(2);
+            granted.addAndGet(requested);
+            return new RedisTokenBucket.Grant(requested, 500, 0, 1000);
+        });
+
+        int allowed = 0;
+        for (int i = 0; i < 1000; i++) {
+            clock.addAndGet(MILLI);
+            if (limiter.tryAcquire("k", TIER).allowed()) {
+                allowed++;
+            }
+        }
+
+        assertThat(allowed).isEqualTo(1000);
+        assertThat(allowed).isLessThanOrEqualTo(granted.intValue());
+        // At ~1 request/ms the lease reaches the 50 token cap, so Redis sees a small fraction of traffic
+        assertThat(meterRegistry.counter("chat.ratelimit.decisions", "path", "local").count()).isGreaterThan(900);
+    }
+
+    @Test
+    @DisplayName("Empty shared bucket - request is rejected with Retry-After")
+    void emptyBucket_shouldReject() {
+        when(redisBucket.acquire(eq("k"), eq(TIER), anyLong()))
+                .thenReturn(new RedisTokenBucket.Grant(0, 0, 500, 60000));
+
+        RateLimitResult result = limiter.tryAcquire("k", TIER);
+
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.retryAfterMillis()).isEqualTo(500);
+        assertThat(result.limit()).isEqualTo(1000);
+    }
+
+    @Test
+    @DisplayName("Expired lease - unspent tokens are dropped and a new lease is fetched")
+    void expiredLease_shouldNotBeSpent() {
+        when(redisBucket.acquire(eq("k"), eq(TIER), anyLong()))
+                .thenReturn(new RedisTokenBucket.Grant(10, 900, 0, 1000));
+
+        assertThat(limiter.tryAcquire("k", TIER).allowed()).isTrue();
+        clock.addAndGet(2_000 * MILLI);
+        assertThat(limiter.tryAcquire("k", TIER).allowed()).isTrue();
+
+        verify(redisBucket, times(2)).acquire(eq("k"), eq(TIER), anyLong());
+    }
+
+    @Test
+    @DisplayName("Idle leases - evicted after ten lease TTLs")
+    void idleLeases_shouldBeEvicted() {
+        when(redisBucket.acquire(eq("k"), eq(TIER), anyLong()))
+                .thenReturn(new RedisTokenBucket.Grant(1, 900, 0, 1000));
+        limiter.tryAcquire("k", TIER);
+
+        clock.addAndGet(11_000 * MILLI);
+        limiter.evictIdle();
+
+        assertThat(limiter.leaseCount()).isZero();
+    }
+}
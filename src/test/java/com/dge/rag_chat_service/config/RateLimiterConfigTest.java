@@ -0,0 +1,58 @@
+package com.dge.rag_chat_service.config;
+
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.SslVerifyMode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for RateLimiterConfig.
+ * Tests that the limiter's Redis connection copies the shared setup and only replaces the command timeout.
+ */
+@DisplayName("RateLimiterConfig Tests")
+class RateLimiterConfigTest {
+
+    private static final RateLimitProperties PROPERTIES = new RateLimitProperties("redis", "standard", Map.of(),
+            Map.of(),
+            new RateLimitProperties.Leasing(0.05, Duration.ofSeconds(1), Duration.ofMillis(200)),
+            new RateLimitProperties.Breaker(Duration.ofMillis(50), 3, Duration.ofSeconds(5), Duration.ofMillis(20)),
+            new RateLimitProperties.Fallback(1));
+
+    @Test
+    @DisplayName("Connection factory - keeps sentinels, SSL, client name and read preference of the shared factory")
+    void rateLimitRedisConnectionFactory_shouldCopySharedSetup() {
+        RedisSentinelConfiguration sentinel = new RedisSentinelConfiguration("primary", Set.of("sentinel-1:26379"));
+        sentinel.setDatabase(2);
+        LettuceClientConfiguration shared = LettuceClientConfiguration.builder()
+                .useSsl().verifyPeer(SslVerifyMode.CA).startTls().and()
+                .clientName("chat")
+                .readFrom(ReadFrom.REPLICA_PREFERRED)
+                .commandTimeout(Duration.ofSeconds(60))
+                .shutdownTimeout(Duration.ofMillis(10))
+                .build();
+
+        LettuceConnectionFactory factory = new RateLimiterConfig()
+                .rateLimitRedisConnectionFactory(new LettuceConnectionFactory(sentinel, shared), PROPERTIES);
+
+        assertThat(factory.isRedisSentinelAware()).isTrue();
+        assertThat(factory.getSentinelConfiguration().getMaster().getName()).isEqualTo("primary");
+        assertThat(factory.getDatabase()).isEqualTo(2);
+        LettuceClientConfiguration client = factory.getClientConfiguration();
+        assertThat(client.isUseSsl()).isTrue();
+        assertThat(client.getVerifyMode()).isEqualTo(SslVerifyMode.CA);
+        assertThat(client.isStartTls()).isTrue();
+        assertThat(client.getClientName()).contains("chat");
+        assertThat(client.getReadFrom()).contains(ReadFrom.REPLICA_PREFERRED);
+        assertThat(client.getShutdownTimeout()).isEqualTo(Duration.ofMillis(10));
+        assertThat(client.getCommandTimeout()).isEqualTo(Duration.ofMillis(20));
+    }
+}
@@ -0,0 +1,113 @@
+package com.dge.rag_chat_service.config;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RedisRateLimiterFilter.
+ * Tests bucket key and tier resolution and the rate limit response headers.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RedisRateLimiterFilter Tests")
+class RedisRateLimiterFilterTest {
+
+    private static final RateLimitProperties.Tier STANDARD = new RateLimitProperties.Tier(100, Duration.ofMinutes(1));
+    private static final RateLimitProperties.Tier PREMIUM = new RateLimitProperties.Tier(1000, Duration.ofMinutes(1));
+
+    @Mock
+    private RateLimiter tokenBucket;
+
+    @Mock
+    private ApiKeyStore apiKeyStore;
+
+    @Mock
+    private FilterChain chain;
+
+    private RedisRateLimiterFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties("redis", "standard",
+                Map.of("standard", STANDARD, "premium", PREMIUM),
+                Map.of("user3", "premium"),
+                new RateLimitProperties.Leasing(0.05, Duration.ofSeconds(1), Duration.ofMillis(200)),
+                new RateLimitProperties.Breaker(Duration.ofMillis(50), 5, Duration.ofSeconds(5), Duration.ofMillis(50)),
+                new RateLimitProperties.Fallback(1));
+        filter = new RedisRateLimiterFilter(tokenBucket, apiKeyStore, properties);
+    }
+
+    @Test
+    @DisplayName("Allowed request - passes through with limit headers")
+    void allowedRequest_shouldSetHeadersAndContinue() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-API-KEY", "xyz789");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        when(apiKeyStore.getUserIdByApiKey("xyz789")).thenReturn(Optional.of("user3"));
+        when(tokenBucket.tryAcquire("rate:api:xyz789", PREMIUM))
+                .thenReturn(new RateLimitResult(true, 1000, 999, 0, 60));
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertThat(response.getHeader("X-RateLimit-Limit")).isEqualTo("1000");
+        assertThat(response.getHeader("X-RateLimit-Remaining")).isEqualTo("999");
+        assertThat(response.getHeader("X-RateLimit-Reset")).isEqualTo("1");
+        assertThat(response.getHeader("Retry-After")).isNull();
+    }
+
+    @Test
+    @DisplayName("Rejected request - returns 429 with Retry-After")
+    void rejectedRequest_shouldReturn429() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-API-KEY", "abc123");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        when(apiKeyStore.getUserIdByApiKey("abc123")).thenReturn(Optional.of("user1"));
+        when(tokenBucket.tryAcquire("rate:api:abc123", STANDARD))
+                .thenReturn(new RateLimitResult(false, 100, 0, 1200, 60000));
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("X-RateLimit-Limit")).isEqualTo("100");
+        assertThat(response.getHeader("X-RateLimit-Remaining")).isEqualTo("0");
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+    }
+
+    @Test
+    @DisplayName("Unknown API key - limited per client IP on the default tier")
+    void unknownApiKey_shouldBeLimitedByIp() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-API-KEY", "forged");
+        request.setRemoteAddr("10.0.0.7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        when(apiKeyStore.getUserIdByApiKey("forged")).thenReturn(Optional.empty());
+        when(tokenBucket.tryAcquire(eq("rate:ip:10.0.0.7"), eq(STANDARD)))
+                .thenReturn(new RateLimitResult(true, 100, 42, 0, 1000));
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+    }
+}
@@ -0,0 +1,91 @@
+package com.dge.rag_chat_service.controller;
+
+import com.dge.rag_chat_service.dto.ArchiveImportResponse;
+import com.dge.rag_chat_service.service.ArchiveService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Unit tests for ArchiveController.
+ * Tests the REST endpoints for exporting and importing user archives.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ArchiveController Tests")
+class ArchiveControllerTest {
+
+    private static final UsernamePasswordAuthenticationToken PRINCIPAL =
+            new UsernamePasswordAuthenticationToken("user123", null, List.of());
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private ArchiveService archiveService;
+
+    @InjectMocks
+    private ArchiveController archiveController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(archiveController).build();
+    }
+
+    @Test
+    @DisplayName("Export archive - streams a zip")
+    void testExportArchive() throws Exception {
+        when(archiveService.export("user123")).thenReturn(out -> out.write(new byte[]{'P', 'K'}));
+
+        MvcResult result = mockMvc.perform(get("/v1/api/archive")
+                        .principal(PRINCIPAL))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zip"))
+                .andExpect(content().bytes(new byte[]{'P', 'K'}));
+    }
+
+    @Test
+    @DisplayName("Import archive - returns import summary")
+    void testImportArchive() throws Exception {
+        UUID skipped = UUID.randomUUID();
+        when(archiveService.importArchive(any(InputStream.class), eq("user123")))
+                .thenReturn(new ArchiveImportResponse(3, 120, List.of(skipped), List.of()));
+
+        mockMvc.perform(post("/v1/api/archive")
+                        .principal(PRINCIPAL)
+                        .contentType("application/zip")
+                        .content(new byte[]{'P', 'K'}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importedSessions").value(3))
+                .andExpect(jsonPath("$.importedMessages").value(120))
+                .andExpect(jsonPath("$.skippedSessions[0]").value(skipped.toString()));
+
+        verify(archiveService).importArchive(any(InputStream.class), eq("user123"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.dge.rag_chat_service.controller;
+
+import com.dge.rag_chat_service.dto.CitedMessageResponse;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.DocumentCitationCount;
+import com.dge.rag_chat_service.service.CitationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Unit tests for CitationController.
+ * Tests the REST endpoints for document citation lookups and rollups.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CitationController Tests")
+class CitationControllerTest {
+
+    private static final UsernamePasswordAuthenticationToken PRINCIPAL =
+            new UsernamePasswordAuthenticationToken("user123", null, List.of());
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private CitationService citationService;
+
+    @InjectMocks
+    private CitationController citationController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(citationController).build();
+    }
+
+    @Test
+    @DisplayName("Messages by document - returns citing messages")
+    void testFindMessagesByDocument() throws Exception {
+        UUID messageId = UUID.randomUUID();
+        CitedMessageResponse cited = new CitedMessageResponse(messageId, UUID.randomUUID(), List.of("c-1"), Instant.now());
+        when(citationService.findMessagesByDocument("user123", "doc-1", null, 20))
+                .thenReturn(new CursorPage<>(List.of(cited), 20, null, null));
+
+        mockMvc.perform(get("/v1/api/citations/messages")
+                        .param("docId", "doc-1")
+                        .principal(PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].messageId").value(messageId.toString()))
+                .andExpect(jsonPath("$.content[0].chunkIds[0]").value("c-1"));
+    }
+
+    @Test
+    @DisplayName("Top documents - returns most cited documents")
+    void testFindTopDocuments() throws Exception {
+        Instant since = Instant.parse("2024-01-01T00:00:00Z");
+        when(citationService.findTopDocuments("user123", since, 5))
+                .thenReturn(List.of(new DocumentCitationCount("doc-1", 12, 3, Instant.now())));
+
+        mockMvc.perform(get("/v1/api/citations/top-documents")
+                        .param("since", "2024-01-01T00:00:00Z")
+                        .param("limit", "5")
+                        .principal(PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].docId").value("doc-1"))
+                .andExpect(jsonPath("$[0].citations").value(12))
+                .andExpect(jsonPath("$[0].sessions").value(3));
+    }
+}
@@ -1,35 +1,57 @@
 package com.dge.rag_chat_service.controller;
 
+import com.dge.rag_chat_service.dto.AcceptedMessageResponse;
 import com.dge.rag_chat_service.dto.CreateMessageRequest;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.dto.MessageResponse;
 import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.ingest.WriteBehindMessageIngestor;
 import com.dge.rag_chat_service.service.MessageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -40,11 +62,20 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DisplayName("MessageController Tests")
 class MessageControllerTest {
 
+    private static final UsernamePasswordAuthenticationToken PRINCIPAL =
+            new UsernamePasswordAuthenticationToken("user123", null, List.of());
+
     private MockMvc mockMvc;
 
     @Mock
     private MessageService messageService;
 
+    @Mock
+    private ObjectProvider<WriteBehindMessageIngestor> ingestor;
+
+    @Spy
+    private ConditionalGet conditionalGet = new ConditionalGet(new SimpleMeterRegistry());
+
     @InjectMocks
     private MessageController messageController;
 
@@ -57,11 +88,12 @@ class MessageControllerTest {
     void testAddMessageSuccess() throws Exception {
         UUID sessionId = UUID.randomUUID();
 
-        MessageResponse messageResponse = new MessageResponse(UUID.randomUUID(), SenderType.USER, "Test message", null, null);
+        MessageResponse messageResponse = new MessageResponse(UUID.randomUUID(), SenderType.USER, "Test message", null, false, null);
 
-        when(messageService.add(eq(sessionId), any(CreateMessageRequest.class))).thenReturn(messageResponse);
+        when(messageService.add(eq(sessionId), any(CreateMessageRequest.class), eq("user123"))).thenReturn(messageResponse);
 
         mockMvc.perform(post("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
                         .contentType("application/json")
                         .content("""
                         {
@@ -73,13 +105,39 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.id").value(messageResponse.id().toString()))
                 .andExpect(jsonPath("$.message").value(messageResponse.message()));
 
-        verify(messageService).add(eq(sessionId), any(CreateMessageRequest.class));
+        verify(messageService).add(eq(sessionId), any(CreateMessageRequest.class), eq("user123"));
+    }
+
+    @Test
+    void testAddMessageWriteBehindAccepted() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        WriteBehindMessageIngestor writeBehind = mock(WriteBehindMessageIngestor.class);
+        AcceptedMessageResponse accepted = new AcceptedMessageResponse(UUID.randomUUID(), 42L, Instant.now());
+
+        when(ingestor.getIfAvailable()).thenReturn(writeBehind);
+        when(writeBehind.enqueue(eq(sessionId), any(CreateMessageRequest.class), eq("user123"))).thenReturn(accepted);
+
+        mockMvc.perform(post("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
+                        .contentType("application/json")
+                        .content("""
+                        {
+                            "sender":"USER",
+                            "message":"Test message"
+                        }
+                        """))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(accepted.id().toString()))
+                .andExpect(jsonPath("$.sequence").value(42));
+
+        verifyNoInteractions(messageService);
     }
 
     @Test
     void testAddMessageBadRequest() throws Exception {
         UUID sessionId = UUID.randomUUID();
         mockMvc.perform(post("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
                         .contentType("application/json")
                         .content("{}"))
                 .andExpect(status().isBadRequest());
@@ -91,16 +149,17 @@ class MessageControllerTest {
         int page = 0;
         int size = 10;
 
-        MessageResponse messageResponse1 = new MessageResponse(UUID.randomUUID(), SenderType.USER, "Message 1", null, null);
-        MessageResponse messageResponse2 = new MessageResponse(UUID.randomUUID(), SenderType.USER, "Message 2", null, null);
+        MessageResponse messageResponse1 = new MessageResponse(UUID.randomUUID(), SenderType.USER, "Message 1", null, false, null);
+        MessageResponse messageResponse2 = new MessageResponse(UUID.randomUUID(), SenderType.USER, "Message 2", null, false, null);
 
 
         List<MessageResponse> messages = Arrays.asList(messageResponse1, messageResponse2);
         Page<MessageResponse> pagedMessages = new PageImpl<>(messages, PageRequest.of(page, size), 2);
 
-        when(messageService.list(sessionId, page, size)).thenReturn(pagedMessages);
+        when(messageService.list(sessionId, page, size, "user123")).thenReturn(pagedMessages);
 
         mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
                         .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isOk())
@@ -108,7 +167,60 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.content[0].id").value(messageResponse1.id().toString()))
                 .andExpect(jsonPath("$.content[1].id").value(messageResponse2.id().toString()));
 
-        verify(messageService).list(sessionId, page, size);
+        verify(messageService).list(sessionId, page, size, "user123");
+    }
+
+    @Test
+    void testListMessagesNotModified() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        when(messageService.messagesVersion(sessionId, "user123")).thenReturn(5L);
+        when(messageService.list(any(), anyInt(), eq(10), eq("user123"))).thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 10), 0));
+
+        String etag = mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
+                        .param("size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // Same version, other page: the tag does not match
+        mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
+                        .param("page", "1")
+                        .param("size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        verify(messageService).list(sessionId, 0, 10, "user123");
+        verify(messageService).list(sessionId, 1, 10, "user123");
+    }
+
+    @Test
+    void testListMessagesETagDependsOnSessionAndEveryParameter() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        UUID otherSessionId = UUID.randomUUID();
+        when(messageService.messagesVersion(any(), eq("user123"))).thenReturn(5L);
+        when(messageService.list(any(), anyInt(), anyInt(), eq("user123"))).thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 10), 0));
+
+        // Page and size once hashed to the same tag here
+        String first = etag(sessionId, "0", "62");
+        assertThat(etag(sessionId, "1", "31")).isNotEqualTo(first);
+        assertThat(etag(otherSessionId, "0", "62")).isNotEqualTo(first);
+        assertThat(etag(sessionId, "0", "62")).isEqualTo(first);
+    }
+
+    private String etag(UUID sessionId, String page, String size) throws Exception {
+        return mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
+                        .param("page", page)
+                        .param("size", size))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
     }
 
     @Test
@@ -116,13 +228,160 @@ class MessageControllerTest {
         UUID sessionId = UUID.randomUUID();
 
         Page<MessageResponse> emptyPage = new PageImpl<>(Collections.emptyList(), PageRequest.of(0, 10), 0);
-        when(messageService.list(sessionId, 0, 10)).thenReturn(emptyPage);
+        when(messageService.list(sessionId, 0, 10, "user123")).thenReturn(emptyPage);
 
         mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages", sessionId)
+                        .principal(PRINCIPAL)
                         .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content", hasSize(0)));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testListMessagesByCursorSuccess() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+
+        MessageResponse messageResponse = new MessageResponse(UUID.randomUUID(), SenderType.USER, "Message 1", null, false, null);
+        CursorPage<MessageResponse> cursorPage = new CursorPage<>(List.of(messageResponse), 10, "next", "prev");
+
+        when(messageService.listByCursor(sessionId, "abc", null, 10, "user123")).thenReturn(cursorPage);
+
+        mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages/cursor", sessionId)
+                        .principal(PRINCIPAL)
+                        .param("after", "abc")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id").value(messageResponse.id().toString()))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.previousCursor").value("prev"));
+
+        verify(messageService).listByCursor(sessionId, "abc", null, 10, "user123");
+    }
+
+    @Test
+    void testAddMessagesBatchSuccess() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+
+        MessageResponse question = new MessageResponse(UUID.randomUUID(), SenderType.USER, "Question", null, false, null);
+        MessageResponse answer = new MessageResponse(UUID.randomUUID(), SenderType.AI, "Answer", null, false, null);
+
+        when(messageService.addAll(eq(sessionId), any(), eq("user123"))).thenReturn(List.of(question, answer));
+
+        mockMvc.perform(post("/v1/api/sessions/{sessionId}/messages:batch", sessionId)
+                        .principal(PRINCIPAL)
+                        .contentType("application/json")
+                        .content("""
+                        [
+                            {"sender":"USER", "message":"Question"},
+                            {"sender":"AI", "message":"Answer"}
+                        ]
+                        """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(question.id().toString()))
+                .andExpect(jsonPath("$[1].id").value(answer.id().toString()));
+
+        verify(messageService).addAll(eq(sessionId), any(), eq("user123"));
+    }
+
+    @Test
+    void testAddMessagesBatchEmpty() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        mockMvc.perform(post("/v1/api/sessions/{sessionId}/messages:batch", sessionId)
+                        .principal(PRINCIPAL)
+                        .contentType("application/json")
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(messageService);
+    }
+
+    @Test
+    void testAddMessagesBatchInvalidElement() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        mockMvc.perform(post("/v1/api/sessions/{sessionId}/messages:batch", sessionId)
+                        .principal(PRINCIPAL)
+                        .contentType("application/json")
+                        .content("""
+                        [
+                            {"sender":"USER", "message":"Question"},
+                            {"sender":"AI"}
+                        ]
+                        """))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(messageService);
+    }
+
+    @Test
+    void testExportMessagesStreamsNdjson() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        when(messageService.export(sessionId, "user123"))
+                .thenReturn(out -> out.write("{\"message\":\"one\"}\n{\"message\":\"two\"}\n".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages/export", sessionId)
+                        .principal(PRINCIPAL))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"message\":\"one\"}\n{\"message\":\"two\"}\n"));
+    }
+
+    @Test
+    void testExportMessagesGzip() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        when(messageService.export(sessionId, "user123"))
+                .thenReturn(out -> out.write("{\"message\":\"one\"}\n".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages/export", sessionId)
+                        .principal(PRINCIPAL)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("{\"message\":\"one\"}\n");
+        }
+    }
+
+    @Test
+    void testExportMessagesGzipRefused() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        when(messageService.export(sessionId, "user123"))
+                .thenReturn(out -> out.write("{\"message\":\"one\"}\n".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mockMvc.perform(get("/v1/api/sessions/{sessionId}/messages/export", sessionId)
+                        .principal(PRINCIPAL)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string("{\"message\":\"one\"}\n"));
+    }
+
+    @Test
+    void testAcceptsGzip() {
+        assertThat(MessageController.acceptsGzip(null)).isFalse();
+        assertThat(MessageController.acceptsGzip("gzip")).isTrue();
+        assertThat(MessageController.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(MessageController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(MessageController.acceptsGzip("gzip; q=0.000")).isFalse();
+        assertThat(MessageController.acceptsGzip("*")).isTrue();
+        assertThat(MessageController.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(MessageController.acceptsGzip("identity, *;q=0")).isFalse();
+        assertThat(MessageController.acceptsGzip("br, x-gzip")).isTrue();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dge.rag_chat_service.controller;
+
+import com.dge.rag_chat_service.dto.ContextQueryRequest;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.MessageResponse;
+import com.dge.rag_chat_service.dto.RawJson;
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.service.ContextQueryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Unit tests for MessageQueryController.
+ * Tests the REST endpoint for querying the caller's messages by context.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessageQueryController Tests")
+class MessageQueryControllerTest {
+
+    private static final UsernamePasswordAuthenticationToken PRINCIPAL =
+            new UsernamePasswordAuthenticationToken("user123", null, List.of());
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private ContextQueryService contextQueryService;
+
+    @InjectMocks
+    private MessageQueryController messageQueryController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(messageQueryController).build();
+    }
+
+    @Test
+    @DisplayName("Query by context - returns matching messages")
+    void testQueryByContext() throws Exception {
+        UUID messageId = UUID.randomUUID();
+        MessageResponse message = new MessageResponse(messageId, SenderType.AI, "answer",
+                RawJson.of("{\"documents\": [{\"id\": \"doc-42\"}]}"), false, Instant.now());
+        when(contextQueryService.query(eq("user123"), any(ContextQueryRequest.class)))
+                .thenReturn(new CursorPage<>(List.of(message), 20, null, null));
+
+        mockMvc.perform(post("/v1/api/messages:query")
+                        .principal(PRINCIPAL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"contains\":{\"documents\":[{\"id\":\"doc-42\"}]},\"path\":\"$.score < 0.3\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(messageId.toString()))
+                .andExpect(jsonPath("$.content[0].context.documents[0].id").value("doc-42"));
+
+        ArgumentCaptor<ContextQueryRequest> captor = ArgumentCaptor.forClass(ContextQueryRequest.class);
+        verify(contextQueryService).query(eq("user123"), captor.capture());
+        assertThat(captor.getValue().contains().toString()).isEqualTo("{\"documents\":[{\"id\":\"doc-42\"}]}");
+        assertThat(captor.getValue().path()).isEqualTo("$.score < 0.3");
+    }
+}
@@ -0,0 +1,70 @@
+package com.dge.rag_chat_service.controller;
+
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.SearchHitResponse;
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.service.SearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Unit tests for SearchController.
+ * Tests the REST endpoint for searching the caller's messages.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SearchController Tests")
+class SearchControllerTest {
+
+    private static final UsernamePasswordAuthenticationToken PRINCIPAL =
+            new UsernamePasswordAuthenticationToken("user123", null, List.of());
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private SearchService searchService;
+
+    @InjectMocks
+    private SearchController searchController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(searchController).build();
+    }
+
+    @Test
+    @DisplayName("Search - returns hits of the authenticated user")
+    void testSearch() throws Exception {
+        UUID messageId = UUID.randomUUID();
+        SearchHitResponse hit = new SearchHitResponse(messageId, UUID.randomUUID(), SenderType.AI,
+                "your **refund** was issued", 0.6f, Instant.now());
+        when(searchService.search("user123", "refund", "abc", 10))
+                .thenReturn(new CursorPage<>(List.of(hit), 10, "next", null));
+
+        mockMvc.perform(get("/v1/api/search")
+                        .param("q", "refund")
+                        .param("after", "abc")
+                        .param("size", "10")
+                        .principal(PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].messageId").value(messageId.toString()))
+                .andExpect(jsonPath("$.content[0].snippet").value("your **refund** was issued"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+}
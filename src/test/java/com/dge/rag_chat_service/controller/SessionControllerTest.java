@@ -1,5 +1,6 @@
 package com.dge.rag_chat_service.controller;
 
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.dto.FavoriteSessionRequest;
 import com.dge.rag_chat_service.dto.RenameSessionRequest;
 import com.dge.rag_chat_service.dto.SessionResponse;
@@ -10,21 +11,35 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -35,11 +50,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DisplayName("SessionController Tests")
 class SessionControllerTest {
 
+    private static final UsernamePasswordAuthenticationToken PRINCIPAL =
+            new UsernamePasswordAuthenticationToken("user123", null, List.of());
+
     private MockMvc mockMvc;
 
     @Mock
     private SessionService sessionService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ConditionalGet conditionalGet = new ConditionalGet(meterRegistry);
+
     @InjectMocks
     private SessionController sessionController;
 
@@ -53,9 +76,10 @@ class SessionControllerTest {
     void testRenameSessionSuccess() throws Exception {
         UUID sessionId = UUID.randomUUID();
 
-        when(sessionService.rename(any(), any(RenameSessionRequest.class))).thenReturn(new SessionResponse(sessionId, "Updated name", "user123", false, Instant.now(), Instant.now()));
+        when(sessionService.rename(any(), any(RenameSessionRequest.class), eq("user123"))).thenReturn(new SessionResponse(sessionId, "Updated name", "user123", false, Instant.now(), Instant.now()));
 
         mockMvc.perform(put("/v1/api/sessions/{id}/rename", sessionId)
+                        .principal(PRINCIPAL)
                         .contentType("application/json")
                         .content("""
                                 {
@@ -64,16 +88,17 @@ class SessionControllerTest {
                                 """))
                 .andExpect(status().isOk());
 
-        verify(sessionService).rename(eq(sessionId), any(RenameSessionRequest.class));
+        verify(sessionService).rename(eq(sessionId), any(RenameSessionRequest.class), eq("user123"));
     }
 
     @Test
     @DisplayName("Mark session as favorite - success")
     void testFavoriteSessionSuccess() throws Exception {
         UUID sessionId = UUID.randomUUID();
-        when(sessionService.favorite(any(UUID.class), any(FavoriteSessionRequest.class))).thenReturn(new SessionResponse(sessionId, "Session Name", "user123", true, Instant.now(), Instant.now()));
+        when(sessionService.favorite(any(UUID.class), any(FavoriteSessionRequest.class), eq("user123"))).thenReturn(new SessionResponse(sessionId, "Session Name", "user123", true, Instant.now(), Instant.now()));
 
         mockMvc.perform(patch("/v1/api/sessions/{id}/favorite", sessionId)
+                        .principal(PRINCIPAL)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("""
                                 {
@@ -82,16 +107,17 @@ class SessionControllerTest {
                                 """))
                 .andExpect(status().isOk());
 
-        verify(sessionService).favorite(eq(sessionId), any(FavoriteSessionRequest.class));
+        verify(sessionService).favorite(eq(sessionId), any(FavoriteSessionRequest.class), eq("user123"));
     }
 
     @Test
     @DisplayName("Unmark session as favorite - success")
     void testUnfavoriteSessionSuccess() throws Exception {
         UUID sessionId = UUID.randomUUID();
-        when(sessionService.favorite(any(UUID.class), any(FavoriteSessionRequest.class))).thenReturn(new SessionResponse(sessionId, "Session Name", "user123", false, Instant.now(), Instant.now()));
+        when(sessionService.favorite(any(UUID.class), any(FavoriteSessionRequest.class), eq("user123"))).thenReturn(new SessionResponse(sessionId, "Session Name", "user123", false, Instant.now(), Instant.now()));
 
         mockMvc.perform(patch("/v1/api/sessions/{id}/favorite", sessionId)
+                        .principal(PRINCIPAL)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("""
                                 {
@@ -100,7 +126,7 @@ class SessionControllerTest {
                                 """))
                 .andExpect(status().isOk());
 
-        verify(sessionService).favorite(eq(sessionId), any(FavoriteSessionRequest.class));
+        verify(sessionService).favorite(eq(sessionId), any(FavoriteSessionRequest.class), eq("user123"));
     }
 
     @Test
@@ -108,7 +134,8 @@ class SessionControllerTest {
     void testFavoriteSessionMissingParameter() throws Exception {
         UUID sessionId = UUID.randomUUID();
 
-        mockMvc.perform(patch("/v1/api/sessions/{id}/favorite", sessionId))
+        mockMvc.perform(patch("/v1/api/sessions/{id}/favorite", sessionId)
+                        .principal(PRINCIPAL))
                 .andExpect(status().isBadRequest());
     }
 
@@ -116,12 +143,54 @@ class SessionControllerTest {
     @DisplayName("Delete session - success")
     void testDeleteSessionSuccess() throws Exception {
         UUID sessionId = UUID.randomUUID();
-        doNothing().when(sessionService).delete(any());
+        doNothing().when(sessionService).delete(any(), any());
 
-        mockMvc.perform(delete("/v1/api/sessions/{id}", sessionId))
+        mockMvc.perform(delete("/v1/api/sessions/{id}", sessionId)
+                        .principal(PRINCIPAL))
                 .andExpect(status().isNoContent());
 
-        verify(sessionService).delete(sessionId);
+        verify(sessionService).delete(sessionId, "user123");
+    }
+
+    @Test
+    @DisplayName("List sessions by cursor - success")
+    void testListSessionsByCursorSuccess() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        SessionResponse session = new SessionResponse(sessionId, "Session Name", "user123", false, Instant.now(), Instant.now());
+        when(sessionService.findAllByUserIdByCursor("user123", null, 20))
+                .thenReturn(new CursorPage<>(List.of(session), 20, "next", null));
+
+        mockMvc.perform(get("/v1/api/sessions/cursor")
+                        .principal(PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(sessionId.toString()))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(sessionService).findAllByUserIdByCursor("user123", null, 20);
+    }
+
+    @Test
+    @DisplayName("List sessions - returns 304 for the current ETag without querying the sessions")
+    void testListSessionsNotModified() throws Exception {
+        when(sessionService.sessionsVersion("user123")).thenReturn(3L);
+        when(sessionService.findAllByUserId("user123", 0, 20)).thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 20), 0));
+
+        String etag = mockMvc.perform(get("/v1/api/sessions").principal(PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/v1/api/sessions").principal(PRINCIPAL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        when(sessionService.sessionsVersion("user123")).thenReturn(4L);
+        mockMvc.perform(get("/v1/api/sessions").principal(PRINCIPAL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        verify(sessionService, times(2)).findAllByUserId("user123", 0, 20);
+        assertThat(meterRegistry.get("chat.http.conditional").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.http.conditional").tag("result", "miss").counter().count()).isEqualTo(1);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.dge.rag_chat_service.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for UuidV7Generator.
+ */
+@DisplayName("UuidV7Generator Tests")
+class UuidV7GeneratorTest {
+
+    @Test
+    @DisplayName("Next - sets version 7 and the IETF variant")
+    void next_shouldSetVersionAndVariant() {
+        UUID id = UuidV7Generator.next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Next - encodes the current time")
+    void next_shouldEncodeCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7Generator.next();
+        long after = System.currentTimeMillis();
+
+        // May run ahead of the clock by a few milliseconds if other tests generated many ids
+        assertThat(UuidV7Generator.timestampMillis(id)).isBetween(before, after + 100);
+    }
+
+    @Test
+    @DisplayName("Next - ids are strictly increasing, also within one millisecond")
+    void next_shouldBeMonotonic() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            ids.add(UuidV7Generator.next());
+        }
+
+        // PostgreSQL compares uuid values as unsigned bytes, i.e. by their string form
+        assertThat(ids).extracting(UUID::toString).isSortedAccordingTo(Comparator.naturalOrder());
+        assertThat(ids).doesNotHaveDuplicates();
+    }
+}
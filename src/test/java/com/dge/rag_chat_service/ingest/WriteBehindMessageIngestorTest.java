@@ -0,0 +1,175 @@
+package com.dge.rag_chat_service.ingest;
+
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.config.MessageIngestProperties;
+import com.dge.rag_chat_service.dto.AcceptedMessageResponse;
+import com.dge.rag_chat_service.dto.CreateMessageRequest;
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.exception.ResourceNotFoundException;
+import com.dge.rag_chat_service.exception.ServiceUnavailableException;
+import com.dge.rag_chat_service.repository.ChatMessageBatchWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Unit tests for WriteBehindMessageIngestor.
+ * Uses a real journal in a temporary directory and a mocked batch writer.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WriteBehindMessageIngestor Tests")
+class WriteBehindMessageIngestorTest {
+
+    private static final String USER_ID = "user1";
+    private static final UUID SESSION_ID = UUID.randomUUID();
+    private static final CreateMessageRequest REQUEST = new CreateMessageRequest(SenderType.USER, "Hello", null);
+
+    @TempDir
+    Path journalDir;
+
+    @Mock
+    private SessionOwnershipCache ownershipCache;
+
+    @Mock
+    private ChatMessageBatchWriter writer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WriteBehindMessageIngestor ingestor;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (ingestor != null) {
+            ingestor.stop();
+        }
+    }
+
+    private WriteBehindMessageIngestor start(int capacity) {
+        MessageIngestProperties properties = new MessageIngestProperties("write-behind", capacity, 100,
+                Duration.ofMillis(20), Duration.ofMillis(50), journalDir.toString(), DataSize.ofMegabytes(1),
+                true, Duration.ofMillis(10));
+        ingestor = new WriteBehindMessageIngestor(ownershipCache, writer,
+                new ContextJson(objectMapper, 262144, 32),
+                new MessageJournal(journalDir, properties.segmentSize().toBytes(), objectMapper),
+                properties, meterRegistry);
+        ingestor.start();
+        return ingestor;
+    }
+
+    @Test
+    @DisplayName("Enqueue - accepted messages are committed in one batch")
+    void enqueue_shouldGroupCommit() {
+        start(100);
+
+        AcceptedMessageResponse first = ingestor.enqueue(SESSION_ID, REQUEST, USER_ID);
+        AcceptedMessageResponse second = ingestor.enqueue(SESSION_ID, REQUEST, USER_ID);
+
+        assertThat(second.sequence()).isGreaterThan(first.sequence());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<JournalEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(writer, timeout(2_000)).insert(captor.capture());
+        assertThat(captor.getValue()).extracting(JournalEntry::id).containsExactly(first.id(), second.id());
+        assertThat(meterRegistry.get("chat.ingest.flush").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Enqueue - session not owned is rejected before journaling")
+    void enqueue_whenSessionNotOwned_shouldThrow() {
+        start(100);
+        doThrow(new ResourceNotFoundException("Session not found"))
+                .when(ownershipCache).requireOwned(SESSION_ID, USER_ID);
+
+        assertThrows(ResourceNotFoundException.class, () -> ingestor.enqueue(SESSION_ID, REQUEST, USER_ID));
+
+        assertThat(ingestor.queueDepth()).isZero();
+        verifyNoInteractions(writer);
+    }
+
+    @Test
+    @DisplayName("Enqueue - full queue is rejected with 503")
+    void enqueue_whenQueueFull_shouldReject() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(writer).insert(anyList());
+        start(1);
+
+        ingestor.enqueue(SESSION_ID, REQUEST, USER_ID);
+
+        assertThrows(ServiceUnavailableException.class, () -> ingestor.enqueue(SESSION_ID, REQUEST, USER_ID));
+        assertThat(meterRegistry.get("chat.ingest.rejected").counter().count()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Start - messages left in the journal are replayed")
+    void start_shouldReplayJournal() {
+        MessageJournal previousRun = new MessageJournal(journalDir, 1 << 20, objectMapper);
+        JournalEntry leftOver = new JournalEntry(7, UUID.randomUUID(), SESSION_ID, SenderType.AI, "Answer", null,
+                Instant.parse("2026-01-01T00:00:00Z"));
+        previousRun.append(leftOver);
+        previousRun.close();
+
+        start(100);
+
+        verify(writer, timeout(2_000)).insert(List.of(leftOver));
+        AcceptedMessageResponse next = ingestor.enqueue(SESSION_ID, REQUEST, USER_ID);
+        assertThat(next.sequence()).isGreaterThan(leftOver.sequence());
+    }
+
+    @Test
+    @DisplayName("Flush - rows violating constraints are dropped, the rest is stored")
+    void flush_whenIntegrityViolation_shouldDropOffendingRows() throws Exception {
+        UUID purgedSession = UUID.randomUUID();
+        doAnswer(inv -> {
+            List<JournalEntry> entries = inv.getArgument(0);
+            if (entries.stream().anyMatch(e -> e.sessionId().equals(purgedSession))) {
+                throw new DataIntegrityViolationException("fk_session");
+            }
+            return null;
+        }).when(writer).insert(anyList());
+        start(100);
+
+        AcceptedMessageResponse kept = ingestor.enqueue(SESSION_ID, REQUEST, USER_ID);
+        ingestor.enqueue(purgedSession, REQUEST, USER_ID);
+
+        verify(writer, timeout(2_000).atLeastOnce()).insert(List.of(new JournalEntry(kept.sequence(), kept.id(),
+                SESSION_ID, REQUEST.sender(), REQUEST.message(), null, kept.createdAt())));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (meterRegistry.get("chat.ingest.dropped").counter().count() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get("chat.ingest.dropped").counter().count()).isEqualTo(1);
+        assertThat(ingestor.queueDepth()).isZero();
+    }
+}
@@ -0,0 +1,88 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.repository.ContextChunkRepository;
+import com.dge.rag_chat_service.repository.ContextChunkRepository.Swept;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ChunkSweeper.
+ * Tests the cutoff passed to the sweep, sweeps left to another node, failures and the sweep metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ChunkSweeper Tests")
+class ChunkSweeperTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-17T12:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private ContextChunkRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ChunkSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sweeper = new ChunkSweeper(repository, meterRegistry, Duration.ofDays(1), 500, CLOCK);
+    }
+
+    @Test
+    @DisplayName("Sweep - deletes chunks unused for the grace period and counts them")
+    void run_shouldSweepChunksUnusedForGrace() {
+        when(repository.sweep(Instant.parse("2026-10-16T12:00:00Z"), 500)).thenReturn(new Swept(3, 4096));
+
+        sweeper.run();
+
+        assertThat(meterRegistry.get("chat.chunks.swept").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("chat.chunks.swept.bytes").counter().count()).isEqualTo(4096);
+    }
+
+    @Test
+    @DisplayName("Sweep - nothing is counted while another node sweeps")
+    void run_whenLockedByOtherNode_shouldSkip() {
+        when(repository.sweep(Instant.parse("2026-10-16T12:00:00Z"), 500)).thenReturn(null);
+
+        sweeper.run();
+
+        assertThat(meterRegistry.get("chat.chunks.swept").counter().count()).isZero();
+        assertThat(meterRegistry.get("chat.chunks.sweep.failures").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Sweep - failures are counted and retried on the next run")
+    void run_whenSweepFails_shouldCountFailure() {
+        when(repository.sweep(Instant.parse("2026-10-16T12:00:00Z"), 500))
+                .thenThrow(new RuntimeException("db error"))
+                .thenReturn(new Swept(1, 10));
+
+        sweeper.run();
+        sweeper.run();
+
+        assertThat(meterRegistry.get("chat.chunks.sweep.failures").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.chunks.swept").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Grace - must leave room for writes refreshing chunks in flight")
+    void constructor_withShortGrace_shouldThrow() {
+        assertThatThrownBy(() -> new ChunkSweeper(repository, meterRegistry, Duration.ofMinutes(30), 500, CLOCK))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("chunk-store.sweep.grace");
+    }
+}
@@ -0,0 +1,111 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.config.CitationProperties;
+import com.dge.rag_chat_service.entity.MessageCitation;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for CitationBackfillJob.
+ * Tests the id watermark, completion detection and the backfill metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CitationBackfillJob Tests")
+class CitationBackfillJobTest {
+
+    private static final UUID SESSION_ID = UUID.randomUUID();
+
+    @Mock
+    private MessageCitationRepository citationRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CitationBackfillJob job;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        CitationProperties properties = new CitationProperties("$.documents[*]", "$.id", "$.chunkId", "$.score", 100,
+                new CitationProperties.Backfill(true, 2, Duration.ofSeconds(1)));
+        job = new CitationBackfillJob(citationRepository, new CitationExtractor(properties), new ObjectMapper(),
+                properties, meterRegistry);
+    }
+
+    private void rows(UUID after, UUID... ids) {
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(2);
+            for (UUID id : ids) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getObject("id", UUID.class)).thenReturn(id);
+                when(rs.getObject("session_id", UUID.class)).thenReturn(SESSION_ID);
+                when(rs.getObject("created_at", OffsetDateTime.class)).thenReturn(OffsetDateTime.now(ZoneOffset.UTC));
+                when(rs.getString("context")).thenReturn(
+                        "{\"documents\":[{\"id\":\"doc-" + id.getLeastSignificantBits() + "\",\"chunkId\":\"c-1\"}]}");
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(citationRepository).forEachMessageAfter(eq(after), eq(2), any());
+    }
+
+    @Test
+    @DisplayName("Backfill - advances the watermark and stops after a short batch")
+    @SuppressWarnings("unchecked")
+    void backfillBatch_shouldAdvanceWatermarkUntilFinished() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        UUID third = new UUID(0, 3);
+        rows(new UUID(0, 0), first, second);
+        rows(second, third);
+
+        assertThat(job.backfillBatch()).isEqualTo(2);
+        assertThat(job.isFinished()).isFalse();
+        assertThat(job.backfillBatch()).isEqualTo(1);
+        assertThat(job.isFinished()).isTrue();
+
+        ArgumentCaptor<List<MessageCitation>> captor = ArgumentCaptor.forClass(List.class);
+        verify(citationRepository, times(2)).insertAll(captor.capture());
+        assertThat(captor.getAllValues()).flatExtracting(c -> c)
+                .extracting(c -> c.getId().getDocId())
+                .containsExactly("doc-1", "doc-2", "doc-3");
+        assertThat(meterRegistry.counter("chat.citations.backfill.messages").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("chat.citations.backfill.citations").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Run - does nothing once the backfill is complete")
+    void run_whenFinished_shouldNotQuery() {
+        rows(new UUID(0, 0));
+
+        job.run();
+        job.run();
+
+        verify(citationRepository).forEachMessageAfter(eq(new UUID(0, 0)), eq(2), any());
+        assertThat(job.isFinished()).isTrue();
+    }
+}
@@ -0,0 +1,161 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.config.ColdArchiveProperties;
+import com.dge.rag_chat_service.repository.ColdSessionRepository;
+import com.dge.rag_chat_service.repository.ColdSessionRepository.Candidate;
+import com.dge.rag_chat_service.repository.ColdSessionRepository.Frozen;
+import com.dge.rag_chat_service.repository.ColdSessionRepository.Outcome;
+import com.dge.rag_chat_service.repository.ColdSessionRepository.StorageBytes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ColdSessionArchiver.
+ * Tests archiving of idle sessions, skipped, oversized and failing sessions, the walk over passes and the storage
+ * gauges.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ColdSessionArchiver Tests")
+class ColdSessionArchiverTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+    private static final UUID START = new UUID(0, 0);
+
+    @Mock
+    private ColdSessionRepository repository;
+
+    @Mock
+    private Clock clock;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ColdSessionArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        archiver = new ColdSessionArchiver(repository, TransactionOperations.withoutTransaction(),
+                new ColdArchiveProperties(true, Duration.ofDays(7), 3, Duration.ofSeconds(1), Duration.ofHours(1),
+                        DataSize.ofMegabytes(1)),
+                meterRegistry, clock);
+    }
+
+    private static List<UUID> ids(int n) {
+        return IntStream.range(0, n).mapToObj(i -> UUID.randomUUID()).toList();
+    }
+
+    @Test
+    @DisplayName("Batch - archives the idle sessions and counts those written meanwhile as skipped")
+    void archiveBatch_shouldFreezeIdleSessions() {
+        List<UUID> ids = ids(3);
+        List<Candidate> idle = List.of(new Candidate(ids.get(0), 4), new Candidate(ids.get(2), 9));
+        when(clock.instant()).thenReturn(NOW);
+        when(repository.storageBytes()).thenReturn(new StorageBytes(1000, 10));
+        when(repository.sessionIdsAfter(START, 3)).thenReturn(ids);
+        when(repository.findIdle(ids, Instant.parse("2026-10-10T12:00:00Z"))).thenReturn(idle);
+        when(repository.freeze(idle.get(0), NOW, 1 << 20)).thenReturn(new Frozen(ids.get(0), Outcome.FROZEN, 12, 9000, 1500));
+        when(repository.freeze(idle.get(1), NOW, 1 << 20)).thenReturn(new Frozen(ids.get(2), Outcome.SKIPPED, 0, 0, 0));
+
+        assertThat(archiver.archiveBatch()).isEqualTo(3);
+
+        assertThat(meterRegistry.get("chat.cold.sessions").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.cold.messages").counter().count()).isEqualTo(12);
+        assertThat(meterRegistry.get("chat.cold.skipped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.cold.block.bytes").tag("form", "raw").counter().count()).isEqualTo(9000);
+        assertThat(meterRegistry.get("chat.cold.block.bytes").tag("form", "compressed").counter().count()).isEqualTo(1500);
+        assertThat(meterRegistry.get("chat.cold.storage.bytes").tag("tier", "hot").gauge().value()).isEqualTo(1000);
+        assertThat(meterRegistry.get("chat.cold.storage.bytes").tag("tier", "cold").gauge().value()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Batch - nothing idle opens no transaction")
+    void archiveBatch_withoutIdleSessions_shouldNotFreeze() {
+        List<UUID> ids = ids(3);
+        when(clock.instant()).thenReturn(NOW);
+        when(repository.storageBytes()).thenReturn(new StorageBytes(1000, 0));
+        when(repository.sessionIdsAfter(START, 3)).thenReturn(ids);
+        when(repository.findIdle(any(), any())).thenReturn(List.of());
+
+        archiver.archiveBatch();
+
+        verify(repository, never()).freeze(any(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Batch - a failing or oversized session is counted and the walk moves on past it")
+    void archiveBatch_whenSessionFails_shouldArchiveOthersAndAdvance() {
+        List<UUID> ids = ids(3);
+        List<Candidate> idle = ids.stream().map(id -> new Candidate(id, 1)).toList();
+        when(clock.instant()).thenReturn(NOW);
+        when(repository.storageBytes()).thenReturn(new StorageBytes(1000, 0));
+        when(repository.sessionIdsAfter(START, 3)).thenReturn(ids);
+        when(repository.findIdle(ids, Instant.parse("2026-10-10T12:00:00Z"))).thenReturn(idle);
+        when(repository.freeze(idle.get(0), NOW, 1 << 20)).thenThrow(new RuntimeException("block too large"));
+        when(repository.freeze(idle.get(1), NOW, 1 << 20)).thenReturn(new Frozen(ids.get(1), Outcome.OVERSIZED, 0, 0, 0));
+        when(repository.freeze(idle.get(2), NOW, 1 << 20)).thenReturn(new Frozen(ids.get(2), Outcome.FROZEN, 5, 900, 300));
+
+        archiver.archiveBatch();
+        archiver.archiveBatch();
+
+        assertThat(meterRegistry.get("chat.cold.failures").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.cold.oversized").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.cold.sessions").counter().count()).isEqualTo(1);
+        verify(repository).sessionIdsAfter(ids.get(2), 3);
+    }
+
+    @Test
+    @DisplayName("Walk - continues after the last id, then waits for the next pass")
+    void archiveBatch_shouldWalkThenWaitForNextPass() {
+        List<UUID> first = ids(3);
+        List<UUID> second = ids(1);
+        when(clock.instant()).thenReturn(NOW, NOW, NOW.plusSeconds(60), NOW.plus(Duration.ofHours(1)));
+        when(repository.storageBytes()).thenReturn(new StorageBytes(1000, 0));
+        when(repository.sessionIdsAfter(START, 3)).thenReturn(first);
+        when(repository.sessionIdsAfter(first.get(2), 3)).thenReturn(second);
+
+        assertThat(archiver.archiveBatch()).isEqualTo(3);
+        assertThat(archiver.archiveBatch()).isEqualTo(1);
+        assertThat(archiver.archiveBatch()).isZero();
+        archiver.archiveBatch();
+
+        verify(repository, times(2)).sessionIdsAfter(START, 3);
+        // Sizes are read at the start of each pass only
+        verify(repository, times(2)).storageBytes();
+    }
+
+    @Test
+    @DisplayName("Run - a failing batch is counted and retried from the same session")
+    void run_whenBatchFails_shouldCountFailure() {
+        when(clock.instant()).thenReturn(NOW);
+        when(repository.storageBytes()).thenReturn(new StorageBytes(1000, 0));
+        when(repository.sessionIdsAfter(START, 3)).thenThrow(new RuntimeException("db error")).thenReturn(List.of());
+
+        archiver.run();
+        archiver.run();
+
+        assertThat(meterRegistry.get("chat.cold.failures").counter().count()).isEqualTo(1);
+        verify(repository, times(2)).sessionIdsAfter(START, 3);
+    }
+}
@@ -0,0 +1,145 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.config.CitationProperties;
+import com.dge.rag_chat_service.config.ContextTieringProperties;
+import com.dge.rag_chat_service.repository.ContextTieringRepository;
+import com.dge.rag_chat_service.repository.ContextTieringRepository.AgedContext;
+import com.dge.rag_chat_service.repository.ListVersionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ContextTieringJob.
+ * Tests the summarized and dropped forms, the age cutoff, version bumps and the tiering metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ContextTieringJob Tests")
+class ContextTieringJobTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-17T12:00:00Z"), ZoneOffset.UTC);
+    private static final UUID SESSION_ID = UUID.randomUUID();
+
+    private static final String CONTEXT = """
+            {"documents": [{"id": "doc-1", "chunkId": "c-1", "score": 0.42, "content": "long chunk text"},
+                           {"id": "doc-1", "chunkId": "c-2", "score": 0.87, "content": "more chunk text"},
+                           {"id": "doc-2", "content": "unscored chunk"}],
+             "prompt": "the full prompt sent to the model"}
+            """;
+
+    @Mock
+    private ContextTieringRepository repository;
+
+    @Mock
+    private ListVersionRepository versionRepository;
+
+    private final CitationExtractor citationExtractor = new CitationExtractor(new CitationProperties(
+            "$.documents[*]", "$.id", "$.chunkId", "$.score", 100,
+            new CitationProperties.Backfill(false, 1000, Duration.ofSeconds(1))));
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private ContextTieringJob job(String mode, int batchSize) {
+        return new ContextTieringJob(repository, versionRepository, citationExtractor, new ObjectMapper(),
+                TransactionOperations.withoutTransaction(),
+                new ContextTieringProperties(true, mode, Duration.ofDays(30), batchSize, Duration.ofSeconds(1)),
+                meterRegistry, CLOCK);
+    }
+
+    private static AgedContext row(String context, Instant createdAt) {
+        return new AgedContext(UUID.randomUUID(), SESSION_ID, createdAt, context);
+    }
+
+    @Test
+    @DisplayName("Strip - keeps each cited document once with its best score")
+    void strip_summarize_shouldKeepDocumentIdsAndScores() {
+        String stripped = job("summarize", 10).strip(CONTEXT);
+
+        assertThat(stripped).isEqualTo("{\"$stripped\":\"summarized\",\"documents\":"
+                + "[{\"id\":\"doc-1\",\"score\":0.87},{\"id\":\"doc-2\"}]}");
+    }
+
+    @Test
+    @DisplayName("Strip - drop mode and contexts that are not objects")
+    void strip_dropAndNonObjects() {
+        assertThat(job("drop", 10).strip(CONTEXT)).isEqualTo("{\"$stripped\":\"dropped\"}");
+        assertThat(job("summarize", 10).strip("[1, 2]"))
+                .isEqualTo("{\"$stripped\":\"summarized\",\"documents\":[]}");
+    }
+
+    @Test
+    @DisplayName("Strip - the stored forms are recognized as stripped once PostgreSQL returns them")
+    void strip_shouldBeRecognizedAsStripped() {
+        // jsonb puts a space after each colon and comma but keeps the marker first
+        String stored = job("summarize", 10).strip(CONTEXT).replace(":", ": ").replace(",", ", ");
+
+        assertThat(ContextJson.isStripped(stored)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Batch - replaces aged contexts, bumps their sessions and records savings")
+    @SuppressWarnings("unchecked")
+    void stripBatch_shouldReplaceAndBumpSessions() {
+        Instant createdAt = Instant.parse("2026-08-01T00:00:00Z");
+        List<AgedContext> rows = List.of(row(CONTEXT, createdAt), row(CONTEXT, createdAt.plusSeconds(1)));
+        when(repository.lockOldest(Instant.parse("2026-09-17T12:00:00Z"), 10)).thenReturn(rows);
+
+        assertThat(job("summarize", 10).stripBatch()).isEqualTo(2);
+
+        ArgumentCaptor<List<String>> contexts = ArgumentCaptor.forClass(List.class);
+        verify(repository).replaceAll(eq(rows), contexts.capture());
+        assertThat(contexts.getValue()).hasSize(2).allMatch(c -> c.startsWith("{\"$stripped\":\"summarized\""));
+        verify(versionRepository).bumpSessions(List.of(SESSION_ID));
+        assertThat(meterRegistry.get("chat.context.tiering.messages").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("chat.context.tiering.saved.bytes").counter().count()).isPositive();
+        assertThat(meterRegistry.get("chat.context.tiering.lag").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Batch - a full batch reports how far behind the age limit it is")
+    void stripBatch_whenBehind_shouldReportLag() {
+        Instant createdAt = Instant.parse("2026-09-16T12:00:00Z");
+        when(repository.lockOldest(any(), anyInt())).thenReturn(List.of(row(CONTEXT, createdAt)));
+
+        job("drop", 1).stripBatch();
+
+        assertThat(meterRegistry.get("chat.context.tiering.lag").gauge().value()).isEqualTo(86400);
+    }
+
+    @Test
+    @DisplayName("Constructor - rejects unknown modes")
+    void constructor_withUnknownMode_shouldThrow() {
+        assertThatThrownBy(() -> job("archive", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("context-tiering.mode");
+    }
+}
@@ -0,0 +1,117 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.repository.MessagePartitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for PartitionMaintenanceJob.
+ * Tests which monthly partitions are created, retries after failures and the partition metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PartitionMaintenanceJob Tests")
+class PartitionMaintenanceJobTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-17T12:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private MessagePartitionRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PartitionMaintenanceJob job;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        job = new PartitionMaintenanceJob(repository, meterRegistry, 3, CLOCK);
+    }
+
+    private static Set<YearMonth> months(String... months) {
+        Set<YearMonth> set = new HashSet<>();
+        for (String month : months) {
+            set.add(YearMonth.parse(month));
+        }
+        return set;
+    }
+
+    @Test
+    @DisplayName("Maintain - creates only the missing months up to the configured horizon")
+    void maintain_shouldCreateMissingMonthsAhead() {
+        when(repository.partitionMonths()).thenReturn(months("2026-09", "2026-10", "2026-11"));
+        when(repository.monthsInDefault()).thenReturn(List.of());
+        when(repository.createPartition(any())).thenReturn(true);
+
+        job.maintain();
+
+        verify(repository).createPartition(YearMonth.parse("2026-12"));
+        verify(repository).createPartition(YearMonth.parse("2027-01"));
+        verify(repository, never()).createPartition(YearMonth.parse("2026-11"));
+        verify(repository, never()).createPartition(YearMonth.parse("2027-02"));
+        assertThat(meterRegistry.get("chat.partitions.created").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("chat.partitions.ahead").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Maintain - gives rows left in the default partition a partition of their month")
+    void maintain_shouldCreateMonthsFoundInDefaultPartition() {
+        when(repository.partitionMonths()).thenReturn(months("2026-10", "2026-11", "2026-12", "2027-01"));
+        when(repository.monthsInDefault()).thenReturn(List.of(YearMonth.parse("2019-05")));
+        when(repository.createPartition(YearMonth.parse("2019-05"))).thenReturn(true);
+
+        job.maintain();
+
+        verify(repository).createPartition(YearMonth.parse("2019-05"));
+        assertThat(meterRegistry.get("chat.partitions.created").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Maintain - a failing month is counted and does not stop later months")
+    void maintain_whenCreationFails_shouldContinue() {
+        when(repository.partitionMonths()).thenReturn(months("2026-10"));
+        when(repository.monthsInDefault()).thenReturn(List.of());
+        when(repository.createPartition(any())).thenReturn(true);
+        when(repository.createPartition(YearMonth.parse("2026-11")))
+                .thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        job.maintain();
+
+        verify(repository).createPartition(YearMonth.parse("2026-12"));
+        verify(repository).createPartition(YearMonth.parse("2027-01"));
+        assertThat(meterRegistry.get("chat.partitions.failures").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.partitions.ahead").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Maintain - a month created by another node meanwhile is not counted")
+    void maintain_whenCreatedElsewhere_shouldNotCount() {
+        when(repository.partitionMonths()).thenReturn(months("2026-10", "2026-11", "2026-12"));
+        when(repository.monthsInDefault()).thenReturn(List.of());
+        when(repository.createPartition(YearMonth.parse("2027-01"))).thenReturn(false);
+
+        job.maintain();
+
+        assertThat(meterRegistry.get("chat.partitions.created").counter().count()).isZero();
+        assertThat(meterRegistry.get("chat.partitions.ahead").gauge().value()).isEqualTo(3);
+    }
+}
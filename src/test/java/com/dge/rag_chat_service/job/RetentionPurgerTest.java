@@ -0,0 +1,188 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.config.RetentionProperties;
+import com.dge.rag_chat_service.repository.RetentionRepository;
+import com.dge.rag_chat_service.repository.RetentionRepository.Candidate;
+import com.dge.rag_chat_service.repository.RetentionRepository.Cutoffs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RetentionPurger.
+ * Tests dry runs, purging with version bumps, throttling, the walk over passes and per-user cutoffs.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RetentionPurger Tests")
+class RetentionPurgerTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+    private static final UUID START = new UUID(0, 0);
+
+    @Mock
+    private RetentionRepository repository;
+
+    @Mock
+    private SessionListVersionCache listVersions;
+
+    @Mock
+    private SessionOwnershipCache ownershipCache;
+
+    @Mock
+    private Clock clock;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private double poolUsage;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        poolUsage = 0;
+    }
+
+    private RetentionPurger purger(boolean dryRun, Map<String, RetentionProperties.UserPolicy> users) {
+        RetentionProperties properties = new RetentionProperties(true, dryRun, Duration.ofDays(30),
+                Duration.ofHours(24), users, 3, Duration.ofSeconds(1), Duration.ofHours(6), 0.5);
+        return new RetentionPurger(repository, listVersions, ownershipCache, TransactionOperations.withoutTransaction(),
+                properties, () -> poolUsage, meterRegistry, clock);
+    }
+
+    private static List<UUID> ids(int n) {
+        return IntStream.range(0, n).mapToObj(i -> UUID.randomUUID()).toList();
+    }
+
+    private double sessions(String reason, String mode) {
+        return meterRegistry.get("chat.retention.sessions").tag("reason", reason).tag("mode", mode).counter().count();
+    }
+
+    @Test
+    @DisplayName("Dry run - reports the selected sessions without purging them")
+    void purgeBatch_inDryRun_shouldOnlyReport() {
+        List<UUID> ids = ids(3);
+        when(clock.instant()).thenReturn(NOW);
+        when(repository.sessionIdsAfter(START, 3)).thenReturn(ids);
+        when(repository.findCandidates(any(), any(), anyMap())).thenReturn(List.of(
+                new Candidate(ids.get(0), "user-1", 4, 12),
+                new Candidate(ids.get(1), "user-2", 0, 0)));
+
+        RetentionPurger purger = purger(true, Map.of());
+        assertThat(purger.purgeBatch()).isEqualTo(3);
+
+        verify(repository, never()).tombstone(anyList(), any());
+        verifyNoInteractions(listVersions, ownershipCache);
+        assertThat(sessions("idle", "dry-run")).isEqualTo(1);
+        assertThat(sessions("empty", "dry-run")).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.retention.messages").tag("mode", "dry-run").counter().count())
+                .isEqualTo(12);
+        assertThat(purger.currentPass()).isEqualTo(new RetentionPurger.Pass(1, 1, 12));
+    }
+
+    @Test
+    @DisplayName("Purge - tombstones, bumps each user once and skips sessions written meanwhile")
+    void purgeBatch_shouldTombstoneAndAnnounce() {
+        List<UUID> ids = ids(3);
+        Candidate first = new Candidate(ids.get(0), "user-1", 4, 12);
+        Candidate second = new Candidate(ids.get(1), "user-1", 0, 0);
+        Candidate changed = new Candidate(ids.get(2), "user-2", 7, 3);
+        when(clock.instant()).thenReturn(NOW);
+        when(repository.sessionIdsAfter(START, 3)).thenReturn(ids);
+        when(repository.findCandidates(any(), any(), anyMap())).thenReturn(List.of(first, second, changed));
+        when(repository.tombstone(List.of(first, second, changed), NOW)).thenReturn(List.of(first.id(), second.id()));
+
+        purger(false, Map.of()).purgeBatch();
+
+        verify(listVersions).bump("user-1");
+        verify(listVersions, never()).bump("user-2");
+        verify(ownershipCache).markDeleted(first.id(), "user-1");
+        verify(ownershipCache).markDeleted(second.id(), "user-1");
+        verify(ownershipCache, never()).markDeleted(changed.id(), "user-2");
+        assertThat(sessions("idle", "purge")).isEqualTo(1);
+        assertThat(sessions("empty", "purge")).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.retention.skipped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Purge - skips the batch while the connection pool is busy")
+    void purgeBatch_whenPoolBusy_shouldThrottle() {
+        when(clock.instant()).thenReturn(NOW);
+        poolUsage = 0.8;
+
+        assertThat(purger(false, Map.of()).purgeBatch()).isZero();
+
+        verifyNoInteractions(repository);
+        assertThat(meterRegistry.get("chat.retention.throttled").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Walk - continues after the last id and waits for the pass interval after a short batch")
+    void purgeBatch_shouldWalkAndPauseBetweenPasses() {
+        List<UUID> full = ids(3);
+        List<UUID> tail = ids(1);
+        when(clock.instant()).thenReturn(NOW, NOW, NOW.plus(Duration.ofHours(1)), NOW.plus(Duration.ofHours(7)));
+        when(repository.sessionIdsAfter(START, 3)).thenReturn(full).thenReturn(ids(3));
+        when(repository.sessionIdsAfter(full.get(2), 3)).thenReturn(tail);
+        when(repository.findCandidates(anyList(), any(), anyMap())).thenReturn(List.of());
+
+        RetentionPurger purger = purger(true, Map.of());
+        assertThat(purger.purgeBatch()).isEqualTo(3);
+        assertThat(purger.purgeBatch()).isEqualTo(1);
+        assertThat(purger.purgeBatch()).isZero();
+        assertThat(purger.purgeBatch()).isEqualTo(3);
+
+        verify(repository, times(2)).sessionIdsAfter(START, 3);
+        assertThat(meterRegistry.get("chat.retention.scanned").counter().count()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Policy - users with overrides get their own cutoffs, falling back to the defaults")
+    void purgeBatch_shouldPassUserCutoffs() {
+        List<UUID> ids = ids(1);
+        when(clock.instant()).thenReturn(NOW);
+        when(repository.sessionIdsAfter(START, 3)).thenReturn(ids);
+        when(repository.findCandidates(anyList(), any(), anyMap())).thenReturn(List.of());
+
+        purger(true, Map.of("vip", new RetentionProperties.UserPolicy(Duration.ofDays(3650), null))).purgeBatch();
+
+        Cutoffs defaults = new Cutoffs(NOW.minus(Duration.ofDays(30)), NOW.minus(Duration.ofHours(24)));
+        Cutoffs vip = new Cutoffs(NOW.minus(Duration.ofDays(3650)), NOW.minus(Duration.ofHours(24)));
+        verify(repository).findCandidates(ids, defaults, Map.of("vip", vip));
+    }
+
+    @Test
+    @DisplayName("Run - a failing batch is counted and retried")
+    void run_whenBatchFails_shouldCountFailure() {
+        when(clock.instant()).thenReturn(NOW);
+        when(repository.sessionIdsAfter(any(), anyInt())).thenThrow(new RuntimeException("db error"));
+
+        purger(false, Map.of()).run();
+
+        assertThat(meterRegistry.get("chat.retention.failures").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,106 @@
+package com.dge.rag_chat_service.job;
+
+import com.dge.rag_chat_service.repository.ChatMessageRepository;
+import com.dge.rag_chat_service.repository.ChatSessionRepository;
+import com.dge.rag_chat_service.repository.ColdSessionRepository;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for SessionReaper.
+ * Tests chunked removal of tombstoned sessions and the reaper metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SessionReaper Tests")
+class SessionReaperTest {
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private ChatMessageRepository messageRepository;
+
+    @Mock
+    private MessageCitationRepository citationRepository;
+
+    @Mock
+    private ColdSessionRepository coldSessionRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SessionReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reaper = new SessionReaper(sessionRepository, messageRepository, citationRepository, coldSessionRepository,
+                meterRegistry, 10, 2);
+    }
+
+    @Test
+    @DisplayName("Reap - deletes messages in chunks, then the session")
+    void reap_shouldDeleteMessagesInChunksThenSession() {
+        UUID id = UUID.randomUUID();
+        when(sessionRepository.findTombstonedIds(10)).thenReturn(List.of(id));
+        when(messageRepository.deleteChunkBySessionId(id, 2)).thenReturn(2, 2, 1);
+        when(sessionRepository.purgeTombstoned(id)).thenReturn(1);
+        when(sessionRepository.countTombstoned()).thenReturn(0L);
+
+        reaper.reap();
+
+        verify(messageRepository, times(3)).deleteChunkBySessionId(id, 2);
+        verify(sessionRepository).purgeTombstoned(id);
+        assertThat(meterRegistry.counter("chat.reaper.messages").count()).isEqualTo(5);
+        assertThat(meterRegistry.counter("chat.reaper.sessions").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Reap - failure on one session does not stop the run")
+    void reap_whenSessionFails_shouldContinueWithNext() {
+        UUID failing = UUID.randomUUID();
+        UUID ok = UUID.randomUUID();
+        when(sessionRepository.findTombstonedIds(10)).thenReturn(List.of(failing, ok));
+        when(messageRepository.deleteChunkBySessionId(failing, 2)).thenThrow(new RuntimeException("db error"));
+        when(messageRepository.deleteChunkBySessionId(ok, 2)).thenReturn(0);
+        when(sessionRepository.purgeTombstoned(ok)).thenReturn(1);
+        when(sessionRepository.countTombstoned()).thenReturn(1L);
+
+        reaper.reap();
+
+        verify(sessionRepository, never()).purgeTombstoned(failing);
+        verify(sessionRepository).purgeTombstoned(ok);
+        assertThat(meterRegistry.counter("chat.reaper.failures").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.reaper.backlog").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Reap - deletes the cold block of an archived session")
+    void reap_whenArchived_shouldDeleteColdBlock() {
+        UUID id = UUID.randomUUID();
+        when(sessionRepository.findTombstonedIds(10)).thenReturn(List.of(id));
+        when(coldSessionRepository.delete(id)).thenReturn(7);
+        when(messageRepository.deleteChunkBySessionId(id, 2)).thenReturn(0);
+        when(sessionRepository.purgeTombstoned(id)).thenReturn(1);
+        when(sessionRepository.countTombstoned()).thenReturn(0L);
+
+        reaper.reap();
+
+        verify(coldSessionRepository).delete(id);
+        assertThat(meterRegistry.counter("chat.reaper.messages").count()).isEqualTo(7);
+    }
+}
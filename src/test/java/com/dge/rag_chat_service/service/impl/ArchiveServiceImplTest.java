@@ -0,0 +1,287 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.codec.DeflateBodyCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.config.ChunkStoreProperties;
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import com.dge.rag_chat_service.dto.ArchiveImportResponse;
+import com.dge.rag_chat_service.dto.ArchivedMessage;
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.dto.SessionResponse;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.dge.rag_chat_service.repository.ChatArchiveRepository;
+import com.dge.rag_chat_service.repository.ChatMessageStreamReader;
+import com.dge.rag_chat_service.repository.ContextChunkRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ArchiveServiceImpl.
+ * Exports an archive from mocked rows and imports it again.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ArchiveService Tests")
+class ArchiveServiceImplTest {
+
+    private static final String USER_ID = "user1";
+
+    @Mock
+    private ChatArchiveRepository archiveRepository;
+
+    @Mock
+    private ChatMessageStreamReader streamReader;
+
+    @Mock
+    private SessionOwnershipCache ownershipCache;
+
+    @Mock
+    private SessionListVersionCache listVersions;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ArchiveServiceImpl archiveService;
+
+    @BeforeEach
+    void setUp() {
+        archiveService = new ArchiveServiceImpl(archiveRepository, streamReader, ownershipCache, listVersions,
+                new ObjectMapper().findAndRegisterModules(), new ChunkStore(mock(ContextChunkRepository.class),
+                        new ObjectMapper(), new ChunkStoreProperties(true, List.of("content"), 256, 100),
+                        new SimpleMeterRegistry()),
+                new MessageBodyCodec(List.of(new DeflateBodyCodec(6)),
+                        new MessageCompressionProperties(true, 16, "deflate"), new SimpleMeterRegistry()),
+                transactionManager, 2, DataSize.ofKilobytes(4), DataSize.ofKilobytes(16));
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static String sessionLine(UUID id) {
+        return "{\"id\":\"" + id + "\",\"name\":\"S\",\"favorite\":false,"
+                + "\"createdAt\":\"2026-01-01T10:00:00Z\",\"updatedAt\":\"2026-01-01T10:00:00Z\"}\n";
+    }
+
+    @AfterEach
+    void tearDown() {
+        archiveService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Export and import - round trip keeps sessions, messages, ids and timestamps")
+    void exportThenImport_shouldRoundTrip() throws Exception {
+        SessionResponse first = new SessionResponse(UUID.randomUUID(), "First", USER_ID, true,
+                Instant.parse("2026-01-01T10:00:00Z"), Instant.parse("2026-01-02T10:00:00Z"));
+        SessionResponse second = new SessionResponse(UUID.randomUUID(), "Second", USER_ID, false,
+                Instant.parse("2026-01-03T10:00:00Z"), Instant.parse("2026-01-03T10:00:00Z"));
+        UUID messageId = UUID.randomUUID();
+        when(archiveRepository.findSessionsByUserId(USER_ID)).thenReturn(List.of(first, second));
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject("id", UUID.class)).thenReturn(messageId);
+        when(rs.getString("sender")).thenReturn("AI");
+        when(rs.getString("message")).thenReturn("Answer with \"quotes\"");
+        when(rs.getString("context")).thenReturn("{\"doc\":\"a.pdf\"}");
+        when(rs.getObject("created_at", OffsetDateTime.class)).thenReturn(OffsetDateTime.parse("2026-01-01T10:00:01Z"));
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            if (inv.getArgument(0).equals(first.id())) {
+                handler.processRow(rs);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(streamReader).forEachBySessionId(any(), any(), any());
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archiveService.export(USER_ID).writeTo(archive);
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            while (zip.getNextEntry() != null) {
+                assertThat(new String(zip.readAllBytes(), StandardCharsets.UTF_8).split("\n"))
+                        .allMatch(line -> line.startsWith("{"));
+            }
+        }
+
+        Map<UUID, SessionResponse> importedSessions = new ConcurrentHashMap<>();
+        Map<UUID, List<ArchivedMessage>> importedMessages = new ConcurrentHashMap<>();
+        doAnswer(inv -> {
+            SessionResponse session = inv.getArgument(0);
+            Iterator<ArchivedMessage> messages = inv.getArgument(2);
+            List<ArchivedMessage> copied = new ArrayList<>();
+            messages.forEachRemaining(copied::add);
+            importedSessions.put(session.id(), session);
+            importedMessages.put(session.id(), copied);
+            return (long) copied.size();
+        }).when(archiveRepository).importSession(any(), eq("user2"), any());
+
+        ArchiveImportResponse response = archiveService.importArchive(
+                new ByteArrayInputStream(archive.toByteArray()), "user2");
+
+        assertThat(response.importedSessions()).isEqualTo(2);
+        assertThat(response.importedMessages()).isEqualTo(2);
+        assertThat(response.failedSessions()).isEmpty();
+        assertThat(importedSessions.get(first.id())).isEqualTo(first);
+        assertThat(importedMessages.get(second.id())).isEmpty();
+        ArchivedMessage message = importedMessages.get(first.id()).get(0);
+        assertThat(message.id()).isEqualTo(messageId);
+        assertThat(message.sender()).isEqualTo(SenderType.AI);
+        assertThat(message.message()).isEqualTo("Answer with \"quotes\"");
+        assertThat(message.context().get("doc").asText()).isEqualTo("a.pdf");
+        assertThat(message.createdAt()).isEqualTo(Instant.parse("2026-01-01T10:00:01Z"));
+        verify(ownershipCache).put(first.id(), "user2");
+        verify(ownershipCache).put(second.id(), "user2");
+        verify(listVersions).refresh("user2");
+    }
+
+    @Test
+    @DisplayName("Import - existing sessions are skipped and failing ones reported")
+    void import_shouldReportSkippedAndFailedSessions() throws Exception {
+        SessionResponse existing = new SessionResponse(UUID.randomUUID(), "Existing", USER_ID, false,
+                Instant.parse("2026-01-01T10:00:00Z"), Instant.parse("2026-01-01T10:00:00Z"));
+        SessionResponse broken = new SessionResponse(UUID.randomUUID(), "Broken", USER_ID, false,
+                Instant.parse("2026-01-02T10:00:00Z"), Instant.parse("2026-01-02T10:00:00Z"));
+        when(archiveRepository.findSessionsByUserId(USER_ID)).thenReturn(List.of(existing, broken));
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archiveService.export(USER_ID).writeTo(archive);
+
+        when(archiveRepository.importSession(eq(existing), eq(USER_ID), any())).thenReturn(-1L);
+        when(archiveRepository.importSession(eq(broken), eq(USER_ID), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate message id"));
+
+        ArchiveImportResponse response = archiveService.importArchive(
+                new ByteArrayInputStream(archive.toByteArray()), USER_ID);
+
+        assertThat(response.importedSessions()).isZero();
+        assertThat(response.skippedSessions()).containsExactly(existing.id());
+        assertThat(response.failedSessions()).containsExactly(broken.id());
+        verify(ownershipCache, never()).put(any(), any());
+        verify(listVersions, never()).refresh(any());
+    }
+
+    @Test
+    @DisplayName("Import - an entry over the size limit is rejected")
+    void import_whenEntryTooLarge_shouldReject() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID large = UUID.randomUUID();
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put(first + ".ndjson", sessionLine(first));
+        entries.put(large + ".ndjson", sessionLine(large) + "x".repeat(5000));
+        lenient().when(archiveRepository.importSession(any(), eq(USER_ID), any())).thenReturn(0L);
+
+        assertThatThrownBy(() -> archiveService.importArchive(new ByteArrayInputStream(zip(entries)), USER_ID))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining(large.toString());
+
+        verify(archiveRepository, never()).importSession(argThat(s -> s.id().equals(large)), any(), any());
+    }
+
+    @Test
+    @DisplayName("Import - archives over the total size limit are rejected")
+    void import_whenArchiveTooLarge_shouldReject() throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            UUID id = UUID.randomUUID();
+            entries.put(id + ".ndjson", sessionLine(id) + " ".repeat(3500));
+        }
+        lenient().when(archiveRepository.importSession(any(), eq(USER_ID), any())).thenReturn(0L);
+
+        assertThatThrownBy(() -> archiveService.importArchive(new ByteArrayInputStream(zip(entries)), USER_ID))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Archive is larger than");
+    }
+
+    @Test
+    @DisplayName("Import - a malformed entry is reported once the sessions being imported are done")
+    void import_whenEntryMalformed_shouldAwaitSessionsInProgress() throws Exception {
+        UUID first = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(archiveRepository.importSession(any(), eq(USER_ID), any())).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return 0L;
+        });
+        PipedOutputStream upload = new PipedOutputStream();
+        PipedInputStream archive = new PipedInputStream(upload, 65536);
+        CompletableFuture<ArchiveImportResponse> result = CompletableFuture.supplyAsync(() -> {
+            try {
+                return archiveService.importArchive(archive, USER_ID);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+        // The broken entry only arrives once the first session is being imported
+        ZipOutputStream zip = new ZipOutputStream(upload);
+        zip.putNextEntry(new ZipEntry(first + ".ndjson"));
+        zip.write(sessionLine(first).getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+        zip.flush();
+        started.await();
+        zip.putNextEntry(new ZipEntry("broken.ndjson"));
+        zip.write("not json\n".getBytes(StandardCharsets.UTF_8));
+        zip.close();
+
+        Thread.sleep(100);
+        assertThat(result).isNotDone();
+        release.countDown();
+
+        assertThatThrownBy(result::join).hasCauseInstanceOf(BadRequestException.class);
+        verify(ownershipCache).put(first, USER_ID);
+    }
+}
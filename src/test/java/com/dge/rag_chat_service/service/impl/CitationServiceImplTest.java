@@ -0,0 +1,90 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.dto.CitedMessageResponse;
+import com.dge.rag_chat_service.dto.Cursor;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.DocumentCitationCount;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for CitationServiceImpl.
+ * Tests document lookups with keyset pagination and the top documents rollup.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CitationService Tests")
+class CitationServiceImplTest {
+
+    private static final String USER_ID = "u123";
+
+    @Mock
+    private MessageCitationRepository repository;
+
+    @InjectMocks
+    private CitationServiceImpl service;
+
+    private static CitedMessageResponse cited(Instant createdAt) {
+        return new CitedMessageResponse(UUID.randomUUID(), UUID.randomUUID(), List.of("c-1"), createdAt);
+    }
+
+    @Test
+    @DisplayName("Messages by document - first page returns cursor of the last row when more exist")
+    void findMessagesByDocument_firstPage_shouldReturnNextCursor() {
+        Instant now = Instant.now();
+        List<CitedMessageResponse> rows = List.of(cited(now), cited(now.minusSeconds(1)), cited(now.minusSeconds(2)));
+        when(repository.findFirstByDocId(USER_ID, "doc-1", 3)).thenReturn(rows);
+
+        CursorPage<CitedMessageResponse> page = service.findMessagesByDocument(USER_ID, "doc-1", null, 2);
+
+        assertThat(page.content()).containsExactly(rows.get(0), rows.get(1));
+        assertThat(Cursor.decode(page.nextCursor()))
+                .isEqualTo(new Cursor(rows.get(1).createdAt(), rows.get(1).messageId()));
+    }
+
+    @Test
+    @DisplayName("Messages by document - continues before the cursor")
+    void findMessagesByDocument_withCursor_shouldSeekBeforePosition() {
+        Cursor cursor = new Cursor(Instant.now(), UUID.randomUUID());
+        List<CitedMessageResponse> rows = List.of(cited(cursor.createdAt().minusSeconds(1)));
+        when(repository.findByDocIdBefore(USER_ID, "doc-1", cursor.createdAt(), cursor.id(), 21)).thenReturn(rows);
+
+        CursorPage<CitedMessageResponse> page = service.findMessagesByDocument(USER_ID, "doc-1", cursor.encode(), 20);
+
+        assertThat(page.content()).isEqualTo(rows);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Messages by document - rejects missing document and invalid page size")
+    void findMessagesByDocument_withInvalidInput_shouldThrowBadRequest() {
+        assertThrows(BadRequestException.class, () -> service.findMessagesByDocument(USER_ID, " ", null, 20));
+        assertThrows(BadRequestException.class, () -> service.findMessagesByDocument(USER_ID, "doc-1", null, 0));
+        assertThrows(BadRequestException.class, () -> service.findMessagesByDocument(USER_ID, "doc-1", null, 101));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Top documents - counts all time when no start is given")
+    void findTopDocuments_withoutSince_shouldCountAllTime() {
+        List<DocumentCitationCount> top = List.of(new DocumentCitationCount("doc-1", 12, 3, Instant.now()));
+        when(repository.findTopDocuments(USER_ID, Instant.EPOCH, 10)).thenReturn(top);
+
+        assertThat(service.findTopDocuments(USER_ID, null, 10)).isEqualTo(top);
+        assertThrows(BadRequestException.class, () -> service.findTopDocuments(USER_ID, null, 0));
+    }
+}
@@ -0,0 +1,175 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.config.ChunkStoreProperties;
+import com.dge.rag_chat_service.dto.ContextQueryRequest;
+import com.dge.rag_chat_service.dto.Cursor;
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.MessageResponse;
+import com.dge.rag_chat_service.dto.RawJson;
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.dge.rag_chat_service.exception.ResourceNotFoundException;
+import com.dge.rag_chat_service.repository.ContextChunkRepository;
+import com.dge.rag_chat_service.repository.MessageContextQueryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ContextQueryServiceImpl.
+ * Tests filter validation, the index cost guard, session scoping and pagination of context queries.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ContextQueryService Tests")
+class ContextQueryServiceImplTest {
+
+    private static final String USER_ID = "u123";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Mock
+    private MessageContextQueryRepository repository;
+
+    @Mock
+    private SessionOwnershipCache ownershipCache;
+
+    @Spy
+    private ChunkStore chunkStore = new ChunkStore(mock(ContextChunkRepository.class), new ObjectMapper(),
+            new ChunkStoreProperties(true, List.of("content", "text"), 256, 100), new SimpleMeterRegistry());
+
+    @InjectMocks
+    private ContextQueryServiceImpl service;
+
+    private static MessageResponse message(Instant createdAt) {
+        return new MessageResponse(UUID.randomUUID(), SenderType.AI, "answer", RawJson.of("{\"documents\": []}"), false, createdAt);
+    }
+
+    private static ContextQueryRequest request(UUID sessionId, String contains, String path, String after, Integer size)
+            throws Exception {
+        return new ContextQueryRequest(sessionId, contains != null ? MAPPER.readTree(contains) : null, path, after, size);
+    }
+
+    @Test
+    @DisplayName("Query - containment across all sessions returns next cursor when more exist")
+    void query_withContains_shouldPageAcrossUser() throws Exception {
+        Instant now = Instant.now();
+        List<MessageResponse> rows = List.of(message(now), message(now.minusSeconds(1)), message(now.minusSeconds(2)));
+        when(repository.find(USER_ID, null, "{\"documents\":[{\"id\":\"doc-42\"}]}", null, null, null, 3))
+                .thenReturn(rows);
+
+        CursorPage<MessageResponse> page = service.query(USER_ID,
+                request(null, "{\"documents\":[{\"id\":\"doc-42\"}]}", null, null, 2));
+
+        assertThat(page.content()).containsExactly(rows.get(0), rows.get(1));
+        assertThat(Cursor.decode(page.nextCursor())).isEqualTo(new Cursor(rows.get(1).createdAt(), rows.get(1).id()));
+        verifyNoInteractions(ownershipCache);
+    }
+
+    @Test
+    @DisplayName("Query - path is rebuilt in canonical form and combined with the cursor")
+    void query_withPath_shouldCanonicalizePredicate() throws Exception {
+        Cursor after = new Cursor(Instant.now(), UUID.randomUUID());
+        when(repository.find(eq(USER_ID), isNull(), isNull(),
+                eq("$.\"documents\"[*].\"id\" == \"doc-42\" && $.\"documents\"[*].\"score\" < 0.3"),
+                eq(after.createdAt()), eq(after.id()), eq(21)))
+                .thenReturn(List.of());
+
+        CursorPage<MessageResponse> page = service.query(USER_ID, request(null, null,
+                "$.documents[*].id == \"doc-42\" &&  $ .documents [ * ].score<0.3", after.encode(), null));
+
+        assertThat(page.content()).isEmpty();
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Query - range-only filter is rejected across sessions but allowed within an owned session")
+    void query_withRangeOnlyPath_shouldRequireSession() throws Exception {
+        assertThrows(BadRequestException.class,
+                () -> service.query(USER_ID, request(null, null, "$.score < 0.3", null, null)));
+        verifyNoInteractions(repository);
+
+        UUID sessionId = UUID.randomUUID();
+        when(repository.find(USER_ID, sessionId, null, "$.\"score\" < 0.3", null, null, 21)).thenReturn(List.of());
+
+        service.query(USER_ID, request(sessionId, null, "$.score < 0.3", null, null));
+
+        verify(ownershipCache).requireOwned(sessionId, USER_ID);
+    }
+
+    @Test
+    @DisplayName("Query - session of another user is not found")
+    void query_withForeignSession_shouldThrowNotFound() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        doThrow(new ResourceNotFoundException("Session not found")).when(ownershipCache).requireOwned(sessionId, USER_ID);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> service.query(USER_ID, request(sessionId, "{\"a\":1}", null, null, null)));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Query - rejects filters the index cannot serve and unsupported syntax")
+    void query_withInvalidFilter_shouldThrowBadRequest() {
+        List<String[]> invalid = List.of(
+                new String[]{null, null},
+                new String[]{"{}", null},
+                new String[]{"{\"a\":{}}", null},
+                new String[]{"\"doc-42\"", null},
+                new String[]{null, "$.a == 1 || $.b == 2"},
+                new String[]{null, "$.a ? (@ == 1)"},
+                new String[]{null, "$.a == \"x\") && exists($.b"},
+                new String[]{null, "$.a.b.c.d.e.f.g.h.i == 1"},
+                new String[]{null, "$.a != 1"});
+        for (String[] filter : invalid) {
+            assertThrows(BadRequestException.class,
+                    () -> service.query(USER_ID, request(null, filter[0], filter[1], null, null)),
+                    () -> "contains=" + filter[0] + " path=" + filter[1]);
+        }
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Query - string literals may contain && and quotes")
+    void query_withStringLiteral_shouldKeepItIntact() throws Exception {
+        when(repository.find(USER_ID, null, null, "$.\"title\" == \"a && \\\"b\\\"\"", null, null, 21))
+                .thenReturn(List.of());
+
+        service.query(USER_ID, request(null, null, "$.title == \"a && \\\"b\\\"\"", null, null));
+
+        verify(repository).find(USER_ID, null, null, "$.\"title\" == \"a && \\\"b\\\"\"", null, null, 21);
+    }
+
+    @Test
+    @DisplayName("Query - timeout is reported as a too broad filter")
+    void query_whenTimedOut_shouldThrowBadRequest() throws Exception {
+        when(repository.find(any(), any(), any(), any(), any(), any(), anyInt()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThrows(BadRequestException.class,
+                () -> service.query(USER_ID, request(null, "{\"source\":\"kb\"}", null, null, null)));
+    }
+}
@@ -1,39 +1,76 @@
 package com.dge.rag_chat_service.service.impl;
 
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.chunk.ChunkStore;
+import com.dge.rag_chat_service.citation.CitationExtractor;
+import com.dge.rag_chat_service.cold.ColdSessionStore;
+import com.dge.rag_chat_service.codec.ContextJson;
+import com.dge.rag_chat_service.codec.DeflateBodyCodec;
+import com.dge.rag_chat_service.codec.MessageBodyCodec;
+import com.dge.rag_chat_service.config.ChunkStoreProperties;
+import com.dge.rag_chat_service.config.CitationProperties;
+import com.dge.rag_chat_service.config.MessageCompressionProperties;
+import com.dge.rag_chat_service.dto.Cursor;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.entity.ChatMessage;
 import com.dge.rag_chat_service.entity.ChatSession;
+import com.dge.rag_chat_service.entity.MessageCitation;
+import com.dge.rag_chat_service.exception.BadRequestException;
 import com.dge.rag_chat_service.exception.ResourceNotFoundException;
 import com.dge.rag_chat_service.dto.CreateMessageRequest;
 import com.dge.rag_chat_service.dto.MessageResponse;
 import com.dge.rag_chat_service.dto.SenderType;
 import com.dge.rag_chat_service.repository.ChatMessageRepository;
+import com.dge.rag_chat_service.repository.ChatMessageStreamReader;
 import com.dge.rag_chat_service.repository.ChatSessionRepository;
+import com.dge.rag_chat_service.repository.ContextChunkRepository;
+import com.dge.rag_chat_service.repository.ListVersionRepository;
+import com.dge.rag_chat_service.repository.MessageCitationRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -51,6 +88,41 @@ class MessageServiceImplTest {
     @Mock
     private ChatSessionRepository sessionRepository;
 
+    @Mock
+    private SessionOwnershipCache ownershipCache;
+
+    @Mock
+    private ChatMessageStreamReader streamReader;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private CitationExtractor citationExtractor = new CitationExtractor(new CitationProperties(
+            "$.documents[*]", "$.id", "$.chunkId", "$.score", 100, new CitationProperties.Backfill(false, 1000, Duration.ofSeconds(1))));
+
+    @Mock
+    private MessageCitationRepository citationRepository;
+
+    @Spy
+    private ChunkStore chunkStore = new ChunkStore(mock(ContextChunkRepository.class), new ObjectMapper(),
+            new ChunkStoreProperties(true, List.of("content", "text"), 256, 100), new SimpleMeterRegistry());
+
+    @Spy
+    private ContextJson contextJson = new ContextJson(objectMapper, 262144, 32);
+
+    @Spy
+    private MessageBodyCodec bodyCodec = new MessageBodyCodec(List.of(new DeflateBodyCodec(6)),
+            new MessageCompressionProperties(false, 16384, "deflate"), new SimpleMeterRegistry());
+
+    private static final String USER_ID = "user1";
+
+    @Mock
+    private ListVersionRepository versionRepository;
+
+    @Mock
+    private ColdSessionStore coldSessions;
+
     @InjectMocks
     private MessageServiceImpl messageService;
 
@@ -68,19 +140,18 @@ class MessageServiceImplTest {
         ChatSession chatSession = new ChatSession();
         chatSession.setId(sessionId);
 
-        when(sessionRepository.findById(eq(sessionId))).thenReturn(Optional.of(chatSession));
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(chatSession);
 
         ChatMessage saved = new ChatMessage();
         saved.setId(UUID.randomUUID());
         saved.setSession(chatSession);
         saved.setSender(req.sender());
         saved.setMessage(req.message());
-        saved.setContext(req.context());
         saved.setCreatedAt(Instant.now());
 
         when(messageRepository.save(any(ChatMessage.class))).thenReturn(saved);
 
-        MessageResponse result = messageService.add(sessionId, req);
+        MessageResponse result = messageService.add(sessionId, req, USER_ID);
 
         ArgumentCaptor<ChatMessage> captor = ArgumentCaptor.forClass(ChatMessage.class);
         verify(messageRepository).save(captor.capture());
@@ -90,14 +161,56 @@ class MessageServiceImplTest {
         assertThat(toSave.getMessage()).isEqualTo(saved.getMessage());
         assertThat(toSave.getSender()).isEqualTo(saved.getSender());
         assertThat(toSave.getContext()).isNull();
+        // Thawing after the bump waits for an archiving transaction holding the session
+        InOrder order = inOrder(versionRepository, coldSessions);
+        order.verify(versionRepository).bumpSession(sessionId);
+        order.verify(coldSessions).thaw(List.of(sessionId));
 
         assertThat(result.id()).isEqualTo(saved.getId());
         assertThat(result.message()).isEqualTo(saved.getMessage());
     }
 
+    @Test
+    @DisplayName("Add - indexes the documents cited in the context")
+    @SuppressWarnings("unchecked")
+    void add_withCitations_shouldIndexThem() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        Map<String, Object> context = Map.of("documents", List.of(
+                Map.of("id", "doc-1", "chunkId", "c-1"),
+                Map.of("id", "doc-1", "chunkId", "c-1"),
+                Map.of("id", "doc-2"),
+                Map.of("title", "no id")));
+        CreateMessageRequest req = new CreateMessageRequest(SenderType.AI, "answer", context);
+        ChatSession chatSession = new ChatSession();
+        chatSession.setId(sessionId);
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(chatSession);
+
+        ChatMessage saved = new ChatMessage();
+        saved.setId(UUID.randomUUID());
+        saved.setSession(chatSession);
+        saved.setSender(req.sender());
+        saved.setMessage(req.message());
+        saved.setContext(objectMapper.writeValueAsString(context));
+        saved.setCreatedAt(Instant.now());
+        when(messageRepository.save(any(ChatMessage.class))).thenReturn(saved);
+
+        messageService.add(sessionId, req, USER_ID);
+
+        ArgumentCaptor<List<MessageCitation>> captor = ArgumentCaptor.forClass(List.class);
+        verify(citationRepository).insertAll(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(c -> c.getId().getDocId() + "/" + c.getId().getChunkId())
+                .containsExactly("doc-1/c-1", "doc-2/");
+        assertThat(captor.getValue()).allSatisfy(c -> {
+            assertThat(c.getId().getMessageId()).isEqualTo(saved.getId());
+            assertThat(c.getSessionId()).isEqualTo(sessionId);
+            assertThat(c.getCreatedAt()).isEqualTo(saved.getCreatedAt());
+        });
+    }
+
     @Test
     @DisplayName("Add - with context")
-    void add_withContextShouldSaveAndReturn() {
+    void add_withContextShouldSaveAndReturn() throws Exception {
         UUID sessionId = UUID.randomUUID();
         Map<String, Object> contextData = Map.of("key1", "value1", "key2", 123);
         CreateMessageRequest req = new CreateMessageRequest(SenderType.AI, "Response", contextData);
@@ -105,24 +218,68 @@ class MessageServiceImplTest {
         ChatSession chatSession = new ChatSession();
         chatSession.setId(sessionId);
 
-        when(sessionRepository.findById(eq(sessionId))).thenReturn(Optional.of(chatSession));
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(chatSession);
 
         ChatMessage saved = new ChatMessage();
         saved.setId(UUID.randomUUID());
         saved.setSession(chatSession);
         saved.setSender(req.sender());
         saved.setMessage(req.message());
-        saved.setContext(contextData);
+        saved.setContext(objectMapper.writeValueAsString(contextData));
 
         when(messageRepository.save(any(ChatMessage.class))).thenReturn(saved);
 
-        MessageResponse result = messageService.add(sessionId, req);
+        MessageResponse result = messageService.add(sessionId, req, USER_ID);
+
+        ArgumentCaptor<ChatMessage> captor = ArgumentCaptor.forClass(ChatMessage.class);
+        verify(messageRepository).save(captor.capture());
+
+        assertThat(parse(captor.getValue().getContext())).isEqualTo(contextData);
+        assertThat(parse(result.context().json())).isEqualTo(contextData);
+    }
+
+    @Test
+    @DisplayName("Add - stores long chunk text by reference and returns the full context")
+    void add_withLongChunk_shouldStoreReferenceAndReturnFullContext() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        String chunk = "Orders ship within two business days. ".repeat(10);
+        Map<String, Object> contextData = Map.of("documents", List.of(Map.of("id", "doc-1", "content", chunk)));
+        CreateMessageRequest req = new CreateMessageRequest(SenderType.AI, "Response", contextData);
+
+        ChatSession chatSession = new ChatSession();
+        chatSession.setId(sessionId);
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(chatSession);
+        when(messageRepository.save(any(ChatMessage.class))).thenAnswer(inv -> {
+            ChatMessage m = inv.getArgument(0);
+            m.setId(UUID.randomUUID());
+            m.setCreatedAt(Instant.now());
+            return m;
+        });
+
+        MessageResponse result = messageService.add(sessionId, req, USER_ID);
 
         ArgumentCaptor<ChatMessage> captor = ArgumentCaptor.forClass(ChatMessage.class);
         verify(messageRepository).save(captor.capture());
+        assertThat(parse(captor.getValue().getContext())).isEqualTo(Map.of("documents", List.of(
+                Map.of("id", "doc-1", "content", Map.of(ChunkStore.REF_KEY, ChunkStore.sha256(chunk))))));
+        assertThat(parse(result.context().json())).isEqualTo(contextData);
+    }
+
+    @Test
+    @DisplayName("Add - rejects a context nested deeper than the limit")
+    void add_withTooDeepContext_shouldThrowBadRequest() {
+        Map<String, Object> context = Map.of("a", "leaf");
+        for (int i = 0; i < 40; i++) {
+            context = Map.of("a", context);
+        }
+        CreateMessageRequest req = new CreateMessageRequest(SenderType.AI, "Response", context);
 
-        assertThat(captor.getValue().getContext()).isEqualTo(contextData);
-        assertThat(result.context()).isEqualTo(contextData);
+        assertThrows(BadRequestException.class, () -> messageService.add(UUID.randomUUID(), req, USER_ID));
+        verifyNoInteractions(messageRepository);
+    }
+
+    private Map<String, Object> parse(String json) throws Exception {
+        return objectMapper.readValue(json, new TypeReference<>() {});
     }
 
     @Test
@@ -131,9 +288,9 @@ class MessageServiceImplTest {
         UUID sessionId = UUID.randomUUID();
         CreateMessageRequest req = new CreateMessageRequest(SenderType.USER, "message", null);
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.empty());
+        doThrow(new ResourceNotFoundException("Session not found")).when(ownershipCache).requireOwned(sessionId, USER_ID);
 
-        assertThrows(ResourceNotFoundException.class, () -> messageService.add(sessionId, req));
+        assertThrows(ResourceNotFoundException.class, () -> messageService.add(sessionId, req, USER_ID));
         verify(messageRepository, never()).save(any());
     }
 
@@ -146,7 +303,7 @@ class MessageServiceImplTest {
         ChatSession chatSession = new ChatSession();
         chatSession.setId(sessionId);
 
-        when(sessionRepository.findById(eq(sessionId))).thenReturn(Optional.of(chatSession));
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(chatSession);
 
         ChatMessage saved = new ChatMessage();
         saved.setId(UUID.randomUUID());
@@ -155,7 +312,7 @@ class MessageServiceImplTest {
 
         when(messageRepository.save(any(ChatMessage.class))).thenReturn(saved);
 
-        MessageResponse result = messageService.add(sessionId, req);
+        MessageResponse result = messageService.add(sessionId, req, USER_ID);
 
         assertThat(result.message()).isEmpty();
         verify(messageRepository).save(any(ChatMessage.class));
@@ -168,7 +325,7 @@ class MessageServiceImplTest {
         ChatSession chatSession = new ChatSession();
         chatSession.setId(sessionId);
 
-        when(sessionRepository.findById(eq(sessionId))).thenReturn(Optional.of(chatSession));
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(chatSession);
 
         for (SenderType senderType : SenderType.values()) {
             CreateMessageRequest req = new CreateMessageRequest(senderType, "test", null);
@@ -180,7 +337,7 @@ class MessageServiceImplTest {
 
             when(messageRepository.save(any(ChatMessage.class))).thenReturn(saved);
 
-            MessageResponse result = messageService.add(sessionId, req);
+            MessageResponse result = messageService.add(sessionId, req, USER_ID);
 
             assertThat(result.sender()).isEqualTo(senderType);
         }
@@ -195,11 +352,62 @@ class MessageServiceImplTest {
         ChatSession chatSession = new ChatSession();
         chatSession.setId(sessionId);
 
-        when(sessionRepository.findById(eq(sessionId))).thenReturn(Optional.of(chatSession));
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(chatSession);
         when(messageRepository.save(any(ChatMessage.class)))
                 .thenThrow(new RuntimeException("Database error"));
 
-        assertThrows(RuntimeException.class, () -> messageService.add(sessionId, req));
+        assertThrows(RuntimeException.class, () -> messageService.add(sessionId, req, USER_ID));
+    }
+
+    @Test
+    @DisplayName("Add all - saves in request order with increasing timestamps")
+    void addAll_shouldSaveInOrderWithIncreasingTimestamps() {
+        UUID sessionId = UUID.randomUUID();
+        List<CreateMessageRequest> reqs = List.of(
+                new CreateMessageRequest(SenderType.USER, "Question", null),
+                new CreateMessageRequest(SenderType.AI, "Answer", Map.of("doc", "a.pdf")));
+
+        ChatSession chatSession = new ChatSession();
+        chatSession.setId(sessionId);
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(chatSession);
+        when(messageRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        List<MessageResponse> result = messageService.addAll(sessionId, reqs, USER_ID);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ChatMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(messageRepository).saveAll(captor.capture());
+        List<ChatMessage> saved = captor.getValue();
+
+        assertThat(saved).extracting(ChatMessage::getSession).containsOnly(chatSession);
+        assertThat(saved.get(0).getCreatedAt()).isBefore(saved.get(1).getCreatedAt());
+        assertThat(result).extracting(MessageResponse::message).containsExactly("Question", "Answer");
+        verify(ownershipCache).requireOwned(sessionId, USER_ID);
+        verify(messageRepository, never()).save(any());
+        verify(versionRepository).bumpSession(sessionId);
+    }
+
+    @Test
+    @DisplayName("Messages version - checks ownership and reads the session's counter")
+    void messagesVersion_shouldCheckOwnershipAndReadVersion() {
+        UUID sessionId = UUID.randomUUID();
+        when(versionRepository.sessionVersion(sessionId)).thenReturn(7L);
+
+        assertThat(messageService.messagesVersion(sessionId, USER_ID)).isEqualTo(7L);
+        verify(ownershipCache).requireOwned(sessionId, USER_ID);
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    @DisplayName("Add all - session not found")
+    void addAll_whenSessionNotFound_shouldThrowEntityNotFound() {
+        UUID sessionId = UUID.randomUUID();
+        doThrow(new ResourceNotFoundException("Session not found")).when(ownershipCache).requireOwned(sessionId, USER_ID);
+
+        assertThrows(ResourceNotFoundException.class, () -> messageService.addAll(sessionId,
+                List.of(new CreateMessageRequest(SenderType.USER, "Question", null)), USER_ID));
+
+        verifyNoInteractions(messageRepository);
     }
 
     @Test
@@ -209,7 +417,6 @@ class MessageServiceImplTest {
         int page = 0;
         int size = 2;
 
-        when(sessionRepository.existsById(eq(sessionId))).thenReturn(true);
 
         ChatSession chatSession = new ChatSession();
         chatSession.setId(sessionId);
@@ -233,7 +440,7 @@ class MessageServiceImplTest {
 
         when(messageRepository.findBySessionId(eq(sessionId), any(Pageable.class))).thenReturn(pageResult);
 
-        Page<MessageResponse> result = messageService.list(sessionId, page, size);
+        Page<MessageResponse> result = messageService.list(sessionId, page, size, USER_ID);
 
         assertThat(result.getTotalElements()).isEqualTo(2);
         assertThat(result.getContent()).hasSize(2);
@@ -254,17 +461,35 @@ class MessageServiceImplTest {
         int page = 0;
         int size = 10;
 
-        when(sessionRepository.existsById(eq(sessionId))).thenReturn(true);
 
         Page<ChatMessage> empty = new PageImpl<>(Collections.emptyList(),
                 PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "createdAt")), 0);
         when(messageRepository.findBySessionId(eq(sessionId), any(Pageable.class))).thenReturn(empty);
 
-        Page<MessageResponse> result = messageService.list(sessionId, page, size);
+        Page<MessageResponse> result = messageService.list(sessionId, page, size, USER_ID);
 
         assertThat(result.getContent()).isEmpty();
         assertThat(result.getTotalElements()).isZero();
-        verify(sessionRepository).existsById(sessionId);
+        verify(ownershipCache).requireOwned(sessionId, USER_ID);
+    }
+
+    @Test
+    @DisplayName("List - a session without hot messages is paged from its cold block")
+    void list_whenArchived_shouldPageColdBlock() {
+        UUID sessionId = UUID.randomUUID();
+        Page<ChatMessage> empty = new PageImpl<>(Collections.emptyList(),
+                PageRequest.of(1, 2, Sort.by(Sort.Direction.ASC, "createdAt")), 0);
+        when(messageRepository.findBySessionId(eq(sessionId), any(Pageable.class))).thenReturn(empty);
+        when(coldSessions.read(sessionId)).thenReturn(List.of(
+                message("message 1", Instant.parse("2025-01-01T00:00:01Z")),
+                message("message 2", Instant.parse("2025-01-01T00:00:02Z")),
+                message("message 3", Instant.parse("2025-01-01T00:00:03Z"))));
+
+        Page<MessageResponse> result = messageService.list(sessionId, 1, 2, USER_ID);
+
+        assertThat(result.getContent()).extracting(MessageResponse::message).containsExactly("message 3");
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.getNumber()).isEqualTo(1);
     }
 
     @Test
@@ -272,9 +497,9 @@ class MessageServiceImplTest {
     void list_whenSessionNotFound_shouldThrowEntityNotFound() {
         UUID sessionId = UUID.randomUUID();
 
-        when(sessionRepository.existsById(sessionId)).thenReturn(false);
+        doThrow(new ResourceNotFoundException("Session not found")).when(ownershipCache).requireOwned(sessionId, USER_ID);
 
-        assertThrows(ResourceNotFoundException.class, () -> messageService.list(sessionId, 0, 10));
+        assertThrows(ResourceNotFoundException.class, () -> messageService.list(sessionId, 0, 10, USER_ID));
         verify(messageRepository, never()).findBySessionId(any(), any());
     }
 
@@ -282,13 +507,12 @@ class MessageServiceImplTest {
     @DisplayName("List - different page sizes")
     void list_withDifferentPageSizes_shouldAdjustPageable() {
         UUID sessionId = UUID.randomUUID();
-        when(sessionRepository.existsById(eq(sessionId))).thenReturn(true);
 
         Page<ChatMessage> emptyPage = new PageImpl<>(Collections.emptyList(),
                 PageRequest.of(0, 5, Sort.by(Sort.Direction.ASC, "createdAt")), 0);
         when(messageRepository.findBySessionId(eq(sessionId), any(Pageable.class))).thenReturn(emptyPage);
 
-        messageService.list(sessionId, 0, 5);
+        messageService.list(sessionId, 0, 5, USER_ID);
 
         ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
         verify(messageRepository).findBySessionId(eq(sessionId), pageableCaptor.capture());
@@ -302,7 +526,6 @@ class MessageServiceImplTest {
         int page = 1;
         int size = 1;
 
-        when(sessionRepository.existsById(eq(sessionId))).thenReturn(true);
 
         ChatMessage m1 = new ChatMessage();
         m1.setId(UUID.randomUUID());
@@ -313,7 +536,7 @@ class MessageServiceImplTest {
 
         when(messageRepository.findBySessionId(eq(sessionId), any(Pageable.class))).thenReturn(pageResult);
 
-        Page<MessageResponse> result = messageService.list(sessionId, page, size);
+        Page<MessageResponse> result = messageService.list(sessionId, page, size, USER_ID);
 
         assertThat(result.getNumber()).isEqualTo(page);
         assertThat(result.getTotalPages()).isEqualTo(5);
@@ -325,13 +548,12 @@ class MessageServiceImplTest {
     void list_shouldSortByCreatedAtAscending() {
         UUID sessionId = UUID.randomUUID();
 
-        when(sessionRepository.existsById(eq(sessionId))).thenReturn(true);
 
         Page<ChatMessage> pageResult = new PageImpl<>(Collections.emptyList(),
                 PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "createdAt")), 0);
         when(messageRepository.findBySessionId(eq(sessionId), any(Pageable.class))).thenReturn(pageResult);
 
-        messageService.list(sessionId, 0, 10);
+        messageService.list(sessionId, 0, 10, USER_ID);
 
         ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
         verify(messageRepository).findBySessionId(eq(sessionId), pageableCaptor.capture());
@@ -344,11 +566,235 @@ class MessageServiceImplTest {
     void list_whenRepositoryThrows_shouldPropagate() {
         UUID sessionId = UUID.randomUUID();
 
-        when(sessionRepository.existsById(eq(sessionId))).thenReturn(true);
         when(messageRepository.findBySessionId(eq(sessionId), any(Pageable.class)))
                 .thenThrow(new RuntimeException("Database connection failed"));
 
-        assertThrows(RuntimeException.class, () -> messageService.list(sessionId, 0, 10));
+        assertThrows(RuntimeException.class, () -> messageService.list(sessionId, 0, 10, USER_ID));
+    }
+
+    @Test
+    @DisplayName("List by cursor - first page fetches one extra row and returns next cursor")
+    void listByCursor_firstPage_shouldReturnNextCursor() {
+        UUID sessionId = UUID.randomUUID();
+
+        ChatMessage m1 = message("message 1", Instant.parse("2025-01-01T00:00:01Z"));
+        ChatMessage m2 = message("message 2", Instant.parse("2025-01-01T00:00:02Z"));
+        ChatMessage m3 = message("message 3", Instant.parse("2025-01-01T00:00:03Z"));
+        when(messageRepository.findFirstBySessionId(sessionId, 3)).thenReturn(List.of(m1, m2, m3));
+
+        CursorPage<MessageResponse> result = messageService.listByCursor(sessionId, null, null, 2, USER_ID);
+
+        assertThat(result.content()).extracting(MessageResponse::message).containsExactly("message 1", "message 2");
+        assertThat(Cursor.decode(result.nextCursor())).isEqualTo(new Cursor(m2.getCreatedAt(), m2.getId()));
+        assertThat(result.previousCursor()).isNull();
+        verify(messageRepository, never()).findBySessionId(any(), any());
+    }
+
+    @Test
+    @DisplayName("List by cursor - after cursor seeks from the given position")
+    void listByCursor_withAfter_shouldSeekFromCursor() {
+        UUID sessionId = UUID.randomUUID();
+
+        Cursor cursor = new Cursor(Instant.parse("2025-01-01T00:00:02Z"), UUID.randomUUID());
+        ChatMessage m3 = message("message 3", Instant.parse("2025-01-01T00:00:03Z"));
+        when(messageRepository.findBySessionIdFrom(sessionId, cursor.createdAt(), cursor.id(), 4))
+                .thenReturn(List.of(m3));
+
+        CursorPage<MessageResponse> result = messageService.listByCursor(sessionId, cursor.encode(), null, 2, USER_ID);
+
+        assertThat(result.content()).extracting(MessageResponse::message).containsExactly("message 3");
+        assertThat(result.nextCursor()).isNull();
+        assertThat(Cursor.decode(result.previousCursor())).isEqualTo(new Cursor(m3.getCreatedAt(), m3.getId()));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("List by cursor - polling a hot session past its last message never reads the cold archive")
+    void listByCursor_whenPollingHotSession_shouldNotReadColdBlock() {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessage last = message("message 3", Instant.parse("2025-01-01T00:00:03Z"));
+        Cursor cursor = new Cursor(last.getCreatedAt(), last.getId());
+        when(messageRepository.findBySessionIdFrom(sessionId, cursor.createdAt(), cursor.id(), 4))
+                .thenReturn(List.of(last));
+
+        CursorPage<MessageResponse> result = messageService.listByCursor(sessionId, cursor.encode(), null, 2, USER_ID);
+
+        assertThat(result.content()).isEmpty();
+        assertThat(result.nextCursor()).isNull();
+        verifyNoInteractions(coldSessions);
+    }
+
+    @Test
+    @DisplayName("List by cursor - before cursor returns rows in chronological order")
+    void listByCursor_withBefore_shouldReturnChronologicalOrder() {
+        UUID sessionId = UUID.randomUUID();
+
+        Cursor cursor = new Cursor(Instant.parse("2025-01-01T00:00:04Z"), UUID.randomUUID());
+        ChatMessage m1 = message("message 1", Instant.parse("2025-01-01T00:00:01Z"));
+        ChatMessage m2 = message("message 2", Instant.parse("2025-01-01T00:00:02Z"));
+        ChatMessage m3 = message("message 3", Instant.parse("2025-01-01T00:00:03Z"));
+        when(messageRepository.findBySessionIdUntil(sessionId, cursor.createdAt(), cursor.id(), 4))
+                .thenReturn(List.of(m3, m2, m1));
+
+        CursorPage<MessageResponse> result = messageService.listByCursor(sessionId, null, cursor.encode(), 2, USER_ID);
+
+        assertThat(result.content()).extracting(MessageResponse::message).containsExactly("message 2", "message 3");
+        assertThat(Cursor.decode(result.nextCursor())).isEqualTo(new Cursor(m3.getCreatedAt(), m3.getId()));
+        assertThat(Cursor.decode(result.previousCursor())).isEqualTo(new Cursor(m2.getCreatedAt(), m2.getId()));
+    }
+
+    @Test
+    @DisplayName("List by cursor - paging back and then forward again returns every row once")
+    void listByCursor_backThenForward_shouldNotSkipRows() {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessage m1 = message("message 1", Instant.parse("2025-01-01T00:00:01Z"));
+        ChatMessage m2 = message("message 2", Instant.parse("2025-01-01T00:00:02Z"));
+        ChatMessage m3 = message("message 3", Instant.parse("2025-01-01T00:00:03Z"));
+        ChatMessage m4 = message("message 4", Instant.parse("2025-01-01T00:00:04Z"));
+        when(messageRepository.findBySessionIdFrom(eq(sessionId), any(), any(), eq(4))).thenAnswer(inv -> {
+            Cursor from = new Cursor(inv.getArgument(1), inv.getArgument(2));
+            return Stream.of(m1, m2, m3, m4)
+                    .filter(m -> !m.getCreatedAt().isBefore(from.createdAt()))
+                    .limit(4)
+                    .toList();
+        });
+        when(messageRepository.findBySessionIdUntil(sessionId, m3.getCreatedAt(), m3.getId(), 4))
+                .thenReturn(List.of(m3, m2, m1));
+
+        // The client is on the page starting at message 3 and goes back one page, then forward again
+        CursorPage<MessageResponse> back = messageService.listByCursor(sessionId, null,
+                new Cursor(m3.getCreatedAt(), m3.getId()).encode(), 2, USER_ID);
+        CursorPage<MessageResponse> forward = messageService.listByCursor(sessionId, back.nextCursor(), null, 2, USER_ID);
+
+        assertThat(back.content()).extracting(MessageResponse::message).containsExactly("message 1", "message 2");
+        assertThat(forward.content()).extracting(MessageResponse::message).containsExactly("message 3", "message 4");
+    }
+
+    @Test
+    @DisplayName("List by cursor - page size above the maximum throws BadRequestException")
+    void listByCursor_withTooLargePage_shouldThrowBadRequest() {
+        UUID sessionId = UUID.randomUUID();
+
+        assertThrows(BadRequestException.class, () -> messageService.listByCursor(
+                sessionId, null, null, MessageServiceImpl.MAX_PAGE_SIZE + 1, USER_ID));
+        assertThrows(BadRequestException.class, () -> messageService.listByCursor(
+                sessionId, null, null, Integer.MAX_VALUE, USER_ID));
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    @DisplayName("List by cursor - a session without hot messages is paged from its cold block")
+    void listByCursor_whenArchived_shouldSeekInColdBlock() {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessage m1 = message("message 1", Instant.parse("2025-01-01T00:00:01Z"));
+        ChatMessage m2 = message("message 2", Instant.parse("2025-01-01T00:00:02Z"));
+        ChatMessage m3 = message("message 3", Instant.parse("2025-01-01T00:00:03Z"));
+        when(coldSessions.read(sessionId)).thenReturn(List.of(m1, m2, m3));
+
+        CursorPage<MessageResponse> first = messageService.listByCursor(sessionId, null, null, 2, USER_ID);
+        CursorPage<MessageResponse> next = messageService.listByCursor(sessionId, first.nextCursor(), null, 2, USER_ID);
+        CursorPage<MessageResponse> back = messageService.listByCursor(sessionId, null, next.previousCursor(), 1, USER_ID);
+
+        assertThat(first.content()).extracting(MessageResponse::message).containsExactly("message 1", "message 2");
+        assertThat(next.content()).extracting(MessageResponse::message).containsExactly("message 3");
+        assertThat(next.nextCursor()).isNull();
+        assertThat(back.content()).extracting(MessageResponse::message).containsExactly("message 2");
+        assertThat(Cursor.decode(back.previousCursor())).isEqualTo(new Cursor(m2.getCreatedAt(), m2.getId()));
+    }
+
+    @Test
+    @DisplayName("List by cursor - both cursors set throws BadRequestException")
+    void listByCursor_withBothCursors_shouldThrowBadRequest() {
+        UUID sessionId = UUID.randomUUID();
+        String token = new Cursor(Instant.now(), UUID.randomUUID()).encode();
+
+        assertThrows(BadRequestException.class, () -> messageService.listByCursor(sessionId, token, token, 10, USER_ID));
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    @DisplayName("List by cursor - malformed cursor throws BadRequestException")
+    void listByCursor_withInvalidCursor_shouldThrowBadRequest() {
+        UUID sessionId = UUID.randomUUID();
+
+        assertThrows(BadRequestException.class, () -> messageService.listByCursor(sessionId, "not-a-cursor", null, 10, USER_ID));
+        verify(messageRepository, never()).findBySessionIdFrom(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("List by cursor - session not found throws ResourceNotFoundException")
+    void listByCursor_whenSessionNotFound_shouldThrowEntityNotFound() {
+        UUID sessionId = UUID.randomUUID();
+        doThrow(new ResourceNotFoundException("Session not found")).when(ownershipCache).requireOwned(sessionId, USER_ID);
+
+        assertThrows(ResourceNotFoundException.class, () -> messageService.listByCursor(sessionId, null, null, 10, USER_ID));
+        verify(messageRepository, never()).findFirstBySessionId(any(), anyInt());
+    }
+
+    private ChatMessage message(String text, Instant createdAt) {
+        ChatMessage m = new ChatMessage();
+        m.setId(UUID.randomUUID());
+        m.setSender(SenderType.USER);
+        m.setMessage(text);
+        m.setCreatedAt(createdAt);
+        return m;
+    }
+
+    @Test
+    @DisplayName("Export - writes one JSON document per row")
+    void export_shouldWriteNdjson() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        UUID messageId = UUID.randomUUID();
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject("id", UUID.class)).thenReturn(messageId);
+        when(rs.getString("sender")).thenReturn("AI");
+        when(rs.getString("message")).thenReturn("Answer");
+        when(rs.getString("context")).thenReturn("{\"doc\": \"a.pdf\"}");
+        when(rs.getObject("created_at", OffsetDateTime.class))
+                .thenReturn(OffsetDateTime.parse("2026-01-01T10:00:00Z"));
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            handler.processRow(rs);
+            handler.processRow(rs);
+            return null;
+        }).when(streamReader).forEachBySessionId(eq(sessionId), any(), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        messageService.export(sessionId, USER_ID).writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo("{\"id\":\"" + messageId + "\",\"sender\":\"AI\",\"message\":\"Answer\","
+                + "\"context\":{\"doc\": \"a.pdf\"},\"createdAt\":\"2026-01-01T10:00:00Z\"}");
+        assertThat(lines[1]).isEqualTo(lines[0]);
+    }
+
+    @Test
+    @DisplayName("Export - writes the messages of a cold session as they were read from its block")
+    void export_coldSession_shouldWriteBlockMessages() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessage cold = message("\u0001 not a compressed body", Instant.parse("2026-01-01T10:00:00Z"));
+        doAnswer(inv -> {
+            Consumer<ChatMessage> coldHandler = inv.getArgument(2);
+            coldHandler.accept(cold);
+            return null;
+        }).when(streamReader).forEachBySessionId(eq(sessionId), any(), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        messageService.export(sessionId, USER_ID).writeTo(out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"id\":\"" + cold.getId()
+                + "\",\"sender\":\"USER\",\"message\":\"\\u0001 not a compressed body\",\"context\":null,"
+                + "\"createdAt\":\"2026-01-01T10:00:00Z\"}\n");
+    }
+
+    @Test
+    @DisplayName("Export - session not found fails before streaming")
+    void export_whenSessionNotFound_shouldThrowEntityNotFound() {
+        UUID sessionId = UUID.randomUUID();
+        doThrow(new ResourceNotFoundException("Session not found")).when(ownershipCache).requireOwned(sessionId, USER_ID);
+
+        assertThrows(ResourceNotFoundException.class, () -> messageService.export(sessionId, USER_ID));
+
+        verifyNoInteractions(streamReader);
+    }
+}
@@ -0,0 +1,84 @@
+package com.dge.rag_chat_service.service.impl;
+
+import com.dge.rag_chat_service.dto.CursorPage;
+import com.dge.rag_chat_service.dto.SearchCursor;
+import com.dge.rag_chat_service.dto.SearchHitResponse;
+import com.dge.rag_chat_service.dto.SenderType;
+import com.dge.rag_chat_service.exception.BadRequestException;
+import com.dge.rag_chat_service.repository.MessageSearchRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for SearchServiceImpl.
+ * Tests validation and keyset pagination of message search.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SearchService Tests")
+class SearchServiceImplTest {
+
+    private static final String USER_ID = "u123";
+
+    @Mock
+    private MessageSearchRepository repository;
+
+    @InjectMocks
+    private SearchServiceImpl service;
+
+    private static SearchHitResponse hit(float rank) {
+        return new SearchHitResponse(UUID.randomUUID(), UUID.randomUUID(), SenderType.USER,
+                "about **refunds**", rank, Instant.now());
+    }
+
+    @Test
+    @DisplayName("Search - first page returns cursor of the last hit when more exist")
+    void search_firstPage_shouldReturnNextCursor() {
+        List<SearchHitResponse> rows = List.of(hit(0.9f), hit(0.5f), hit(0.1f));
+        when(repository.searchFirst(USER_ID, "refund", 3)).thenReturn(rows);
+
+        CursorPage<SearchHitResponse> page = service.search(USER_ID, "refund", null, 2);
+
+        assertThat(page.content()).containsExactly(rows.get(0), rows.get(1));
+        SearchCursor next = SearchCursor.decode(page.nextCursor());
+        assertThat(next.rank()).isEqualTo(0.5f);
+        assertThat(next.id()).isEqualTo(rows.get(1).messageId());
+    }
+
+    @Test
+    @DisplayName("Search - continues after the cursor and ends without a next cursor")
+    void search_withCursor_shouldSeekAfterPosition() {
+        UUID id = UUID.randomUUID();
+        List<SearchHitResponse> rows = List.of(hit(0.05f));
+        when(repository.searchAfter(USER_ID, "refund", 0.5f, id, 3)).thenReturn(rows);
+
+        CursorPage<SearchHitResponse> page = service.search(USER_ID, "refund", new SearchCursor(0.5f, id).encode(), 2);
+
+        assertThat(page.content()).containsExactly(rows.get(0));
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Search - rejects blank queries, oversized pages and invalid cursors")
+    void search_withInvalidInput_shouldThrowBadRequest() {
+        assertThrows(BadRequestException.class, () -> service.search(USER_ID, " ", null, 20));
+        assertThrows(BadRequestException.class, () -> service.search(USER_ID, null, null, 20));
+        assertThrows(BadRequestException.class, () -> service.search(USER_ID, "x".repeat(257), null, 20));
+        assertThrows(BadRequestException.class, () -> service.search(USER_ID, "refund", null, 0));
+        assertThrows(BadRequestException.class, () -> service.search(USER_ID, "refund", null, 101));
+        assertThrows(BadRequestException.class, () -> service.search(USER_ID, "refund", "not-a-cursor", 20));
+        verifyNoInteractions(repository);
+    }
+}
@@ -1,7 +1,12 @@
 package com.dge.rag_chat_service.service.impl;
 
+import com.dge.rag_chat_service.cache.SessionListVersionCache;
+import com.dge.rag_chat_service.cache.SessionOwnershipCache;
+import com.dge.rag_chat_service.dto.Cursor;
+import com.dge.rag_chat_service.dto.CursorPage;
 import com.dge.rag_chat_service.dto.FavoriteSessionRequest;
 import com.dge.rag_chat_service.entity.ChatSession;
+import com.dge.rag_chat_service.exception.BadRequestException;
 import com.dge.rag_chat_service.exception.ResourceNotFoundException;
 import com.dge.rag_chat_service.dto.CreateSessionRequest;
 import com.dge.rag_chat_service.dto.RenameSessionRequest;
@@ -14,16 +19,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -32,7 +40,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -50,6 +57,17 @@ class SessionServiceImplTest {
     @Mock
     private ChatSessionRepository repository;
 
+    @Mock
+    private SessionOwnershipCache ownershipCache;
+
+    @Mock
+    private SessionListVersionCache listVersions;
+
+    @Spy
+    private TransactionOperations transactions = TransactionOperations.withoutTransaction();
+
+    private static final String USER_ID = "u123";
+
     @InjectMocks
     private SessionServiceImpl service;
 
@@ -82,6 +100,8 @@ class SessionServiceImplTest {
         assertThat(toSave.getUserId()).isEqualTo(saved.getUserId());
         assertThat(toSave.getName()).isEqualTo(saved.getName());
         assertThat(result.id()).isEqualTo(saved.getId());
+        verify(ownershipCache).put(saved.getId(), userid);
+        verify(listVersions).bump(userid);
     }
 
     @Test
@@ -182,6 +202,45 @@ class SessionServiceImplTest {
         assertThat(result.getTotalElements()).isZero();
     }
 
+    @Test
+    @DisplayName("List by cursor - first page returns next cursor without counting")
+    void listByCursor_firstPage_shouldReturnNextCursor() {
+        String userId = "user123";
+        ChatSession s1 = session(userId, "Newest", Instant.parse("2025-01-03T00:00:00Z"));
+        ChatSession s2 = session(userId, "Middle", Instant.parse("2025-01-02T00:00:00Z"));
+        ChatSession s3 = session(userId, "Oldest", Instant.parse("2025-01-01T00:00:00Z"));
+
+        when(repository.findFirstByUserId(userId, 3)).thenReturn(List.of(s1, s2, s3));
+
+        CursorPage<SessionResponse> result = service.findAllByUserIdByCursor(userId, null, 2);
+
+        assertThat(result.content()).extracting(SessionResponse::name).containsExactly("Newest", "Middle");
+        assertThat(Cursor.decode(result.nextCursor())).isEqualTo(new Cursor(s2.getCreatedAt(), s2.getId()));
+        verify(repository, never()).findByUserId(any(), any());
+    }
+
+    @Test
+    @DisplayName("List by cursor - last page has no next cursor")
+    void listByCursor_lastPage_shouldHaveNoNextCursor() {
+        String userId = "user123";
+        Cursor cursor = new Cursor(Instant.parse("2025-01-02T00:00:00Z"), UUID.randomUUID());
+        ChatSession s3 = session(userId, "Oldest", Instant.parse("2025-01-01T00:00:00Z"));
+
+        when(repository.findByUserIdBefore(userId, cursor.createdAt(), cursor.id(), 3)).thenReturn(List.of(s3));
+
+        CursorPage<SessionResponse> result = service.findAllByUserIdByCursor(userId, cursor.encode(), 2);
+
+        assertThat(result.content()).extracting(SessionResponse::name).containsExactly("Oldest");
+        assertThat(result.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("List by cursor - malformed cursor throws BadRequestException")
+    void listByCursor_withInvalidCursor_shouldThrowBadRequest() {
+        assertThrows(BadRequestException.class, () -> service.findAllByUserIdByCursor("user123", "%%%", 10));
+        verifyNoInteractions(repository);
+    }
+
     @Test
     @DisplayName("Rename - success with valid id and name")
     void rename_shouldUpdateNameAndUpdatedAt() {
@@ -197,7 +256,7 @@ class SessionServiceImplTest {
 
         RenameSessionRequest req = new RenameSessionRequest("New Name");
 
-        SessionResponse result = service.rename(id, req);
+        SessionResponse result = service.rename(id, req, USER_ID);
 
         assertEquals("New Name", result.name());
     }
@@ -210,7 +269,7 @@ class SessionServiceImplTest {
 
         RenameSessionRequest req = new RenameSessionRequest("anything");
 
-        assertThrows(ResourceNotFoundException.class, () -> service.rename(id, req));
+        assertThrows(ResourceNotFoundException.class, () -> service.rename(id, req, USER_ID));
         verify(repository).findById(id);
         verify(repository, never()).save(any());
     }
@@ -224,7 +283,7 @@ class SessionServiceImplTest {
         existing.setName("old");
         when(repository.findById(id)).thenReturn(Optional.of(existing));
 
-        assertThrows(NullPointerException.class, () -> service.rename(id, null));
+        assertThrows(NullPointerException.class, () -> service.rename(id, null, USER_ID));
         verify(repository).findById(id);
         verify(repository, never()).save(any());
     }
@@ -242,7 +301,7 @@ class SessionServiceImplTest {
 
         RenameSessionRequest req = new RenameSessionRequest("");
 
-        SessionResponse result = service.rename(id, req);
+        SessionResponse result = service.rename(id, req, USER_ID);
 
         assertThat(result.name()).isEqualTo("");
         verify(repository).save(any(ChatSession.class));
@@ -261,7 +320,7 @@ class SessionServiceImplTest {
 
         RenameSessionRequest req = new RenameSessionRequest("New");
 
-        assertThrows(RuntimeException.class, () -> service.rename(id, req));
+        assertThrows(RuntimeException.class, () -> service.rename(id, req, USER_ID));
     }
 
     @Test
@@ -276,7 +335,7 @@ class SessionServiceImplTest {
         when(repository.save(any(ChatSession.class))).thenAnswer(inv -> inv.getArgument(0));
         FavoriteSessionRequest req = new FavoriteSessionRequest(true);
 
-        SessionResponse result = service.favorite(id, req);
+        SessionResponse result = service.favorite(id, req, USER_ID);
 
         ArgumentCaptor<ChatSession> captor = ArgumentCaptor.forClass(ChatSession.class);
         verify(repository).save(captor.capture());
@@ -298,7 +357,7 @@ class SessionServiceImplTest {
         when(repository.save(any(ChatSession.class))).thenAnswer(inv -> inv.getArgument(0));
         FavoriteSessionRequest req = new FavoriteSessionRequest(false);
 
-        SessionResponse result = service.favorite(id, req);
+        SessionResponse result = service.favorite(id, req, USER_ID);
 
         ArgumentCaptor<ChatSession> captor = ArgumentCaptor.forClass(ChatSession.class);
         verify(repository).save(captor.capture());
@@ -315,7 +374,7 @@ class SessionServiceImplTest {
         when(repository.findById(id)).thenReturn(Optional.empty());
 
         FavoriteSessionRequest req = new FavoriteSessionRequest(true);
-        assertThrows(ResourceNotFoundException.class, () -> service.favorite(id, req));
+        assertThrows(ResourceNotFoundException.class, () -> service.favorite(id, req, USER_ID));
         verify(repository).findById(id);
         verify(repository, never()).save(any());
     }
@@ -331,48 +390,65 @@ class SessionServiceImplTest {
         when(repository.save(any(ChatSession.class)))
                 .thenThrow(new RuntimeException("Save failed"));
         FavoriteSessionRequest req = new FavoriteSessionRequest(true);
-        assertThrows(RuntimeException.class, () -> service.favorite(id, req));
+        assertThrows(RuntimeException.class, () -> service.favorite(id, req, USER_ID));
     }
 
     @Test
-    @DisplayName("Delete - success with valid id")
-    void delete_shouldInvokeRepository() {
+    @DisplayName("Rename - session owned by another user throws ResourceNotFoundException without loading it")
+    void rename_whenNotOwner_shouldThrowEntityNotFound() {
         UUID id = UUID.randomUUID();
-        ChatSession existing = new ChatSession();
-        existing.setId(id);
+        doThrow(new ResourceNotFoundException("Session not found")).when(ownershipCache).requireOwned(id, USER_ID);
 
-        when(repository.findById(id)).thenReturn(Optional.of(existing));
-        doNothing().when(repository).delete(any(ChatSession.class));
+        assertThrows(ResourceNotFoundException.class, () -> service.rename(id, new RenameSessionRequest("New Name"), USER_ID));
+        verify(repository, never()).findById(any());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Delete - success marks session as tombstone without loading it")
+    void delete_shouldMarkSessionDeleted() {
+        UUID id = UUID.randomUUID();
+        when(repository.markDeleted(eq(id), any(Instant.class))).thenReturn(1);
 
-        service.delete(id);
+        service.delete(id, USER_ID);
 
-        verify(repository).findById(id);
-        verify(repository).delete(existing);
+        verify(ownershipCache).requireOwned(id, USER_ID);
+        verify(repository).markDeleted(eq(id), any(Instant.class));
+        verify(ownershipCache).markDeleted(id, USER_ID);
+        verify(listVersions).bump(USER_ID);
+        verify(repository, never()).findById(any());
+        verify(repository, never()).delete(any());
     }
 
     @Test
     @DisplayName("Delete - session not found throws ResourceNotFoundException")
     void delete_whenSessionNotFound_shouldThrowEntityNotFound() {
         UUID id = UUID.randomUUID();
-        when(repository.findById(id)).thenReturn(Optional.empty());
+        when(repository.markDeleted(eq(id), any(Instant.class))).thenReturn(0);
 
-        assertThrows(ResourceNotFoundException.class, () -> service.delete(id));
-        verify(repository).findById(id);
+        assertThrows(ResourceNotFoundException.class, () -> service.delete(id, USER_ID));
         verify(repository, never()).delete(any());
+        verify(ownershipCache, never()).markDeleted(any(), any());
+        verifyNoInteractions(listVersions);
     }
 
     @Test
     @DisplayName("Delete - repository throws exception")
     void delete_whenRepositoryThrows_shouldPropagate() {
         UUID id = UUID.randomUUID();
-        ChatSession existing = new ChatSession();
-        existing.setId(id);
+        when(repository.markDeleted(eq(id), any(Instant.class))).thenThrow(new RuntimeException("db error"));
 
-        when(repository.findById(id)).thenReturn(Optional.of(existing));
-        doThrow(new RuntimeException("db error")).when(repository).delete(any(ChatSession.class));
+        assertThrows(RuntimeException.class, () -> service.delete(id, USER_ID));
+    }
 
-        assertThrows(RuntimeException.class, () -> service.delete(id));
-        verify(repository).delete(any());
+    private ChatSession session(String userId, String name, Instant createdAt) {
+        ChatSession session = new ChatSession();
+        session.setId(UUID.randomUUID());
+        session.setUserId(userId);
+        session.setName(name);
+        session.setCreatedAt(createdAt);
+        session.setUpdatedAt(createdAt);
+        return session;
     }
 
-}
\ No newline at end of file
+}